@@ -0,0 +1,71 @@
+package net.plumbing.msgbus.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container for the parsed tag tree of one message: HashMap&lt;Integer, MessageDetailVO&gt; with the Tag_Par_Num index
+ * ( as MessageDetails held it before ) vs MessageTree. Tag values are prepared in advance, only the container is measured;
+ * bytes per message are the gc.alloc.rate.norm column of -prof gc:
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="MessageTreeAllocationBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MessageTreeAllocationBenchmark {
+
+    @Param({ "50", "1000", "5000", "20000" })
+    public int TagCount;
+
+    private String[][] Message;
+    // объект переиспользуется, как MessageDetails между сообщениями
+    private MessageTree MessageTree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Message = makeMessage(TagCount);
+        MessageTree = new MessageTree();
+    }
+
+    // как было в ReadMessage: VO на каждый тег + вторичный индекс по Tag_Par_Num
+    @Benchmark
+    public int hashMap() {
+        HashMap<Integer, MessageDetailVO> Message = new HashMap<>();
+        HashMap<Integer, ArrayList<Integer>> MessageIndex_by_Tag_Par_Num = new HashMap<>();
+        for (int i = 0; i < this.Message.length; i++) {
+            MessageDetailVO messageDetailVO = new MessageDetailVO();
+            messageDetailVO.setMessageQueue(this.Message[i][0], this.Message[i][1], i + 1, parentOf(i));
+            Message.put(i, messageDetailVO);
+            MessageIndex_by_Tag_Par_Num.computeIfAbsent(parentOf(i), k -> new ArrayList<>()).add(i);
+        }
+        return Message.size() + MessageIndex_by_Tag_Par_Num.size();
+    }
+
+    @Benchmark
+    public int messageTree() {
+        MessageTree.clear();
+        for (int i = 0; i < Message.length; i++)
+            MessageTree.add(Message[i][0], Message[i][1], i + 1, parentOf(i));
+        return MessageTree.size() + MessageTree.getChildCount(1);
+    }
+
+    private static int parentOf(int i) {
+        return i == 0 ? 0 : 1 + (i - 1) / 10;
+    }
+
+    private static String[][] makeMessage(int tagCount) {
+        String[][] message = new String[tagCount][2];
+        for (int i = 0; i < tagCount; i++) {
+            message[i][0] = "Tag_" + (i % 40);
+            message[i][1] = "value_" + i;
+        }
+        return message;
+    }
+}
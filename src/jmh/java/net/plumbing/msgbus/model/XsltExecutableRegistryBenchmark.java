@@ -0,0 +1,81 @@
+package net.plumbing.msgbus.model;
+
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the XSLT slots of all templates, as ConfigMsgTemplates does on start and on re-init:
+ * XsltExecutableRegistry ( one Processor, every distinct stylesheet compiled once ) vs new Processor(false) per slot,
+ * as MessageTemplateVO.make*XSLT_xslt30Transformer did before. Templates * Slots stylesheets, Distinct of them differ.
+ * Every invocation is a cold reload: the texts carry an invocation number, so the registry cannot reuse the previous one.
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="XsltExecutableRegistryBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class XsltExecutableRegistryBenchmark {
+
+    @Param("300")
+    public int Templates;
+    @Param("5")
+    public int Slots;
+    @Param("60")
+    public int Distinct;
+
+    private int Reload = 0;
+    private List<String> XSLT_Texts;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        Reload++;
+        XSLT_Texts = new ArrayList<>(Templates * Slots);
+        for (int i = 0; i < Templates * Slots; i++)
+            XSLT_Texts.add( makeXSLT(Reload, i % Distinct) );
+    }
+
+    @Benchmark
+    public List<XsltExecutable> registry() throws SaxonApiException {
+        List<XsltExecutable> Shared = new ArrayList<>(XSLT_Texts.size());
+        for (String XSLT_Text : XSLT_Texts)
+            Shared.add( XsltExecutableRegistry.compile(XSLT_Text) );
+        return Shared;
+    }
+
+    // как было в MessageTemplateVO.make*XSLT_xslt30Transformer
+    @Benchmark
+    public List<XsltExecutable> perSlot() throws SaxonApiException {
+        List<XsltExecutable> PerSlot = new ArrayList<>(XSLT_Texts.size());
+        for (String XSLT_Text : XSLT_Texts) {
+            Processor processor = new Processor(false);
+            PerSlot.add( processor.newXsltCompiler().compile( new StreamSource(new ByteArrayInputStream(XSLT_Text.getBytes(StandardCharsets.UTF_8))) ) );
+        }
+        return PerSlot;
+    }
+
+    private static String makeXSLT(int Reload, int Variant) {
+        StringBuilder XSLT = new StringBuilder();
+        XSLT.append("<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">")
+            .append("<!-- reload ").append(Reload).append(" -->")
+            .append("<xsl:template match=\"/\"><Result variant=\"").append(Variant).append("\">");
+        for (int i = 0; i < 20; i++)
+            XSLT.append("<Field").append(i).append("><xsl:value-of select=\"/Envelope/Body/*/Tag").append(i)
+                .append("\"/></Field").append(i).append(">");
+        XSLT.append("<xsl:apply-templates select=\"/Envelope/Header\"/></Result></xsl:template>")
+            .append("<xsl:template match=\"Header\"><Context><xsl:copy-of select=\"Context/*\"/></Context></xsl:template>")
+            .append("</xsl:stylesheet>");
+        return XSLT.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.model.MessageDetails;
+import net.plumbing.msgbus.model.MessageDirectionsVO;
+import net.plumbing.msgbus.model.MessageRepositorySnapshot;
+import net.plumbing.msgbus.model.MessageTemplateVO;
+import net.plumbing.msgbus.model.MessageTypeVO;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * SOAP requests for the JMH benchmarks, checked in as src/test/resources/benchmark/soap-{small,medium,large}.xml
+ * ( about 2 KB, 50 KB and 500 KB: CreateOrder with 5, 200 and 2 000 items, Context in the Header ).
+ * publishRepository() gives the Context its system CRM and operation 7 without the database.
+ */
+final class BenchmarkPayloads {
+
+    // журналирование в замер не входит
+    static final Logger Log = NOPLogger.NOP_LOGGER;
+
+    private BenchmarkPayloads() { }
+
+    static String read(String PayloadSize) throws IOException {
+        String Resource = "/benchmark/soap-" + PayloadSize + ".xml";
+        try (InputStream inputStream = BenchmarkPayloads.class.getResourceAsStream(Resource)) {
+            if (inputStream == null)
+                throw new IOException("benchmark payload " + Resource + " is not on the test classpath");
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static void publishRepository() {
+        MessageDirectionsVO messageDirectionsVO = new MessageDirectionsVO();
+        messageDirectionsVO.setMessageDirectionsVO(1, "CRM", "", null, null, null, null, 0,
+                null, null, null, null, 100, 4, 1, 1, 1, 1);
+        HashMap<Integer, MessageDirectionsVO> AllMessageDirections = new HashMap<>();
+        AllMessageDirections.put(0, messageDirectionsVO);
+
+        MessageTypeVO messageTypeVO = new MessageTypeVO();
+        messageTypeVO.setMessageTypeVO(10, 7, "CreateOrder", null, "CreateOrder", "IN", 0,
+                null, null, 1, 1, null);
+        HashMap<Integer, MessageTypeVO> AllMessageType = new HashMap<>();
+        AllMessageType.put(0, messageTypeVO);
+
+        MessageRepositorySnapshot.publish(AllMessageDirections, AllMessageType, new HashMap<Integer, MessageTemplateVO>());
+    }
+
+    // запрос после makeClearRequest без EnvelopeInXSLT - как его видят следующие этапы приёма
+    static MessageDetails clearRequest(String XML_MsgInput) throws Exception {
+        MessageDetails Message = new MessageDetails();
+        Message.XML_MsgInput = XML_MsgInput;
+        XMLutils.makeClearRequest(Message, -1, new StringBuilder(), false, Log);
+        return Message;
+    }
+}
@@ -0,0 +1,99 @@
+package net.plumbing.msgbus.threads.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one message of TagCount rows into MESSAGE_QueueDET: batched INSERT ( BatchMessageDetailsWriter ) vs
+ * PostgreSQL COPY ( CopyMessageDetailsWriter ). Needs a PostgreSQL with the Hermes schema, so the default jmh run skips it:
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="MessageDetailsWriterBenchmark -p jdbcUrl=jdbc:postgresql://host:5432/db
+ *        -p user=... -p password=... -p schema=orm"
+ *
+ * Every write is rolled back, nothing stays in MESSAGE_QueueDET.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MessageDetailsWriterBenchmark {
+
+    @Param({ "50", "1000", "5000", "20000" })
+    public int TagCount;
+
+    @Param("")
+    public String jdbcUrl;
+    @Param("")
+    public String user;
+    @Param("")
+    public String password;
+    @Param("orm")
+    public String schema;
+
+    private Connection Hermes_Connection;
+    private BatchMessageDetailsWriter BatchWriter;
+    private CopyMessageDetailsWriter CopyWriter;
+    private String[][] Message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        if (jdbcUrl.isEmpty())
+            throw new IllegalStateException("MessageDetailsWriterBenchmark needs -p jdbcUrl=..., see class Javadoc");
+        Hermes_Connection = DriverManager.getConnection(jdbcUrl, user, password);
+        Hermes_Connection.setAutoCommit(false);
+        String INSERT_Message_Details = "INSERT into " + schema + ".MESSAGE_QueueDET (QUEUE_ID, TAG_ID, TAG_VALUE, TAG_NUM, TAG_PAR_NUM) values (?, ?, ?, ?, ?)";
+        PreparedStatement stmt_INSERT_Message_Details = Hermes_Connection.prepareStatement(INSERT_Message_Details);
+        BatchWriter = new BatchMessageDetailsWriter(stmt_INSERT_Message_Details, INSERT_Message_Details);
+        CopyWriter = new CopyMessageDetailsWriter(Hermes_Connection, schema);
+        Message = makeMessage(TagCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (Hermes_Connection != null)
+            Hermes_Connection.close();
+    }
+
+    @Benchmark
+    public int batchInsert() throws SQLException {
+        return writeMessage(BatchWriter);
+    }
+
+    @Benchmark
+    public int copy() throws SQLException {
+        return writeMessage(CopyWriter);
+    }
+
+    // отрицательный Queue_Id, что бы не пересечься с реальными сообщениями, транзакция откатывается
+    private int writeMessage(MessageDetailsWriter detailsWriter) throws SQLException {
+        for (int i = 0; i < Message.length; i++)
+            detailsWriter.addRow(-1L, Message[i][0], Message[i][1], i, i == 0 ? 0 : (i - 1) / 10);
+        int rows = detailsWriter.flush();
+        Hermes_Connection.rollback();
+        return rows;
+    }
+
+    // типичное тело: короткие теги, значения от пары символов до абзаца текста, изредка с переводом строки
+    private static String[][] makeMessage(int tagCount) {
+        String[][] message = new String[tagCount][2];
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < tagCount; i++) {
+            value.setLength(0);
+            int valueLength = (i % 7 == 0) ? 200 : 8 + (i % 24);
+            for (int j = 0; j < valueLength; j++)
+                value.append((char) ('a' + (i + j) % 26));
+            if (i % 50 == 0)
+                value.append("\n\ttail\\");
+            message[i][0] = "Tag_" + (i % 40);
+            message[i][1] = value.toString();
+        }
+        return message;
+    }
+}
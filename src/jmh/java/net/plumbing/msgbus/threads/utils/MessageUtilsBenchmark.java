@@ -0,0 +1,73 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.model.MessageDetails;
+import net.plumbing.msgbus.model.MessageTree;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.jdom2.Element;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message tag tree of MessageUtils on the small / medium / large SOAP payloads:
+ * SplitMessage ( Request_Method element into MessageTree rows, as SaveMessage4Input does before the insert into
+ * MESSAGE_QueueDET ) and the way back - the rows read from MESSAGE_QueueDET are added to a fresh MessageTree the way
+ * ReadMessage does it and XML_Current_Tags rebuilds the XML from them. The database itself is not part of the measurement.
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="MessageUtilsBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MessageUtilsBenchmark {
+
+    @Param({ "small", "medium", "large" })
+    public String PayloadSize;
+
+    private Element Request_Method;
+    // строки MESSAGE_QueueDET: Tag_Id, Tag_Value, Tag_Num, Tag_Par_Num
+    private String[] Tag_Id;
+    private String[] Tag_Value;
+    private int[] Tag_Num;
+    private int[] Tag_Par_Num;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MessageDetails Message = BenchmarkPayloads.clearRequest(BenchmarkPayloads.read(PayloadSize));
+        Request_Method = Message.Request_Method;
+        MessageUtils.SplitMessage(Message, Request_Method, 0, BenchmarkPayloads.Log);
+        MessageTree Rows = Message.Message;
+        Tag_Id = new String[Rows.size()];
+        Tag_Value = new String[Rows.size()];
+        Tag_Num = new int[Rows.size()];
+        Tag_Par_Num = new int[Rows.size()];
+        for (int i = 0; i < Rows.size(); i++) {
+            Tag_Id[i] = Rows.getTag_Id(i);
+            Tag_Value[i] = Rows.getTag_Value(i);
+            Tag_Num[i] = Rows.getTag_Num(i);
+            Tag_Par_Num[i] = Rows.getTag_Par_Num(i);
+        }
+    }
+
+    @Benchmark
+    public int splitMessage() {
+        MessageDetails Message = new MessageDetails();
+        MessageUtils.SplitMessage(Message, Request_Method, 0, BenchmarkPayloads.Log);
+        return Message.Message.size();
+    }
+
+    @Benchmark
+    public int readMessage_XML_Current_Tags() {
+        MessageDetails Message = new MessageDetails();
+        // как в ReadMessage: значение экранируется при чтении из БД
+        for (int i = 0; i < Tag_Id.length; i++)
+            Message.Message.add(Tag_Id[i],
+                    Tag_Value[i] == null ? null : StringEscapeUtils.escapeXml10(MessageUtils.stripNonValidXMLCharacters(Tag_Value[i])),
+                    Tag_Num[i], Tag_Par_Num[i]);
+        MessageUtils.XML_Current_Tags(Message, 0);
+        return Message.XML_MsgResponse.length();
+    }
+}
@@ -0,0 +1,128 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.model.MessageDetails;
+import net.plumbing.msgbus.model.XsltExecutableRegistry;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.Serializer;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * makeClearRequest + HeaderInXSLT per inbound message: strings between the XSLT stages ( as before )
+ * vs trees ( ConvXMLuseXSLT30toDocument / getClearXdmNode ). XML_MsgClear is still pretty-printed in both
+ * variants - it is kept for the database and the journal. Bytes per message come from -prof gc:
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="ReceivePipelineBenchmark -prof gc"
+ *
+ * Both variants start from the namespace-free XML_MsgClear string and end with the Context element of the header.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class ReceivePipelineBenchmark {
+
+    @Param({ "20", "500", "5000" })
+    public int TagCount;
+
+    private static final Logger Log = LoggerFactory.getLogger(ReceivePipelineBenchmark.class);
+
+    // EnvelopeInXSLT: переименование метода, остальное копируется
+    private static final String EnvelopeInXSLT =
+            "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+            "<xsl:template match=\"@*|node()\"><xsl:copy><xsl:apply-templates select=\"@*|node()\"/></xsl:copy></xsl:template>" +
+            "<xsl:template match=\"/Envelope/Body/*\"><Request><xsl:apply-templates select=\"@*|node()\"/></Request></xsl:template>" +
+            "</xsl:stylesheet>";
+    // HeaderInXSLT: Context из полей тела
+    private static final String HeaderInXSLT =
+            "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+            "<xsl:template match=\"/\"><Context>" +
+            "<EventInitiator>SRC</EventInitiator><EventSource>SRC</EventSource>" +
+            "<EventOperationId><xsl:value-of select=\"/Envelope/Body/*/Operation\"/></EventOperationId>" +
+            "<EventKey><xsl:value-of select=\"/Envelope/Body/*/Key\"/></EventKey>" +
+            "</Context></xsl:template></xsl:stylesheet>";
+
+    private XsltExecutable EnvelopeIn;
+    private XsltExecutable HeaderIn;
+    private String XML_MsgClear;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EnvelopeIn = XsltExecutableRegistry.compile(EnvelopeInXSLT);
+        HeaderIn = XsltExecutableRegistry.compile(HeaderInXSLT);
+        XML_MsgClear = makeMessage(TagCount);
+        // оба варианта обязаны давать один и тот же Context
+        if ( !new XMLOutputter().outputString(viaStrings(XML_MsgClear, EnvelopeIn, HeaderIn))
+                .equals(new XMLOutputter().outputString(viaTrees(XML_MsgClear, EnvelopeIn, HeaderIn))) )
+            throw new IllegalStateException("variants disagree");
+    }
+
+    @Benchmark
+    public Element strings() throws Exception {
+        return viaStrings(XML_MsgClear, EnvelopeIn, HeaderIn);
+    }
+
+    @Benchmark
+    public Element trees() throws Exception {
+        return viaTrees(XML_MsgClear, EnvelopeIn, HeaderIn);
+    }
+
+    // как было: результат каждого XSLT - строка, которая тут же разбирается снова
+    private static Element viaStrings(String XML_MsgClear, XsltExecutable EnvelopeIn, XsltExecutable HeaderIn) throws Exception {
+        String EnvelopeInResult = transformBytes(EnvelopeIn, XML_MsgClear);
+        Document ClearDocument = new SAXBuilder().build(new ByteArrayInputStream(EnvelopeInResult.getBytes(StandardCharsets.UTF_8)));
+        String PrettyMsgClear = new XMLOutputter(Format.getPrettyFormat()).outputString(ClearDocument);
+        String Soap_HeaderRequest = transformBytes(HeaderIn, PrettyMsgClear);
+        return new SAXBuilder().build(new ByteArrayInputStream(Soap_HeaderRequest.getBytes(StandardCharsets.UTF_8))).getRootElement();
+    }
+
+    private static Element viaTrees(String XML_MsgClear, XsltExecutable EnvelopeIn, XsltExecutable HeaderIn) throws Exception {
+        StringBuilder MsgResult = new StringBuilder();
+        StringBuilder ConvXMLuseXSLTerr = new StringBuilder();
+        MessageDetails Message = new MessageDetails();
+        Message.Input_Clear_XMLDocument = XMLutils.ConvXMLuseXSLT30toDocument(-1L, new StreamSource(new StringReader(XML_MsgClear)),
+                XsltExecutableRegistry.load30(EnvelopeIn), EnvelopeInXSLT, MsgResult, ConvXMLuseXSLTerr, Log, false);
+        // XML_MsgClear для БД по-прежнему строкой
+        Message.XML_MsgClear.append(new XMLOutputter(Format.getPrettyFormat()).outputString(Message.Input_Clear_XMLDocument));
+        return XMLutils.ConvXMLuseXSLT30toDocument(-1L, XMLutils.getClearXdmNode(Message).asSource(),
+                XsltExecutableRegistry.load30(HeaderIn), HeaderInXSLT, MsgResult, ConvXMLuseXSLTerr, Log, false).getRootElement();
+    }
+
+    // как было в ConvXMLuseXSLT30: getBytes() на входе, ByteArrayOutputStream на выходе
+    private static String transformBytes(XsltExecutable xsltExecutable, String XML) throws SaxonApiException {
+        ByteArrayOutputStream outputByteArrayStream = new ByteArrayOutputStream();
+        Serializer outSerializer = XsltExecutableRegistry.SharedProcessor.newSerializer(outputByteArrayStream);
+        outSerializer.setOutputProperty(Serializer.Property.METHOD, "xml");
+        outSerializer.setOutputProperty(Serializer.Property.ENCODING, "utf-8");
+        outSerializer.setOutputProperty(Serializer.Property.INDENT, "no");
+        outSerializer.setOutputProperty(Serializer.Property.OMIT_XML_DECLARATION, "yes");
+        XsltExecutableRegistry.load30(xsltExecutable).transform(
+                new StreamSource(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8))), outSerializer);
+        return outputByteArrayStream.toString();
+    }
+
+    private static String makeMessage(int tagCount) {
+        StringBuilder XML = new StringBuilder("<Envelope><Header></Header><Body><CreateOrder>");
+        XML.append("<Operation>7</Operation><Key>123456</Key>");
+        for (int i = 0; i < tagCount; i++)
+            XML.append("<Item n=\"").append(i).append("\"><Code>C-").append(i).append("</Code><Name>Позиция &amp; ").append(i)
+               .append("</Name></Item>");
+        return XML.append("</CreateOrder></Body></Envelope>").toString();
+    }
+}
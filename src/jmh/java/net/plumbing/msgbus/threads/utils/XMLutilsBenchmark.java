@@ -0,0 +1,73 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.model.MessageDetails;
+import net.plumbing.msgbus.model.MessageQueueVO;
+import net.plumbing.msgbus.model.XsltExecutableRegistry;
+import net.sf.saxon.s9api.Xslt30Transformer;
+import org.jdom2.output.XMLOutputter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive-side XML stages of XMLutils on the small / medium / large SOAP payloads:
+ * makeClearRequest ( parse, strip ns:, second parse, pretty-print XML_MsgClear ), ConvXMLuseXSLT30 with an
+ * EnvelopeInXSLT-like stylesheet and Soap_HeaderRequest2messageQueueVO on the Context header.
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="XMLutilsBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class XMLutilsBenchmark {
+
+    // EnvelopeInXSLT: переименование метода, остальное копируется
+    private static final String EnvelopeInXSLT =
+            "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+            "<xsl:template match=\"@*|node()\"><xsl:copy><xsl:apply-templates select=\"@*|node()\"/></xsl:copy></xsl:template>" +
+            "<xsl:template match=\"/Envelope/Body/*\"><Request><xsl:apply-templates select=\"@*|node()\"/></Request></xsl:template>" +
+            "</xsl:stylesheet>";
+
+    @Param({ "small", "medium", "large" })
+    public String PayloadSize;
+
+    private String XML_MsgInput;
+    private String XML_MsgClear;
+    private String Soap_HeaderRequest;
+    private Xslt30Transformer EnvelopeInTransformer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkPayloads.publishRepository();
+        XML_MsgInput = BenchmarkPayloads.read(PayloadSize);
+        MessageDetails Message = BenchmarkPayloads.clearRequest(XML_MsgInput);
+        XML_MsgClear = Message.XML_MsgClear.toString();
+        Soap_HeaderRequest = new XMLOutputter().outputString(Message.Input_Header_Context);
+        // шаблон держит загруженный трансформер, как MessageTemplate4Perform
+        EnvelopeInTransformer = XsltExecutableRegistry.load30(XsltExecutableRegistry.compile(EnvelopeInXSLT));
+    }
+
+    @Benchmark
+    public String makeClearRequest() throws Exception {
+        MessageDetails Message = new MessageDetails();
+        Message.XML_MsgInput = XML_MsgInput;
+        return XMLutils.makeClearRequest(Message, -1, new StringBuilder(), false, BenchmarkPayloads.Log);
+    }
+
+    @Benchmark
+    public String convXMLuseXSLT30() throws Exception {
+        return XMLutils.ConvXMLuseXSLT30(-1L, XML_MsgClear,
+                XsltExecutableRegistry.SharedProcessor, XsltExecutableRegistry.SharedXsltCompiler, EnvelopeInTransformer,
+                EnvelopeInXSLT, new StringBuilder(), new StringBuilder(), BenchmarkPayloads.Log, false);
+    }
+
+    @Benchmark
+    public MessageQueueVO soap_HeaderRequest2messageQueueVO() throws Exception {
+        MessageQueueVO messageQueueVO = new MessageQueueVO();
+        XMLutils.Soap_HeaderRequest2messageQueueVO(Soap_HeaderRequest, messageQueueVO, BenchmarkPayloads.Log);
+        return messageQueueVO;
+    }
+}
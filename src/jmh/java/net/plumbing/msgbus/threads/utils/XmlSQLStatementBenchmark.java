@@ -0,0 +1,69 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.model.MessageDetails;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of an SQL handler result into XML_MsgConfirmation by XmlSQLStatement:
+ * a SELECT of RowCount rows x 8 columns into Confirmation/DetailList/Record ( MakeConfirmation4Select ).
+ * The ResultSet is an in-memory stand-in, so only the rendering is measured, not the JDBC driver.
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="XmlSQLStatementBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class XmlSQLStatementBenchmark {
+
+    private static final String[] ColumnLabels =
+            { "ORDER_ID", "LINE_NUM", "SKU", "ITEM_NAME", "QUANTITY", "PRICE", "CURRENCY_CODE", "STATUS_TEXT" };
+
+    @Param({ "10", "1000", "10000" })
+    public int RowCount;
+
+    private String[][] Rows;
+    private ResultSetMetaData MetaData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Rows = new String[RowCount][];
+        for (int r = 0; r < RowCount; r++)
+            Rows[r] = new String[] { "ORD-2026-000123", Integer.toString(r + 1), String.format("SKU-%06d", r + 1),
+                    "Позиция " + (r + 1) + " <тест> & ко", Integer.toString(r % 7 + 1), (r * 37) % 10000 + ".50", "RUB",
+                    r % 10 == 0 ? null : "принято" };
+        MetaData = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> ColumnLabels.length;
+                    case "getColumnLabel", "getColumnName" -> ColumnLabels[(Integer) args[0] - 1];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public int makeConfirmation4Select() throws SQLException {
+        MessageDetails Message = new MessageDetails();
+        XmlSQLStatement.MakeConfirmation4Select(resultSet(), MetaData, Message);
+        return Message.XML_MsgConfirmation.length();
+    }
+
+    // курсор по Rows: next() / getString( номер колонки )
+    private ResultSet resultSet() {
+        int[] Row = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++Row[0] < Rows.length;
+                    case "getString" -> Rows[Row[0]][(Integer) args[0] - 1];
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
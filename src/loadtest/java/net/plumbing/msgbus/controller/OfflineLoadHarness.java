@@ -0,0 +1,446 @@
+package net.plumbing.msgbus.controller;
+
+import com.sun.net.httpserver.HttpServer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.plumbing.msgbus.ServletApplication;
+import net.plumbing.msgbus.model.MessageTemplate;
+import org.apache.activemq.broker.BrokerService;
+import org.springframework.boot.SpringApplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test of the whole bus on one box without network: embedded PostgreSQL ( zonky ) with the
+ * message_db_schema from /loadtest/schema.sql and the LoadTest interface from /loadtest/seed.sql, an embedded
+ * ActiveMQ broker on vm://hermes, a partner stub on the JDK HttpServer and the ServletApplication itself in this JVM.
+ *
+ * Every request is CreateOrder ( operation 7 ): its SQL handler answers with a Confirmation and creates a
+ * PartnerOrder ( operation 7512 ) that ConfigPostExec hands to OutboundDeliveryEngine, so one message covers the
+ * receive pipeline, the handler, the synchronous reply and the outbound SOAP call to the partner.
+ * Traffic is open-loop: requests start at load.rate per second whatever the latency, and the latency of a request
+ * is counted from its planned start, so a stalled bus shows up in p99 instead of lowering the rate.
+ *
+ *   mvn -Ploadtest test-compile exec:exec
+ *   mvn -Ploadtest test-compile exec:exec -Dload.args="-Dload.mode=rest -Dload.rate=500 -Dload.seconds=120 -Dload.partnerLatencyMs=50"
+ *
+ * load.mode soap ( default ) posts /benchmark/soap-{load.payload}.xml to /HermesService/SoapRequest/LoadTest,
+ * rest posts the body of the same request to /HermesService/PostHttpRequest/LoadTest.
+ * load.virtualThreads=true starts the bus with spring.threads.virtual.enabled=true; run the same load with false and
+ * true to compare platform and virtual threads on synchronous calls.
+ * load.syncWait=true clears NoWait4Sender and ConfigPostExec on CreateOrder, so every call waits for its PartnerOrder
+ * like a synchronous call to an external system does. Such an OUT is sent by the Sender service, not by this
+ * application; here a stand-in finishes it as DELOUT load.partnerLatencyMs after it appears. With a long latency this
+ * holds 1k+ synchronous calls open at once: in flight = load.rate * load.partnerLatencyMs / 1000.
+ * PostgreSQL refuses to start as root, so run it as an ordinary user. Reference reports are in src/loadtest/results.
+ */
+public class OfflineLoadHarness {
+
+    // запросы самого harness к pg_stat_statements помечены, что бы не попасть в счёт запросов на сообщение
+    private static final String HarnessMark = "/* OfflineLoadHarness */ ";
+
+    private static final String PartnerReply =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>" +
+            "<Confirmation><ResultCode>0</ResultCode><Message>ok</Message><Next>DELOUT</Next></Confirmation>" +
+            "</soapenv:Body></soapenv:Envelope>";
+
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("load.mode", "soap");
+        String payload = System.getProperty("load.payload", "small");
+        int rate = Integer.getInteger("load.rate", 200);
+        int seconds = Integer.getInteger("load.seconds", 60);
+        int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+        int maxInFlight = Integer.getInteger("load.maxInFlight", 2000);
+        int partnerLatencyMs = Integer.getInteger("load.partnerLatencyMs", 20);
+        int drainSeconds = Integer.getInteger("load.drainSeconds", 120);
+        boolean syncWait = Boolean.getBoolean("load.syncWait");
+        Duration timeout = Duration.ofSeconds(Integer.getInteger("load.timeoutSeconds", 120));
+
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("shared_preload_libraries", "pg_stat_statements")
+                .setServerConfig("max_connections", "300")
+                .start();
+        BrokerService broker = new BrokerService();
+        HttpServer partner = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             Connection statConnection = postgres.getPostgresDatabase().getConnection()) {
+
+            // заглушка партнёра: задержка load.partnerLatencyMs и подтверждение с Next=DELOUT
+            LongAdder partnerCalls = new LongAdder();
+            partner.createContext("/partner/order", exchange -> {
+                try (exchange) {
+                    exchange.getRequestBody().readAllBytes();
+                    partnerCalls.increment();
+                    if (partnerLatencyMs > 0)
+                        Thread.sleep(partnerLatencyMs);
+                    byte[] reply = PartnerReply.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+                    exchange.sendResponseHeaders(200, reply.length);
+                    exchange.getResponseBody().write(reply);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            partner.setExecutor(clientThreads);
+            partner.start();
+            String partnerUrl = "http://127.0.0.1:" + partner.getAddress().getPort();
+
+            try (Statement statement = statConnection.createStatement()) {
+                statement.execute("create extension if not exists pg_stat_statements");
+                statement.execute(resource("/loadtest/schema.sql"));
+                statement.execute(resource("/loadtest/seed.sql").replace("@PARTNER_URL@", partnerUrl));
+                if (syncWait) {
+                    // ждём PartnerOrder, а отправляет его Sender, не пост-обработка web-json
+                    statement.execute("update message_db_schema.message_types set url_soap_ack = null where interface_id = 100 and operation_id = 7");
+                    statement.execute("update message_db_schema.message_templates set conf_text = " +
+                            "replace(conf_text, '<ConfigPostExec>ExeMetod=web-json</ConfigPostExec>', '') where template_id = 1007");
+                }
+            }
+            if (syncWait)
+                startSender(postgres, partnerLatencyMs, partnerCalls);
+
+            broker.setBrokerName("hermes");
+            broker.setPersistent(false);
+            broker.setUseJmx(false);
+            broker.setUseShutdownHook(false);
+            broker.start();
+
+            int busPort = freePort();
+            Thread busThread = startBus(busPort, postgres.getJdbcUrl("postgres", "postgres"));
+            waitForBus(busPort, busThread);
+
+            String body = resource("/benchmark/soap-" + payload + ".xml");
+            String path = "/HermesService/SoapRequest/LoadTest";
+            if (mode.equalsIgnoreCase("rest")) {
+                body = soapBody(body);
+                path = "/HermesService/PostHttpRequest/LoadTest";
+            }
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .executor(clientThreads)
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + busPort + path))
+                    .timeout(timeout)
+                    .header("Content-Type", "text/xml; charset=utf-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                    .build();
+
+            System.out.printf("=== %s %s payload, %d msg/s for %d s ( warmup %d s ), partner latency %d ms, virtual threads %b%s ===%n",
+                    mode, payload, rate, seconds, warmupSeconds, partnerLatencyMs, Boolean.getBoolean("load.virtualThreads"),
+                    syncWait ? ", sync wait" : "");
+            if (warmupSeconds > 0) {
+                drive(httpClient, request, clientThreads, rate, warmupSeconds, maxInFlight);
+                drain(statConnection, drainSeconds);
+            }
+            execute(statConnection, "select pg_stat_statements_reset()");
+            ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+            long partnerCallsBefore = partnerCalls.sum();
+
+            Run run = drive(httpClient, request, clientThreads, rate, seconds, maxInFlight);
+            boolean drained = drain(statConnection, drainSeconds);
+            long endToEndNanos = System.nanoTime() - run.startNanos();
+
+            long sent = run.report().latencyNanos().length;
+            long delivered = partnerCalls.sum() - partnerCallsBefore;
+            run.report().print();
+            System.out.printf("target %d msg/s, sent %d, skipped %d ( load.maxInFlight reached ), ResultCode=0 in %d replies, peak in flight %d%n",
+                    rate, sent, run.skipped(), run.confirmed(), run.peakInFlight());
+            System.out.printf("partner calls %d, end-to-end %.1f msg/s%s%n", delivered,
+                    delivered * 1_000_000_000.0 / endToEndNanos, drained ? "" : " ( outbound not drained in load.drainSeconds )");
+            // виртуальные потоки сюда не входят, только платформенные, в том числе их носители
+            System.out.printf("platform threads peak %d%n", ManagementFactory.getThreadMXBean().getPeakThreadCount());
+            printStatements(statConnection, sent);
+            printQueue(statConnection);
+        } finally {
+            partner.stop(0);
+            broker.stop();
+            postgres.close();
+        }
+        // ServletApplication крутит свой цикл в CommandLineRunner, завершаем всю JVM
+        System.exit(0);
+    }
+
+    private record Run(Report report, long startNanos, long skipped, long confirmed, int peakInFlight) { }
+
+    private record Report(long[] latencyNanos, long elapsedNanos, long failures, Map<Integer, LongAdder> statusCodes) {
+        void print() {
+            long[] sorted = latencyNanos.clone();
+            Arrays.sort(sorted);
+            System.out.printf("throughput %.1f req/s, elapsed %.1f s%n",
+                    sorted.length * 1_000_000_000.0 / elapsedNanos, elapsedNanos / 1_000_000_000.0);
+            if (sorted.length == 0)
+                // все запросы отброшены по load.maxInFlight
+                System.out.println("latency ms: no completed requests");
+            else
+                System.out.printf("latency ms: p50 %d, p90 %d, p99 %d, max %d%n",
+                        percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1] / 1_000_000);
+            Map<Integer, Long> codes = new TreeMap<>();
+            statusCodes.forEach((code, count) -> codes.put(code, count.sum()));
+            System.out.println("status codes " + codes + ", I/O failures " + failures);
+        }
+
+        private static long percentile(long[] sorted, int percent) {
+            int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000;
+        }
+    }
+
+    // открытая модель: i-й запрос стартует в startNanos + i * period, занятость шины темп не снижает
+    private static Run drive(HttpClient httpClient, HttpRequest request, ExecutorService clientThreads,
+                             int rate, int seconds, int maxInFlight) throws InterruptedException {
+        int requests = rate * seconds;
+        long periodNanos = 1_000_000_000L / rate;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long[] latencyNanos = new long[requests];
+        LongAdder skipped = new LongAdder();
+        LongAdder confirmed = new LongAdder();
+        LongAdder failures = new LongAdder();
+        Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        int peakInFlight = 0;
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long plannedStart = startNanos + i * periodNanos;
+            long waitNanos = plannedStart - System.nanoTime();
+            if (waitNanos > 0)
+                LockSupport.parkNanos(waitNanos);
+            if (!inFlight.tryAcquire()) {
+                latencyNanos[i] = -1;
+                skipped.increment();
+                continue;
+            }
+            peakInFlight = Math.max(peakInFlight, maxInFlight - inFlight.availablePermits());
+            int requestNum = i;
+            clientThreads.execute(() -> {
+                try {
+                    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                    statusCodes.computeIfAbsent(response.statusCode(), k -> new LongAdder()).increment();
+                    if (response.body().contains("<ResultCode>0</ResultCode>"))
+                        confirmed.increment();
+                } catch (Exception e) {
+                    failures.increment();
+                } finally {
+                    latencyNanos[requestNum] = System.nanoTime() - plannedStart;
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(maxInFlight);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        inFlight.release(maxInFlight);
+        long[] sentNanos = Arrays.stream(latencyNanos).filter(latency -> latency >= 0).toArray();
+        return new Run(new Report(sentNanos, elapsedNanos, failures.sum(), statusCodes),
+                startNanos, skipped.sum(), confirmed.sum(), peakInFlight);
+    }
+
+    // вместо Sender-а: PartnerOrder, замеченный в OUT load.partnerLatencyMs назад, переводит в DELOUT, триггер шлёт NOTIFY
+    // ожидающему вызову. Время считаем сами: queue_date пишется в часовом поясе сессии шины
+    private static void startSender(EmbeddedPostgres postgres, int partnerLatencyMs, LongAdder partnerCalls) throws SQLException {
+        Connection senderConnection = postgres.getPostgresDatabase().getConnection();
+        Thread senderThread = new Thread(() -> {
+            Map<Long, Long> seenNanos = new HashMap<>();
+            try (senderConnection;
+                 PreparedStatement select = senderConnection.prepareStatement(HarnessMark +
+                         "select q.queue_id from message_db_schema.message_queue q where q.operation_id = 7512 and q.queue_direction = 'OUT'");
+                 PreparedStatement update = senderConnection.prepareStatement(HarnessMark +
+                         "update message_db_schema.message_queue q set queue_direction = 'DELOUT', prev_queue_direction = q.queue_direction, " +
+                         "msg_date = current_timestamp, msg_reason = 'OfflineLoadHarness: delivered' " +
+                         "where q.queue_id = any(?) and q.queue_direction = 'OUT'")) {
+                while (true) {
+                    long nowNanos = System.nanoTime();
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next())
+                            seenNanos.putIfAbsent(resultSet.getLong(1), nowNanos);
+                    }
+                    Long[] due = seenNanos.entrySet().stream()
+                            .filter(seen -> nowNanos - seen.getValue() >= TimeUnit.MILLISECONDS.toNanos(partnerLatencyMs))
+                            .map(Map.Entry::getKey).toArray(Long[]::new);
+                    if (due.length > 0) {
+                        update.setArray(1, senderConnection.createArrayOf("bigint", due));
+                        partnerCalls.add(update.executeUpdate());
+                        for (Long queueId : due)
+                            seenNanos.remove(queueId);
+                    }
+                    Thread.sleep(20);
+                }
+            } catch (SQLException e) {
+                System.err.println("SenderStandIn stopped: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "SenderStandIn");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    // ждём, пока OutboundDeliveryEngine доставит все PartnerOrder ( DELOUT, ERROUT или ATTOUT ); отложенные на повтор
+    // ( retry_count > 0 ) повторяет Sender, а его в harness нет - их не ждём, их число печатает printQueue()
+    private static boolean drain(Connection statConnection, int drainSeconds) throws SQLException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+        while (System.nanoTime() < deadline) {
+            try (Statement statement = statConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(HarnessMark +
+                         "select count(*) from message_db_schema.message_queue q " +
+                         "where q.operation_id = 7512 and q.queue_direction not in ('DELOUT', 'ERROUT', 'ATTOUT') and q.retry_count = 0")) {
+                resultSet.next();
+                if (resultSet.getLong(1) == 0)
+                    return true;
+            }
+            Thread.sleep(200);
+        }
+        return false;
+    }
+
+    private static void printStatements(Connection statConnection, long messages) throws SQLException {
+        String ownStatements = " where query not like '%OfflineLoadHarness%' and query not like '%pg_stat_statements%'";
+        try (Statement statement = statConnection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery(HarnessMark +
+                    "select coalesce(sum(calls), 0) from pg_stat_statements" + ownStatements)) {
+                resultSet.next();
+                long calls = resultSet.getLong(1);
+                System.out.printf("DB statements %d, %.1f per message%n", calls, messages == 0 ? 0.0 : calls / (double) messages);
+            }
+            try (ResultSet resultSet = statement.executeQuery(HarnessMark +
+                    "select calls, round(total_exec_time::numeric, 1), left(regexp_replace(query, '\\s+', ' ', 'g'), 110) " +
+                    "from pg_stat_statements" + ownStatements + " order by calls desc limit 10")) {
+                while (resultSet.next())
+                    System.out.printf("  %8d calls %10s ms  %s%n", resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3));
+            }
+        }
+    }
+
+    private static void printQueue(Connection statConnection) throws SQLException {
+        StringBuilder queue = new StringBuilder("message_queue:");
+        try (Statement statement = statConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(HarnessMark +
+                     "select q.queue_direction, count(*) from message_db_schema.message_queue q " +
+                     "group by q.queue_direction order by q.queue_direction")) {
+            while (resultSet.next())
+                queue.append(' ').append(resultSet.getString(1)).append('=').append(resultSet.getLong(2));
+        }
+        try (Statement statement = statConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(HarnessMark +
+                     "select count(*) from message_db_schema.message_queue q where q.operation_id = 7512 " +
+                     "and q.queue_direction not in ('DELOUT', 'ERROUT', 'ATTOUT') and q.retry_count > 0")) {
+            resultSet.next();
+            queue.append(", PartnerOrder left for the Sender retry ").append(resultSet.getLong(1));
+        }
+        System.out.println(queue);
+    }
+
+    // шина со всеми внешними системами на локальных заменах; Telegram, extDB и очистка очереди выключены
+    private static Thread startBus(int busPort, String jdbcUrl) {
+        String[] busArgs = {
+                "--server.port=" + busPort,
+                "--server.jetty.accesslog.enabled=false",
+                "--logging.file.path=target/loadtest-logs",
+                "--logging.level.root=" + System.getProperty("load.logLevel", "WARN"),
+                "--hermes.hrms-point=" + jdbcUrl,
+                "--hermes.hrms-db-login=postgres",
+                "--hermes.hrms-db-passwd=postgres",
+                "--spring.datasource.hikari.password=postgres",
+                "--hermes.extsys-point=NONE",
+                "--hermes.connect-msg-bus=vm://hermes?create=false",
+                "--hermes.psql-function-run=NONE",
+                "--hermes.queue-finish-notify-enabled=true",
+                "--hermes.jms-receive-task-enabled=false",
+                "--spring.threads.virtual.enabled=" + Boolean.getBoolean("load.virtualThreads"),
+                "--telegramm.chat-bot-url=NONE"
+        };
+        Thread busThread = new Thread(() -> SpringApplication.run(ServletApplication.class, busArgs), "ServletApplication");
+        busThread.setDaemon(true);
+        busThread.start();
+        return busThread;
+    }
+
+    // порт Jetty открывается раньше, чем CommandLineRunner прочитает шаблоны, поэтому ждём и то, и другое;
+    // CommandLineRunner шины не возвращается, так что завершившийся поток - это упавший старт
+    private static void waitForBus(int busPort, Thread busThread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(3);
+        while (System.nanoTime() < deadline) {
+            if (!busThread.isAlive())
+                throw new IllegalStateException("ServletApplication failed to start, see its log above");
+            if (MessageTemplate.AllMessageTemplate.size() >= 3) {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), busPort)) {
+                    return;
+                } catch (IOException e) {
+                    // Jetty ещё не слушает
+                }
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("ServletApplication did not start on port " + busPort + " in 3 minutes");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void execute(Connection statConnection, String sql) throws SQLException {
+        try (Statement statement = statConnection.createStatement()) {
+            statement.execute(HarnessMark + sql);
+        }
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream inputStream = OfflineLoadHarness.class.getResourceAsStream(name)) {
+            if (inputStream == null)
+                throw new IOException(name + " is not on the test classpath");
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // REST-запрос - содержимое SOAP Body, префиксы конверта объявляются на корневом элементе
+    private static String soapBody(String soapRequest) {
+        Matcher envelope = Pattern.compile("<(\\w+):Envelope([^>]*)>").matcher(soapRequest);
+        Matcher bodyStart = Pattern.compile("<(\\w+:)?Body[^>]*>").matcher(soapRequest);
+        Matcher bodyEnd = Pattern.compile("</(\\w+:)?Body>").matcher(soapRequest);
+        if (!envelope.find() || !bodyStart.find() || !bodyEnd.find(bodyStart.end()))
+            throw new IllegalArgumentException("not a SOAP envelope");
+        String body = soapRequest.substring(bodyStart.end(), bodyEnd.start()).trim();
+
+        StringBuilder namespaces = new StringBuilder();
+        Matcher namespace = Pattern.compile("xmlns:(\\w+)=\"[^\"]*\"").matcher(envelope.group(2));
+        while (namespace.find())
+            if (!namespace.group(1).equals(envelope.group(1)))
+                namespaces.append(' ').append(namespace.group());
+        int rootNameEnd = 1;
+        while (rootNameEnd < body.length() && "> /\t\r\n".indexOf(body.charAt(rootNameEnd)) < 0)
+            rootNameEnd++;
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                body.substring(0, rootNameEnd) + namespaces + body.substring(rootNameEnd);
+    }
+}
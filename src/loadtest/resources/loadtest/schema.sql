@@ -0,0 +1,160 @@
+-- Схема message_db_schema для OfflineLoadHarness: только то, что читает и пишет Receiver
+-- ( таблицы, последовательности, триггер завершения исходящего ) плюс прикладной обработчик нагрузочного теста.
+-- Скрипт выполняется целиком одним Statement.execute, разделитель не нужен.
+
+create schema if not exists message_db_schema;
+
+create sequence message_db_schema.message_queue_seq cache 100;
+create sequence message_db_schema.message_queuelog_seq;
+
+create table message_db_schema.message_directions (
+    msgdirection_id      integer not null primary key,
+    msgdirection_cod     varchar(64) not null,
+    msgdirection_desc    varchar(256),
+    app_server           varchar(256),
+    wsdl_name            varchar(512),
+    msgdir_own           varchar(64),
+    operator_id          varchar(64),
+    type_connect         integer not null,
+    db_name              varchar(256),
+    db_user              varchar(64),
+    db_pswd              varchar(64),
+    subsys_cod           varchar(64),
+    base_thread_id       integer,
+    num_thread           integer,
+    short_retry_count    integer,
+    short_retry_interval integer,
+    long_retry_count     integer,
+    long_retry_interval  integer
+);
+
+create table message_db_schema.message_types (
+    interface_id    integer not null,
+    operation_id    integer not null,
+    msg_type        varchar(128) not null,
+    msg_type_own    varchar(128),
+    msg_typedesc    varchar(512),
+    msg_direction   varchar(16) not null,
+    msg_handler     integer,
+    url_soap_send   varchar(512),
+    url_soap_ack    varchar(512),
+    max_retry_count integer,
+    max_retry_time  integer,
+    last_update_dt  timestamp default current_timestamp,
+    primary key ( interface_id, operation_id )
+);
+
+create table message_db_schema.message_templates (
+    template_id   integer not null primary key,
+    interface_id  integer not null,
+    operation_id  integer not null,
+    msg_type      varchar(128),
+    msg_type_own  varchar(128),
+    template_name varchar(256),
+    template_dir  varchar(16) not null,
+    source_id     integer,
+    destin_id     integer,
+    conf_text     text,
+    src_subcod    varchar(64),
+    dst_subcod    varchar(64),
+    lastmaker     varchar(64),
+    lastdate      timestamp default current_timestamp
+);
+
+create table message_db_schema.message_queue (
+    queue_id             bigint not null primary key,
+    queue_direction      varchar(16) not null,
+    queue_date           timestamp,
+    msg_status           integer,
+    msg_date             timestamp,
+    operation_id         integer,
+    outqueue_id          numeric(16),
+    msg_type             varchar(128),
+    msg_reason           varchar(2000),
+    msgdirection_id      integer,
+    msg_infostreamid     integer,
+    msg_type_own         varchar(128),
+    msg_result           varchar(2000),
+    subsys_cod           varchar(64),
+    retry_count          integer,
+    prev_queue_direction varchar(16),
+    prev_msg_date        timestamp,
+    queue_create_date    timestamp default current_timestamp,
+    perform_object_id    integer,
+    link_queue_id        bigint
+);
+create index message_queue_direction_ix on message_db_schema.message_queue ( queue_direction, msg_infostreamid );
+
+create table message_db_schema.message_queuedet (
+    queue_id    bigint not null,
+    tag_id      varchar(256) not null,
+    tag_value   text,
+    tag_num     integer not null,
+    tag_par_num integer not null
+);
+create index message_queuedet_ix on message_db_schema.message_queuedet ( queue_id, tag_par_num, tag_num );
+
+create table message_db_schema.message_queuebody (
+    queue_id    bigint not null primary key,
+    body_codec  varchar(16) not null,
+    body_length integer,
+    body        bytea
+);
+
+create table message_db_schema.message_queuelog (
+    queue_id bigint not null,
+    req_dt   timestamp,
+    rowid    varchar(32) not null primary key,
+    request  text,
+    resp_dt  timestamp,
+    response text
+);
+
+-- событие завершения исходящего для QueueFinishListener
+create or replace function message_db_schema.message_queue_finish_notify() returns trigger language plpgsql as $$
+begin
+  if NEW.Queue_Direction in ('ERROUT', 'ATTOUT', 'DELOUT') and NEW.Queue_Direction is distinct from OLD.Queue_Direction then
+    perform pg_notify('hermes_queue_finish', NEW.Queue_Id::text);
+  end if;
+  return NEW;
+end $$;
+create trigger message_queue_finish_notify after update of Queue_Direction on message_db_schema.message_queue
+  for each row execute function message_db_schema.message_queue_finish_notify();
+
+-- Прикладной обработчик CreateOrder ( EnvelopeXSLTExt шаблона операции 7 ): подтверждение входящему,
+-- исходящее PartnerOrder ( операция 7512 ) партнёру и Link_Queue_Id на него, входящее - в EXEIN.
+create or replace function message_db_schema.loadtest_create_order( p_queue_id varchar ) returns integer language plpgsql as $$
+declare
+  v_queue_id   bigint := p_queue_id::bigint;
+  v_link_id    bigint := nextval('message_db_schema.message_queue_seq');
+  v_order_id   text;
+  v_conf_num   integer;
+begin
+  select d.tag_value into v_order_id
+    from message_db_schema.message_queuedet d
+   where d.queue_id = v_queue_id and d.tag_id = 'OrderId'
+   order by d.tag_num limit 1;
+
+  insert into message_db_schema.message_queue
+         ( queue_id, queue_direction, queue_date, msg_status, msg_date, operation_id, outqueue_id, msg_type, msg_reason,
+           msgdirection_id, msg_infostreamid, msg_type_own, subsys_cod, retry_count, queue_create_date )
+  values ( v_link_id, 'OUT', current_timestamp, 0, current_timestamp, 7512, v_queue_id, 'PartnerOrder', 'PartnerOrder() Ok.',
+           2, 102, 'PartnerOrder', null, 0, current_timestamp );
+  insert into message_db_schema.message_queuedet ( queue_id, tag_id, tag_value, tag_num, tag_par_num )
+  values ( v_link_id, 'PartnerOrder', null, 1, 0 ),
+         ( v_link_id, 'OrderId', v_order_id, 2, 1 ),
+         ( v_link_id, 'SourceQueueId', p_queue_id, 3, 1 );
+
+  select coalesce(max(d.tag_num), 0) + 1 into v_conf_num
+    from message_db_schema.message_queuedet d where d.queue_id = v_queue_id;
+  insert into message_db_schema.message_queuedet ( queue_id, tag_id, tag_value, tag_num, tag_par_num )
+  values ( v_queue_id, 'Confirmation', null, v_conf_num, 0 ),
+         ( v_queue_id, 'ResultCode', '0', v_conf_num + 1, v_conf_num ),
+         ( v_queue_id, 'Message', 'Заказ ' || coalesce(v_order_id, '?') || ' принят', v_conf_num + 2, v_conf_num );
+
+  update message_db_schema.message_queue q
+     set queue_direction = 'EXEIN', prev_queue_direction = q.queue_direction, msg_date = current_timestamp,
+         link_queue_id = v_link_id, msg_reason = 'loadtest_create_order: Link_Queue_Id=' || v_link_id
+   where q.queue_id = v_queue_id;
+  return 0;
+end $$;
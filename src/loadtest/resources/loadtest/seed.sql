@@ -0,0 +1,60 @@
+-- Справочники для OfflineLoadHarness: CRM шлёт CreateOrder ( операция 7 ) в интерфейс LoadTest,
+-- обработчик loadtest_create_order порождает PartnerOrder ( операция 7512 ) заглушке партнёра.
+-- @PARTNER_URL@ harness заменяет на адрес заглушки ( http://127.0.0.1:порт ).
+
+insert into message_db_schema.message_directions
+       ( msgdirection_id, msgdirection_cod, msgdirection_desc, app_server, wsdl_name, msgdir_own, operator_id, type_connect,
+         db_name, db_user, db_pswd, subsys_cod, base_thread_id, num_thread,
+         short_retry_count, short_retry_interval, long_retry_count, long_retry_interval )
+values ( 1, 'CRM', 'CRM - генератор нагрузки', null, null, 'CRM', null, 3,
+         null, null, null, null, 101, 1, 3, 30, 5, 180 ),
+       ( 2, 'PARTNER', 'Заглушка партнёра', null, '@PARTNER_URL@', 'PARTNER', null, 3,
+         null, null, null, null, 102, 1, 3, 30, 5, 180 );
+
+insert into message_db_schema.message_types
+       ( interface_id, operation_id, msg_type, msg_type_own, msg_typedesc, msg_direction, msg_handler,
+         url_soap_send, url_soap_ack, max_retry_count, max_retry_time )
+values ( 100, 0, 'LoadTest', 'LoadTest', 'Интерфейс нагрузочного теста', 'IN', 0, 'LoadTest', null, 0, 0 ),
+       ( 100, 7, 'CreateOrder', 'CreateOrder', 'Заказ из CRM', 'IN', 0, null, 'NoWait4Sender', 3, 60 ),
+       ( 100, 7512, 'PartnerOrder', 'PartnerOrder', 'Заказ партнёру', 'OUT', 0, '/partner/order', null, 3, 60 );
+
+-- шаблон интерфейса: HeaderInXSLT берёт Context из SOAP-заголовка, а для REST-запроса без заголовка строит его сам
+insert into message_db_schema.message_templates
+       ( template_id, interface_id, operation_id, msg_type, msg_type_own, template_name, template_dir,
+         source_id, destin_id, conf_text, src_subcod, dst_subcod, lastmaker )
+values ( 1000, 100, 0, 'LoadTest', 'LoadTest', 'LoadTest - интерфейс', 'IN', 0, 0,
+'<TemplConfig>
+<HeaderInXSLT><![CDATA[<xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+<xsl:template match="/">
+<xsl:choose>
+<xsl:when test="/Envelope/Header/Context"><xsl:copy-of select="/Envelope/Header/Context"/></xsl:when>
+<xsl:otherwise><Context><EventInitiator>CRM</EventInitiator><Source>CRM</Source><BusOperationId>7</BusOperationId><EventKey>-1</EventKey></Context></xsl:otherwise>
+</xsl:choose>
+</xsl:template>
+</xsl:stylesheet>]]></HeaderInXSLT>
+</TemplConfig>', null, null, 'loadtest' );
+
+-- CreateOrder: SQL-обработчик в БД шины, ответ - Confirmation входящего, PartnerOrder уходит через ConfigPostExec
+insert into message_db_schema.message_templates
+       ( template_id, interface_id, operation_id, msg_type, msg_type_own, template_name, template_dir,
+         source_id, destin_id, conf_text, src_subcod, dst_subcod, lastmaker )
+values ( 1007, 100, 7, 'CreateOrder', 'CreateOrder', 'LoadTest - CreateOrder', 'IN', 0, 0,
+'<TemplConfig>
+<ConfigExecute>ExeMetod=java-class</ConfigExecute>
+<EnvelopeXSLTExt><![CDATA[<xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+<xsl:template match="/">
+<SQLRequest><SQLStatement type="function" snum="1"><PSTMT>{? = call message_db_schema.loadtest_create_order(?)}</PSTMT><Param pnum="2"><xsl:value-of select="/Envelope/Header/MsgId"/></Param></SQLStatement></SQLRequest>
+</xsl:template>
+</xsl:stylesheet>]]></EnvelopeXSLTExt>
+<ConfigPostExec>ExeMetod=web-json</ConfigPostExec>
+</TemplConfig>', null, null, 'loadtest' );
+
+-- PartnerOrder: SOAP POST на wsdl_name системы PARTNER + url_soap_send типа, ответ заглушки разбирается как есть
+insert into message_db_schema.message_templates
+       ( template_id, interface_id, operation_id, msg_type, msg_type_own, template_name, template_dir,
+         source_id, destin_id, conf_text, src_subcod, dst_subcod, lastmaker )
+values ( 1512, 100, 7512, 'PartnerOrder', 'PartnerOrder', 'LoadTest - PartnerOrder', 'OUT', 2, 0,
+'<TemplConfig>
+<ConfigExecute>timeout_conn=5
+timeout_read=30</ConfigExecute>
+</TemplConfig>', null, null, 'loadtest' );
@@ -6,6 +6,7 @@ import net.plumbing.msgbus.telegramm.NotifyByChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -13,20 +14,32 @@ import org.springframework.boot.CommandLineRunner;
 import jakarta.jms.JMSException; //javax.jms.JMSException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import net.plumbing.msgbus.config.ConnectionProperties;
 import net.plumbing.msgbus.config.DBLoggingProperties;
 
 import net.plumbing.msgbus.config.Receiver_AppConfig;
 import net.plumbing.msgbus.config.TelegramProperties;
+import net.plumbing.msgbus.controller.SyncCallWait;
 import net.plumbing.msgbus.init.InitMessageRepository;
 import net.plumbing.msgbus.model.MessageDirections;
 import net.plumbing.msgbus.model.MessageTemplate;
 import net.plumbing.msgbus.model.MessageType;
+import net.plumbing.msgbus.model.XsdSchemaRegistry;
+import net.plumbing.msgbus.model.XsltExecutableRegistry;
+import net.plumbing.msgbus.monitoring.VirtualThreadPinningMonitor;
 
 import net.plumbing.msgbus.mq.ActiveMQService;
+import net.plumbing.msgbus.mq.JMSReplyDispatcher;
 import net.plumbing.msgbus.mq.StoreMQpooledConnectionFactory;
+import net.plumbing.msgbus.threads.JMSConsumerSupervisor;
 import net.plumbing.msgbus.threads.JMSReceiveTask;
+import net.plumbing.msgbus.threads.OutboundDeliveryEngine;
+import net.plumbing.msgbus.threads.QueueFinishListener;
+import net.plumbing.msgbus.threads.QueueIdAllocator;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
+import net.plumbing.msgbus.threads.utils.DestinationCircuitBreaker;
+import net.plumbing.msgbus.threads.utils.HttpClientRegistry;
+import net.plumbing.msgbus.threads.utils.PipelineMetrics;
 
 import java.net.InetAddress;
 import java.sql.SQLException;
@@ -50,6 +63,8 @@ public class ServletApplication implements CommandLineRunner {
     public DBLoggingProperties dbLoggingProperties;
     @Autowired
     public TelegramProperties telegramProperties;
+    @Value("${spring.threads.virtual.enabled:false}")
+    public boolean virtualThreadsEnabled;
 
     public static final String ApplicationName="*Receiver_BUS* v.5.08.30saX";
     public static String propJDBC;
@@ -63,6 +78,11 @@ public class ServletApplication implements CommandLineRunner {
         int i;
         boolean jmsReceiveTaskEnabled;
 
+        // до создания контекста: от этого зависит taskExecutor читателей JMS
+        ApplicationProperties.VirtualThreadsEnabled = virtualThreadsEnabled;
+        AppThead_log.info("virtualThreadsEnabled = " + ApplicationProperties.VirtualThreadsEnabled );
+        if ( ApplicationProperties.VirtualThreadsEnabled )
+            VirtualThreadPinningMonitor.start( AppThead_log );
         ApplicationContext context = new AnnotationConfigApplicationContext(Receiver_AppConfig.class);
         //Application myApplication = Application.create("SpringApplication").healthUrl("http://localhost:8005/actuator/health").serviceUrl("http://localhost:8005/instances").build();
         // ApplicationRegistrator myApplicationRegistrator = new ApplicationRegistrator();
@@ -73,6 +93,9 @@ public class ServletApplication implements CommandLineRunner {
         NotifyByChannel.Telegram_setHttpProxyPort( telegramProperties.gethttpProxyPort() , AppThead_log );
         NotifyByChannel.Telegram_setChatBotUrl( telegramProperties.getchatBotUrl() , AppThead_log );
         NotifyByChannel.Telegram_buildHttpClient(  AppThead_log );
+        NotifyByChannel.Telegram_setLimits( Integer.parseInt( telegramProperties.getqueueSize() ),
+                                            TimeUnit.SECONDS.toMillis( Long.parseLong( telegramProperties.getcoalesceWindow() ) ),
+                                            Integer.parseInt( telegramProperties.getmaxPerMinute() ), AppThead_log );
 
          propJDBC = connectionProperties.gethrmsPoint();
         if ( propJDBC == null)  propJDBC = "jdbc UNKNOWN ! ";
@@ -154,6 +177,44 @@ public class ServletApplication implements CommandLineRunner {
             jmsReceiveTaskEnabled = true;
         else  jmsReceiveTaskEnabled = false;
         AppThead_log.info("jmsReceiveTaskEnabled = " + jmsReceiveTaskEnabled );
+        TheadDataAccessPool.MaxIdleSessions = Integer.parseInt( connectionProperties.gettheadDataAccessPoolSize() );
+        AppThead_log.info("theadDataAccessPoolSize = " + TheadDataAccessPool.MaxIdleSessions );
+        QueueIdAllocator.QueueIdBlockSize = Integer.parseInt( connectionProperties.getqueueIdBlockSize() );
+        AppThead_log.info("queueIdBlockSize = " + QueueIdAllocator.QueueIdBlockSize );
+        HttpClientRegistry.MaxRequestsPerDestination = Integer.parseInt( connectionProperties.gethttpClientMaxPerDestination() );
+        AppThead_log.info("httpClientMaxPerDestination = " + HttpClientRegistry.MaxRequestsPerDestination );
+        HttpClientRegistry.IdleEvictMillis = TimeUnit.SECONDS.toMillis( Long.parseLong( connectionProperties.gethttpClientIdleEvict() ) );
+        AppThead_log.info("httpClientIdleEvict = " + connectionProperties.gethttpClientIdleEvict() + " sec" );
+        DestinationCircuitBreaker.FailureThreshold = Integer.parseInt( connectionProperties.getcircuitBreakerFailureThreshold() );
+        DestinationCircuitBreaker.OpenMillis = TimeUnit.SECONDS.toMillis( Long.parseLong( connectionProperties.getcircuitBreakerOpenTime() ) );
+        DestinationCircuitBreaker.BulkheadWaitMillis = TimeUnit.SECONDS.toMillis( Long.parseLong( connectionProperties.getbulkheadWait() ) );
+        AppThead_log.info("circuitBreakerFailureThreshold = " + DestinationCircuitBreaker.FailureThreshold + ", circuitBreakerOpenTime = " + connectionProperties.getcircuitBreakerOpenTime()
+                + " sec, bulkheadWait = " + connectionProperties.getbulkheadWait() + " sec" );
+        OutboundDeliveryEngine.Enabled = connectionProperties.getoutboundAsyncEnabled().equalsIgnoreCase("true");
+        OutboundDeliveryEngine.MaxInFlight = Integer.parseInt( connectionProperties.getoutboundMaxInFlight() );
+        OutboundDeliveryEngine.setCompletionThreads( Integer.parseInt( connectionProperties.getoutboundCompletionThreads() ) );
+        AppThead_log.info("outboundAsyncEnabled = " + OutboundDeliveryEngine.Enabled + ", outboundMaxInFlight = " + OutboundDeliveryEngine.MaxInFlight +
+                ", outboundCompletionThreads = " + OutboundDeliveryEngine.getCompletionThreads() );
+        JMSReceiveTask.BatchSize = Math.max( Integer.parseInt( connectionProperties.getjmsBatchSize() ), 1 );
+        JMSReceiveTask.BatchMillis = Long.parseLong( connectionProperties.getjmsBatchTime() );
+        JMSReceiveTask.Prefetch = Integer.parseInt( connectionProperties.getjmsPrefetch() );
+        AppThead_log.info("jmsBatchSize = " + JMSReceiveTask.BatchSize + ", jmsBatchTime = " + JMSReceiveTask.BatchMillis + " ms, jmsPrefetch = " + JMSReceiveTask.Prefetch );
+        JMSConsumerSupervisor.Enabled = connectionProperties.getjmsConsumerScalingEnabled().equalsIgnoreCase("true");
+        JMSConsumerSupervisor.MinConsumers = Integer.parseInt( connectionProperties.getjmsConsumersMin() );
+        JMSConsumerSupervisor.ScaleIntervalMillis = TimeUnit.SECONDS.toMillis( Long.parseLong( connectionProperties.getjmsScaleInterval() ) );
+        JMSConsumerSupervisor.ScaleUpBacklog = Long.parseLong( connectionProperties.getjmsScaleUpBacklog() );
+        AppThead_log.info("jmsConsumerScalingEnabled = " + JMSConsumerSupervisor.Enabled + ", jmsConsumersMin = " + JMSConsumerSupervisor.MinConsumers
+                + ", jmsScaleInterval = " + connectionProperties.getjmsScaleInterval() + " sec, jmsScaleUpBacklog = " + JMSConsumerSupervisor.ScaleUpBacklog );
+        PipelineMetrics.Enabled = connectionProperties.getmetricsEnabled().equalsIgnoreCase("true");
+        AppThead_log.info("metricsEnabled = " + PipelineMetrics.Enabled );
+        ApplicationProperties.DetailsCopyEnabled = connectionProperties.getdetailsCopyEnabled().equalsIgnoreCase("true");
+        AppThead_log.info("detailsCopyEnabled = " + ApplicationProperties.DetailsCopyEnabled );
+        QueueFinishListener.NotifyEnabled = connectionProperties.getqueueFinishNotifyEnabled().equalsIgnoreCase("true");
+        AppThead_log.info("queueFinishNotifyEnabled = " + QueueFinishListener.NotifyEnabled );
+        QueueFinishListener.RecheckInterval = Integer.parseInt( connectionProperties.getqueueFinishRecheckInterval() );
+        AppThead_log.info("queueFinishRecheckInterval = " + QueueFinishListener.RecheckInterval );
+        SyncCallWait.setThreadsMax( Integer.parseInt( connectionProperties.getsyncWaitThreadsMax() ) );
+        AppThead_log.info("syncWaitThreadsMax = " + connectionProperties.getsyncWaitThreadsMax() );
 
 //        int FirstInfoStreamId = 101;
 //        if ( connectionProperties.getfirstInfoStreamId() != null) FirstInfoStreamId = Integer.parseInt( connectionProperties.getfirstInfoStreamId() );
@@ -169,6 +230,11 @@ public class ServletApplication implements CommandLineRunner {
                 ApplicationProperties.InternalDbPgSetupConnection
         );
             ApplicationProperties.DataSourcePoolMetadata = HikariDataAccess.DataSourcePoolMetadata;
+            // сессии, которые держат потоки в фоне, помимо потоков Jetty: SyncCallWait и разбор ответов OutboundDeliveryEngine
+            int BackgroundSessions = Integer.parseInt( connectionProperties.getsyncWaitThreadsMax() ) + OutboundDeliveryEngine.getCompletionThreads();
+            if ( BackgroundSessions >= ApplicationProperties.dataSource.getMaximumPoolSize() / 2 )
+                AppThead_log.warn("syncWaitThreadsMax + outboundCompletionThreads = " + BackgroundSessions + " - больше половины пула сессий БД ( "
+                        + ApplicationProperties.dataSource.getMaximumPoolSize() + " ), потокам Jetty остаётся мало");
     } catch (Exception e) {
         AppThead_log.error("НЕ удалось подключится к базе данных (`" + connectionProperties.gethrmsPoint() + "` ) транспортных сообщений:" + e.getMessage());
             NotifyByChannel.Telegram_sendMessage( "Do stopping " + ApplicationName + " *DB problem* `" +  e.getMessage() +  "` ip:" + InetAddress.getLocalHost().getHostAddress()+ ", db `" + connectionProperties.gethrmsPoint() + "` as `"+ connectionProperties.gethrmsDbLogin() + "`), *stopping*", AppThead_log );
@@ -188,6 +254,11 @@ public class ServletApplication implements CommandLineRunner {
             System.exit(-19);
         }
 
+        QueueFinishListener.start( connectionProperties.gethrmsPoint(),
+                connectionProperties.gethrmsDbLogin(),
+                connectionProperties.gethrmsDbPasswd(),
+                AppThead_log );
+
         ApplicationProperties.ExtSysPoint = connectionProperties.getextsysPoint();
         ApplicationProperties.ExtSysDbLogin = connectionProperties.getextsysDbLogin();
         ApplicationProperties.ExtSysDbPasswd = connectionProperties.getextsysDbPasswd();
@@ -281,8 +352,11 @@ public class ServletApplication implements CommandLineRunner {
         InitMessageRepository.SelectMsgTypes( AppThead_log );
         AppThead_log.info("Read MsgTypes: " + MessageType.AllMessageType.size() + " done" );
 
+        long SelectMsgTemplatesStart = System.currentTimeMillis();
         InitMessageRepository.SelectMsgTemplates(  AppThead_log );
-        AppThead_log.info("Read MessageTemplates: " + MessageTemplate.AllMessageTemplate.size() + " done" );
+        AppThead_log.info("Read MessageTemplates: " + MessageTemplate.AllMessageTemplate.size() + " done in " + (System.currentTimeMillis() - SelectMsgTemplatesStart) + " ms" );
+        AppThead_log.info( XsltExecutableRegistry.getStatistics() );
+        AppThead_log.info( XsdSchemaRegistry.getStatistics() );
 
 
         // 1-й проход, получаем количество потоков, которые задействованы в JMS систем.
@@ -314,40 +388,19 @@ public class ServletApplication implements CommandLineRunner {
                 AppThead_log.error("НЕ удалось подключится к брокеру сообщений ActiveMQ :" + e.getMessage());
             }
         */
-        ThreadPoolTaskExecutor taskExecutor = (ThreadPoolTaskExecutor) context.getBean("taskExecutor");
-        JMSReceiveTask[] jmsReceiveTask = new JMSReceiveTask[TotalNumTasks];
-        Thread.State JMSReceiveThreadState = Thread.State.NEW;
-        Thread[] JMSReceiveThread = new Thread[TotalNumTasks];
-
-
-        // 2-й проход, инициализируем коннекты для каждой из систем, в которой задействованы в JMS систем.
-
-        int CurrentTasksIndex = 0;
-        int NumTasksInsystem;
+        // 2-й проход, для каждой очереди направления Type_Connect == 6 - свои читатели, от JMSConsumerSupervisor.MinConsumers
+        // до Num_Thread направления, их число меняет JMSConsumerSupervisor по остатку очереди в брокере.
         for (MessageDirections_BrokerId = 0; MessageDirections_BrokerId < MessageDirections.AllMessageDirections.size(); MessageDirections_BrokerId++) {
             if (MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getType_Connect() == 6) {
-                NumTasksInsystem = MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getNum_Thread();
-                for (i = 0; i < NumTasksInsystem; i++) {
-                    // не нужен MessageDirectionsCode =  MessageRepositoryHelper.look4MessageDirectionsCode_4_Num_Thread( theadNum + this.FirstInfoStreamId  , AppThead_log );
-                    jmsReceiveTask[CurrentTasksIndex] = new JMSReceiveTask();// (MessageSendTask) context.getBean("MessageSendTask");
-                    jmsReceiveTask[CurrentTasksIndex].setJMSPoint(MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getWSDL_Name());
-                    jmsReceiveTask[CurrentTasksIndex].setJMSLogin(MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getDb_user());
-                    jmsReceiveTask[CurrentTasksIndex].setJMSPasswd(MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getDb_pswd());
-                    jmsReceiveTask[CurrentTasksIndex].setJMSQueueName(MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getApp_Server());
-                    JMSReceiveThread[CurrentTasksIndex] = taskExecutor.createThread(jmsReceiveTask[CurrentTasksIndex]);
-                    //  JMSReceiveThread[ i ].run();
-                    //  AppThead_log.info("JMSReceiveThread[" + i + "] run: " + JMSReceiveThread[ i ].getName() + " Id=" + JMSReceiveThread[ i ].getId() + " isAlive=" + JMSReceiveThread[ i ].isAlive());
-                    // jmsReceiveTask[ i ].setContext(  context );
-
-                    taskExecutor.execute(JMSReceiveThread[CurrentTasksIndex]);
-                    AppThead_log.info("JMSReceiveThread[" + CurrentTasksIndex + "] for Q " + MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getApp_Server() + " run: " + JMSReceiveThread[CurrentTasksIndex].getName() + " JMSReceiveThread_Id=" + JMSReceiveThread[CurrentTasksIndex].threadId() + " isAlive=" + JMSReceiveThread[CurrentTasksIndex].isAlive());
-                    JMSReceiveThreadState = JMSReceiveThread[CurrentTasksIndex].getState();
-                    // AppThead_log.info("JMSReceiveThread[" + i + "] JMSReceiveThreadState: " + JMSReceiveThreadState.toString() ) ;
-                    // taskExecutor.execute(jmsReceiveTask[ i ]);
-                    CurrentTasksIndex = CurrentTasksIndex + 1;
-                }
+                JMSConsumerSupervisor.addDirection(
+                        MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getWSDL_Name(),
+                        MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getDb_user(),
+                        MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getDb_pswd(),
+                        MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getApp_Server(),
+                        MessageDirections.AllMessageDirections.get(MessageDirections_BrokerId).getNum_Thread() );
             }
         }
+        JMSConsumerSupervisor.start( AppThead_log );
     }
 
 
@@ -387,6 +440,21 @@ public class ServletApplication implements CommandLineRunner {
                     + ", getMax: " + ApplicationProperties.DataSourcePoolMetadata.getMax()
                     + ", getMin: " + ApplicationProperties.DataSourcePoolMetadata.getMin()
             );
+            int evictedSessions = TheadDataAccessPool.evictExpiredSessions( AppThead_log );
+            AppThead_log.info( "TheadDataAccessPool idle: " + TheadDataAccessPool.getIdleCount() + ", evicted: " + evictedSessions );
+            HttpClientRegistry.evictIdleClients( AppThead_log );
+            AppThead_log.info( HttpClientRegistry.getStatistics() );
+            AppThead_log.info( DestinationCircuitBreaker.getStatistics() );
+            AppThead_log.info( OutboundDeliveryEngine.getStatistics() );
+            AppThead_log.info( JMSReplyDispatcher.getStatistics() );
+            AppThead_log.info( SyncCallWait.getStatistics() );
+            AppThead_log.info( NotifyByChannel.Telegram_getStatistics() );
+            if ( jmsReceiveTaskEnabled ) {
+                AppThead_log.info( JMSReceiveTask.getStatistics() );
+                AppThead_log.info( JMSConsumerSupervisor.getStatistics() );
+            }
+            if ( ApplicationProperties.VirtualThreadsEnabled )
+                AppThead_log.info( "VirtualThreadPinned events: " + VirtualThreadPinningMonitor.getPinnedCount() );
             try {
 
                 // Thread.sleep(25000);
@@ -410,8 +478,9 @@ public class ServletApplication implements CommandLineRunner {
                 {
                     AppThead_log.info("CurrentTimeString=" +  CurrentTimeString + " (CurrentTime - DataAccess.InitDate.getTime())/1000: " +timeToReInit.toString() );
 
-                    InitMessageRepository.ReReadMsgTypes(  intervalReInit, AppThead_log );
-                    InitMessageRepository.ReReadMsgTemplates( intervalReInit, AppThead_log);
+                    InitMessageRepository.ReReadMessageRepository( intervalReInit, AppThead_log );
+                    AppThead_log.info( XsltExecutableRegistry.getStatistics() );
+                    AppThead_log.info( XsdSchemaRegistry.getStatistics() );
                     DataAccess.InitDate.setTime( CurrentTime );
                     AppThead_log.info(" New InitDate=" +  DataAccess.dateFormat.format( DataAccess.InitDate ) );
 
@@ -474,6 +543,10 @@ public class ServletApplication implements CommandLineRunner {
                 break;
             }
         }
+        JMSConsumerSupervisor.shutdown( TimeUnit.SECONDS.toMillis(30), AppThead_log );
+        OutboundDeliveryEngine.shutdown( TimeUnit.SECONDS.toMillis(30), AppThead_log );
+        JMSReplyDispatcher.close( AppThead_log );
+        TheadDataAccessPool.closeAllSessions( AppThead_log );
         ApplicationProperties.dataSource.close();
         NotifyByChannel.Telegram_sendMessage( "Stop "+  ApplicationName + " (`" + InetAddress.getLocalHost().getHostAddress()+ "`, db `" + propJDBC+ "` as `"+ connectionProperties.gethrmsDbLogin() + "`), *exit!*", AppThead_log );
         System.exit(-22);
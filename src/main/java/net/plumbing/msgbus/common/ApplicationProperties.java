@@ -26,6 +26,10 @@ public  class ApplicationProperties {
     public static String pSQLFunctionRun;
     public static String ExtSysPgSetupConnection;
     public static String InternalDbPgSetupConnection;
+    // hermes.details-copy-enabled: для PostgreSQL писать MESSAGE_QueueDET через COPY FROM STDIN
+    public static boolean DetailsCopyEnabled = true;
+    // spring.threads.virtual.enabled: Jetty и читатели JMS на виртуальных потоках
+    public static boolean VirtualThreadsEnabled = false;
 
     public void setWaitTimeBetweenScan(Integer waitTimeBetweenScan) {
         this.WaitTimeBetweenScan = waitTimeBetweenScan;
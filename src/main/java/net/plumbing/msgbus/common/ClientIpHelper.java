@@ -10,18 +10,13 @@ import net.plumbing.msgbus.common.json.JSONException;
 import net.plumbing.msgbus.common.json.JSONObject;
 import net.plumbing.msgbus.common.json.XML;
 import net.plumbing.msgbus.model.MessageTemplate;
-import net.plumbing.msgbus.model.MessageTemplateVO;
+import net.plumbing.msgbus.model.MessageTemplate4Perform;
 import net.plumbing.msgbus.threads.utils.MessageUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 
 import javax.validation.constraints.NotNull;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
-import java.util.Properties;
 
 
 public class ClientIpHelper {
@@ -114,42 +109,17 @@ public class ClientIpHelper {
         return clientIp;
     }
     public static String getIsDebuged(int MessageTemplateVOkey, boolean isDebugged, Logger Controller_log ) {
-        String ConfigExecute = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getConfigExecute();
-        if (isDebugged) Controller_log.info("ConfigExecute:" + ConfigExecute);
-        if (ConfigExecute != null) {
-            String isDebuggedStr= "false";
-            Properties properties = new Properties();
-            InputStream propertiesStream = new ByteArrayInputStream(ConfigExecute.getBytes(StandardCharsets.UTF_8));
-            try {
-                properties.load(propertiesStream);
-                for (String key : properties.stringPropertyNames()) {
-                    if (key.equals(MessageTemplateVO.PropDebug)) {
-                        Controller_log.info("PropDebug Property[" + key + "]=[" + properties.getProperty(key) + "]");
-                        if ((properties.getProperty(key).equalsIgnoreCase("on")) ||
-                                (properties.getProperty(key).equalsIgnoreCase("full"))
-                        ) {
-                            isDebuggedStr = "true";
-                        }
-                        if ((properties.getProperty(key).equalsIgnoreCase("ON")) ||
-                                (properties.getProperty(key).equalsIgnoreCase("FULL"))
-                        ) {
-                            isDebuggedStr = "true";
-                        }
-                    }
-                }
-            } catch (IOException ioException) {
-                // postResponse.setStatus(500);
-                ioException.printStackTrace(System.err);
-                Controller_log.error("properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage());
-                String OutResponse = XMLchars.Envelope_Begin + XMLchars.Empty_Header + XMLchars.Body_Begin + XMLchars.Fault_Client_Begin +
-                        "properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage() +
-                        XMLchars.Fault_End + XMLchars.Body_End + XMLchars.Envelope_End;
-                return OutResponse;
-            }
-            return isDebuggedStr;
+        // ConfigExecute разобран один раз при загрузке шаблона - берём готовые настройки из плана
+        MessageTemplate4Perform messageTemplate4Perform =
+                MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getMessageTemplate4Perform(Controller_log);
+        if ( messageTemplate4Perform.getConfigExecute_Fault() != null ) {
+            Controller_log.error(messageTemplate4Perform.getConfigExecute_Fault());
+            return XMLchars.Envelope_Begin + XMLchars.Empty_Header + XMLchars.Body_Begin + XMLchars.Fault_Client_Begin +
+                    messageTemplate4Perform.getConfigExecute_Fault() +
+                    XMLchars.Fault_End + XMLchars.Body_End + XMLchars.Envelope_End;
         }
-        else return "false";
-
+        if (isDebugged) Controller_log.info("ConfigExecute:" + messageTemplate4Perform.printMessageTemplate4Perform());
+        return messageTemplate4Perform.getIsDebugged() ? "true" : "false";
     }
 
     public static String toCamelCase(final String init, final String separator) {
@@ -163,6 +163,7 @@ public class XMLchars {
 
     public static final String EmptyXSLT_Result ="<nan/>"; //"<?xml version=\"1.0\" encoding=\"utf-8\"?><nan/>";
      public static final String nanXSLT_Result ="<nan/>";
+     public static final String nanXSLT_Element ="nan"; // корень nanXSLT_Result, когда результат XSLT получен деревом
 
         //  set in net.plumbing.msgbus.common.HikariDataAccess.DataSourcePoolMetadata
         //  for Oracle it must be 3992
@@ -62,6 +62,164 @@ public class ConnectionProperties {
     }
     public void setjmsReceiveTaskEnabled(String jmsReceiveTaskEnabled) { this.jmsReceiveTaskEnabled = jmsReceiveTaskEnabled; }
 
+    // hermes.thead-data-access-pool-size=32 - сколько сессий TheadDataAccess (соединение + PreparedStatement-ы) держать в простое
+    private String theadDataAccessPoolSize ="32";
+    public String gettheadDataAccessPoolSize() {
+        return this.theadDataAccessPoolSize;
+    }
+    public void settheadDataAccessPoolSize(String theadDataAccessPoolSize) { this.theadDataAccessPoolSize = theadDataAccessPoolSize; }
+
+    // hermes.queue-id-block-size=20 - сколько значений MESSAGE_QUEUE_SEQ выбирать за один запрос для новых Queue_Id
+    private String queueIdBlockSize ="20";
+    public String getqueueIdBlockSize() {
+        return this.queueIdBlockSize;
+    }
+    public void setqueueIdBlockSize(String queueIdBlockSize) { this.queueIdBlockSize = queueIdBlockSize; }
+
+    // hermes.http-client-max-per-destination=64 - сколько одновременных исходящих HTTP-запросов ( и соединений ) к одному адресу
+    private String httpClientMaxPerDestination ="64";
+    public String gethttpClientMaxPerDestination() {
+        return this.httpClientMaxPerDestination;
+    }
+    public void sethttpClientMaxPerDestination(String httpClientMaxPerDestination) { this.httpClientMaxPerDestination = httpClientMaxPerDestination; }
+
+    // hermes.http-client-idle-evict=300 - через сколько секунд без запросов закрывать HttpClient адреса из HttpClientRegistry
+    private String httpClientIdleEvict ="300";
+    public String gethttpClientIdleEvict() {
+        return this.httpClientIdleEvict;
+    }
+    public void sethttpClientIdleEvict(String httpClientIdleEvict) { this.httpClientIdleEvict = httpClientIdleEvict; }
+
+    // hermes.circuit-breaker-failure-threshold=5 - после скольких ошибок подряд адрес назначения считается недоступным, 0 - не отключать
+    private String circuitBreakerFailureThreshold ="5";
+    public String getcircuitBreakerFailureThreshold() {
+        return this.circuitBreakerFailureThreshold;
+    }
+    public void setcircuitBreakerFailureThreshold(String circuitBreakerFailureThreshold) { this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold; }
+
+    // hermes.circuit-breaker-open-time=30 - сколько секунд не обращаться к недоступному адресу до пробного запроса
+    private String circuitBreakerOpenTime ="30";
+    public String getcircuitBreakerOpenTime() {
+        return this.circuitBreakerOpenTime;
+    }
+    public void setcircuitBreakerOpenTime(String circuitBreakerOpenTime) { this.circuitBreakerOpenTime = circuitBreakerOpenTime; }
+
+    // hermes.bulkhead-wait=5 - сколько секунд ждать свободного места в пределе http-client-max-per-destination
+    private String bulkheadWait ="5";
+    public String getbulkheadWait() {
+        return this.bulkheadWait;
+    }
+    public void setbulkheadWait(String bulkheadWait) { this.bulkheadWait = bulkheadWait; }
+
+    // hermes.outbound-async-enabled=true - связанное OUT-сообщение ( is_NoWait4Sender ) отправлять вне потока входящего запроса
+    private String outboundAsyncEnabled ="true";
+    public String getoutboundAsyncEnabled() {
+        return this.outboundAsyncEnabled;
+    }
+    public void setoutboundAsyncEnabled(String outboundAsyncEnabled) { this.outboundAsyncEnabled = outboundAsyncEnabled; }
+
+    // hermes.outbound-max-in-flight=2048 - сколько таких отправок ждут ответа одновременно; сессию БД и поток на время ответа
+    // они не держат, предел - на память и очередь к адресам назначения
+    private String outboundMaxInFlight ="2048";
+    public String getoutboundMaxInFlight() {
+        return this.outboundMaxInFlight;
+    }
+    public void setoutboundMaxInFlight(String outboundMaxInFlight) { this.outboundMaxInFlight = outboundMaxInFlight; }
+
+    // hermes.outbound-completion-threads=8 - потоков разбора ответов и статусов этих отправок, каждый держит сессию БД,
+    // пока пишет статус: вместе с sync-wait-threads-max и потоками Jetty - в пределах пула сессий ( HikariDataAccess )
+    private String outboundCompletionThreads ="8";
+    public String getoutboundCompletionThreads() {
+        return this.outboundCompletionThreads;
+    }
+    public void setoutboundCompletionThreads(String outboundCompletionThreads) { this.outboundCompletionThreads = outboundCompletionThreads; }
+
+    // hermes.jms-batch-size=50 - сколько JMS-сообщений подтверждать брокеру одним commit-ом, 1 - AUTO_ACKNOWLEDGE на каждое
+    private String jmsBatchSize ="50";
+    public String getjmsBatchSize() {
+        return this.jmsBatchSize;
+    }
+    public void setjmsBatchSize(String jmsBatchSize) { this.jmsBatchSize = jmsBatchSize; }
+
+    // hermes.jms-batch-time=200 - сколько миллисекунд от первого сообщения пачки добирать остальные
+    private String jmsBatchTime ="200";
+    public String getjmsBatchTime() {
+        return this.jmsBatchTime;
+    }
+    public void setjmsBatchTime(String jmsBatchTime) { this.jmsBatchTime = jmsBatchTime; }
+
+    // hermes.jms-prefetch=1000 - сколько сообщений брокер заранее отдаёт каждому потоку приёма JMS
+    private String jmsPrefetch ="1000";
+    public String getjmsPrefetch() {
+        return this.jmsPrefetch;
+    }
+    public void setjmsPrefetch(String jmsPrefetch) { this.jmsPrefetch = jmsPrefetch; }
+
+    // hermes.jms-consumer-scaling-enabled=true - число читателей JMS-очереди менять по её остатку, false - сразу Num_Thread направления
+    private String jmsConsumerScalingEnabled ="true";
+    public String getjmsConsumerScalingEnabled() {
+        return this.jmsConsumerScalingEnabled;
+    }
+    public void setjmsConsumerScalingEnabled(String jmsConsumerScalingEnabled) { this.jmsConsumerScalingEnabled = jmsConsumerScalingEnabled; }
+
+    // hermes.jms-consumers-min=1 - сколько читателей держать на очередь всегда, больше Num_Thread направления не бывает
+    private String jmsConsumersMin ="1";
+    public String getjmsConsumersMin() {
+        return this.jmsConsumersMin;
+    }
+    public void setjmsConsumersMin(String jmsConsumersMin) { this.jmsConsumersMin = jmsConsumersMin; }
+
+    // hermes.jms-scale-interval=15 - раз во сколько секунд пересматривать число читателей
+    private String jmsScaleInterval ="15";
+    public String getjmsScaleInterval() {
+        return this.jmsScaleInterval;
+    }
+    public void setjmsScaleInterval(String jmsScaleInterval) { this.jmsScaleInterval = jmsScaleInterval; }
+
+    // hermes.jms-scale-up-backlog=100 - при каком остатке очереди в брокере на одного читателя добавлять читателей
+    private String jmsScaleUpBacklog ="100";
+    public String getjmsScaleUpBacklog() {
+        return this.jmsScaleUpBacklog;
+    }
+    public void setjmsScaleUpBacklog(String jmsScaleUpBacklog) { this.jmsScaleUpBacklog = jmsScaleUpBacklog; }
+
+    // hermes.metrics-enabled=true - время этапов приёма и отправки в таймеры hermes.pipeline.stage ( /actuator/prometheus )
+    private String metricsEnabled ="true";
+    public String getmetricsEnabled() {
+        return this.metricsEnabled;
+    }
+    public void setmetricsEnabled(String metricsEnabled) { this.metricsEnabled = metricsEnabled; }
+
+    // hermes.details-copy-enabled=true - для PostgreSQL писать MESSAGE_QueueDET через COPY, false - batch INSERT
+    private String detailsCopyEnabled ="true";
+    public String getdetailsCopyEnabled() {
+        return this.detailsCopyEnabled;
+    }
+    public void setdetailsCopyEnabled(String detailsCopyEnabled) { this.detailsCopyEnabled = detailsCopyEnabled; }
+
+    // hermes.queue-finish-notify-enabled=true - для PostgreSQL ждать завершения исходящего синхронного вызова по LISTEN/NOTIFY,
+    // нужен триггер из db/postgresql/message_queue_finish_notify.sql
+    private String queueFinishNotifyEnabled ="false";
+    public String getqueueFinishNotifyEnabled() {
+        return this.queueFinishNotifyEnabled;
+    }
+    public void setqueueFinishNotifyEnabled(String queueFinishNotifyEnabled) { this.queueFinishNotifyEnabled = queueFinishNotifyEnabled; }
+
+    // hermes.queue-finish-recheck-interval=30 - секунд, как часто при LISTEN/NOTIFY всё же перечитывать статус из БД
+    private String queueFinishRecheckInterval ="30";
+    public String getqueueFinishRecheckInterval() {
+        return this.queueFinishRecheckInterval;
+    }
+    public void setqueueFinishRecheckInterval(String queueFinishRecheckInterval) { this.queueFinishRecheckInterval = queueFinishRecheckInterval; }
+
+    // hermes.sync-wait-threads-max=16 - потоков SyncCallWait: перечитывают статус исходящего и собирают ответ синхронного вызова,
+    // само ожидание поток не держит
+    private String syncWaitThreadsMax ="16";
+    public String getsyncWaitThreadsMax() {
+        return this.syncWaitThreadsMax;
+    }
+    public void setsyncWaitThreadsMax(String syncWaitThreadsMax) { this.syncWaitThreadsMax = syncWaitThreadsMax; }
+
     // hermes.hrms-pg-setup-connection=set SESSION time zone 3; set enable_bitmapscan to off; set max_parallel_workers_per_gather = 0;
     private String hrmsPgSetupConnection;
     public String gethrmsPgSetupConnection() {
@@ -1,4 +1,5 @@
 package net.plumbing.msgbus.config;
+import net.plumbing.msgbus.common.ApplicationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
@@ -22,9 +23,13 @@ public class Receiver_AppConfig {
         ThreadPool.setMaxPoolSize(11);
         ThreadPool.setWaitForTasksToCompleteOnShutdown(true);
         ThreadPool.setThreadNamePrefix("jms-Reader-");
+        // spring.threads.virtual.enabled: ServletApplication выставляет до создания этого контекста.
+        // ActiveMQ receive() ждёт в Object.wait() - это pinning, JDK на время ожидания добавляет carrier-поток,
+        // читателей немного ( Num_Thread систем ), но VirtualThreadPinningMonitor их покажет
+        ThreadPool.setVirtualThreads( ApplicationProperties.VirtualThreadsEnabled );
         AppConfig_log.info( "taskExecutor: getThreadNamePrefix:" + ThreadPool.getThreadNamePrefix() );
 
-        AppConfig_log.info("ThreadPoolTaskExecutor for taskExecutor prepared: CorePoolSize(10), MaxPoolSize(11); ");
+        AppConfig_log.info("ThreadPoolTaskExecutor for taskExecutor prepared: CorePoolSize(10), MaxPoolSize(11), VirtualThreads({}); ", ApplicationProperties.VirtualThreadsEnabled);
         return ThreadPool;
     }
 }
@@ -29,4 +29,31 @@ public class TelegramProperties {
     public void sethttpProxyPort(String httpProxyPort) {
         this.httpProxyPort = httpProxyPort;
     }
+
+    // telegramm.queue-size=1000 - сколько уведомлений ждут отправки, при переполнении выбрасывается самое старое
+    private String queueSize ="1000";
+    public String getqueueSize() {
+        return queueSize;
+    }
+    public void setqueueSize(String queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    // telegramm.coalesce-window=60 - за сколько секунд похожие уведомления склеиваются в одно
+    private String coalesceWindow ="60";
+    public String getcoalesceWindow() {
+        return coalesceWindow;
+    }
+    public void setcoalesceWindow(String coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    // telegramm.max-per-minute=20 - не больше стольких отправок в минуту
+    private String maxPerMinute ="20";
+    public String getmaxPerMinute() {
+        return maxPerMinute;
+    }
+    public void setmaxPerMinute(String maxPerMinute) {
+        this.maxPerMinute = maxPerMinute;
+    }
 }
@@ -7,7 +7,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-//import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResult;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -19,6 +19,8 @@ import net.plumbing.msgbus.common.json.XML;
 import net.plumbing.msgbus.common.json.JSONException;
 import net.plumbing.msgbus.model.MessageDetails;
 import net.plumbing.msgbus.threads.utils.MessageRepositoryHelper;
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
 
 
 import java.io.UnsupportedEncodingException;
@@ -42,7 +44,16 @@ public class GetController  {
 //    @ResponseStatus(HttpStatus.OK)
     @ResponseBody
 
-    public String GetHttpRequest( ServletRequest getServletRequest, HttpServletResponse getResponse) {
+    public DeferredResult<String> GetHttpRequest( ServletRequest getServletRequest, HttpServletResponse getResponse) {
+        DeferredResult<String> getDeferredResult = new DeferredResult<>( SyncCallWait.AsyncTimeout );
+        String HttpResponse = PerformGetHttpRequest(getServletRequest, getResponse, getDeferredResult);
+        if ( HttpResponse != null ) // ответ готов без ожидания исходящего
+            getDeferredResult.setResult( HttpResponse );
+        return getDeferredResult;
+    }
+
+    // null - ответ в getDeferredResult выставит SyncCallWait
+    private String PerformGetHttpRequest( ServletRequest getServletRequest, HttpServletResponse getResponse, DeferredResult<String> getDeferredResult) {
         //@PathVariable
         HttpServletRequest httpRequest = (HttpServletRequest) getServletRequest;
         // Controller_log.warn("GetHttpRequest->RemoteAddr: \"" + getServletRequest.getRemoteAddr() + "\" ,RemoteHost: \"" + getServletRequest.getRemoteHost() + "\"" );
@@ -177,113 +188,115 @@ public class GetController  {
                 Controller_log.warn("isDebugged after ClientIpHelper.getIsDebuged():`{}`" , isDebugged );
 
                 Long Queue_ID;
+                // ожидание исходящего - без потока, ответ тогда соберёт SyncCallWait
+                messageReceiveTask.isSyncWaitDeferred = true;
                 Queue_ID = messageReceiveTask.ProcessInputMessage(Interface_id, Message, MessageTemplateVOkey, isDebugged);
-                // Тут не закрываем соединение, оно нужно для журнала
-                /*
-                try {
+                // сессию дальше держит тот, кто строит ответ
+                TheadDataAccess theadDataAccess = messageReceiveTask.theadDataAccess;
+                messageReceiveTask.theadDataAccess = null;
+                if ( messageReceiveTask.SyncWait != null ) {
+                    // исходящее ещё не готово: поток Jetty освобождается, ответ соберёт SyncCallWait по завершении исходящего или по тайм-ауту
+                    final boolean is_TextJsonResponse4Response = is_TextJsonResponse;
+                    final boolean isDebugged4Response = isDebugged;
+                    messageReceiveTask.SyncWait.start( theadDataAccess, (Finish_Queue_ID, Finish_theadDataAccess) ->
+                            getDeferredResult.setResult( GetHttpResponse( Finish_Queue_ID, Message, Finish_theadDataAccess, getResponse, Url_Soap_Send, is_TextJsonResponse4Response, isDebugged4Response ) ) );
+                    return null;
+                }
+                return GetHttpResponse( Queue_ID, Message, theadDataAccess, getResponse, Url_Soap_Send, is_TextJsonResponse, isDebugged );
+            } finally {
+                if ( messageReceiveTask != null)
                     if (messageReceiveTask.theadDataAccess != null) {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
+                        TheadDataAccessPool.releaseTheadDataAccess( messageReceiveTask.theadDataAccess, Controller_log );
+                        messageReceiveTask.theadDataAccess = null;
                     }
-                } catch (SQLException e) {
-                    Controller_log.error("Проблемы с закрытием theadDataAccess соединения " + e.getMessage());
-                    e.printStackTrace();
+
+            }
+        }
+
+
+    }
+
+    // ответ GetHttpRequest по результату ProcessInputMessage(), сессию theadDataAccess возвращает в пул
+    private String GetHttpResponse( Long Queue_ID, MessageDetails Message, TheadDataAccess theadDataAccess, HttpServletResponse getResponse, String Url_Soap_Send,
+                                    boolean is_TextJsonResponse, boolean isDebugged ) {
+        String HttpResponse;
+        try {
+            // Тут не закрываем соединение, оно нужно для журнала
+            /*
+            try {
+                if (theadDataAccess != null) {
+                    if (theadDataAccess.Hermes_Connection != null)
+                        theadDataAccess.Hermes_Connection.close();
+                    theadDataAccess.Hermes_Connection = null;
                 }
-                */
-                if (Queue_ID == 0L) {
-                   // String isRest;
-                    getResponse.setStatus(200);
-                    if ( MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
-                       // в URL_SOAP_Ack интерфейса записан REST, значит без <Body></Body>
-                        HttpResponse = Message.XML_MsgResponse.toString();
-                    else HttpResponse = Body_noNS_Begin +
-                            Message.XML_MsgResponse.toString() +
-                            Body_noNS_End;
+            } catch (SQLException e) {
+                Controller_log.error("Проблемы с закрытием theadDataAccess соединения " + e.getMessage());
+                e.printStackTrace();
+            }
+            */
+            if (Queue_ID == 0L) {
+               // String isRest;
+                getResponse.setStatus(200);
+                if ( MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
+                   // в URL_SOAP_Ack интерфейса записан REST, значит без <Body></Body>
+                    HttpResponse = Message.XML_MsgResponse.toString();
+                else HttpResponse = Body_noNS_Begin +
+                        Message.XML_MsgResponse.toString() +
+                        Body_noNS_End;
+            } else {
+                if (Queue_ID > 0L) {
+                    getResponse.setStatus(500);
+                    HttpResponse = Fault_Client_noNS_Begin +
+                            XML.escape(Message.MsgReason.toString()) +
+                            Fault_noNS_End;
                 } else {
-                    if (Queue_ID > 0L) {
-                        getResponse.setStatus(500);
-                        HttpResponse = Fault_Client_noNS_Begin +
-                                XML.escape(Message.MsgReason.toString()) +
-                                Fault_noNS_End;
-                    } else {
-                        getResponse.setStatus(500);
-                        HttpResponse = Fault_Server_noNS_Begin +
-                                Message.MsgReason.toString() +
-                                Fault_noNS_End;
-                    }
+                    getResponse.setStatus(500);
+                    HttpResponse = Fault_Server_noNS_Begin +
+                            Message.MsgReason.toString() +
+                            Fault_noNS_End;
                 }
+            }
 
-                if (isDebugged)
-                Controller_log.info("HttpResponse:[" + HttpResponse + "]");
-                getResponse.setHeader("Access-Control-Allow-Origin", "*");
-                getResponse.setContentType("application/json;Charset=UTF-8");
-                // getResponse.setContentType("text/xml;charset=UTF-8");
-                if (is_TextJsonResponse ) {
-                    try {
-                        JSONObject xmlJSONObj = XML.toJSONObject(HttpResponse);
-                        // TODO внутри XML.toJSONObject метод stringToValue делает аналогично StringEscapeUtils.escapeJson()
-
-                        String jsonPrettyPrintString = xmlJSONObj.toString(4); //StringEscapeUtils.unescapeXml (xmlJSONObj.toString(4) );
-                        getResponse.setContentType("application/json;Charset=UTF-8");
-                        if (isDebugged)
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess != null) {
-                                if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                    messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                                messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                            }
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
-                        if (isDebugged)
-                        Controller_log.warn( "jsonPrettyPrintString : " + jsonPrettyPrintString);
-                        Controller_log.info("DataSourcePool " + DataSourcePoolMetadata.getActive());
-                        return (jsonPrettyPrintString);
+            if (isDebugged)
+            Controller_log.info("HttpResponse:[" + HttpResponse + "]");
+            getResponse.setHeader("Access-Control-Allow-Origin", "*");
+            getResponse.setContentType("application/json;Charset=UTF-8");
+            // getResponse.setContentType("text/xml;charset=UTF-8");
+            if (is_TextJsonResponse ) {
+                try {
+                    JSONObject xmlJSONObj = XML.toJSONObject(HttpResponse);
+                    // TODO внутри XML.toJSONObject метод stringToValue делает аналогично StringEscapeUtils.escapeJson()
 
-                    } catch (JSONException e) {
-                        System.err.println(e.toString());
-                    }
-                }
-              // возвращаем XML
-                    if (messageReceiveTask.theadDataAccess != null) { // Закрываем соединение
-                        if (isDebugged)
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
-                    }
-                getResponse.setContentType("text/xml;charset=UTF-8");
-                return HttpResponse;
+                    String jsonPrettyPrintString = xmlJSONObj.toString(4); //StringEscapeUtils.unescapeXml (xmlJSONObj.toString(4) );
+                    getResponse.setContentType("application/json;Charset=UTF-8");
+                    if (isDebugged)
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
+                    if (isDebugged)
+                    Controller_log.warn( "jsonPrettyPrintString : " + jsonPrettyPrintString);
+                    Controller_log.info("DataSourcePool " + DataSourcePoolMetadata.getActive());
+                    return (jsonPrettyPrintString);
 
-            } finally {
-                if ( messageReceiveTask != null)
-                    if (messageReceiveTask.theadDataAccess != null) {
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                            return HttpResponse;
-                        }
-                    }
+                } catch (JSONException e) {
+                    System.err.println(e.toString());
+                }
+            }
+          // возвращаем XML
+                if (theadDataAccess != null) { // Закрываем соединение
+                    if (isDebugged)
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
+                }
+            getResponse.setContentType("text/xml;charset=UTF-8");
+            return HttpResponse;
 
+        } finally {
+            if (theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
             }
         }
-
-
     }
 
     @GetMapping(path ={"/HermesService/PushMQRequest/*", "/MsgBusService/PushMQRequest/*"} ,produces = MediaType.ALL_VALUE,  consumes = MediaType.ALL_VALUE)
@@ -367,7 +380,17 @@ public class GetController  {
    // @ResponseStatus(HttpStatus.OK)
     @ResponseBody
 
-    public String GetHermesRestApi(ServletRequest getServletRequest, HttpServletResponse getResponse, Authentication httpRequestAuthentication, Principal httpRequestUserPrincipal) {
+    public DeferredResult<String> GetHermesRestApi(ServletRequest getServletRequest, HttpServletResponse getResponse, Authentication httpRequestAuthentication, Principal httpRequestUserPrincipal) {
+        DeferredResult<String> getDeferredResult = new DeferredResult<>( SyncCallWait.AsyncTimeout );
+        String HttpResponse = PerformGetHermesRestApi(getServletRequest, getResponse, httpRequestAuthentication, httpRequestUserPrincipal, getDeferredResult);
+        if ( HttpResponse != null ) // ответ готов без ожидания исходящего
+            getDeferredResult.setResult( HttpResponse );
+        return getDeferredResult;
+    }
+
+    // null - ответ в getDeferredResult выставит SyncCallWait
+    private String PerformGetHermesRestApi(ServletRequest getServletRequest, HttpServletResponse getResponse, Authentication httpRequestAuthentication, Principal httpRequestUserPrincipal,
+                                           DeferredResult<String> getDeferredResult) {
         //@PathVariable
         HttpServletRequest httpRequest = (HttpServletRequest) getServletRequest;
         Controller_log.warn("GetHermesRestApi-> RemoteAddr: `" + getServletRequest.getRemoteAddr() + "` ,RemoteHost: `" + getServletRequest.getRemoteHost() + "`");
@@ -623,188 +646,190 @@ public class GetController  {
                 int MessageTemplateVOkey = MessageRepositoryHelper.look4MessageTemplate_2_Interface(Interface_id, Controller_log);
                 boolean isDebugged = false;  // TODO: this.isDebugged=true; -- для Документирования false;
 
+                // ожидание исходящего - без потока, ответ тогда соберёт SyncCallWait
+                messageReceiveTask.isSyncWaitDeferred = true;
                 Long Queue_ID = messageReceiveTask.ProcessRestAPIMessage(Interface_id, Message, MessageOperationId, isDebugged);
-
-                if (Queue_ID == 0L) {
-                    getResponse.setStatus(200); ResponseStatus="200";
-                    if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
-                    {  if (isDebugged) Controller_log.info( "в URL_SOAP_Ack интерфейса записан REST, значит без <Body></Body>" );
-                        if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_RestExel_2_Interface(Url_Soap_Send, Controller_log)) {
-                            if (isDebugged)
-                                Controller_log.info("на интерфейсе прописан `REST-EXCEL` , надо сказать браузеру, что возвращаем MML-файл в Excel-формат");
-                            HttpResponse = """
-                                    <?xml version="1.0" encoding="UTF-8"?>
-                                    <?mso-application progid="Excel.Sheet"?>                                                                           
-                                    """
-                                    + Message.XML_MsgResponse.toString();
-                        }
-                        else HttpResponse = Message.XML_MsgResponse.toString();
-                    }
-                    // добавляем  <Body></Body>
-                    else HttpResponse = Body_noNS_Begin +
-                                        Message.XML_MsgResponse.toString() +
-                                        Body_noNS_End;
-                } else {
-                    getResponse.setStatus(422);  ResponseStatus="422";
-                    if (Queue_ID > 0L) {
-                        getResponse.setStatus(500);  ResponseStatus="500";
-                        HttpResponse = Fault_Client_noNS_Begin_4_Rest +
-                                XML.escape(Message.MsgReason.toString()) +
-                                Fault_noNS_End_4_Rest;
-                    } else {
-                        getResponse.setStatus(500); ResponseStatus="500";
-                        HttpResponse = Fault_Server_noNS_Begin_4_Rest +
-                                Message.MsgReason.toString() +
-                                Fault_noNS_End_4_Rest;
-                    }
+                // сессию дальше держит тот, кто строит ответ
+                TheadDataAccess theadDataAccess = messageReceiveTask.theadDataAccess;
+                messageReceiveTask.theadDataAccess = null;
+                if ( messageReceiveTask.SyncWait != null ) {
+                    // исходящее ещё не готово: поток Jetty освобождается, ответ соберёт SyncCallWait по завершении исходящего или по тайм-ауту
+                    final String BusOperationMesssageType4Response = BusOperationMesssageType;
+                    messageReceiveTask.SyncWait.start( theadDataAccess, (Finish_Queue_ID, Finish_theadDataAccess) ->
+                            getDeferredResult.setResult( GetHermesRestApiResponse( Finish_Queue_ID, Message, Finish_theadDataAccess, getResponse, Url_Soap_Send, BusOperationMesssageType4Response, isDebugged ) ) );
+                    return null;
                 }
+                return GetHermesRestApiResponse( Queue_ID, Message, theadDataAccess, getResponse, Url_Soap_Send, BusOperationMesssageType, isDebugged );
+            } finally {
+                if ( messageReceiveTask != null)
+                    if (messageReceiveTask.theadDataAccess != null) {
+                        TheadDataAccessPool.releaseTheadDataAccess( messageReceiveTask.theadDataAccess, Controller_log );
+                        messageReceiveTask.theadDataAccess = null;
+                    }
 
-                if (isDebugged)
-                    Controller_log.info("HttpResponse:`" + HttpResponse + "`");
-                // Controller_log.warn("XML-HttpResponse готов" );
+            }
 
-                if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface(Url_Soap_Send, Controller_log))
-                {       // если на интерфейсе прописан REST-XML или REST-EXCEL, то возвращаем XML
-                    if (isDebugged) Controller_log.info("на интерфейсе прописан REST-XML , то возвращаем XML" );
-                    //getResponse.setContentType("text/xml;charset=UTF-8");
-                    // HttpHeaders header;
-                    //MediaType exelMediaType = new MediaType("application", "vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+
+    }
+
+    // ответ GetHermesRestApi по результату ProcessRestAPIMessage(), сессию theadDataAccess возвращает в пул
+    private String GetHermesRestApiResponse( Long Queue_ID, MessageDetails Message, TheadDataAccess theadDataAccess, HttpServletResponse getResponse, String Url_Soap_Send,
+                                             String BusOperationMesssageType, boolean isDebugged ) {
+        String HttpResponse;
+        String ResponseStatus;
+        try {
+
+            if (Queue_ID == 0L) {
+                getResponse.setStatus(200); ResponseStatus="200";
+                if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
+                {  if (isDebugged) Controller_log.info( "в URL_SOAP_Ack интерфейса записан REST, значит без <Body></Body>" );
                     if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_RestExel_2_Interface(Url_Soap_Send, Controller_log)) {
-                        // на интерфейсе прописан `REST-EXCEL` , надо сказать браузеру, что возвращаем MML-файл в Excel-формат
-                        getResponse.setContentType("application/vnd.ms-excel");
-                        // header.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=my_file.xls");
-                        getResponse.setHeader("Content-Disposition", "attachment; filename=" + BusOperationMesssageType + ".xml");
-                        //getResponse.setContentLength(HttpResponse.codePointCount(0, HttpResponse.length() ) );
+                        if (isDebugged)
+                            Controller_log.info("на интерфейсе прописан `REST-EXCEL` , надо сказать браузеру, что возвращаем MML-файл в Excel-формат");
+                        HttpResponse = """
+                                <?xml version="1.0" encoding="UTF-8"?>
+                                <?mso-application progid="Excel.Sheet"?>                                                                           
+                                """
+                                + Message.XML_MsgResponse.toString();
                     }
-                    else
-                        getResponse.setContentType("text/xml;charset=UTF-8");
+                    else HttpResponse = Message.XML_MsgResponse.toString();
+                }
+                // добавляем  <Body></Body>
+                else HttpResponse = Body_noNS_Begin +
+                                    Message.XML_MsgResponse.toString() +
+                                    Body_noNS_End;
+            } else {
+                getResponse.setStatus(422);  ResponseStatus="422";
+                if (Queue_ID > 0L) {
+                    getResponse.setStatus(500);  ResponseStatus="500";
+                    HttpResponse = Fault_Client_noNS_Begin_4_Rest +
+                            XML.escape(Message.MsgReason.toString()) +
+                            Fault_noNS_End_4_Rest;
+                } else {
+                    getResponse.setStatus(500); ResponseStatus="500";
+                    HttpResponse = Fault_Server_noNS_Begin_4_Rest +
+                            Message.MsgReason.toString() +
+                            Fault_noNS_End_4_Rest;
+                }
+            }
 
+            if (isDebugged)
+                Controller_log.info("HttpResponse:`" + HttpResponse + "`");
+            // Controller_log.warn("XML-HttpResponse готов" );
+
+            if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface(Url_Soap_Send, Controller_log))
+            {       // если на интерфейсе прописан REST-XML или REST-EXCEL, то возвращаем XML
+                if (isDebugged) Controller_log.info("на интерфейсе прописан REST-XML , то возвращаем XML" );
+                //getResponse.setContentType("text/xml;charset=UTF-8");
+                // HttpHeaders header;
+                //MediaType exelMediaType = new MediaType("application", "vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_RestExel_2_Interface(Url_Soap_Send, Controller_log)) {
+                    // на интерфейсе прописан `REST-EXCEL` , надо сказать браузеру, что возвращаем MML-файл в Excel-формат
+                    getResponse.setContentType("application/vnd.ms-excel");
+                    // header.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=my_file.xls");
+                    getResponse.setHeader("Content-Disposition", "attachment; filename=" + BusOperationMesssageType + ".xml");
+                    //getResponse.setContentLength(HttpResponse.codePointCount(0, HttpResponse.length() ) );
                 }
                 else
-                {  // возвращаем JSON
-                    getResponse.setContentType("application/json;Charset=UTF-8");
-                    try
+                    getResponse.setContentType("text/xml;charset=UTF-8");
+
+            }
+            else
+            {  // возвращаем JSON
+                getResponse.setContentType("application/json;Charset=UTF-8");
+                try
+                {
+                    String jsonPrettyPrintString;
+                    if (HttpResponse.startsWith("<data/>")) {
+                        jsonPrettyPrintString = "[]";
+                        Controller_log.warn("пустой JSON-HttpResponse сформирован");
+                    } else
                     {
-                        String jsonPrettyPrintString;
-                        if (HttpResponse.startsWith("<data/>")) {
-                            jsonPrettyPrintString = "[]";
-                            Controller_log.warn("пустой JSON-HttpResponse сформирован");
-                        } else
-                        {
-                            JSONObject xmlJSONObj = XML.toJSONObject(HttpResponse, true);
-                            if (isDebugged) {
-                             String jsonPrettyString =  xmlJSONObj.toString(4);
-                             Controller_log.warn("[" + Queue_ID.toString() +  "] непустой JSON-HttpResponse построен:" + jsonPrettyString);
-                            }
-
-                            if (Queue_ID == 0L) {
-                                Controller_log.warn("[" + Queue_ID.toString() +  "] try ClientIpHelper.jsonPrettyArray:[ " +  Message.X_Total_Count + " ]" );
-                                jsonPrettyPrintString = ClientIpHelper.jsonPrettyArray(xmlJSONObj, Message.X_Total_Count,  Controller_log);
-                            }
-                            else
-                                jsonPrettyPrintString = xmlJSONObj.toString(2);
-                        }
-                        //System.out.println("jsonPrettyPrintString:\n" + jsonPrettyPrintString);
-                        // getResponse.setContentType("application/json;Charset=UTF-8");
-                        if (isDebugged)
-                            Controller_log.warn("JSON-HttpResponse готов:" + jsonPrettyPrintString);
-                        if ((isDebugged) &&
-                            (messageReceiveTask.theadDataAccess != null) &&
-                            (messageReceiveTask.theadDataAccess.Hermes_Connection != null))
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
-                        try {
-                            // Закрываем соединение после логирования
-                            if (messageReceiveTask.theadDataAccess != null) {
-                                if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                    messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                                messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                            }
-                        } catch (SQLException SQLe) {
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
+                        JSONObject xmlJSONObj = XML.toJSONObject(HttpResponse, true);
+                        if (isDebugged) {
+                         String jsonPrettyString =  xmlJSONObj.toString(4);
+                         Controller_log.warn("[" + Queue_ID.toString() +  "] непустой JSON-HttpResponse построен:" + jsonPrettyString);
                         }
-                        Controller_log.info("Response.Status=" +  //getResponse.getStatus() +
-                                         "; DataSourcePool=" + DataSourcePoolMetadata.getActive());
 
-                        getResponse.setHeader("Access-Control-Allow-Origin", "*");
+                        if (Queue_ID == 0L) {
+                            Controller_log.warn("[" + Queue_ID.toString() +  "] try ClientIpHelper.jsonPrettyArray:[ " +  Message.X_Total_Count + " ]" );
+                            jsonPrettyPrintString = ClientIpHelper.jsonPrettyArray(xmlJSONObj, Message.X_Total_Count,  Controller_log);
+                        }
+                        else
+                            jsonPrettyPrintString = xmlJSONObj.toString(2);
+                    }
+                    //System.out.println("jsonPrettyPrintString:\n" + jsonPrettyPrintString);
+                    // getResponse.setContentType("application/json;Charset=UTF-8");
+                    if (isDebugged)
+                        Controller_log.warn("JSON-HttpResponse готов:" + jsonPrettyPrintString);
+                    if ((isDebugged) &&
+                        (theadDataAccess != null) &&
+                        (theadDataAccess.Hermes_Connection != null))
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
+                    Controller_log.info("Response.Status=" +  //getResponse.getStatus() +
+                                     "; DataSourcePool=" + DataSourcePoolMetadata.getActive());
+
+                    getResponse.setHeader("Access-Control-Allow-Origin", "*");
 //                    getResponse.setHeader("Access-Control-Expose-Headers", "X-Total-Count");
 //                    getResponse.setHeader("Access-Control-Expose-Headers", "Content-Range");
-                        getResponse.setHeader("Access-Control-Expose-Headers", "X-Total-Count");
+                    getResponse.setHeader("Access-Control-Expose-Headers", "X-Total-Count");
 //                    getResponse.setHeader("Custom-Bus-Range", "MessageDirections : 0-9/*");
 //                    getResponse.setHeader("Content-Range","MessageDirections : 0-4/79");
 //                    getResponse.setHeader("content-range","4");
 
-                        getResponse.setHeader("x-total-count", String.valueOf(Math.abs(Message.X_Total_Count)));
-                        if (isDebugged)
-                            Controller_log.warn("HttpResponse `x-total-count`:" + Message.X_Total_Count);
-                        getResponse.setHeader("Access-Control-Allow-Origin", "*");
-                        // if (isDebugged)  Controller_log.warn(jsonPrettyPrintString);
+                    getResponse.setHeader("x-total-count", String.valueOf(Math.abs(Message.X_Total_Count)));
+                    if (isDebugged)
+                        Controller_log.warn("HttpResponse `x-total-count`:" + Message.X_Total_Count);
+                    getResponse.setHeader("Access-Control-Allow-Origin", "*");
+                    // if (isDebugged)  Controller_log.warn(jsonPrettyPrintString);
 
-                        //String jNoRecod = jsonPrettyPrintString.replace( "\"data\": {\"Record\":" , " \"data\" :");
-                        //  jsonPrettyPrintString = jNoRecod.replace( "]}}", "], \"meta\": {\"total\": 4}  }" );
-                        // no meta, total in X-Total-Count :
-                        //jsonPrettyPrintString = jNoRecod.replace( "]}}", "]}" );
+                    //String jNoRecod = jsonPrettyPrintString.replace( "\"data\": {\"Record\":" , " \"data\" :");
+                    //  jsonPrettyPrintString = jNoRecod.replace( "]}}", "], \"meta\": {\"total\": 4}  }" );
+                    // no meta, total in X-Total-Count :
+                    //jsonPrettyPrintString = jNoRecod.replace( "]}}", "]}" );
 
 
-                        // no { data } no meta, total in X-Total-Count :
-                        // String jNoRecod_Id = jsonPrettyPrintString.replace( "Record_Id", "id");
-                        //////////////////////////////////
+                    // no { data } no meta, total in X-Total-Count :
+                    // String jNoRecod_Id = jsonPrettyPrintString.replace( "Record_Id", "id");
+                    //////////////////////////////////
 //                    String jNoRecod = jsonPrettyPrintString.replace( "{\"data\": {\"Record\": " , "");
 //                    jsonPrettyPrintString = jNoRecod.replace( "]}}", "]" );
-                        /////////////////////////////////
+                    /////////////////////////////////
 
 //                    Controller_log.warn(jsonPrettyPrintString);
-                        if (isDebugged) Controller_log.info("return jsonPrettyPrintString:" + jsonPrettyPrintString);
-                        return (jsonPrettyPrintString);
-
-                    } catch (JSONException e) {
-                        System.err.println(e.toString());
-                        HttpResponse = Fault_Server_Rest_Begin +
-                                org.apache.commons.text.StringEscapeUtils.escapeJson("Не смогли преобразовать HttpResponse=`" + HttpResponse + "` в JSON: " + e.getMessage()) + Fault_Rest_End;
-                        getResponse.setStatus(500); ResponseStatus="500";
-                    }
+                    if (isDebugged) Controller_log.info("return jsonPrettyPrintString:" + jsonPrettyPrintString);
+                    return (jsonPrettyPrintString);
 
+                } catch (JSONException e) {
+                    System.err.println(e.toString());
+                    HttpResponse = Fault_Server_Rest_Begin +
+                            org.apache.commons.text.StringEscapeUtils.escapeJson("Не смогли преобразовать HttpResponse=`" + HttpResponse + "` в JSON: " + e.getMessage()) + Fault_Rest_End;
+                    getResponse.setStatus(500); ResponseStatus="500";
                 }
-                if (messageReceiveTask.theadDataAccess != null) {
-                    if (isDebugged)
-                        messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
-                    try {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    } catch (SQLException SQLe) {
-                        Controller_log.error(SQLe.getMessage());
-                        Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                        SQLe.printStackTrace();
-                    }
-                }
-
-                getResponse.setHeader("Access-Control-Expose-Headers", "X-Total-Count");
-                getResponse.setHeader("Access-Control-Expose-Headers", "Content-Range");
-
-                if (isDebugged) Controller_log.info("return HttpResponse:" + HttpResponse);
-                Controller_log.info("Response.Status=" + ResponseStatus + "DataSourcePool=" + DataSourcePoolMetadata.getActive());
-
-                return HttpResponse;
-            } finally {
-                if ( messageReceiveTask != null)
-                    if (messageReceiveTask.theadDataAccess != null) {
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                            // return HttpResponse;
-                        }
-                    }
 
             }
+            if (theadDataAccess != null) {
+                if (isDebugged)
+                    theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
+            }
 
+            getResponse.setHeader("Access-Control-Expose-Headers", "X-Total-Count");
+            getResponse.setHeader("Access-Control-Expose-Headers", "Content-Range");
 
+            if (isDebugged) Controller_log.info("return HttpResponse:" + HttpResponse);
+            Controller_log.info("Response.Status=" + ResponseStatus + "DataSourcePool=" + DataSourcePoolMetadata.getActive());
 
+            return HttpResponse;
+        } finally {
+            if (theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+            }
+        }
     }
 
     @GetMapping(path ="/HermesService/RaspberyRestApi/*", produces = MediaType.ALL_VALUE,  consumes = MediaType.ALL_VALUE)
@@ -812,7 +837,16 @@ public class GetController  {
     //@ResponseStatus(HttpStatus.OK)
     @ResponseBody
 
-    public String GetHttpRowRequest( ServletRequest getServletRequest, HttpServletResponse getResponse) {
+    public DeferredResult<String> GetHttpRowRequest( ServletRequest getServletRequest, HttpServletResponse getResponse) {
+        DeferredResult<String> getDeferredResult = new DeferredResult<>( SyncCallWait.AsyncTimeout );
+        String HttpResponse = PerformGetHttpRowRequest(getServletRequest, getResponse, getDeferredResult);
+        if ( HttpResponse != null ) // ответ готов без ожидания исходящего
+            getDeferredResult.setResult( HttpResponse );
+        return getDeferredResult;
+    }
+
+    // null - ответ в getDeferredResult выставит SyncCallWait
+    private String PerformGetHttpRowRequest( ServletRequest getServletRequest, HttpServletResponse getResponse, DeferredResult<String> getDeferredResult) {
         //@PathVariable
         HttpServletRequest httpRequest = (HttpServletRequest) getServletRequest;
         Controller_log.warn("GetHttpRequest->RemoteAddr: \"" + getServletRequest.getRemoteAddr() + "\" ,RemoteHost: \"" + getServletRequest.getRemoteHost() + "\"" );
@@ -929,114 +963,108 @@ public class GetController  {
                 boolean isDebugged = false; // TODO: this.isDebugged=true; -- для Документирования
 
                 Long Queue_ID;
+                // ожидание исходящего - без потока, ответ тогда соберёт SyncCallWait
+                messageReceiveTask.isSyncWaitDeferred = true;
                 Queue_ID = messageReceiveTask.ProcessInputMessage(Interface_id, Message, MessageTemplateVOkey, isDebugged);
-
-                try {
+                // сессию дальше держит тот, кто строит ответ
+                TheadDataAccess theadDataAccess = messageReceiveTask.theadDataAccess;
+                messageReceiveTask.theadDataAccess = null;
+                if ( messageReceiveTask.SyncWait != null ) {
+                    // исходящее ещё не готово: поток Jetty освобождается, ответ соберёт SyncCallWait по завершении исходящего или по тайм-ауту
+                    final boolean is_TextJsonResponse4Response = is_TextJsonResponse;
+                    final boolean isDebugged4Response = isDebugged;
+                    messageReceiveTask.SyncWait.start( theadDataAccess, (Finish_Queue_ID, Finish_theadDataAccess) ->
+                            getDeferredResult.setResult( GetHttpRowResponse( Finish_Queue_ID, Message, Finish_theadDataAccess, getResponse, Url_Soap_Send, is_TextJsonResponse4Response, isDebugged4Response ) ) );
+                    return null;
+                }
+                return GetHttpRowResponse( Queue_ID, Message, theadDataAccess, getResponse, Url_Soap_Send, is_TextJsonResponse, isDebugged );
+            } finally {
+                if ( messageReceiveTask != null)
                     if (messageReceiveTask.theadDataAccess != null) {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
+                        TheadDataAccessPool.releaseTheadDataAccess( messageReceiveTask.theadDataAccess, Controller_log );
+                        messageReceiveTask.theadDataAccess = null;
                     }
-                } catch (SQLException e) {
-                    Controller_log.error("Проблемы с закрытием theadDataAccess соединения " + e.getMessage());
-                    e.printStackTrace();
-                }
-                if (Queue_ID == 0L) {
-                    String isRest;
-                    getResponse.setStatus(200);
-                    if ( MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
-                        // в URL_SOAP_Ack интерфейса записан REST, значит без <Body></Body>
-                        HttpResponse = Message.XML_MsgResponse.toString();
-                    else HttpResponse = Body_noNS_Begin +
-                            Message.XML_MsgResponse.toString() +
-                            Body_noNS_End;
+
+            }
+        }
+
+
+    }
+
+    // ответ GetHttpRowRequest по результату ProcessInputMessage(), сессию theadDataAccess возвращает в пул
+    private String GetHttpRowResponse( Long Queue_ID, MessageDetails Message, TheadDataAccess theadDataAccess, HttpServletResponse getResponse, String Url_Soap_Send,
+                                       boolean is_TextJsonResponse, boolean isDebugged ) {
+        String HttpResponse;
+        try {
+
+            // сессию возвращаем в пул после doUPDATE_QUEUElog ниже ( или в finally )
+            if (Queue_ID == 0L) {
+                String isRest;
+                getResponse.setStatus(200);
+                if ( MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
+                    // в URL_SOAP_Ack интерфейса записан REST, значит без <Body></Body>
+                    HttpResponse = Message.XML_MsgResponse.toString();
+                else HttpResponse = Body_noNS_Begin +
+                        Message.XML_MsgResponse.toString() +
+                        Body_noNS_End;
+            } else {
+                if (Queue_ID > 0L) {
+                    getResponse.setStatus(500);
+                    HttpResponse = Fault_Client_noNS_Begin +
+                            XML.escape(Message.MsgReason.toString()) +
+                            Fault_noNS_End;
                 } else {
-                    if (Queue_ID > 0L) {
-                        getResponse.setStatus(500);
-                        HttpResponse = Fault_Client_noNS_Begin +
-                                XML.escape(Message.MsgReason.toString()) +
-                                Fault_noNS_End;
-                    } else {
-                        getResponse.setStatus(500);
-                        HttpResponse = Fault_Server_noNS_Begin +
-                                Message.MsgReason.toString() +
-                                Fault_noNS_End;
-                    }
+                    getResponse.setStatus(500);
+                    HttpResponse = Fault_Server_noNS_Begin +
+                            Message.MsgReason.toString() +
+                            Fault_noNS_End;
                 }
-                getResponse.setStatus(200);
+            }
+            getResponse.setStatus(200);
 /*
-            HttpResponse = Fault_Client_noNS_Begin +
-                    XML.escape(httpRequest.getMethod() + ": url= (" + url + ") queryString(" + queryString + ")") +
-                    Fault_noNS_End;
+        HttpResponse = Fault_Client_noNS_Begin +
+                XML.escape(httpRequest.getMethod() + ": url= (" + url + ") queryString(" + queryString + ")") +
+                Fault_noNS_End;
 */
-                if (isDebugged)
-                    Controller_log.info("HttpResponse:" + HttpResponse);
-                getResponse.setHeader("Access-Control-Allow-Origin", "*");
-                getResponse.setContentType("application/json;Charset=UTF-8");
-                // getResponse.setContentType("text/xml;charset=UTF-8");
-                if (is_TextJsonResponse ) {
-                    try {
-                        JSONObject xmlJSONObj = XML.toJSONObject(HttpResponse);
-
-                        String jsonPrettyPrintString = xmlJSONObj.toString(4);
-                        //System.out.println("jsonPrettyPrintString:\n" + jsonPrettyPrintString);
-                        getResponse.setContentType("application/json;Charset=UTF-8");
-                        if (isDebugged)
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess != null) {
-                                if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                    messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                                messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                            }
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
-                        Controller_log.info("DataSourcePool " + DataSourcePoolMetadata.getActive());
-                        return (jsonPrettyPrintString);
+            if (isDebugged)
+                Controller_log.info("HttpResponse:" + HttpResponse);
+            getResponse.setHeader("Access-Control-Allow-Origin", "*");
+            getResponse.setContentType("application/json;Charset=UTF-8");
+            // getResponse.setContentType("text/xml;charset=UTF-8");
+            if (is_TextJsonResponse ) {
+                try {
+                    JSONObject xmlJSONObj = XML.toJSONObject(HttpResponse);
 
-                    } catch (JSONException e) {
-                        System.err.println(e.toString());
-                    }
-                }
+                    String jsonPrettyPrintString = xmlJSONObj.toString(4);
+                    //System.out.println("jsonPrettyPrintString:\n" + jsonPrettyPrintString);
+                    getResponse.setContentType("application/json;Charset=UTF-8");
+                    if ((isDebugged) &&
+                        (theadDataAccess != null))
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
+                    Controller_log.info("DataSourcePool " + DataSourcePoolMetadata.getActive());
+                    return (jsonPrettyPrintString);
 
-                if (messageReceiveTask.theadDataAccess != null) {
-                    if (isDebugged)
-                        messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
-                    try {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    } catch (SQLException SQLe) {
-                        Controller_log.error(SQLe.getMessage());
-                        Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                        SQLe.printStackTrace();
-                    }
+                } catch (JSONException e) {
+                    System.err.println(e.toString());
                 }
+            }
 
-                getResponse.setContentType("text/xml;charset=UTF-8");
-                return HttpResponse;
-            } finally {
-                if ( messageReceiveTask != null)
-                    if (messageReceiveTask.theadDataAccess != null) {
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                            return HttpResponse;
-                        }
-                    }
+            if (theadDataAccess != null) {
+                if (isDebugged)
+                    theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
+            }
 
+            getResponse.setContentType("text/xml;charset=UTF-8");
+            return HttpResponse;
+        } finally {
+            if (theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
             }
         }
-
-
     }
 
 }
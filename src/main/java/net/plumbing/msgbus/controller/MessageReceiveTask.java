@@ -8,13 +8,15 @@ import net.plumbing.msgbus.model.MessageDetails;
 import net.plumbing.msgbus.model.MessageQueueVO;
 import net.plumbing.msgbus.model.MessageTemplate;
 import net.plumbing.msgbus.threads.TheadDataAccess;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
 import net.plumbing.msgbus.threads.utils.MessageUtils;
+import net.plumbing.msgbus.threads.utils.PipelineMetrics;
 import net.plumbing.msgbus.threads.utils.XMLutils;
-import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.Xslt30Transformer;
-import net.sf.saxon.s9api.XsltCompiler;
+import org.jdom2.Document;
 import org.jdom2.input.JDOMParseException;
+import org.jdom2.output.XMLOutputter;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -36,6 +38,10 @@ public class MessageReceiveTask
     // private ThreadSafeClientConnManager externalConnectionManager;
     private xlstErrorListener XSLTErrorListener=null;
     public TheadDataAccess theadDataAccess=null;
+    // true - контроллер продолжит вызов по SyncWait ( DeferredResult ), ожидание исходящего не держит поток
+    public boolean isSyncWaitDeferred = false;
+    // не null - ProcessInputMessage() вернул SyncCallWait.Pending, исходящее ещё не готово
+    public SyncCallWait SyncWait = null;
 
 
 
@@ -55,19 +61,13 @@ public class MessageReceiveTask
         MessageQueueVO messageQueueVO = new MessageQueueVO();
 
         // TheadDataAccess
-        this.theadDataAccess = new TheadDataAccess();
         // Установаливем " соединение" , что бы зачитывать очередь
         //  theadDataAccess.setDbSchema( ApplicationProperties.HrmsSchema ); - перенесён в make_Hikari_Connection(), что бы не забылось нигде!
         if ( isDebugged )
             MessegeReceive_Log.info("Установаливем `соединение`, что бы зачитывать очередь: [{}] user:{}; passwd:{} Schema: {}.",
                     ApplicationProperties.HrmsPoint, ApplicationProperties.hrmsDbLogin, ApplicationProperties.hrmsDbPasswd, ApplicationProperties.HrmsSchema);
-        theadDataAccess.make_Hikari_Connection(
-                ApplicationProperties.HrmsSchema,
-                ApplicationProperties.hrmsDbLogin,
-                ApplicationProperties.dataSource,
-                ApplicationProperties.InternalDbPgSetupConnection,
-                MessegeReceive_Log
-        );
+        // сессия с уже подготовленными PreparedStatement-ами берётся из пула, возвращает её контроллер
+        this.theadDataAccess = TheadDataAccessPool.borrowTheadDataAccess( MessegeReceive_Log );
         if ( theadDataAccess.Hermes_Connection == null ){
             Message.MsgReason.append("Ошибка на приёме сообщения - theadDataAccess.make_Hikari_Connection return: NULL!"  );
             return -2L;
@@ -75,6 +75,9 @@ public class MessageReceiveTask
         // MessageTemplateVOkey - Шаблон интерфейса (на основе входного URL)
         if ( isDebugged )
             MessegeReceive_Log.info("{}: check content of Interface Template by MessageTemplateVOkey 4 getEnvelopeInXSLT(`{}`)", Queue_Direction, MessageTemplateVOkey);
+        // до HeaderInXSLT операция не известна - время этапов пишется с operation=0
+        final int Template_Id = ( MessageTemplateVOkey >= 0 ) ? MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).getTemplate_Id() : 0;
+        long Stage_Nanos = PipelineMetrics.start();
         try {
             if ( MessageTemplateVOkey >= 0 )
             // Парсим входной запрос и формируем XML-Document !
@@ -87,9 +90,11 @@ public class MessageReceiveTask
                         MessegeReceive_Log);
         }
         catch (Exception e) {
-            System.err.println( "["+ Message.XML_MsgInput + "]  Exception" );
+            // без Debug запрос разобран прямо из потока ( parseRequestStream ) и XML_MsgInput не заполнен
+            String XML_MsgInput4Log = ( Message.XML_MsgInput != null ) ? Message.XML_MsgInput : "(запрос разобран из потока, текст сохраняется только при Debug)";
+            System.err.println( "["+ XML_MsgInput4Log + "]  Exception" );
             e.printStackTrace();
-            MessegeReceive_Log.error("{} fault:`{}` XMLutils.makeClearRequest fault: {}", Queue_Direction, Message.XML_MsgInput, sStackTrace.strInterruptedException(e));
+            MessegeReceive_Log.error("{} fault:`{}` XMLutils.makeClearRequest fault: {}", Queue_Direction, XML_MsgInput4Log, sStackTrace.strInterruptedException(e));
             Message.MsgReason.append("Ошибка на приёме сообщения: ").append(e.getMessage()); //  sStackTrace.strInterruptedException(e));
                if ( (e instanceof JDOMParseException ) || (e instanceof XPathExpressionException)  ) // Клиент прислсл фуфло
                    return 1L;
@@ -97,15 +102,18 @@ public class MessageReceiveTask
                    return -1L;
 
         }
+        PipelineMetrics.record( PipelineMetrics.Receive, "make_clear_request", Interface_id, 0, Template_Id, Stage_Nanos );
         if ( isDebugged )
             MessegeReceive_Log.info("Clear request: `{}` MessageTemplateVOkey 4 getEnvelopeInXSLT()={}", Message.XML_MsgClear.toString(), MessageTemplateVOkey);
 
         // Создаем запись в таблице-очереди  select ARTX_PROJ.MESSAGE_QUEUE_SEQ.NEXTVAL ...
+        Stage_Nanos = PipelineMetrics.start();
         Queue_Id = MessageUtils.MakeNewMessage_Queue( messageQueueVO, theadDataAccess, MessegeReceive_Log );
         if ( Queue_Id == null ){
             Message.MsgReason.append("Ошибка на приёме сообщения, не удалось сохранить заголовок сообщения в БД - MakeNewMessage_Queue return: ").append(Queue_Id);
             return -3L;
         }
+        PipelineMetrics.record( PipelineMetrics.Receive, "make_new_message_queue", Interface_id, 0, Template_Id, Stage_Nanos );
         // MessegeReceive_Log.info(" isDebugged ?:(" + isDebugged + ") theadDataAccess.doINSERT_QUEUElog(" + Queue_Id.toString() + ") ");
         Message.ROWID_QUEUElog=null; Message.Queue_Id = Queue_Id;
         if ( isDebugged )
@@ -123,33 +131,36 @@ public class MessageReceiveTask
             //  заменяет SOAP-Header запроса, вне зависимости от того был он или нет.
             if ( (MessageXSLT_4_HeaderIn != null) && (!MessageXSLT_4_HeaderIn.isEmpty()) )
             {
-                Processor xslt30Processor = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getHeaderInXSLT_processor();
-                XsltCompiler XsltCompiler = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getHeaderInXSLT_xsltCompiler();
                 Xslt30Transformer Xslt30Transformer = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getHeaderInXSLT_xslt30Transformer();
                 ConvXMLuseXSLTerr.setLength(0); ConvXMLuseXSLTerr.trimToSize();
+                Document Soap_HeaderDocument;
+                Stage_Nanos = PipelineMetrics.start();
                 try {
-                    Message.Soap_HeaderRequest.append(
-                            XMLutils.ConvXMLuseXSLT30(Queue_Id,
-                                                Message.XML_MsgClear.toString(),
-                                                xslt30Processor, XsltCompiler, Xslt30Transformer,
+                    // XSLT получает XML_MsgClear деревом ( getClearXdmNode, разбирается один раз на сообщение ),
+                    // заголовок возвращается деревом - Soap_HeaderRequest нужен только для журнала
+                    Soap_HeaderDocument =
+                            XMLutils.ConvXMLuseXSLT30toDocument(Queue_Id,
+                                                XMLutils.getClearXdmNode(Message).asSource(),
+                                                Xslt30Transformer,
                                                 MessageXSLT_4_HeaderIn,
                                                 Message.MsgReason,
                                                 ConvXMLuseXSLTerr,
-                                                // XSLTErrorListener,
                                                 MessegeReceive_Log,
                                                 isDebugged
-                                                )
-                            //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
-                    );
+                                                );
                     //if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                    if ( isDebugged )
+                    if ( isDebugged ) {
+                        Message.Soap_HeaderRequest.append( Soap_HeaderDocument == null ? XMLchars.nanXSLT_Result
+                                                                                       : new XMLOutputter().outputString(Soap_HeaderDocument.getRootElement()) );
                         MessegeReceive_Log.info( " [{}] {} после XSLT=:{{}}", Queue_Id, Queue_Direction, Message.Soap_HeaderRequest.toString());
-                    if ( Message.Soap_HeaderRequest.toString().equals(XMLchars.nanXSLT_Result) ) {
+                    }
+                    if ( Soap_HeaderDocument == null ) {
                         MessageUtils.ProcessingIn2ErrorIN(messageQueueVO, Message, theadDataAccess, "В результате XSLT преобразования получен пустой заголовок из (" + Message.XML_MsgClear.toString() + ")",
                                 null, MessegeReceive_Log);
                         Message.MsgReason.append("В результате XSLT преобразования получен пустой XML для заголовка сообщения");
                         return -5L;
                     }
+                    PipelineMetrics.record( PipelineMetrics.Receive, "header_in_xslt", Interface_id, 0, Template_Id, Stage_Nanos );
 
                 } catch (SaxonApiException exception) {
                     MessegeReceive_Log.error("[{}] {} XSLT-преобразователь тела:{{}}", Queue_Id, Queue_Direction, MessageXSLT_4_HeaderIn);
@@ -163,7 +174,7 @@ public class MessageReceiveTask
                 }
 
                 try { // Парсим заголовок - получаем атрибуты messageQueueVO для сохранения в БД
-                    XMLutils.Soap_HeaderRequest2messageQueueVO(Message.Soap_HeaderRequest.toString(), messageQueueVO, MessegeReceive_Log);
+                    XMLutils.Soap_HeaderDocument2messageQueueVO(Soap_HeaderDocument, messageQueueVO, MessegeReceive_Log);
 
                 }
                 catch (Exception e) {
@@ -246,12 +257,14 @@ public class MessageReceiveTask
             // создание Http-клиента перенеено в PerfotmInputMessagesюperformMessage()
 
         PerfotmInputMessages Perfotmer = new PerfotmInputMessages();
+        Perfotmer.isSyncWaitDeferred = this.isSyncWaitDeferred;
         Message.ReInitMessageDetails() ; // sslContext, httpClientBuilder, null, ApiRestHttpClient );
             try {
 
                 // Обрабатываем сообщение!
                 Function_Result = Perfotmer.performMessage(Message, messageQueueVO, theadDataAccess,
                                                              ConvXMLuseXSLTerr,  MessegeReceive_Log );
+                this.SyncWait = Perfotmer.SyncWait;
 
         }
         catch (Exception e) {
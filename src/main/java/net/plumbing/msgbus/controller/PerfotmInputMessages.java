@@ -6,7 +6,8 @@ import net.plumbing.msgbus.common.json.JSONObject;
 import net.plumbing.msgbus.common.json.XML;
 import net.plumbing.msgbus.model.*;
 import net.plumbing.msgbus.threads.ExtSystemDataConnection;
-import net.plumbing.msgbus.threads.PerformQueueMessages4Send;
+import net.plumbing.msgbus.threads.OutboundDeliveryEngine;
+import net.plumbing.msgbus.threads.QueueFinishListener;
 import net.plumbing.msgbus.threads.TheadDataAccess;
 import net.plumbing.msgbus.threads.utils.*;
 import net.sf.saxon.s9api.SaxonApiException;
@@ -23,12 +24,11 @@ import net.plumbing.msgbus.mq.StoreMQpooledConnectionFactory;
 import java.net.Authenticator;
 import java.net.http.HttpClient;
 import java.sql.SQLException;
-import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 //import java.util.HashMap;
 //import java.util.concurrent.TimeUnit;
 //import java.io.IOException;
 import jakarta.jms.JMSException;
-import javax.net.ssl.SSLContext;
 import javax.xml.transform.TransformerException;
 
 import net.plumbing.msgbus.threads.utils.MessageHttpSend;
@@ -50,6 +50,11 @@ public class PerfotmInputMessages {
 
     // private Security endpointProperties;
 
+    // true - вызывающий умеет продолжить вызов по SyncCallWait: исходящее ждём без потока, performMessage() возвращает SyncCallWait.Pending
+    public boolean isSyncWaitDeferred = false;
+    // ожидание исходящего, если performMessage() вернул SyncCallWait.Pending
+    public SyncCallWait SyncWait = null;
+
     public  long performMessage(MessageDetails Message, MessageQueueVO messageQueueVO, TheadDataAccess theadDataAccess,  StringBuilder ConvXMLuseXSLTerr, Logger MessegeReceive_Log) {
         // 1. Получаем шаблон обработки для MessageQueueVO
         String SubSys_Cod = messageQueueVO.getSubSys_Cod();
@@ -60,6 +65,7 @@ public class PerfotmInputMessages {
         String Queue_Direction = messageQueueVO.getQueue_Direction();
 
         int Function_Result = 0;
+        long Stage_Nanos; // начало этапа для PipelineMetrics
         //MessegeReceive_Log.info(Queue_Direction + " [" + Queue_Id + "] ищем Шаблон под операцию (" + Operation_Id + "), с учетом системы приёмника MsgDirection_Id=" + MsgDirection_Id + ", SubSys_Cod =" + SubSys_Cod);
 
         // ищем Шаблон под оперрацию, с учетом системы приёмника MessageRepositoryHelper.look4MessageTemplateVO_2_Perform
@@ -83,10 +89,7 @@ public class PerfotmInputMessages {
             return -17L;
         }
 
-        Message.MessageTemplate4Perform = new MessageTemplate4Perform(MessageTemplate.AllMessageTemplate.get(Template_Id),
-                Queue_Id,
-                MessegeReceive_Log
-        );
+        Message.MessageTemplate4Perform = MessageTemplate.AllMessageTemplate.get(Template_Id).getMessageTemplate4Perform(MessegeReceive_Log);
         if ( Message.MessageTemplate4Perform.getIsDebugged() )
             MessegeReceive_Log.info("[{}] MessageTemplate4Perform[{}", Queue_Id, Message.MessageTemplate4Perform.printMessageTemplate4Perform());
         boolean is_NoConfirmation = // Признак на типе сообщения, что Confirmation формируется в памяти, messageDetails.XML_MsgConfirmation
@@ -98,12 +101,15 @@ public class PerfotmInputMessages {
         if ( Message.MessageTemplate4Perform.getIsDebugged() )
             MessegeReceive_Log.info("[{}] признак `NoWait4Sender` для операции {} is {}", Queue_Id, messageQueueVO.getOperation_Id(), is_NoWait4Sender);
 
+        // BodyStorage=compressed: тело сохранено в MESSAGE_QueueBody, MESSAGE_QueueDET ещё не заполнен
+        boolean is_MessageDetails_Deferred = false;
         switch (Queue_Direction){
             case XMLchars.DirectNEWIN:
 
                 if ( Message.MessageTemplate4Perform.getMessageXSD() != null )
                 { boolean is_Message_OUT_Valid =
-                    XMLutils.TestXMLByXSD( Queue_Id,  Message.XML_Request_Method.toString(), Message.MessageTemplate4Perform.getMessageXSD(), Message.MsgReason, MessegeReceive_Log );
+                    XMLutils.TestXMLByXSD( Queue_Id,  Message.XML_Request_Method.toString(), Message.MessageTemplate4Perform.getMessageXSD_schema(),
+                                           Message.MessageTemplate4Perform.getMessageXSD(), Message.MsgReason, MessegeReceive_Log );
                     if ( ! is_Message_OUT_Valid ) {
                         MessegeReceive_Log.error("[{}] validateXMLSchema: message ({}) is not valid for XSD {}", Queue_Id, Message.XML_Request_Method.toString(), Message.MessageTemplate4Perform.getMessageXSD());
 
@@ -125,10 +131,21 @@ public class PerfotmInputMessages {
 
                 // для запросов, на интерфейсе , не предполагающих формирование блока Confirmation в БД параметры зароса берутся из памяти,
                 // их сохранение имеет смысл только для отладки в режиме Debug=on
-                if ( ( !is_NoConfirmation ) ||  Message.MessageTemplate4Perform.getIsDebugged() )
-                // сохраняем входящее - распарсенный по-строчно <Tag><VALUE>
-                Function_Result = MessageUtils.SaveMessage4Input(
-                         theadDataAccess,  Queue_Id,  Message,  messageQueueVO , MessegeReceive_Log) ;
+                if ( ( !is_NoConfirmation ) ||  Message.MessageTemplate4Perform.getIsDebugged() ) {
+                    if ( Message.MessageTemplate4Perform.getIsBodyCompressed() ) {
+                        // сохраняем входящее целиком, сжатым; по-строчно разберём, только если дойдёт до SQL-обработчика
+                        Function_Result = MessageBodyStore.SaveMessageBody(
+                                theadDataAccess, Queue_Id, Message.XML_Request_Method.toString(), MessegeReceive_Log);
+                        is_MessageDetails_Deferred = true;
+                    }
+                    else {
+                    // сохраняем входящее - распарсенный по-строчно <Tag><VALUE>
+                    Stage_Nanos = PipelineMetrics.start();
+                    Function_Result = MessageUtils.SaveMessage4Input(
+                             theadDataAccess,  Queue_Id,  Message,  messageQueueVO , MessegeReceive_Log) ;
+                    PipelineMetrics.receive( "save_message_4_input", Message.MessageTemplate4Perform, Stage_Nanos );
+                    }
+                }
                 else Function_Result =0;
 
                 if( Function_Result < 0 ) {
@@ -246,6 +263,7 @@ public class PerfotmInputMessages {
                         }
                         String Passed_Envelope4XSLTExt = null;
                         try {
+                            Stage_Nanos = PipelineMetrics.start();
                             Passed_Envelope4XSLTExt = XMLutils.ConvXMLuseXSLT30(Queue_Id,
                                     // Message.XML_MsgClear.toString(),
                                     MessageUtils.PrepareEnvelope4XSLTExt(messageQueueVO, Message.XML_Request_Method, MessegeReceive_Log), // Искусственный Envelope/Head/Body + XML_Request_Method
@@ -255,6 +273,7 @@ public class PerfotmInputMessages {
                                     ConvXMLuseXSLTerr,
                                     // XSLTErrorListener,
                                     MessegeReceive_Log, Message.MessageTemplate4Perform.getIsDebugged());
+                            PipelineMetrics.receive( "xslt_envelope_ext", Message.MessageTemplate4Perform, Stage_Nanos );
                         } catch (SaxonApiException exception) {
                             MessegeReceive_Log.error("{} [{}] XSLTExt-преобразователь запроса:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTExt());
                             theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для XSLTExt-обработки " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getEnvelopeXSLTExt(), 3229,
@@ -275,7 +294,21 @@ public class PerfotmInputMessages {
                             if (Message.MessageTemplate4Perform.getIsDebugged())
                                 MessegeReceive_Log.info("[{}] try ExecuteSQLincludedXML ({})", Queue_Id, Passed_Envelope4XSLTExt);
 
+                            if ( is_MessageDetails_Deferred ) {
+                                // SQL-обработчик может читать MESSAGE_QueueDET - разбираем тело по-строчно сейчас
+                                Stage_Nanos = PipelineMetrics.start();
+                                if ( MessageUtils.SaveMessage4Input( theadDataAccess, Queue_Id, Message, messageQueueVO, MessegeReceive_Log) < 0 ) {
+                                    MessageUtils.ProcessingIn2ErrorIN(  messageQueueVO, Message,  theadDataAccess,
+                                            "Не удалось сохранить содержимое сообщения в твблицу очереди:"  + " " + Message.XML_MsgClear.toString()  ,
+                                            null ,  MessegeReceive_Log);
+                                    return -19L;
+                                }
+                                PipelineMetrics.receive( "save_message_4_input", Message.MessageTemplate4Perform, Stage_Nanos );
+                                is_MessageDetails_Deferred = false;
+                            }
+
                             int resultSQL;
+                            Stage_Nanos = PipelineMetrics.start();
                             if (Message.MessageTemplate4Perform.getIsExtSystemAccess()) {
                                 ExtSystemDataConnection extSystemDataConnection = new ExtSystemDataConnection(Queue_Id, MessegeReceive_Log);
                                 if (extSystemDataConnection.ExtSystem_Connection == null) {
@@ -292,6 +325,7 @@ public class PerfotmInputMessages {
                             } else {
                                      resultSQL = XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, false, null, Passed_Envelope4XSLTExt, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
                                     }
+                            PipelineMetrics.receive( "execute_sql", Message.MessageTemplate4Perform, Stage_Nanos );
                             if (resultSQL != 0) {
                                 MessegeReceive_Log.error("[{}] Envelope4XSLTExt:{}", Queue_Id, ConvXMLuseXSLTerr);
                                 MessegeReceive_Log.error("[{}] Ошибка ExecuteSQLinXML:{}", Queue_Id, Message.MsgReason.toString());
@@ -336,12 +370,6 @@ public class PerfotmInputMessages {
                         return -36L;
                     }
                     String EndPointUrl;
-                    /* используем Java 21 HTTP Client*/
-                    HttpClient ApiRestHttpClient = getCloseableHttpClient(  messageQueueVO,  Message ,  false,
-                                                                            theadDataAccess, MessegeReceive_Log);
-                    if ( ApiRestHttpClient == null) {
-                        return -36L;
-                    }
                     // Формируем URL для вызова Http-Get/?queue_id или Http-Post {JSON}
                     if ( StringUtils.substring(Message.MessageTemplate4Perform.getPropHost(),0,"http".length()).equalsIgnoreCase("http") )
                         EndPointUrl =  Message.MessageTemplate4Perform.getPropHost() +
@@ -349,6 +377,12 @@ public class PerfotmInputMessages {
                     else
                         EndPointUrl = "http://" + Message.MessageTemplate4Perform.getPropHost() +
                                                   Message.MessageTemplate4Perform.getPropUrl();
+                    /* используем Java 21 HTTP Client*/
+                    HttpClient ApiRestHttpClient = getCloseableHttpClient(  messageQueueVO,  Message , EndPointUrl, false,
+                                                                            theadDataAccess, MessegeReceive_Log);
+                    if ( ApiRestHttpClient == null) {
+                        return -36L;
+                    }
 
                     try {
                         String RestResponse=null;
@@ -450,9 +484,11 @@ public class PerfotmInputMessages {
                     );
 
                 }
+                boolean isLink_Queue_Finish=false;
+                int time4wait = 0;
                 if ( Link_Queue_Id != null) // Обрабатываем порожденное сообщение
                 { // Проверяем в цикле периодически - спорадически готово ли OUT
-                    jakarta.jms.Connection Qconnection = null;
+                    String JMSCorrelationID = null; // CorrelationID "будильника", null - ответа по JMS не ждём
                     PerformTextMessageJMSQueue performTextMessageJMSQueue =null;
 
                     if (!is_NoWait4Sender) { // признака НЕ-ждать-связанного сообщения нет, надо дождаться окончания от Sener-а, ибо данный вызов внешней системы синхолнный
@@ -474,7 +510,7 @@ public class PerfotmInputMessages {
                                 if (Message.MessageTemplate4Perform.getIsDebugged())
                                     MessegeReceive_Log.info("[{}] Пробуем отправить сообщение QUEUE_ID: {} в очередь сообщений ActiveMQ 'Q.{}.IN'", Queue_Id, Link_Queue_Id, MessageDirectionsCode);
 
-                                Qconnection = performTextMessageJMSQueue.SendTextMessageJMSQueue(
+                                JMSCorrelationID = performTextMessageJMSQueue.SendTextMessageJMSQueue(
                                         "{ \"QUEUE_ID\": \"" + Link_Queue_Id.toString() + "\" }",
                                         "Q." + MessageDirectionsCode + ".IN",
                                         StoreMQpooledConnectionFactory.MQpooledConnectionFactory
@@ -484,9 +520,9 @@ public class PerfotmInputMessages {
                                                 Queue_Id, Link_Queue_Id, MessageDirectionsCode, e.getMessage());
                                 Message.MsgReason.append(" НЕ удалось отправить сообщение Link_Queue_Id: " + Link_Queue_Id + " в очередь сообщений ActiveMQ 'Q." + MessageDirectionsCode + ".IN':" + e.getMessage());
                                 // return Queue_Id;
-                                Qconnection = null;
+                                JMSCorrelationID = null;
                             }
-                            if (Qconnection != null) {
+                            if (JMSCorrelationID != null) {
                                 if (Message.MessageTemplate4Perform.getIsDebugged())
                                     MessegeReceive_Log.info("[{}] Отправили сообщение Link_Queue_Id: {} в очередь сообщений ActiveMQ 'Q.{}.IN'",
                                             Queue_Id, Link_Queue_Id, MessageDirectionsCode);
@@ -499,10 +535,8 @@ public class PerfotmInputMessages {
                                     Queue_Id, +Link_Queue_Id);
                     }
 
-                    boolean isLink_Queue_Finish=false;
                     // # hermes.api-rest-wait-time=1200
                     int try_count = 0; // вынесли, что бы печаталось
-                    int time4wait = 0;
                     if (!is_NoWait4Sender) { // признака НЕ-ждать-связанного сообщения нет, надо дождаться окончания от Sener-а, ибо данный вызов внешней системы синхолнный
 
                         //int time4waitMessageReplyQueue=0; // Несльзя ждать весь тайм-аут на jms-QUEUE, т.к. запрос межет взять нет тот Sender, который прочимал сообщение)
@@ -531,19 +565,38 @@ public class PerfotmInputMessages {
                         }
                         ///! try_count = 1;
                         time4wait = try_count * 2;
-
+                        long Wait_Deadline = System.currentTimeMillis() + time4wait * 1000L;
+
+                        Stage_Nanos = PipelineMetrics.start();
+                        if ( isSyncWaitDeferred ) {
+                            // ждём без потока: SyncCallWait продолжит performAfterSyncWait() по завершении OUT или по Wait_Deadline
+                            SyncWait = new SyncCallWait( this, Message, messageQueueVO, ConvXMLuseXSLTerr, Queue_Direction,
+                                                         Link_Queue_Id, time4wait, Wait_Deadline, Stage_Nanos, performTextMessageJMSQueue, MessegeReceive_Log );
+                            return SyncCallWait.Pending;
+                        }
                         while ((!isLink_Queue_Finish) && (try_count > 0)) {
+                            if ( QueueFinishListener.isListening() ) {
+                                // PostgreSQL: ждём NOTIFY о завершении OUT, БД перечитываем не чаще RecheckInterval
+                                CompletableFuture<Long> Link_Queue_Finish = QueueFinishListener.register(Link_Queue_Id);
+                                isLink_Queue_Finish = MessageUtils.isLink_Queue_Finish(theadDataAccess, Link_Queue_Id, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
+                                long Wait_Millis = Wait_Deadline - System.currentTimeMillis();
+                                if ( (!isLink_Queue_Finish) && (Wait_Millis > 0) )
+                                    QueueFinishListener.await(Link_Queue_Finish, Math.min(QueueFinishListener.RecheckInterval * 1000L, Wait_Millis));
+                                // try_count в 2-х секундных интервалах, если LISTEN отвалится - опрос продолжится на оставшееся время
+                                try_count = isLink_Queue_Finish ? 0 : (int) Math.max((Wait_Millis + 1999) / 2000, 0);
+                                continue;
+                            }
                             try {
-                                if (Qconnection == null) // Если не удалось присоедениться к JMS
+                                if (JMSCorrelationID == null) // Если не удалось присоедениться к JMS
                                     Thread.sleep(2 * 1000);
                                 else {
                                     if (performTextMessageJMSQueue.ReadTextMessageReplyQueue(2 * 1000, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log) != null)
-                                        Qconnection = null; // сообщение зачитано, но если исходящее не готово( потому что его взял нет тот Sender, который прочимал сообщение), то надо проверять по Taine-out в цикле дальше
+                                        JMSCorrelationID = null; // сообщение зачитано, но если исходящее не готово( потому что его взял нет тот Sender, который прочимал сообщение), то надо проверять по Taine-out в цикле дальше
                                 }
                                 //////////////////////////////////////
                                 try_count = try_count - 1;
                             } catch (JMSException | InterruptedException e) { //
-                                Qconnection = null; // что-то не так с брокером, надо переходить на цикл с ожиданием sleep( 2 * 1000);
+                                JMSCorrelationID = null; // что-то не так с брокером, надо переходить на цикл с ожиданием sleep( 2 * 1000);
                                 MessegeReceive_Log.error("[{}] Message ReadTextMessageReplyQueue() ExeIN2PostIN wait Task: is interrapted: {}", Queue_Id, e.getMessage());
                                 System.err.println("Message ReadTextMessageReplyQueue() ExeIN2PostIN wait Task[" + Queue_Id + "]: is interrapted: ");
                                 System.err.println(e.getMessage()); // .printStackTrace();
@@ -558,461 +611,481 @@ public class PerfotmInputMessages {
                                 try_count = 0;
                             }
                         }
+                        QueueFinishListener.unregister(Link_Queue_Id);
+                        PipelineMetrics.receive( "sync_wait", Message.MessageTemplate4Perform, Stage_Nanos );
                         // останавливаем jms-Connection !
                          performTextMessageJMSQueue.Stop_and_Close_MessageJMSQueue( Queue_Id,  MessegeReceive_Log );
                     }
                     else {// is_NoWait4Sender == true !
                         isLink_Queue_Finish = true;
                     }
+                }
+                return performAfterSyncWait( Message, messageQueueVO, theadDataAccess, ConvXMLuseXSLTerr, Queue_Direction,
+                                             Link_Queue_Id, is_NoWait4Sender, isLink_Queue_Finish, time4wait, MessegeReceive_Log );
+        }
+            return  0L;
+    }
 
+    // Продолжение performMessage() после ожидания исходящего Link_Queue_Id: isLink_Queue_Finish - дождались, иначе истёк time4wait.
+    // Вызывается в конце performMessage(), либо из SyncCallWait, если вызов ждал без потока - уже на другой сессии theadDataAccess.
+    long performAfterSyncWait( MessageDetails Message, MessageQueueVO messageQueueVO, TheadDataAccess theadDataAccess, StringBuilder ConvXMLuseXSLTerr,
+                               String Queue_Direction, Long Link_Queue_Id, boolean is_NoWait4Sender, boolean isLink_Queue_Finish, int time4wait,
+                               Logger MessegeReceive_Log ) {
+        Long Queue_Id = messageQueueVO.getQueue_Id();
+        long Stage_Nanos; // начало этапа для PipelineMetrics
+        // связанное OUT-сообщение для отправки после завершения обработки ( is_NoWait4Sender )
+        MessageQueueVO Link_Queue_4_SendVO = null;
+        MessageDetails4Send Link_Message_4_Send = null;
 
-                    if ( isLink_Queue_Finish)
-                    { // Считаем, что как то готово готово
-                        if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                        MessegeReceive_Log.info("[{}] Считаем, что как то исходящее готово ExeMetod 4 PostExec =`{}`, is_NoWait4Sender=`{}` getMsgAnswXSLT:{} getMsgAnswXSLT: {}", Queue_Id,
-                                        Message.MessageTemplate4Perform.getPropExeMetodPostExec(), is_NoWait4Sender,
-                                (Message.MessageTemplate4Perform.getAckAnswXSLT() != null) ? "заполнен": "пуст",
-                                (Message.MessageTemplate4Perform.getMsgAnswXSLT() != null) ? "заполнен": "пуст"
-                        );
-                        if ( (!is_NoWait4Sender) && //на Типе сообщения НЕ стоит "NoWait4Sender" - следовательно, рассчитываем считать Confirmation из порожденного OUT
-                                (Message.MessageTemplate4Perform.getAckAnswXSLT() != null) // наличие секции AckAnswXSLT является признаком, что Confirmation из порожденного OUT
-                            )
-                        {
-                            // надо читать ответ из Confirmation порожденного OUT
-                            if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                                MessegeReceive_Log.warn("[{}] for XSLT Confirmation Link_Queue={} use AckAnswXSLT: {}", Queue_Id, Link_Queue_Id, Message.MessageTemplate4Perform.getAckAnswXSLT());
-                            // ReadConfirmation очищает Message.XML_MsgConfirmation и помещает туда чстанный из БД Confirmation
-                            int ConfirmationRowNum = MessageUtils.ReadConfirmation(theadDataAccess, Link_Queue_Id, Message, MessegeReceive_Log);
-                            if (ConfirmationRowNum < 1) {
-                                // Ругаемся, что обработчик не сформировал Confirmation
-                                String Link_Queue_Direction = MessageUtils.get_Link_Queue_Finish(theadDataAccess, Link_Queue_Id, Message.XML_MsgConfirmation,
-                                                                                    Message.MessageTemplate4Perform.getIsDebugged(),  MessegeReceive_Log);
-                                if (( Link_Queue_Direction != null ) && (!Message.XML_MsgConfirmation.isEmpty()) )
-                                    switch ( Link_Queue_Direction )
-                                    { case XMLchars.DirectERROUT:
-                                        Message.MsgReason.append("[" + Queue_Id + "] при взаимодействии с внешней система на событие (" + Link_Queue_Id + ") произошёл сбой {}").append( Message.XML_MsgConfirmation );
-                                            break;
-                                        case XMLchars.DirectATTNOUT:
-                                        case XMLchars.DirectDELOUT:
-                                            Message.MsgReason.append("[" + Queue_Id + "] обработчик Исходящего события (" + Link_Queue_Id + ") не сформировал Confirmation, выствлен статус события ("+ Link_Queue_Direction +"), нарушено соглашение о взаимодействии с Шиной");
-                                    }
-                                else {
-                                    Message.MsgReason.append("[" + Queue_Id + "] обработчик Исходящего события (" + Link_Queue_Id + ") не сформировал Confirmation, статус события неопределён, нарушено соглашение о взаимодействии с Шиной");
-
-                                }
-                                MessegeReceive_Log.error("[{}]{}", Queue_Id, Message.MsgReason.toString());
-                                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3245,
-                                        MessegeReceive_Log);
-                                return -40L;
-                            }
-                            String Passed_Confirmation4AckAnswXSLT = null;
-                            try {
-                                Passed_Confirmation4AckAnswXSLT = XMLutils.ConvXMLuseXSLT30(Queue_Id,
-                                        Message.XML_MsgConfirmation.toString(), //
-                                        Message.MessageTemplate4Perform.getAckAnswXSLT_processor(), Message.MessageTemplate4Perform.getAckAnswXSLT_xsltCompiler(), Message.MessageTemplate4Perform.getAckAnswXSLT_xslt30Transformer(),
-                                        Message.MessageTemplate4Perform.getAckAnswXSLT(),  // через AckAnswXSLT
-                                        Message.MsgReason, // результат для MsgReason помещаем сюда
-                                        ConvXMLuseXSLTerr,
-                                        MessegeReceive_Log,
-                                        Message.MessageTemplate4Perform.getIsDebugged()
-                                );
-                            } catch (SaxonApiException exception) {
-                                MessegeReceive_Log.error("[{}] {}: XSLTExt-преобразователь Confirmation:`{}`", Queue_Id, Queue_Direction, Message.MessageTemplate4Perform.getAckAnswXSLT());
-                                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getAckAnswXSLT(), 3249,
-                                        MessegeReceive_Log);
-                                return -42L;
+        if ( Link_Queue_Id != null) // Обрабатываем порожденное сообщение
+        {
+            if ( isLink_Queue_Finish)
+            { // Считаем, что как то готово готово
+                if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                MessegeReceive_Log.info("[{}] Считаем, что как то исходящее готово ExeMetod 4 PostExec =`{}`, is_NoWait4Sender=`{}` getMsgAnswXSLT:{} getMsgAnswXSLT: {}", Queue_Id,
+                                Message.MessageTemplate4Perform.getPropExeMetodPostExec(), is_NoWait4Sender,
+                        (Message.MessageTemplate4Perform.getAckAnswXSLT() != null) ? "заполнен": "пуст",
+                        (Message.MessageTemplate4Perform.getMsgAnswXSLT() != null) ? "заполнен": "пуст"
+                );
+                if ( (!is_NoWait4Sender) && //на Типе сообщения НЕ стоит "NoWait4Sender" - следовательно, рассчитываем считать Confirmation из порожденного OUT
+                        (Message.MessageTemplate4Perform.getAckAnswXSLT() != null) // наличие секции AckAnswXSLT является признаком, что Confirmation из порожденного OUT
+                    )
+                {
+                    // надо читать ответ из Confirmation порожденного OUT
+                    if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                        MessegeReceive_Log.warn("[{}] for XSLT Confirmation Link_Queue={} use AckAnswXSLT: {}", Queue_Id, Link_Queue_Id, Message.MessageTemplate4Perform.getAckAnswXSLT());
+                    // ReadConfirmation очищает Message.XML_MsgConfirmation и помещает туда чстанный из БД Confirmation
+                    int ConfirmationRowNum = MessageUtils.ReadConfirmation(theadDataAccess, Link_Queue_Id, Message, MessegeReceive_Log);
+                    if (ConfirmationRowNum < 1) {
+                        // Ругаемся, что обработчик не сформировал Confirmation
+                        String Link_Queue_Direction = MessageUtils.get_Link_Queue_Finish(theadDataAccess, Link_Queue_Id, Message.XML_MsgConfirmation,
+                                                                            Message.MessageTemplate4Perform.getIsDebugged(),  MessegeReceive_Log);
+                        if (( Link_Queue_Direction != null ) && (!Message.XML_MsgConfirmation.isEmpty()) )
+                            switch ( Link_Queue_Direction )
+                            { case XMLchars.DirectERROUT:
+                                Message.MsgReason.append("[" + Queue_Id + "] при взаимодействии с внешней система на событие (" + Link_Queue_Id + ") произошёл сбой {}").append( Message.XML_MsgConfirmation );
+                                    break;
+                                case XMLchars.DirectATTNOUT:
+                                case XMLchars.DirectDELOUT:
+                                    Message.MsgReason.append("[" + Queue_Id + "] обработчик Исходящего события (" + Link_Queue_Id + ") не сформировал Confirmation, выствлен статус события ("+ Link_Queue_Direction +"), нарушено соглашение о взаимодействии с Шиной");
                             }
-                            if (Passed_Confirmation4AckAnswXSLT.equals(XMLchars.EmptyXSLT_Result)) {
-                                // эксперимент, проверяем, иначе приходит пустой faultstring
-                                Message.MsgReason.append( ConvXMLuseXSLTerr.toString() );
-                                MessegeReceive_Log.error("[{}}] Шаблон для XSLT-обработки Confirmation({})", Queue_Id, Message.MessageTemplate4Perform.getAckAnswXSLT());
-                                MessegeReceive_Log.error("[{}] Passed_Confirmation4AckAnswXSLT:{}" , Queue_Id, ConvXMLuseXSLTerr);
-                                MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT {} для обработки Confirmation `{}`", Queue_Id, ConvXMLuseXSLTerr , Message.MsgReason.toString());
-                                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MsgReason.toString(), 3251,
-                                        MessegeReceive_Log);
-                                return -43L;
+                        else {
+                            Message.MsgReason.append("[" + Queue_Id + "] обработчик Исходящего события (" + Link_Queue_Id + ") не сформировал Confirmation, статус события неопределён, нарушено соглашение о взаимодействии с Шиной");
 
-                            }
-                            Message.XML_MsgResponse.append( Passed_Confirmation4AckAnswXSLT );
-                            //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
-                            if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                            MessegeReceive_Log.warn("[{}] возврашаем от исходящего {} сообщения ({})" , Queue_Id, Link_Queue_Id,  Message.XML_MsgResponse );
-                            // Устанавливаеи признак завершения работы
-                            theadDataAccess.doUPDATE_MessageQueue_ExeIn2DelIN(Queue_Id, MessegeReceive_Log);
-                            return  0L;
                         }
-                        //MessegeReceive_Log.warn("[" + Queue_Id + "]: Check ==> getConfigPostExec=`{}`, MsgAnswXSLT=`{}` ", Message.MessageTemplate4Perform.getConfigPostExec() , Message.MessageTemplate4Perform.getMsgAnswXSLT());
-
-                        if ((Message.MessageTemplate4Perform.getConfigPostExec()!= null) &&
-                                (Message.MessageTemplate4Perform.getMsgAnswXSLT() != null ) &&
-                                (Message.MessageTemplate4Perform.getPropExeMetodPostExec() != null) )
-                         { // Есть Post-обработчик , работающий ПОВЕРХ результата порожденного OUT-сообщения
-                            // надо читать ответ из Confirmation родного OUT, куда дополнительный обработчик положит Confirmation, перезаписав его
-                            // или обработчик порожденного OUT-сообщения перезаписывает Confirmation входящего по результатам прикладной обработки Confirmation от Link_Queue
-                            /////////////////////////////////////////////////
-                            if ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.WebRestExeMetod) )
-                            { // 2.2) Это Rest-HttpGet-вызов
-
-                                if ((Message.MessageTemplate4Perform.getPropHostPostExec() == null) ||
-                                        (Message.MessageTemplate4Perform.getPropUserPostExec() == null) ||
-                                        (Message.MessageTemplate4Perform.getPropPswdPostExec() == null) ||
-                                        (Message.MessageTemplate4Perform.getPropUrlPostExec() == null) ||
-                                        (Message.MessageTemplate4Perform.getPropQueryPostExec() == null) ) {
-                                    // Нет параметров для Rest-HttpGet - надо орать!
-                                    MessegeReceive_Log.error("[{}] В шаблоне для пост-обработки {} нет параметров для Rest-HttpGet вклюая логин/пароль", Queue_Id, Message.MessageTemplate4Perform.getPropExeMetodPostExec());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id,
-                                            "В шаблоне для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " нет параметров для Rest-HttpGet вклюая логин/пароль", 3253,
-                                            MessegeReceive_Log);
-                                    return -46L;
-                                }
-                                // Готовим Rest-call
-                                String EndPointUrl = null;
-                                HttpClient ApiRestHttpClient=null;
-                                int restResponseStatus = 0;
-                                // HashMap<String, String > HttpGetParams = new HashMap<String, String >();
-                                try {
-
-                                    if (StringUtils.substring(Message.MessageTemplate4Perform.getPropHostPostExec(), 0, "http".length()).equalsIgnoreCase("http"))
-                                        EndPointUrl = Message.MessageTemplate4Perform.getPropHostPostExec() +
-                                                      Message.MessageTemplate4Perform.getPropUrlPostExec();
-                                    else
-                                        EndPointUrl = "http://" + Message.MessageTemplate4Perform.getPropHostPostExec() +
-                                                                  Message.MessageTemplate4Perform.getPropUrlPostExec();
-                                    // Ставим своенго клиента !
-                                    ApiRestHttpClient = getCloseableHttpClient( messageQueueVO,  Message, true, theadDataAccess, MessegeReceive_Log);
-                                    // SSLUtil.turnOffSslChecking();
-                                    if ( ApiRestHttpClient == null) // ErrIN выставлен, выходим
-                                        return -36L;
-
-                                    if (Message.MessageTemplate4Perform.getIsDebugged())
-                                        MessegeReceive_Log.info("[{}] MessageTemplate4Perform.getPropQueryPostExec:'{}'", messageQueueVO.getQueue_Id(), Message.MessageTemplate4Perform.getPropQueryPostExec());
-                                    String queryEndPointUrl;
-                                    if (Message.MessageTemplate4Perform.getPropQueryPostExec() != null)
-                                        queryEndPointUrl = EndPointUrl + "?" + Message.MessageTemplate4Perform.getPropQueryPostExec() + "=" + Link_Queue_Id.toString() ;
-                                    else queryEndPointUrl = EndPointUrl + "?queue_id=" + String.valueOf(Queue_Id)+ "&Link_Queue_Id=" + Link_Queue_Id.toString() ;
-
-                                    /*int numOfParams = MessageHttpSend.setHttpGetParams(messageQueueVO.getQueue_Id(),
-                                                                                        Message.MessageTemplate4Perform.getPropQueryPostExec(), Link_Queue_Id.toString(),
-                                                                                        HttpGetParams,
-                                                                                        Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log );*/
-                                        restResponseStatus =  MessageHttpSend.WebRestExePostExec(ApiRestHttpClient, queryEndPointUrl, Queue_Id,
-                                                                                              Message.MessageTemplate4Perform, ApplicationProperties.ApiRestWaitTime, MessegeReceive_Log );
-
-                                    try {
-                                            ApiRestHttpClient.close();
-
-                                    } catch ( Exception IOe) {
-                                        MessegeReceive_Log.error( "[{}] И ещё проблема с ApiRestHttpClient.close()...{}", Queue_Id, IOe.getMessage());
-                                        System.err.println("[" + Queue_Id + "] И ещё проблема с ApiRestHttpClient.close()...\" пост-обработки" + IOe.getMessage() ); // IOe.printStackTrace();
-                                    }
-
-                                } catch (Exception e ) { //  | java.security.KeyManagementException | java.security.NoSuchAlgorithmException  e) {
-                                    // ???? возмущаемся, но оставляем сообщение в ResOUT что бы обработчик в кроне мог доработать - что то не видно про "ResOUT"
-
-                                    Message.MsgReason.append("[" + Queue_Id + "] Ошибка вызова пост-обработки HttpGet(" + EndPointUrl + "), статус[" +restResponseStatus + "]:" +e.getMessage() );
-                                    MessegeReceive_Log.error("[{}] Ошибка пост-обработки HttpGet({}):{}", Queue_Id, EndPointUrl, e.toString());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id,
-                                            "Ошибка пост-обработки HttpGet(" + EndPointUrl + "):" + sStackTrace.strInterruptedException(e), 3255,
-                                            MessegeReceive_Log);
-                                    try {
-                                        if ( ApiRestHttpClient != null)
-                                            ApiRestHttpClient.close();
-
-                                    } catch ( Exception IOe) {
-                                        MessegeReceive_Log.error("[{}] И ещё проблема с ApiRestHttpClient.close()...{}", Queue_Id, IOe.getMessage());
-                                        System.err.println("[" + Queue_Id + "] И ещё проблема с ApiRestHttpClient.close()...\" пост-обработки" + IOe.getMessage() ); //IOe.printStackTrace();
-                                    }
-                                    return -47L;
-                                }
-                                // Проверяем готовность результата
-                                if (! MessageUtils.isMessageQueue_Direction_EXEIN(theadDataAccess, Queue_Id, messageQueueVO, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log ))
-                                {
-                                    // Ругаемся, что обработчик не выставил признак статус EXEIN
-                                    Message.MsgReason.setLength(0); Message.MsgReason.trimToSize();
-                                    Message.MsgReason.append("[" + Queue_Id + "] При вызове Post-обработчика HttpGet(" + EndPointUrl + ")статус[" +restResponseStatus + "]:не выставлен признак статус EXEIN, нарушено соглашение о взаимодействии с Шиной");
-                                    MessegeReceive_Log.error( Message.MsgReason.toString());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3248,
-                                            MessegeReceive_Log);
-                                    return -48L;
-                                }
-                            } // закончили Rest-Post-обработку
-                              // обработчик порожденного OUT-сообщения перезаписывает Confirmation, его надо перезачитать и обработать MsgAnswXSLT
-
-                                if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                                    MessegeReceive_Log.info("[{}]: ожидается, что обработчик порожденного OUT-сообщения перезаписывает Confirmation, MsgAnswXSLT: {}", Queue_Id, Message.MessageTemplate4Perform.getMsgAnswXSLT());
-                                // ReadConfirmation очищает Message.XML_MsgConfirmation и помещает туда чстанный из БД Confirmation
-                                int ConfirmationRowNum = MessageUtils.ReadConfirmation(theadDataAccess, Queue_Id, Message, MessegeReceive_Log);
-                                if (ConfirmationRowNum < 1) {
-                                    // Ругаемся, что обработчик не сформировал Confirmation
-                                    Message.MsgReason.append("[" + Queue_Id + "] обработчик порожденного Исходящего события не сформировал Confirmation, нарушено соглашение о взаимодействии с Шиной");
-                                    MessegeReceive_Log.error( Message.MsgReason.toString());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3245,
-                                            MessegeReceive_Log);
-                                    return -49L;
-                                }
-                                String Passed_Confirmation4MsgAnswXSLT = null;
-                                try {
-                                    Passed_Confirmation4MsgAnswXSLT = XMLutils.ConvXMLuseXSLT30(Queue_Id,
-                                            Message.XML_MsgConfirmation.toString(), //
-                                            Message.MessageTemplate4Perform.getMsgAnswXSLT_processor(), Message.MessageTemplate4Perform.getMsgAnswXSLT_xsltCompiler(), Message.MessageTemplate4Perform.getMsgAnswXSLT_xslt30Transformer(),
-                                            Message.MessageTemplate4Perform.getMsgAnswXSLT(),  // через AckAnswXSLT
-                                            Message.MsgReason, // результат для MsgReason помещаем сюда
-                                            ConvXMLuseXSLTerr,
-                                            MessegeReceive_Log, Message.MessageTemplate4Perform.getIsDebugged());
-                                } catch (SaxonApiException exception) {
-                                    MessegeReceive_Log.error("[{}] {}: XSLTExt-преобразователь Confirmation:{{}}",  Queue_Id, Queue_Direction, Message.MessageTemplate4Perform.getMsgAnswXSLT());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MessageTemplate4Perform.getMsgAnswXSLT(), 3249,
-                                            MessegeReceive_Log);
-                                    return -50L;
-                                }
-                                if (Passed_Confirmation4MsgAnswXSLT.equals(XMLchars.EmptyXSLT_Result)) {
-                                    MessegeReceive_Log.error("[{}] Шаблон для XSLT-обработки Confirmation({})", Queue_Id, Message.MessageTemplate4Perform.getMsgAnswXSLT());
-                                    MessegeReceive_Log.error("[{}] Passed_Confirmation4AckAnswXSLT:{}", Queue_Id, ConvXMLuseXSLTerr);
-                                    MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT для обработки Confirmation {}",Queue_Direction, Message.MsgReason.toString());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MsgReason.toString(), 3251,
-                                            MessegeReceive_Log);
-                                    return -51L;
-
-                                }
-                                Message.XML_MsgResponse.append(Passed_Confirmation4MsgAnswXSLT);
-                             //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
-                                if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                                    MessegeReceive_Log.warn("[{}] возврашаем от исходящего {} сообщения ({})", Queue_Id, Link_Queue_Id, Message.XML_MsgResponse);
-                                // Устанавливаеи признак завершения работы
-                                theadDataAccess.doUPDATE_MessageQueue_ExeIn2DelIN(Queue_Id, MessegeReceive_Log);
-                                return  0L;
-                            /////////////////////////////////////////////////
-                        }
-                    }
-                    else {
-                        // Ругаемся, что исходяее сообщение не отработало за отведенное на это время
-                        Message.MsgReason.append("[" + Queue_Id + "] - исходящее сообщение (" + Link_Queue_Id +") не отработало за отведенное на это время (" + time4wait + ") с. [Msg_Status=3244]");
-                        MessegeReceive_Log.error("[{}] {}", Queue_Id, Message.MsgReason);
-                        theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3244,
+                        MessegeReceive_Log.error("[{}]{}", Queue_Id, Message.MsgReason.toString());
+                        theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3245,
                                 MessegeReceive_Log);
-                        return -51L;
-
+                        return -40L;
                     }
-
-                }
-
-                // преобразовываем результат
-                if ( Message.MessageTemplate4Perform.getIsDebugged() ) {
-                    MessegeReceive_Log.warn("[{}] преобразовываем результат что: Confirmation`{}`", Queue_Id, Message.XML_MsgConfirmation );
-                    MessegeReceive_Log.warn("[{}] преобразовываем результат чем: getAckXSLT`{}`", Queue_Id, Message.MessageTemplate4Perform.getAckXSLT());
-                }
-                if (Message.MessageTemplate4Perform.getAckXSLT() != null)
-                {
-                    String Passed_Confirmation4AckXSLT = null;
+                    String Passed_Confirmation4AckAnswXSLT = null;
                     try {
-                        Passed_Confirmation4AckXSLT= XMLutils.ConvXMLuseXSLT30( Queue_Id,
+                        Stage_Nanos = PipelineMetrics.start();
+                        Passed_Confirmation4AckAnswXSLT = XMLutils.ConvXMLuseXSLT30(Queue_Id,
                                 Message.XML_MsgConfirmation.toString(), //
-                                Message.MessageTemplate4Perform.getAckXSLT_processor(), Message.MessageTemplate4Perform.getAckXSLT_xsltCompiler(), Message.MessageTemplate4Perform.getAckXSLT_xslt30Transformer(),
-                                Message.MessageTemplate4Perform.getAckXSLT(),  // через AckXSLT
+                                Message.MessageTemplate4Perform.getAckAnswXSLT_processor(), Message.MessageTemplate4Perform.getAckAnswXSLT_xsltCompiler(), Message.MessageTemplate4Perform.getAckAnswXSLT_xslt30Transformer(),
+                                Message.MessageTemplate4Perform.getAckAnswXSLT(),  // через AckAnswXSLT
                                 Message.MsgReason, // результат для MsgReason помещаем сюда
                                 ConvXMLuseXSLTerr,
                                 MessegeReceive_Log,
-                                Message.MessageTemplate4Perform.getIsDebugged());
-                    } catch ( SaxonApiException exception ) {
-                        MessegeReceive_Log.error("[{}] {} XSLTExt-преобразователь Confirmation:{{}}", Queue_Id, Queue_Direction, Message.MessageTemplate4Perform.getAckXSLT());
-                        theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MessageTemplate4Perform.getAckXSLT(), 3249,
+                                Message.MessageTemplate4Perform.getIsDebugged()
+                        );
+                        PipelineMetrics.receive( "xslt_ack_answ", Message.MessageTemplate4Perform, Stage_Nanos );
+                    } catch (SaxonApiException exception) {
+                        MessegeReceive_Log.error("[{}] {}: XSLTExt-преобразователь Confirmation:`{}`", Queue_Id, Queue_Direction, Message.MessageTemplate4Perform.getAckAnswXSLT());
+                        theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getAckAnswXSLT(), 3249,
                                 MessegeReceive_Log);
-                        return -52L;
+                        return -42L;
                     }
-                    if ( Passed_Confirmation4AckXSLT.equals(XMLchars.EmptyXSLT_Result))
-                    {
-                        MessegeReceive_Log.error("[{}] Шаблон для XSLT-обработки Confirmation `{}`", Queue_Id, Message.MessageTemplate4Perform.getAckXSLT() );
-                        MessegeReceive_Log.error("[{}] Passed_Confirmation4AckXSLT:{}", Queue_Id, ConvXMLuseXSLTerr);
-                        MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT для обработки Confirmation{}", Queue_Id, Message.MsgReason.toString());
+                    if (Passed_Confirmation4AckAnswXSLT.equals(XMLchars.EmptyXSLT_Result)) {
+                        // эксперимент, проверяем, иначе приходит пустой faultstring
+                        Message.MsgReason.append( ConvXMLuseXSLTerr.toString() );
+                        MessegeReceive_Log.error("[{}}] Шаблон для XSLT-обработки Confirmation({})", Queue_Id, Message.MessageTemplate4Perform.getAckAnswXSLT());
+                        MessegeReceive_Log.error("[{}] Passed_Confirmation4AckAnswXSLT:{}" , Queue_Id, ConvXMLuseXSLTerr);
+                        MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT {} для обработки Confirmation `{}`", Queue_Id, ConvXMLuseXSLTerr , Message.MsgReason.toString());
                         theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MsgReason.toString(), 3251,
                                 MessegeReceive_Log);
-                        return -53L;
+                        return -43L;
 
                     }
-                    Message.XML_MsgResponse.append( Passed_Confirmation4AckXSLT );
+                    Message.XML_MsgResponse.append( Passed_Confirmation4AckAnswXSLT );
                     //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
                     if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                        MessegeReceive_Log.warn("[{}] возвращаем({})", Queue_Id, Message.XML_MsgResponse);
-                }
-                else // Помещаем Без преобразования
-                {
-                    if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                        MessegeReceive_Log.warn("[{}] Шаблон для XSLT-обработки Confirmation({})", Queue_Id, Message.MessageTemplate4Perform.getAckXSLT());
-                    Message.XML_MsgResponse.append(Message.XML_MsgConfirmation.toString());
+                    MessegeReceive_Log.warn("[{}] возврашаем от исходящего {} сообщения ({})" , Queue_Id, Link_Queue_Id,  Message.XML_MsgResponse );
+                    // Устанавливаеи признак завершения работы
+                    theadDataAccess.doUPDATE_MessageQueue_ExeIn2DelIN(Queue_Id, MessegeReceive_Log);
+                    return  0L;
                 }
+                //MessegeReceive_Log.warn("[" + Queue_Id + "]: Check ==> getConfigPostExec=`{}`, MsgAnswXSLT=`{}` ", Message.MessageTemplate4Perform.getConfigPostExec() , Message.MessageTemplate4Perform.getMsgAnswXSLT());
+
+                if ((Message.MessageTemplate4Perform.getConfigPostExec()!= null) &&
+                        (Message.MessageTemplate4Perform.getMsgAnswXSLT() != null ) &&
+                        (Message.MessageTemplate4Perform.getPropExeMetodPostExec() != null) )
+                 { // Есть Post-обработчик , работающий ПОВЕРХ результата порожденного OUT-сообщения
+                    // надо читать ответ из Confirmation родного OUT, куда дополнительный обработчик положит Confirmation, перезаписав его
+                    // или обработчик порожденного OUT-сообщения перезаписывает Confirmation входящего по результатам прикладной обработки Confirmation от Link_Queue
+                    /////////////////////////////////////////////////
+                    if ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.WebRestExeMetod) )
+                    { // 2.2) Это Rest-HttpGet-вызов
+
+                        if ((Message.MessageTemplate4Perform.getPropHostPostExec() == null) ||
+                                (Message.MessageTemplate4Perform.getPropUserPostExec() == null) ||
+                                (Message.MessageTemplate4Perform.getPropPswdPostExec() == null) ||
+                                (Message.MessageTemplate4Perform.getPropUrlPostExec() == null) ||
+                                (Message.MessageTemplate4Perform.getPropQueryPostExec() == null) ) {
+                            // Нет параметров для Rest-HttpGet - надо орать!
+                            MessegeReceive_Log.error("[{}] В шаблоне для пост-обработки {} нет параметров для Rest-HttpGet вклюая логин/пароль", Queue_Id, Message.MessageTemplate4Perform.getPropExeMetodPostExec());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id,
+                                    "В шаблоне для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " нет параметров для Rest-HttpGet вклюая логин/пароль", 3253,
+                                    MessegeReceive_Log);
+                            return -46L;
+                        }
+                        // Готовим Rest-call
+                        String EndPointUrl = null;
+                        HttpClient ApiRestHttpClient=null;
+                        int restResponseStatus = 0;
+                        // HashMap<String, String > HttpGetParams = new HashMap<String, String >();
+                        try {
 
-                // проверяем НАЛИЧИЕ пост-обработчика в Шаблоне
-                if (( Message.MessageTemplate4Perform.getConfigPostExec() != null ) &&
-                    ( Message.MessageTemplate4Perform.getPropExeMetodPostExec()  != null )){ // 1) ConfigPostExec не пуст и обозначен Метод!
-                    messageQueueVO.setQueue_Direction(XMLchars.DirectPOSTIN);
-                    if ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.JavaClassExeMetod) )
-                    { // 2.1) Это JDBC-обработчик
-                        if ( Message.MessageTemplate4Perform.getEnvelopeXSLTPost() != null ) { // 2) EnvelopeXSLTPost
-                            if (!Message.MessageTemplate4Perform.getEnvelopeXSLTPost().isEmpty()) {
-                                if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                                    MessegeReceive_Log.info("[{}] Шаблон EnvelopeXSLTPost для пост-обработки({})", Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
-                                if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                                    MessegeReceive_Log.info("[{}] Envelope4XSLTPost:{}", Queue_Id, MessageUtils.PrepareEnvelope4XSLTPost(messageQueueVO, Message.XML_MsgConfirmation));
-
-                                String Passed_Envelope4XSLTPost;
-                                try {
-                                    Passed_Envelope4XSLTPost= XMLutils.ConvXMLuseXSLT30( messageQueueVO.getQueue_Id(),
-                                            MessageUtils.PrepareEnvelope4XSLTPost( messageQueueVO, Message.XML_MsgConfirmation),  // Искуственный Envelope/Head/<Body>XML_MsgConfirmation</Body>
-                                            Message.MessageTemplate4Perform.getEnvelopeXSLTPost_processor(), Message.MessageTemplate4Perform.getEnvelopeXSLTPost_xsltCompiler(), Message.MessageTemplate4Perform.getEnvelopeXSLTPost_xslt30Transformer(),
-                                            Message.MessageTemplate4Perform.getEnvelopeXSLTPost(),  // через EnvelopeXSLTPost
-                                            Message.MsgReason, // результат для MsgReason помещаем сюда
-                                            ConvXMLuseXSLTerr,
-                                            MessegeReceive_Log,
-                                            Message.MessageTemplate4Perform.getIsDebugged());
-                                } catch ( SaxonApiException exception ) {
-                                    MessegeReceive_Log.error("{} [{}] XSLT-пост-преобразователь ответа:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN( messageQueueVO.getQueue_Id(),
-                                            "Ошибка преобразования XSLT для пост-обработки " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getEnvelopeXSLTPost(), 1235,
-                                              MessegeReceive_Log);
-                                    //ConcurrentQueue.addMessageQueueVO2queue(  messageQueueVO, null, null,  monitoringQueueVO, MessegeReceive_Log);
-                                    //ConcurrentQueue.addMessageQueueVO2queue(  messageQueueVO, MessageUtils.PrepareEnvelope4XSLTPost( messageQueueVO,  Message, MessegeReceive_Log),
-                                    //        "Ошибка преобразования XSLT для пост-обработки " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getEnvelopeXSLTPost(),  monitoringQueueVO, MessegeReceive_Log);
-                                    return -101L;
-                                }
-                                if ( Passed_Envelope4XSLTPost.equals(XMLchars.EmptyXSLT_Result))
-                                {
-                                    MessegeReceive_Log.error("[{}] Шаблон для пост-обработки({})", Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
-                                    MessegeReceive_Log.error("[{}] Envelope4XSLTPost:{}", Queue_Id, MessageUtils.PrepareEnvelope4XSLTPost(messageQueueVO, Message.XML_MsgConfirmation));
-                                    MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT для пост-обработки {}", Queue_Id, Message.MsgReason.toString());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
-                                            "Ошибка преобразования XSLT для пост-обработки " + ConvXMLuseXSLTerr + " :" + Message.MsgReason.toString(), 1236,
-                                             MessegeReceive_Log);
-                                    return -102L;
+                            if (StringUtils.substring(Message.MessageTemplate4Perform.getPropHostPostExec(), 0, "http".length()).equalsIgnoreCase("http"))
+                                EndPointUrl = Message.MessageTemplate4Perform.getPropHostPostExec() +
+                                              Message.MessageTemplate4Perform.getPropUrlPostExec();
+                            else
+                                EndPointUrl = "http://" + Message.MessageTemplate4Perform.getPropHostPostExec() +
+                                                          Message.MessageTemplate4Perform.getPropUrlPostExec();
+                            // Ставим своенго клиента !
+                            ApiRestHttpClient = getCloseableHttpClient( messageQueueVO,  Message, EndPointUrl, true, theadDataAccess, MessegeReceive_Log);
+                            // SSLUtil.turnOffSslChecking();
+                            if ( ApiRestHttpClient == null) // ErrIN выставлен, выходим
+                                return -36L;
 
-                                }
-                                /*
-                                final int resultSQL = //XmlSQLStatement.ExecuteSQLincludedXML( theadDataAccess, Passed_Envelope4XSLTPost, messageQueueVO, Message, MessegeReceive_Log);
-                                    XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, false, null, Passed_Envelope4XSLTPost, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
-                                */
-                            int resultSQL;
-                            if (Message.MessageTemplate4Perform.getIsExtSystemAccessPostExec()) // ExtSystemAccessPostExec для внешней системы
-                            {
-                                ExtSystemDataConnection extSystemDataConnection = new ExtSystemDataConnection(Queue_Id, MessegeReceive_Log);
-                                if ( extSystemDataConnection.ExtSystem_Connection == null ){
-                                    Message.MsgReason.append("Ошибка на приёме сообщения - нет соединения с внешней базой данных (extSystemDataConnection return NULL), обратитесь к системному администратору !");
-                                    return -33L;
-                                }
-                                resultSQL = XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, true, extSystemDataConnection.ExtSystem_Connection ,
-                                                                                  Passed_Envelope4XSLTPost, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
-                                try {  extSystemDataConnection.ExtSystem_Connection.close();
-                                } catch (SQLException e) {
-                                    MessegeReceive_Log.error("[{}] ExtSystem_Connection.close() fault:{}", Queue_Id, e.getMessage());
-                                }
-                            }
-                            else // запуск пост-обработчика в собственной БД
-                            resultSQL = XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, false, null, Passed_Envelope4XSLTPost, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
+                            if (Message.MessageTemplate4Perform.getIsDebugged())
+                                MessegeReceive_Log.info("[{}] MessageTemplate4Perform.getPropQueryPostExec:'{}'", messageQueueVO.getQueue_Id(), Message.MessageTemplate4Perform.getPropQueryPostExec());
+                            String queryEndPointUrl;
+                            if (Message.MessageTemplate4Perform.getPropQueryPostExec() != null)
+                                queryEndPointUrl = EndPointUrl + "?" + Message.MessageTemplate4Perform.getPropQueryPostExec() + "=" + Link_Queue_Id.toString() ;
+                            else queryEndPointUrl = EndPointUrl + "?queue_id=" + String.valueOf(Queue_Id)+ "&Link_Queue_Id=" + Link_Queue_Id.toString() ;
+
+                            /*int numOfParams = MessageHttpSend.setHttpGetParams(messageQueueVO.getQueue_Id(),
+                                                                                Message.MessageTemplate4Perform.getPropQueryPostExec(), Link_Queue_Id.toString(),
+                                                                                HttpGetParams,
+                                                                                Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log );*/
+                                restResponseStatus =  MessageHttpSend.WebRestExePostExec(ApiRestHttpClient, queryEndPointUrl, Queue_Id,
+                                                                                      Message.MessageTemplate4Perform, ApplicationProperties.ApiRestWaitTime, MessegeReceive_Log );
 
+                            try {
+                                    ApiRestHttpClient.close();
 
-                                if (resultSQL != 0) {
-                                    MessegeReceive_Log.error("[{}] Envelope4XSLTPost:{}", Queue_Id, MessageUtils.PrepareEnvelope4XSLTPost(messageQueueVO, Message.XML_MsgConfirmation));
-                                    MessegeReceive_Log.error("[{}] Ошибка ExecuteSQLinXML:{}", Queue_Id, Message.MsgReason.toString());
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
-                                            "Ошибка ExecuteSQLinXML: " + Message.MsgReason.toString(), 1233,
-                                              MessegeReceive_Log);
-                                    return -103L;
-                                }
-                                else
-                                {if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                                    MessegeReceive_Log.info("["+ Queue_Id +"] Исполнение (для пост-обработки) ExecuteSQLincludedXML() :=" + resultSQL );
-                                }
+                            } catch ( Exception IOe) {
+                                MessegeReceive_Log.error( "[{}] И ещё проблема с ApiRestHttpClient.close()...{}", Queue_Id, IOe.getMessage());
+                                System.err.println("[" + Queue_Id + "] И ещё проблема с ApiRestHttpClient.close()...\" пост-обработки" + IOe.getMessage() ); // IOe.printStackTrace();
                             }
-                            else
-                            {   // Нет EnvelopeXSLTPost - надо орать! прописан Java класс, а EnvelopeXSLTPost нет
-                                MessegeReceive_Log.error("[{}] В шаблоне для пост-обработки {} нет EnvelopeXSLTPost",Queue_Id , Message.MessageTemplate4Perform.getPropExeMetodPostExec());
-                                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
-                                        "В шаблоне для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " нет EnvelopeXSLTPost", 1234,
-                                          MessegeReceive_Log);
-                                return -104L;
+
+                        } catch (Exception e ) { //  | java.security.KeyManagementException | java.security.NoSuchAlgorithmException  e) {
+                            // ???? возмущаемся, но оставляем сообщение в ResOUT что бы обработчик в кроне мог доработать - что то не видно про "ResOUT"
+
+                            Message.MsgReason.append("[" + Queue_Id + "] Ошибка вызова пост-обработки HttpGet(" + EndPointUrl + "), статус[" +restResponseStatus + "]:" +e.getMessage() );
+                            MessegeReceive_Log.error("[{}] Ошибка пост-обработки HttpGet({}):{}", Queue_Id, EndPointUrl, e.toString());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id,
+                                    "Ошибка пост-обработки HttpGet(" + EndPointUrl + "):" + sStackTrace.strInterruptedException(e), 3255,
+                                    MessegeReceive_Log);
+                            try {
+                                if ( ApiRestHttpClient != null)
+                                    ApiRestHttpClient.close();
+
+                            } catch ( Exception IOe) {
+                                MessegeReceive_Log.error("[{}] И ещё проблема с ApiRestHttpClient.close()...{}", Queue_Id, IOe.getMessage());
+                                System.err.println("[" + Queue_Id + "] И ещё проблема с ApiRestHttpClient.close()...\" пост-обработки" + IOe.getMessage() ); //IOe.printStackTrace();
                             }
+                            return -47L;
                         }
-                        else
-                        { // Нет EnvelopeXSLTPost - надо орать!
-                            MessegeReceive_Log.error("[{}] В шаблоне для пост-обработки {} нет EnvelopeXSLTPost",Queue_Id , Message.MessageTemplate4Perform.getPropExeMetodPostExec());
-                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
-                                    "В шаблоне для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " нет EnvelopeXSLTPost", 1237,
+                        // Проверяем готовность результата
+                        if (! MessageUtils.isMessageQueue_Direction_EXEIN(theadDataAccess, Queue_Id, messageQueueVO, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log ))
+                        {
+                            // Ругаемся, что обработчик не выставил признак статус EXEIN
+                            Message.MsgReason.setLength(0); Message.MsgReason.trimToSize();
+                            Message.MsgReason.append("[" + Queue_Id + "] При вызове Post-обработчика HttpGet(" + EndPointUrl + ")статус[" +restResponseStatus + "]:не выставлен признак статус EXEIN, нарушено соглашение о взаимодействии с Шиной");
+                            MessegeReceive_Log.error( Message.MsgReason.toString());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3248,
+                                    MessegeReceive_Log);
+                            return -48L;
+                        }
+                    } // закончили Rest-Post-обработку
+                      // обработчик порожденного OUT-сообщения перезаписывает Confirmation, его надо перезачитать и обработать MsgAnswXSLT
+
+                        if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                            MessegeReceive_Log.info("[{}]: ожидается, что обработчик порожденного OUT-сообщения перезаписывает Confirmation, MsgAnswXSLT: {}", Queue_Id, Message.MessageTemplate4Perform.getMsgAnswXSLT());
+                        // ReadConfirmation очищает Message.XML_MsgConfirmation и помещает туда чстанный из БД Confirmation
+                        int ConfirmationRowNum = MessageUtils.ReadConfirmation(theadDataAccess, Queue_Id, Message, MessegeReceive_Log);
+                        if (ConfirmationRowNum < 1) {
+                            // Ругаемся, что обработчик не сформировал Confirmation
+                            Message.MsgReason.append("[" + Queue_Id + "] обработчик порожденного Исходящего события не сформировал Confirmation, нарушено соглашение о взаимодействии с Шиной");
+                            MessegeReceive_Log.error( Message.MsgReason.toString());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3245,
+                                    MessegeReceive_Log);
+                            return -49L;
+                        }
+                        String Passed_Confirmation4MsgAnswXSLT = null;
+                        try {
+                            Stage_Nanos = PipelineMetrics.start();
+                            Passed_Confirmation4MsgAnswXSLT = XMLutils.ConvXMLuseXSLT30(Queue_Id,
+                                    Message.XML_MsgConfirmation.toString(), //
+                                    Message.MessageTemplate4Perform.getMsgAnswXSLT_processor(), Message.MessageTemplate4Perform.getMsgAnswXSLT_xsltCompiler(), Message.MessageTemplate4Perform.getMsgAnswXSLT_xslt30Transformer(),
+                                    Message.MessageTemplate4Perform.getMsgAnswXSLT(),  // через AckAnswXSLT
+                                    Message.MsgReason, // результат для MsgReason помещаем сюда
+                                    ConvXMLuseXSLTerr,
+                                    MessegeReceive_Log, Message.MessageTemplate4Perform.getIsDebugged());
+                            PipelineMetrics.receive( "xslt_msg_answ", Message.MessageTemplate4Perform, Stage_Nanos );
+                        } catch (SaxonApiException exception) {
+                            MessegeReceive_Log.error("[{}] {}: XSLTExt-преобразователь Confirmation:{{}}",  Queue_Id, Queue_Direction, Message.MessageTemplate4Perform.getMsgAnswXSLT());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MessageTemplate4Perform.getMsgAnswXSLT(), 3249,
+                                    MessegeReceive_Log);
+                            return -50L;
+                        }
+                        if (Passed_Confirmation4MsgAnswXSLT.equals(XMLchars.EmptyXSLT_Result)) {
+                            MessegeReceive_Log.error("[{}] Шаблон для XSLT-обработки Confirmation({})", Queue_Id, Message.MessageTemplate4Perform.getMsgAnswXSLT());
+                            MessegeReceive_Log.error("[{}] Passed_Confirmation4AckAnswXSLT:{}", Queue_Id, ConvXMLuseXSLTerr);
+                            MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT для обработки Confirmation {}",Queue_Direction, Message.MsgReason.toString());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MsgReason.toString(), 3251,
+                                    MessegeReceive_Log);
+                            return -51L;
+
+                        }
+                        Message.XML_MsgResponse.append(Passed_Confirmation4MsgAnswXSLT);
+                     //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
+                        if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                            MessegeReceive_Log.warn("[{}] возврашаем от исходящего {} сообщения ({})", Queue_Id, Link_Queue_Id, Message.XML_MsgResponse);
+                        // Устанавливаеи признак завершения работы
+                        theadDataAccess.doUPDATE_MessageQueue_ExeIn2DelIN(Queue_Id, MessegeReceive_Log);
+                        return  0L;
+                    /////////////////////////////////////////////////
+                }
+            }
+            else {
+                // Ругаемся, что исходяее сообщение не отработало за отведенное на это время
+                Message.MsgReason.append("[" + Queue_Id + "] - исходящее сообщение (" + Link_Queue_Id +") не отработало за отведенное на это время (" + time4wait + ") с. [Msg_Status=3244]");
+                MessegeReceive_Log.error("[{}] {}", Queue_Id, Message.MsgReason);
+                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, Message.MsgReason.toString(), 3244,
+                        MessegeReceive_Log);
+                return -51L;
+
+            }
+
+        }
+
+        // преобразовываем результат
+        if ( Message.MessageTemplate4Perform.getIsDebugged() ) {
+            MessegeReceive_Log.warn("[{}] преобразовываем результат что: Confirmation`{}`", Queue_Id, Message.XML_MsgConfirmation );
+            MessegeReceive_Log.warn("[{}] преобразовываем результат чем: getAckXSLT`{}`", Queue_Id, Message.MessageTemplate4Perform.getAckXSLT());
+        }
+        if (Message.MessageTemplate4Perform.getAckXSLT() != null)
+        {
+            String Passed_Confirmation4AckXSLT = null;
+            try {
+                Stage_Nanos = PipelineMetrics.start();
+                Passed_Confirmation4AckXSLT= XMLutils.ConvXMLuseXSLT30( Queue_Id,
+                        Message.XML_MsgConfirmation.toString(), //
+                        Message.MessageTemplate4Perform.getAckXSLT_processor(), Message.MessageTemplate4Perform.getAckXSLT_xsltCompiler(), Message.MessageTemplate4Perform.getAckXSLT_xslt30Transformer(),
+                        Message.MessageTemplate4Perform.getAckXSLT(),  // через AckXSLT
+                        Message.MsgReason, // результат для MsgReason помещаем сюда
+                        ConvXMLuseXSLTerr,
+                        MessegeReceive_Log,
+                        Message.MessageTemplate4Perform.getIsDebugged());
+                PipelineMetrics.receive( "xslt_ack", Message.MessageTemplate4Perform, Stage_Nanos );
+            } catch ( SaxonApiException exception ) {
+                MessegeReceive_Log.error("[{}] {} XSLTExt-преобразователь Confirmation:{{}}", Queue_Id, Queue_Direction, Message.MessageTemplate4Perform.getAckXSLT());
+                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MessageTemplate4Perform.getAckXSLT(), 3249,
+                        MessegeReceive_Log);
+                return -52L;
+            }
+            if ( Passed_Confirmation4AckXSLT.equals(XMLchars.EmptyXSLT_Result))
+            {
+                MessegeReceive_Log.error("[{}] Шаблон для XSLT-обработки Confirmation `{}`", Queue_Id, Message.MessageTemplate4Perform.getAckXSLT() );
+                MessegeReceive_Log.error("[{}] Passed_Confirmation4AckXSLT:{}", Queue_Id, ConvXMLuseXSLTerr);
+                MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT для обработки Confirmation{}", Queue_Id, Message.MsgReason.toString());
+                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(Queue_Id, "Ошибка преобразования XSLT для обработки Confirmation " + ConvXMLuseXSLTerr.toString() + " :" + Message.MsgReason.toString(), 3251,
+                        MessegeReceive_Log);
+                return -53L;
+
+            }
+            Message.XML_MsgResponse.append( Passed_Confirmation4AckXSLT );
+            //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
+            if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                MessegeReceive_Log.warn("[{}] возвращаем({})", Queue_Id, Message.XML_MsgResponse);
+        }
+        else // Помещаем Без преобразования
+        {
+            if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                MessegeReceive_Log.warn("[{}] Шаблон для XSLT-обработки Confirmation({})", Queue_Id, Message.MessageTemplate4Perform.getAckXSLT());
+            Message.XML_MsgResponse.append(Message.XML_MsgConfirmation.toString());
+        }
+
+        // проверяем НАЛИЧИЕ пост-обработчика в Шаблоне
+        if (( Message.MessageTemplate4Perform.getConfigPostExec() != null ) &&
+            ( Message.MessageTemplate4Perform.getPropExeMetodPostExec()  != null )){ // 1) ConfigPostExec не пуст и обозначен Метод!
+            messageQueueVO.setQueue_Direction(XMLchars.DirectPOSTIN);
+            if ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.JavaClassExeMetod) )
+            { // 2.1) Это JDBC-обработчик
+                if ( Message.MessageTemplate4Perform.getEnvelopeXSLTPost() != null ) { // 2) EnvelopeXSLTPost
+                    if (!Message.MessageTemplate4Perform.getEnvelopeXSLTPost().isEmpty()) {
+                        if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                            MessegeReceive_Log.info("[{}] Шаблон EnvelopeXSLTPost для пост-обработки({})", Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
+                        if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                            MessegeReceive_Log.info("[{}] Envelope4XSLTPost:{}", Queue_Id, MessageUtils.PrepareEnvelope4XSLTPost(messageQueueVO, Message.XML_MsgConfirmation));
+
+                        String Passed_Envelope4XSLTPost;
+                        try {
+                            Stage_Nanos = PipelineMetrics.start();
+                            Passed_Envelope4XSLTPost= XMLutils.ConvXMLuseXSLT30( messageQueueVO.getQueue_Id(),
+                                    MessageUtils.PrepareEnvelope4XSLTPost( messageQueueVO, Message.XML_MsgConfirmation),  // Искуственный Envelope/Head/<Body>XML_MsgConfirmation</Body>
+                                    Message.MessageTemplate4Perform.getEnvelopeXSLTPost_processor(), Message.MessageTemplate4Perform.getEnvelopeXSLTPost_xsltCompiler(), Message.MessageTemplate4Perform.getEnvelopeXSLTPost_xslt30Transformer(),
+                                    Message.MessageTemplate4Perform.getEnvelopeXSLTPost(),  // через EnvelopeXSLTPost
+                                    Message.MsgReason, // результат для MsgReason помещаем сюда
+                                    ConvXMLuseXSLTerr,
+                                    MessegeReceive_Log,
+                                    Message.MessageTemplate4Perform.getIsDebugged());
+                            PipelineMetrics.receive( "xslt_post", Message.MessageTemplate4Perform, Stage_Nanos );
+                        } catch ( SaxonApiException exception ) {
+                            MessegeReceive_Log.error("{} [{}] XSLT-пост-преобразователь ответа:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN( messageQueueVO.getQueue_Id(),
+                                    "Ошибка преобразования XSLT для пост-обработки " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getEnvelopeXSLTPost(), 1235,
                                       MessegeReceive_Log);
-                            return -105L;
+                            //ConcurrentQueue.addMessageQueueVO2queue(  messageQueueVO, null, null,  monitoringQueueVO, MessegeReceive_Log);
+                            //ConcurrentQueue.addMessageQueueVO2queue(  messageQueueVO, MessageUtils.PrepareEnvelope4XSLTPost( messageQueueVO,  Message, MessegeReceive_Log),
+                            //        "Ошибка преобразования XSLT для пост-обработки " + ConvXMLuseXSLTerr + " :" + Message.MessageTemplate4Perform.getEnvelopeXSLTPost(),  monitoringQueueVO, MessegeReceive_Log);
+                            return -101L;
                         }
-                    }
-                    else {
-                        // if NOT ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.JavaClassExeMetod) )
-                        // значит, либо WebJsonExeMetod, либо WebRestExeMetod
-                        if ( ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.WebJsonExeMetod)) ||
-                                ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.WebRestExeMetod))
-                        )
+                        if ( Passed_Envelope4XSLTPost.equals(XMLchars.EmptyXSLT_Result))
                         {
-                            if ( Link_Queue_Id != null) // Обрабатываем порожденное сообщение
-                            { // перечитываем по Link_Queue_Id
-                              // и выполняем всё то, что делает Sender c исходящим
-                                PerformQueueMessages4Send performQueueMessage4Send = new PerformQueueMessages4Send();
-
-                                MessageDetails4Send Message_4_Send = new MessageDetails4Send();
-                                MessageQueueVO message_4_SendQueueVO = new MessageQueueVO();
-                                message_4_SendQueueVO.setQueue_Id( Link_Queue_Id );
-
-                                if ( is_NoWait4Sender )  //isNoWaitSender4MessageTypeURL_SOAP_Ack_2_Operation
-                                { long reading_Queue_Id =
-                                    MessageUtils.readMessage_QueueVO( Link_Queue_Id, message_4_SendQueueVO, Message_4_Send, theadDataAccess, Message.MessageTemplate4Perform.getIsDebugged() , MessegeReceive_Log );
-                                    if ( reading_Queue_Id < 0 )
-                                    {   // Не найдена запись Link_Queue= - надо орать!
-                                        MessegeReceive_Log.error("[{}]  для пост-обработки {} не найдена запись Link_Queue={}", Queue_Id, Message.MessageTemplate4Perform.getPropExeMetodPostExec(), Link_Queue_Id);
-                                        theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
-                                                "для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " не найдена запись Link_Queue=" + Link_Queue_Id, 1236,
-                                                MessegeReceive_Log);
-                                        return -107L;
-                                    }
-
-                                    try {
-                                        MessegeReceive_Log.warn("[{}] performQueueMessage4Send:{} record  locked, Msg_InfoStreamId={}", messageQueueVO.getQueue_Id(), messageQueueVO.getQueue_Id(), messageQueueVO.getMsg_InfoStreamId());
-                                        performQueueMessage4Send.performMessage( Message_4_Send, message_4_SendQueueVO, theadDataAccess, MessegeReceive_Log);
-                                    } catch (Exception e) {
-                                        System.err.println("performMessage Exception Queue_Id:[" + messageQueueVO.getQueue_Id() + "] for Link_Queue=" + Link_Queue_Id.toString() + " :" + e.getMessage());
-                                        e.printStackTrace();
-                                        MessegeReceive_Log.error("[{}] performMessage Exception for Link_Queue={}: {}", messageQueueVO.getQueue_Id(), Link_Queue_Id.toString(), e.getMessage());
-                                        MessegeReceive_Log.error("[{}] performMessage Exception for Link_Queue={}что то пошло совсем не так...", messageQueueVO.getQueue_Id(), Link_Queue_Id.toString());
-                                    }
-                                }
-                                else {
-                                    MessegeReceive_Log.error("[{}]  для пост-обработки {} не установлен признак is_NoWait4Sender={}", Queue_Id, Message.MessageTemplate4Perform.getPropExeMetodPostExec(), is_NoWait4Sender);
-                                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
-                                            "для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " не найдена запись Link_Queue=" + Link_Queue_Id, 1237,
-                                            MessegeReceive_Log);
-                                    return -108L;
-                                }
-                            }
+                            MessegeReceive_Log.error("[{}] Шаблон для пост-обработки({})", Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
+                            MessegeReceive_Log.error("[{}] Envelope4XSLTPost:{}", Queue_Id, MessageUtils.PrepareEnvelope4XSLTPost(messageQueueVO, Message.XML_MsgConfirmation));
+                            MessegeReceive_Log.error("[{}] Ошибка преобразования XSLT для пост-обработки {}", Queue_Id, Message.MsgReason.toString());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
+                                    "Ошибка преобразования XSLT для пост-обработки " + ConvXMLuseXSLTerr + " :" + Message.MsgReason.toString(), 1236,
+                                     MessegeReceive_Log);
+                            return -102L;
 
                         }
+                        /*
+                        final int resultSQL = //XmlSQLStatement.ExecuteSQLincludedXML( theadDataAccess, Passed_Envelope4XSLTPost, messageQueueVO, Message, MessegeReceive_Log);
+                            XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, false, null, Passed_Envelope4XSLTPost, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
+                        */
+                    int resultSQL;
+                    Stage_Nanos = PipelineMetrics.start();
+                    if (Message.MessageTemplate4Perform.getIsExtSystemAccessPostExec()) // ExtSystemAccessPostExec для внешней системы
+                    {
+                        ExtSystemDataConnection extSystemDataConnection = new ExtSystemDataConnection(Queue_Id, MessegeReceive_Log);
+                        if ( extSystemDataConnection.ExtSystem_Connection == null ){
+                            Message.MsgReason.append("Ошибка на приёме сообщения - нет соединения с внешней базой данных (extSystemDataConnection return NULL), обратитесь к системному администратору !");
+                            return -33L;
+                        }
+                        resultSQL = XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, true, extSystemDataConnection.ExtSystem_Connection ,
+                                                                          Passed_Envelope4XSLTPost, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
+                        try {  extSystemDataConnection.ExtSystem_Connection.close();
+                        } catch (SQLException e) {
+                            MessegeReceive_Log.error("[{}] ExtSystem_Connection.close() fault:{}", Queue_Id, e.getMessage());
+                        }
+                    }
+                    else // запуск пост-обработчика в собственной БД
+                    resultSQL = XmlSQLStatement.ExecuteSQLincludedXML(theadDataAccess, false, null, Passed_Envelope4XSLTPost, messageQueueVO, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log);
+                    PipelineMetrics.receive( "execute_sql_post", Message.MessageTemplate4Perform, Stage_Nanos );
+
 
+                        if (resultSQL != 0) {
+                            MessegeReceive_Log.error("[{}] Envelope4XSLTPost:{}", Queue_Id, MessageUtils.PrepareEnvelope4XSLTPost(messageQueueVO, Message.XML_MsgConfirmation));
+                            MessegeReceive_Log.error("[{}] Ошибка ExecuteSQLinXML:{}", Queue_Id, Message.MsgReason.toString());
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
+                                    "Ошибка ExecuteSQLinXML: " + Message.MsgReason.toString(), 1233,
+                                      MessegeReceive_Log);
+                            return -103L;
+                        }
+                        else
+                        {if ( Message.MessageTemplate4Perform.getIsDebugged() )
+                            MessegeReceive_Log.info("["+ Queue_Id +"] Исполнение (для пост-обработки) ExecuteSQLincludedXML() :=" + resultSQL );
+                        }
+                    }
+                    else
+                    {   // Нет EnvelopeXSLTPost - надо орать! прописан Java класс, а EnvelopeXSLTPost нет
+                        MessegeReceive_Log.error("[{}] В шаблоне для пост-обработки {} нет EnvelopeXSLTPost",Queue_Id , Message.MessageTemplate4Perform.getPropExeMetodPostExec());
+                        theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
+                                "В шаблоне для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " нет EnvelopeXSLTPost", 1234,
+                                  MessegeReceive_Log);
+                        return -104L;
+                    }
+                }
+                else
+                { // Нет EnvelopeXSLTPost - надо орать!
+                    MessegeReceive_Log.error("[{}] В шаблоне для пост-обработки {} нет EnvelopeXSLTPost",Queue_Id , Message.MessageTemplate4Perform.getPropExeMetodPostExec());
+                    theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
+                            "В шаблоне для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " нет EnvelopeXSLTPost", 1237,
+                              MessegeReceive_Log);
+                    return -105L;
+                }
+            }
+            else {
+                // if NOT ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.JavaClassExeMetod) )
+                // значит, либо WebJsonExeMetod, либо WebRestExeMetod
+                if ( ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.WebJsonExeMetod)) ||
+                        ( Message.MessageTemplate4Perform.getPropExeMetodPostExec().equals(Message.MessageTemplate4Perform.WebRestExeMetod))
+                )
+                {
+                    if ( Link_Queue_Id != null) // Обрабатываем порожденное сообщение
+                    { // перечитываем по Link_Queue_Id
+                      // и выполняем всё то, что делает Sender c исходящим
+                        MessageDetails4Send Message_4_Send = new MessageDetails4Send();
+                        MessageQueueVO message_4_SendQueueVO = new MessageQueueVO();
+                        message_4_SendQueueVO.setQueue_Id( Link_Queue_Id );
+
+                        if ( is_NoWait4Sender )  //isNoWaitSender4MessageTypeURL_SOAP_Ack_2_Operation
+                        { long reading_Queue_Id =
+                            MessageUtils.readMessage_QueueVO( Link_Queue_Id, message_4_SendQueueVO, Message_4_Send, theadDataAccess, Message.MessageTemplate4Perform.getIsDebugged() , MessegeReceive_Log );
+                            if ( reading_Queue_Id < 0 )
+                            {   // Не найдена запись Link_Queue= - надо орать!
+                                MessegeReceive_Log.error("[{}]  для пост-обработки {} не найдена запись Link_Queue={}", Queue_Id, Message.MessageTemplate4Perform.getPropExeMetodPostExec(), Link_Queue_Id);
+                                theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
+                                        "для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " не найдена запись Link_Queue=" + Link_Queue_Id, 1236,
+                                        MessegeReceive_Log);
+                                return -107L;
+                            }
 
+                            // отправка - после COMMIT-а ExeIn2DelIN, через OutboundDeliveryEngine
+                            Link_Queue_4_SendVO = message_4_SendQueueVO;
+                            Link_Message_4_Send = Message_4_Send;
+                        }
+                        else {
+                            MessegeReceive_Log.error("[{}]  для пост-обработки {} не установлен признак is_NoWait4Sender={}", Queue_Id, Message.MessageTemplate4Perform.getPropExeMetodPostExec(), is_NoWait4Sender);
+                            theadDataAccess.doUPDATE_MessageQueue_In2ErrorIN(messageQueueVO.getQueue_Id(),
+                                    "для пост-обработки " + Message.MessageTemplate4Perform.getPropExeMetodPostExec() + " не найдена запись Link_Queue=" + Link_Queue_Id, 1237,
+                                    MessegeReceive_Log);
+                            return -108L;
+                        }
                     }
+
                 }
-                // Устанавливаеи признак завершения работы
-                theadDataAccess.doUPDATE_MessageQueue_ExeIn2DelIN(Queue_Id, MessegeReceive_Log );
 
-                break;
+
+            }
         }
-            return  0L;
+        // связанное сообщение захватываем в той же транзакции, что и ExeIn2DelIN: после COMMIT-а оно уже в SEND,
+        // и Sender не отправит его второй раз, пока отправка ждёт своей очереди в OutboundDeliveryEngine
+        if ( Link_Queue_4_SendVO != null &&
+             theadDataAccess.doUPDATE_MessageQueue_Out2Claim( Link_Queue_4_SendVO.getQueue_Id(),
+                     "OutboundDeliveryEngine: отправка после [" + Queue_Id + "]", MessegeReceive_Log ) != 1 ) {
+            MessegeReceive_Log.warn("[{}] связанное сообщение Link_Queue={} уже не в OUT, его отправит Sender", Queue_Id, Link_Queue_4_SendVO.getQueue_Id());
+            Link_Queue_4_SendVO = null;
+        }
+        // Устанавливаеи признак завершения работы
+        if ( theadDataAccess.doUPDATE_MessageQueue_ExeIn2DelIN(Queue_Id, MessegeReceive_Log ) == 0 && Link_Queue_4_SendVO != null )
+            OutboundDeliveryEngine.submit( Link_Queue_4_SendVO, Link_Message_4_Send, Queue_Id, theadDataAccess, MessegeReceive_Log );
+
+        return  0L;
     }
 
-    private HttpClient getCloseableHttpClient( MessageQueueVO messageQueueVO, MessageDetails Message , boolean isPostExec,TheadDataAccess theadDataAccess,
+    // клиент берётся из HttpClientRegistry: один на адрес, учётку и timeout, close() у вызывающего его не закрывает
+    private HttpClient getCloseableHttpClient( MessageQueueVO messageQueueVO, MessageDetails Message , String EndPointUrl, boolean isPostExec,TheadDataAccess theadDataAccess,
                                                        Logger MessegeReceive_Log) {
         // int ReadTimeoutInMillis = ApplicationProperties.ApiRestWaitTime * 1000;
         int ConnectTimeout = 5 ;
-        SSLContext sslContext = MessageHttpSend.getSSLContext( Message.MsgReason );
-        if ( sslContext == null ) {
-            MessegeReceive_Log.error("[{}] SSLContextBuilder fault: ({})", messageQueueVO.getQueue_Id(), Message.MsgReason.toString());
-            Message.MsgReason.append("Внутренняя Ошибка SSLContextBuilder fault: (" +  Message.MsgReason.toString() + ")" ) ;
-
-            MessageUtils.ProcessingIn2ErrorIN(messageQueueVO, Message, theadDataAccess,
-                    "Внутренняя Ошибка SSLContextBuilder fault: (" +  Message.MsgReason.toString() + ")",
-                    null, MessegeReceive_Log);
-            return null;
-        }
         boolean IsDebugged = Message.MessageTemplate4Perform.getIsDebugged();
         HttpClient ApiRestHttpClient;
 
@@ -1039,21 +1112,12 @@ public class PerfotmInputMessages {
             if ( IsDebugged ) {
                 MessegeReceive_Log.info("[{}] getCloseableHttpClient: PropUser=`{}` PropPswd=`{}`", messageQueueVO.getQueue_Id(), PropUser, PropPswd);
             }
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .authenticator( restApiPasswordAuthenticator )
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .connectTimeout(Duration.ofSeconds( ConnectTimeout ) )
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, restApiPasswordAuthenticator, PropUser, PropPswd, ConnectTimeout );
         }
         else {
             if ( IsDebugged )
                 MessegeReceive_Log.info("[{}] getCloseableHttpClient: PropUser== null or isPreemptive= (`{}`)", messageQueueVO.getQueue_Id(), isPreemptive);
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .connectTimeout(Duration.ofSeconds( ConnectTimeout ))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, null, null, null, ConnectTimeout );
         }
 
      } catch ( Exception e)
@@ -4,6 +4,7 @@ import net.plumbing.msgbus.common.json.JSONObject;
 import net.plumbing.msgbus.common.json.XML;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.text.TextStringBuilder;
+import org.jdom2.JDOMException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 //import org.slf4j.Marker;
@@ -11,7 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 //import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
-//import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResult;
 //import ServletApplication;
 import net.plumbing.msgbus.common.ApplicationProperties;
 
@@ -19,9 +20,14 @@ import net.plumbing.msgbus.common.ClientIpHelper;
 import net.plumbing.msgbus.common.json.JSONException;
 import net.plumbing.msgbus.model.MessageDetails;
 import net.plumbing.msgbus.model.MessageTemplate;
+import net.plumbing.msgbus.model.MessageTemplate4Perform;
 //import TheadDataAccess;
 import net.plumbing.msgbus.threads.utils.MessageRepositoryHelper;
+import net.plumbing.msgbus.threads.utils.PipelineMetrics;
+import net.plumbing.msgbus.threads.utils.XMLutils;
 import net.plumbing.msgbus.common.XMLchars;
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
 
 
 import java.io.*;
@@ -31,11 +37,10 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.net.InetAddress;
 import java.net.URLDecoder;
 import java.net.UnknownHostException;
-//import java.nio.charset.Charset;
+import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.Properties;
 
 //import static javax.xml.soap.SOAPConstants.SOAP_1_1_CONTENT_TYPE;
 import static net.plumbing.msgbus.common.XMLchars.*;
@@ -54,7 +59,16 @@ public class PostController {
     //   @ResponseStatus(HttpStatus.OK) // MediaType.TEXT_XML_VALUE.APPLICATION_XML_VALUE
 
     public @ResponseBody
-    byte[] PostHttpRequest(ServletRequest postServletRequest, HttpServletResponse postResponse) {
+    DeferredResult<byte[]> PostHttpRequest(ServletRequest postServletRequest, HttpServletResponse postResponse) {
+        DeferredResult<byte[]> postDeferredResult = new DeferredResult<>( SyncCallWait.AsyncTimeout );
+        byte[] OutResponse = PerformPostHttpRequest(postServletRequest, postResponse, postDeferredResult);
+        if ( OutResponse != null ) // ответ готов без ожидания исходящего
+            postDeferredResult.setResult( OutResponse );
+        return postDeferredResult;
+    }
+
+    // null - ответ в postDeferredResult выставит SyncCallWait
+    private byte[] PerformPostHttpRequest(ServletRequest postServletRequest, HttpServletResponse postResponse, DeferredResult<byte[]> postDeferredResult) {
 
         InputStream inputStream = null;
         //String Response = "ok";
@@ -91,6 +105,7 @@ public class PostController {
             return OutResponse.getBytes();
         }
 
+        long Body_Read_Nanos = PipelineMetrics.start();
         try {
             inputStream = postServletRequest.getInputStream();
         } catch (IOException ioException) {
@@ -109,69 +124,43 @@ public class PostController {
 
         // получив на вход интерфейса (на основе входного URL) ищем для него Шаблон
         int MessageTemplateVOkey = MessageRepositoryHelper.look4MessageTemplate_2_Interface(Interface_id, Controller_log);
-        String PropEncoding_Out = "UTF-8";
-        String PropEncoding_In = "UTF-8";
+        Charset PropEncoding_Out = StandardCharsets.UTF_8;
+        Charset PropEncoding_In = StandardCharsets.UTF_8;
        //  Controller_log.info("MessageTemplateVOkey:=" + MessageTemplateVOkey+ " , PostHttpRequest: CharacterEncoding=" + postServletRequest.getCharacterEncoding() );
         boolean isDebugged = false;
         String  PropCustomFault_Server_Begin=null; // Fault_Server_noNS_Begin;
         String  PropCustomFault_Server_End=null; //Fault_noNS_End;
 
         if (MessageTemplateVOkey >= 0)
-        {
-            String ConfigExecute = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getConfigExecute();
-            // Controller_log.info("ConfigExecute:" + ConfigExecute);
-            if (ConfigExecute != null) {
-                Properties properties = new Properties();
-                InputStream propertiesStream = new ByteArrayInputStream(ConfigExecute.getBytes(StandardCharsets.UTF_8));
-                try {
-                    properties.load(propertiesStream);
-                    for (String key : properties.stringPropertyNames()) {
-                        if (key.equals(PropNameCharOut)) PropEncoding_Out = properties.getProperty(key);
-                        Charsets.toCharset(PropEncoding_Out);
-                        if (key.equals(PropNameCharIn)) PropEncoding_In = properties.getProperty(key);
-                        if (key.equals(PropCustomFaultBegin)) { // Для методов Post не интерфейсе может быть установлен отличный от XMLchars.Fault_Server_noNS_Begin -
-                            PropCustomFault_Server_Begin = properties.getProperty(key); //  и XMLchars.Fault_noNS_End обрамление для описания ошибки
-                        }
-                        if (key.equals(PropCustomFaultEnd)) {
-                            PropCustomFault_Server_End = properties.getProperty(key);
-                        }
-                        // Controller_log.info("Property[" + key + "]=[" + properties.getProperty(key) + "]");
-                        if (key.equals(PropDebug)) {
-                            // Controller_log.info("PropDebug Property[" + key + "]=[" + properties.getProperty(key) + "]");
-                            if ((properties.getProperty(key).equalsIgnoreCase("on")) ||
-                                    (properties.getProperty(key).equalsIgnoreCase("full"))
-                            ) {
-                                isDebugged = true;
-                            }
-                            if ((properties.getProperty(key).equalsIgnoreCase("ON")) ||
-                                    (properties.getProperty(key).equalsIgnoreCase("FULL"))
-                            ) {
-                                isDebugged = true;
-                            }
-                        }
-                    }
-                } catch (IOException ioException) {
-                    postResponse.setStatus(500);
-                    ioException.printStackTrace(System.err);
-                    Controller_log.error("properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage());
-                    String OutResponse;
-                    if (soapAction != null)
-                        OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Client_Begin +
-                            "properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage() +
-                            Fault_End + Body_End + Envelope_End;
-                    else {
-                        if ((PropCustomFault_Server_Begin != null ) && (PropCustomFault_Server_End !=null )) {
-                            OutResponse = PropCustomFault_Server_Begin +
-                                    "properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage() +
-                                    PropCustomFault_Server_End;
-                        }
-                        else
-                        OutResponse = Fault_Client_Begin +
-                                "properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage() +
-                                Fault_End;
+        {   // ConfigExecute разобран один раз при загрузке шаблона - берём готовые настройки из плана
+            MessageTemplate4Perform messageTemplate4Perform =
+                    MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getMessageTemplate4Perform(Controller_log);
+            PropEncoding_Out = messageTemplate4Perform.getEncoding_Out();
+            PropEncoding_In = messageTemplate4Perform.getEncoding_In();
+            // Для методов Post не интерфейсе может быть установлен отличный от XMLchars.Fault_Server_noNS_Begin и XMLchars.Fault_noNS_End обрамление для описания ошибки
+            PropCustomFault_Server_Begin = messageTemplate4Perform.getPropCustomFault_Server_Begin();
+            PropCustomFault_Server_End = messageTemplate4Perform.getPropCustomFault_Server_End();
+            isDebugged = messageTemplate4Perform.getIsDebugged();
+            if ( messageTemplate4Perform.getConfigExecute_Fault() != null ) {
+                postResponse.setStatus(500);
+                Controller_log.error(messageTemplate4Perform.getConfigExecute_Fault());
+                String OutResponse;
+                if (soapAction != null)
+                    OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Client_Begin +
+                        messageTemplate4Perform.getConfigExecute_Fault() +
+                        Fault_End + Body_End + Envelope_End;
+                else {
+                    if ((PropCustomFault_Server_Begin != null ) && (PropCustomFault_Server_End !=null )) {
+                        OutResponse = PropCustomFault_Server_Begin +
+                                messageTemplate4Perform.getConfigExecute_Fault() +
+                                PropCustomFault_Server_End;
                     }
-                    return OutResponse.getBytes();
+                    else
+                    OutResponse = Fault_Client_Begin +
+                            messageTemplate4Perform.getConfigExecute_Fault() +
+                            Fault_End;
                 }
+                return OutResponse.getBytes();
             }
         }
         // else - нет шаблона, ну он и не всегда нужен
@@ -179,66 +168,125 @@ public class PostController {
 // InputStreamReader(inputStream, "Windows-1251"));
 
         MessageDetails Message = new MessageDetails();
-        //PropEncoding_In = "UTF-8";
-        try (InputStreamReader reader = new InputStreamReader(inputStream, Charsets.toCharset(PropEncoding_In))// Charsets.UTF_8)
-        ) {
-            if ( isDebugged ) {
-                Controller_log.warn("Message.soapAction[" + soapAction + "]");
+        if ( !isDebugged ) {
+            // тело запроса целиком ( XML_MsgInput ) нужно только для QUEUElog при отладке - иначе разбираем прямо из потока
+            try {
+                XMLutils.parseRequestStream(Message, inputStream, PropEncoding_In, soapAction == null);
+            } catch (IOException | JDOMException ioException) {
+                postResponse.setStatus(500);
+                Controller_log.error("XMLutils.parseRequestStream(getInputStream) fault:" + ioException.getMessage());
+                // клиенту - тот же текст, что и при чтении тела строкой
+                if (soapAction != null) {
+                    String OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Client_Begin +
+                            "CharStreams.toString(getInputStream) fault:" + ioException.getMessage() +
+                            Fault_End + Body_End + Envelope_End;
+                    return OutResponse.getBytes();
+                } else {
+                    String OutResponse = Fault_Server_noNS_Begin + "CharStreams.toString(getInputStream) fault:" + ioException.getMessage()
+                            + Fault_noNS_End;
+                    return OutResponse.getBytes();
+                }
             }
-            if (soapAction != null)
-                Message.XML_MsgInput = CharStreams.toString(reader);
-            else {
-                int xmlVersionEncoding_pos = 0;
-                /*Controller_log.error("----------------------------");
-                Controller_log.error(CharStreams.toString(reader));
-                Controller_log.error("----------------------------");
-                 */
-                Message.XML_MsgConfirmation.append(CharStreams.toString(reader));
+        }
+        else {
+            //PropEncoding_In = "UTF-8";
+            try (InputStreamReader reader = new InputStreamReader(inputStream, PropEncoding_In)// Charsets.UTF_8)
+            ) {
                 if ( isDebugged ) {
-                    Controller_log.warn("Message.XML_MsgConfirmation.substring(0, 2)[" + Message.XML_MsgConfirmation.substring(0, 2) + "] Message.XML_MsgConfirmation.indexOf(\"?>\") =" + Message.XML_MsgConfirmation.indexOf("?>"));
-
-                }
-                if (Message.XML_MsgConfirmation.substring(0, 2).equals("<?")) {
-                    // в запросе <?xml version="1.0" encoding="UTF-8"?> Ищем '?>' что бы изъять !
-                    xmlVersionEncoding_pos = Message.XML_MsgConfirmation.indexOf("?>") + 2;
+                    Controller_log.warn("Message.soapAction[" + soapAction + "]");
                 }
-                Message.XML_MsgInput = Envelope_noNS_Begin
-                        + Header_noNS_Begin + Header_noNS_End
-                        + Body_noNS_Begin
-                        + Message.XML_MsgConfirmation.substring(xmlVersionEncoding_pos)// CharStreams.toString(reader)
-                        + Body_noNS_End + Envelope_noNS_End
-                ;
+                if (soapAction != null)
+                    Message.XML_MsgInput = CharStreams.toString(reader);
+                else {
+                    int xmlVersionEncoding_pos = 0;
+                    /*Controller_log.error("----------------------------");
+                    Controller_log.error(CharStreams.toString(reader));
+                    Controller_log.error("----------------------------");
+                     */
+                    Message.XML_MsgConfirmation.append(CharStreams.toString(reader));
+                    if ( isDebugged ) {
+                        Controller_log.warn("Message.XML_MsgConfirmation.substring(0, 2)[" + Message.XML_MsgConfirmation.substring(0, 2) + "] Message.XML_MsgConfirmation.indexOf(\"?>\") =" + Message.XML_MsgConfirmation.indexOf("?>"));
+
+                    }
+                    if (Message.XML_MsgConfirmation.substring(0, 2).equals("<?")) {
+                        // в запросе <?xml version="1.0" encoding="UTF-8"?> Ищем '?>' что бы изъять !
+                        xmlVersionEncoding_pos = Message.XML_MsgConfirmation.indexOf("?>") + 2;
+                    }
+                    Message.XML_MsgInput = Envelope_noNS_Begin
+                            + Header_noNS_Begin + Header_noNS_End
+                            + Body_noNS_Begin
+                            + Message.XML_MsgConfirmation.substring(xmlVersionEncoding_pos)// CharStreams.toString(reader)
+                            + Body_noNS_End + Envelope_noNS_End
+                    ;
+                    if ( isDebugged )
+                        Controller_log.warn("Message.XML_MsgConfirmation.substring("+xmlVersionEncoding_pos + ") [" +  Message.XML_MsgConfirmation.substring(xmlVersionEncoding_pos) + "]");
+                     }
                 if ( isDebugged )
-                    Controller_log.warn("Message.XML_MsgConfirmation.substring("+xmlVersionEncoding_pos + ") [" +  Message.XML_MsgConfirmation.substring(xmlVersionEncoding_pos) + "]");
-                 }
-            if ( isDebugged )
-            Controller_log.warn("InputStreamReader to Message.XML_MsgInput[" +  Message.XML_MsgInput + "]");
-            inputStream.close();
-        } catch (IOException ioException) {
-            postResponse.setStatus(500);
-            Controller_log.error("CharStreams.toString(getInputStream) fault:" + ioException.getMessage());
-            if (soapAction != null) {
-                String OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Client_Begin +
-                        "CharStreams.toString(getInputStream) fault:" + ioException.getMessage() +
-                        Fault_End + Body_End + Envelope_End;
-                return OutResponse.getBytes();
-            } else {
-                String OutResponse = Fault_Server_noNS_Begin + "CharStreams.toString(getInputStream) fault:" + ioException.getMessage()
-                        + Fault_noNS_End;
-                return OutResponse.getBytes();
+                Controller_log.warn("InputStreamReader to Message.XML_MsgInput[" +  Message.XML_MsgInput + "]");
+                inputStream.close();
+            } catch (IOException ioException) {
+                postResponse.setStatus(500);
+                Controller_log.error("CharStreams.toString(getInputStream) fault:" + ioException.getMessage());
+                if (soapAction != null) {
+                    String OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Client_Begin +
+                            "CharStreams.toString(getInputStream) fault:" + ioException.getMessage() +
+                            Fault_End + Body_End + Envelope_End;
+                    return OutResponse.getBytes();
+                } else {
+                    String OutResponse = Fault_Server_noNS_Begin + "CharStreams.toString(getInputStream) fault:" + ioException.getMessage()
+                            + Fault_noNS_End;
+                    return OutResponse.getBytes();
+                }
             }
         }
         // очищаем использованный XML_MsgConfirmation
         Message.XML_MsgConfirmation.setLength(0);
         Message.XML_MsgConfirmation.trimToSize();
+        // операция станет известна только после HeaderInXSLT
+        int Template_Id = ( MessageTemplateVOkey >= 0 ) ? MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_Id() : 0;
+        PipelineMetrics.record( PipelineMetrics.Receive, "body_read", Interface_id, 0, Template_Id, Body_Read_Nanos );
 
 
         MessageReceiveTask messageReceiveTask = new MessageReceiveTask();// (MessageSendTask) context.getBean("MessageSendTask");
+        // ожидание исходящего - без потока, ответ тогда соберёт SyncCallWait
+        messageReceiveTask.isSyncWaitDeferred = true;
     try
     {
 // TODO ! isDebugged надо брать из PropDebug, но для этого у интерфейса должен быть шаблон
         //isDebugged = false; // для локальной отладки
     Long Queue_ID = messageReceiveTask.ProcessInputMessage(Interface_id, Message, MessageTemplateVOkey, isDebugged);
+    // сессию дальше держит тот, кто строит ответ
+    TheadDataAccess theadDataAccess = messageReceiveTask.theadDataAccess;
+    messageReceiveTask.theadDataAccess = null;
+    if ( messageReceiveTask.SyncWait != null ) {
+        // исходящее ещё не готово: поток Jetty освобождается, ответ соберёт SyncCallWait по завершении исходящего или по тайм-ауту
+        final String soapAction4Response = soapAction;
+        final boolean isDebugged4Response = isDebugged;
+        final Charset PropEncoding_Out4Response = PropEncoding_Out;
+        final String PropCustomFault_Server_Begin4Response = PropCustomFault_Server_Begin;
+        final String PropCustomFault_Server_End4Response = PropCustomFault_Server_End;
+        messageReceiveTask.SyncWait.start( theadDataAccess, (Finish_Queue_ID, Finish_theadDataAccess) ->
+                postDeferredResult.setResult( PostHttpResponse( Finish_Queue_ID, Message, Finish_theadDataAccess, postResponse, soapAction4Response, isDebugged4Response,
+                                                                PropEncoding_Out4Response, PropCustomFault_Server_Begin4Response, PropCustomFault_Server_End4Response ) ) );
+        return null;
+    }
+    return PostHttpResponse( Queue_ID, Message, theadDataAccess, postResponse, soapAction, isDebugged,
+                             PropEncoding_Out, PropCustomFault_Server_Begin, PropCustomFault_Server_End );
+    } finally {
+            if (messageReceiveTask.theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( messageReceiveTask.theadDataAccess, Controller_log );
+                messageReceiveTask.theadDataAccess = null;
+            }
+
+    }
+    }
+
+    // ответ PostHttpRequest по результату ProcessInputMessage(), сессию theadDataAccess возвращает в пул
+    private byte[] PostHttpResponse( Long Queue_ID, MessageDetails Message, TheadDataAccess theadDataAccess, HttpServletResponse postResponse, String soapAction,
+                                     boolean isDebugged, Charset PropEncoding_Out, String PropCustomFault_Server_Begin, String PropCustomFault_Server_End ) {
+    try
+    {
+    long Response_Build_Nanos = PipelineMetrics.start();
 
     // Controller_log.info("SOAP_1_1_CONTENT_TYPE=" + SOAP_1_1_CONTENT_TYPE );
 
@@ -250,73 +298,36 @@ public class PostController {
                 String OutResponse = Envelope_Begin + Empty_Header + Body_Begin +
                         Message.XML_MsgResponse.toString() +
                         Body_End + Envelope_End;
-                if ( messageReceiveTask.theadDataAccess != null)
+                if ( theadDataAccess != null)
                 {
                     if (isDebugged) {
                         Controller_log.warn("OutResponse:[" + OutResponse + "]" );
-                        messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
-                    }
-                    try {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    } catch (SQLException SQLe) {
-                        Controller_log.error(SQLe.getMessage());
-                        Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                        SQLe.printStackTrace();
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
                     }
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
                 }
                 Controller_log.info("DataSourcePool " + ApplicationProperties.DataSourcePoolMetadata.getActive());
+                PipelineMetrics.receive( "response_build", Message.MessageTemplate4Perform, Response_Build_Nanos );
                 return OutResponse.getBytes();
             } else {  // это ЛИРА или другой XML over Http-POST ,  например О20:(
-                postResponse.setContentType("text/xml; charset=" + PropEncoding_Out);
-                try {
-                    // очищаем использованный XML_MsgConfirmation
-                    Message.XML_MsgConfirmation.setLength(0);
-                    Message.XML_MsgConfirmation.trimToSize();
-                    byte[] OutResponse = Message.XML_MsgResponse.toString().getBytes(PropEncoding_Out);
-                    Message.XML_MsgConfirmation.append(new String(OutResponse));
+                postResponse.setContentType("text/xml; charset=" + PropEncoding_Out.name());
+                // очищаем использованный XML_MsgConfirmation
+                Message.XML_MsgConfirmation.setLength(0);
+                Message.XML_MsgConfirmation.trimToSize();
+                byte[] OutResponse = Message.XML_MsgResponse.toString().getBytes(PropEncoding_Out);
+                Message.XML_MsgConfirmation.append(new String(OutResponse));
+                if (isDebugged)
+                    Controller_log.warn("XML_MsgResponse Encoding  (" + PropEncoding_Out + "):" + Message.XML_MsgConfirmation);
+                if ( theadDataAccess != null) {
                     if (isDebugged)
-                        Controller_log.warn("XML_MsgResponse Encoding  (" + PropEncoding_Out + "):" + Message.XML_MsgConfirmation);
-                    if ( messageReceiveTask.theadDataAccess != null) {
-                        if (isDebugged)
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, Message.XML_MsgResponse.toString(), Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
-                    }
-                    Controller_log.info("Post DataSourcePool " + DataSourcePoolMetadata.getActive());
-                    return OutResponse;
-                    // Message.XML_MsgConfirmation.append(Message.XML_MsgResponse.toString().getBytes(PropEncoding_Out) );
-                } catch (UnsupportedEncodingException e) {
-                    System.err.println("[ XML_MsgResponse Encoding:" + PropEncoding_Out + "] UnsupportedEncodingException");
-                    e.printStackTrace();
-                    Controller_log.error("XML_MsgResponse Encoding fault (" + PropEncoding_Out + ") UnsupportedEncodingException:" + e.getMessage());
-                    String OutResponse = Fault_Server_noNS_Begin  + "XML_MsgResponse Encoding fault (" + PropEncoding_Out + ") UnsupportedEncodingException:" + e.getMessage() +
-                                         Fault_noNS_End;
-                    if ( messageReceiveTask.theadDataAccess != null)
-                    {
-                        if (isDebugged)
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
-                    }
-                    Controller_log.info("Post DataSourcePool " + DataSourcePoolMetadata.getActive());
-                    return OutResponse.getBytes();
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, Message.XML_MsgResponse.toString(), Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
                 }
+                Controller_log.info("Post DataSourcePool " + DataSourcePoolMetadata.getActive());
+                PipelineMetrics.receive( "response_build", Message.MessageTemplate4Perform, Response_Build_Nanos );
+                return OutResponse;
             }
         } else {
             postResponse.setStatus(500);
@@ -326,18 +337,11 @@ public class PostController {
                     String OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Client_Begin +
                             XML.escape(Message.MsgReason.toString()) +
                             Fault_End + Body_End + Envelope_End;
-                    if (messageReceiveTask.theadDataAccess != null) { // SOAP был был распознан
+                    if (theadDataAccess != null) { // SOAP был был распознан
                         if (isDebugged)
-                            messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
+                            theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
+                        TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                        theadDataAccess = null;
                     }
                     Controller_log.info("Post DataSourcePool " + DataSourcePoolMetadata.getActive());
                     return OutResponse.getBytes();
@@ -346,19 +350,12 @@ public class PostController {
                     String OutResponse = Envelope_Begin + Empty_Header + Body_Begin + Fault_Server_Begin +
                             XML.escape(Message.MsgReason.toString()) +
                             Fault_End + Body_End + Envelope_End;
-                    if ( messageReceiveTask.theadDataAccess != null)
+                    if ( theadDataAccess != null)
                     {
                     if (isDebugged)
-                        messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
-                        try {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        } catch (SQLException SQLe) {
-                            Controller_log.error(SQLe.getMessage());
-                            Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                            SQLe.printStackTrace();
-                        }
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
+                        TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                        theadDataAccess = null;
                     }
                     Controller_log.info("Post DataSourcePool " + DataSourcePoolMetadata.getActive());
                     return OutResponse.getBytes();
@@ -380,53 +377,39 @@ public class PostController {
 
 
 
-                if ( messageReceiveTask.theadDataAccess != null) {
+                if ( theadDataAccess != null) {
                     if (isDebugged)
-                        messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
-                    try {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    } catch (SQLException SQLe) {
-                        Controller_log.error(SQLe.getMessage());
-                        Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                        SQLe.printStackTrace();
-                    }
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, OutResponse, Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
                 }
                 Controller_log.info("Post DataSourcePool " + DataSourcePoolMetadata.getActive());
-                try  {
                 return OutResponse.getBytes(PropEncoding_Out);
-            } catch (UnsupportedEncodingException e) {
-                    System.err.println("[ XML_MsgResponse Encoding:" + PropEncoding_Out + "] UnsupportedEncodingException");
-                    e.printStackTrace();
-                    Controller_log.error("XML_MsgResponse Encoding fault (" + PropEncoding_Out + ") UnsupportedEncodingException:" + e.getMessage());
-                    return OutResponse.getBytes();
-                }
             }
         }
     } finally {
-            if (messageReceiveTask.theadDataAccess != null) {
-                try {
-                    if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                        messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                } catch (SQLException SQLe) {
-                    Controller_log.error("finally: Hermes_Connection.close() fault:" + SQLe.getMessage());
-                    SQLe.printStackTrace();
-
-                }
+            if (theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
             }
 
     }
-
-
     }
 
     @PostMapping(path = {"/MsgBusService/InternalRestApi/**","/HermesService/InternalRestApi/**"}, produces = MediaType.ALL_VALUE, consumes = MediaType.ALL_VALUE)
     // @ResponseStatus(HttpStatus.OK)
     @ResponseBody
     public
-    String PostHermesRestApi(ServletRequest postServletRequest, HttpServletResponse postResponse)
+    DeferredResult<String> PostHermesRestApi(ServletRequest postServletRequest, HttpServletResponse postResponse)
+    {
+        DeferredResult<String> postDeferredResult = new DeferredResult<>( SyncCallWait.AsyncTimeout );
+        String HttpResponse = PerformPostHermesRestApi(postServletRequest, postResponse, postDeferredResult);
+        if ( HttpResponse != null ) // ответ готов без ожидания исходящего
+            postDeferredResult.setResult( HttpResponse );
+        return postDeferredResult;
+    }
+
+    // null - ответ в postDeferredResult выставит SyncCallWait
+    private String PerformPostHermesRestApi(ServletRequest postServletRequest, HttpServletResponse postResponse, DeferredResult<String> postDeferredResult)
     {
         InputStream inputStream = null;
         HttpServletRequest httpRequest = (HttpServletRequest) postServletRequest;
@@ -689,8 +672,45 @@ public class PostController {
             int MessageTemplateVOkey = MessageRepositoryHelper.look4MessageTemplate_2_Interface(Interface_id, Controller_log);
             int MessageOperationId = Integer.parseInt(OperationId);
 
+            // ожидание исходящего - без потока, ответ тогда соберёт SyncCallWait
+            messageReceiveTask.isSyncWaitDeferred = true;
             Long Queue_ID = messageReceiveTask.ProcessRestAPIMessage(Interface_id, Message, MessageOperationId, isDebugged);
+            // сессию дальше держит тот, кто строит ответ
+            TheadDataAccess theadDataAccess = messageReceiveTask.theadDataAccess;
+            messageReceiveTask.theadDataAccess = null;
+            if ( messageReceiveTask.SyncWait != null ) {
+                // исходящее ещё не готово: поток Jetty освобождается, ответ соберёт SyncCallWait по завершении исходящего или по тайм-ауту
+                final boolean isLooked4MessageTypeURL_SOAP_Ack_RestXML4Response = isLooked4MessageTypeURL_SOAP_Ack_RestXML;
+                final boolean isDebugged4Response = isDebugged;
+                messageReceiveTask.SyncWait.start( theadDataAccess, (Finish_Queue_ID, Finish_theadDataAccess) ->
+                        postDeferredResult.setResult( PostHermesRestApiResponse( Finish_Queue_ID, Message, Finish_theadDataAccess, postResponse, Url_Soap_Send,
+                                                                                 isLooked4MessageTypeURL_SOAP_Ack_RestXML4Response, isDebugged4Response ) ) );
+                HttpResponse = null; // ответ в postDeferredResult выставит SyncCallWait
+                return HttpResponse;
+            }
+            HttpResponse = PostHermesRestApiResponse( Queue_ID, Message, theadDataAccess, postResponse, Url_Soap_Send,
+                                                      isLooked4MessageTypeURL_SOAP_Ack_RestXML, isDebugged );
+        }
+        catch ( Exception RestAPI_ReceiveTaskE) {
+            Controller_log.error( "RestAPI_ReceiveTask Exception: " + RestAPI_ReceiveTaskE.getMessage());
+            System.err.println(strInterruptedException (RestAPI_ReceiveTaskE) ); //.printStackTrace();
+            HttpResponse = Fault_Server_Rest_Begin + "RestAPI_ReceiveTask Exception: " + RestAPI_ReceiveTaskE.getMessage() + Fault_Rest_End;
+        }
+        finally {
+            if ( messageReceiveTask != null)
+                if (messageReceiveTask.theadDataAccess != null) {
+                    TheadDataAccessPool.releaseTheadDataAccess( messageReceiveTask.theadDataAccess, Controller_log );
+                    messageReceiveTask.theadDataAccess = null;
+                }
+             return HttpResponse;
+        }
+    }
 
+    // ответ PostHermesRestApi по результату ProcessRestAPIMessage(), сессию theadDataAccess возвращает в пул
+    private String PostHermesRestApiResponse( Long Queue_ID, MessageDetails Message, TheadDataAccess theadDataAccess, HttpServletResponse postResponse,
+                                              String Url_Soap_Send, boolean isLooked4MessageTypeURL_SOAP_Ack_RestXML, boolean isDebugged ) {
+        String HttpResponse = null;
+        try {
             if (Queue_ID == 0L) {
                 postResponse.setStatus(200);
                 if (MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(Url_Soap_Send, Controller_log))
@@ -742,17 +762,9 @@ public class PostController {
                     HttpResponse = jsonPrettyPrintString;
                     Controller_log.warn("JSON-HttpResponse готов [{}]", jsonPrettyPrintString);
                     if (isDebugged)
-                        messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
-                    try {
-                        if (messageReceiveTask.theadDataAccess != null) {
-                            if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                                messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                            messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                        }
-                    } catch (SQLException SQLe) {
-                        Controller_log.error("Hermes_Connection.close() fault:{}" , SQLe.getMessage());
-                        System.err.println(strInterruptedException(SQLe));
-                    }
+                        theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
+                    TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                    theadDataAccess = null;
                     Controller_log.info("jsonPrettyPrint:[{}] DataSourcePool={}", jsonPrettyPrintString, DataSourcePoolMetadata.getActive());
                     postResponse.setContentType("application/json;Charset=UTF-8");
 
@@ -767,18 +779,11 @@ public class PostController {
 
             postResponse.setContentType("application/json;Charset=UTF-8");
         }
-            if (messageReceiveTask.theadDataAccess != null) {
+            if (theadDataAccess != null) {
                 if (isDebugged)
-                    messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
-                try {
-                    if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                        messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                    messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                } catch (SQLException SQLe) {
-                    Controller_log.error(SQLe.getMessage());
-                    Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                    System.err.println( strInterruptedException( SQLe ) );
-                }
+                    theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
             }
             Controller_log.warn("HttpResponse: !!" + HttpResponse );
             return HttpResponse;
@@ -789,20 +794,11 @@ public class PostController {
             HttpResponse = Fault_Server_Rest_Begin + "RestAPI_ReceiveTask Exception: " + RestAPI_ReceiveTaskE.getMessage() + Fault_Rest_End;
         }
         finally {
-            if ( messageReceiveTask != null)
-                if (messageReceiveTask.theadDataAccess != null) {
-                    try {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    } catch (SQLException SQLe) {
-                        Controller_log.error(SQLe.getMessage());
-                        Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                        SQLe.printStackTrace();
-                        return HttpResponse;
-                    }
-                }
-             return HttpResponse;
+            if (theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
+            }
+            return HttpResponse;
         }
     }
 
@@ -7,7 +7,7 @@ import net.plumbing.msgbus.common.ApplicationProperties;
 import net.plumbing.msgbus.threads.utils.MessageRepositoryHelper;
 
 import net.plumbing.msgbus.mq.StoreMQpooledConnectionFactory;
-import net.plumbing.msgbus.mq.PerformTextMessageJMSQueue;
+import net.plumbing.msgbus.mq.JMSReplyDispatcher;
 
 import jakarta.jms.JMSException;
 import java.sql.PreparedStatement;
@@ -83,13 +83,12 @@ public class PushMessage2ActiveMQ {
             MsgReason.append("НЕ удалось Найти подходящйю систему для № потока "+ theadNum + " она нужна для очереди сообщений ActiveMQ");
             return Queue_Id;
         }
-        PerformTextMessageJMSQueue performTextMessageJMSQueue = new PerformTextMessageJMSQueue();
-        jakarta.jms.Connection Qconnection = null;
         try {
             MessegeReceive_Log.info("[" + pQueue_ID +"] Пробуем отправить сообщение QUEUE_ID: "+ Queue_Id + " в очередь сообщений ActiveMQ \'Q." + MessageDirectionsCode + ".IN'");
-             Qconnection = performTextMessageJMSQueue.SendTextMessageJMSQueue(
+            // ответа не ждём
+            JMSReplyDispatcher.send(
                     "{ \"QUEUE_ID\": \"" + Queue_Id.toString() + "\" }",
-                    "Q." + MessageDirectionsCode + ".IN",
+                    "Q." + MessageDirectionsCode + ".IN", false,
                     StoreMQpooledConnectionFactory.MQpooledConnectionFactory
             );
         } catch (JMSException e) {
@@ -10,7 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-//import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResult;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,19 +18,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import net.plumbing.msgbus.common.ClientIpHelper;
 import net.plumbing.msgbus.common.json.JSONException;
 import net.plumbing.msgbus.model.MessageTemplate;
+import net.plumbing.msgbus.model.MessageTemplate4Perform;
 import net.plumbing.msgbus.threads.utils.MessageRepositoryHelper;
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
 
 
 import java.io.*;
 import java.nio.charset.IllegalCharsetNameException;
-import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.Properties;
 
 import static net.plumbing.msgbus.common.XMLchars.*;
 import static net.plumbing.msgbus.common.ApplicationProperties.DataSourcePoolMetadata;
 import static net.plumbing.msgbus.common.sStackTrace.strInterruptedException;
-import static net.plumbing.msgbus.model.MessageTemplateVO.PropDebug;
 
 @RestController
 public class PutController {
@@ -39,7 +39,17 @@ public class PutController {
     @ResponseStatus(HttpStatus.OK)
     @ResponseBody
     public
-    String PutHermesRestApi(ServletRequest postServletRequest, HttpServletResponse postResponse)
+    DeferredResult<String> PutHermesRestApi(ServletRequest postServletRequest, HttpServletResponse postResponse)
+    {
+        DeferredResult<String> putDeferredResult = new DeferredResult<>( SyncCallWait.AsyncTimeout );
+        String HttpResponse = PerformPutHermesRestApi(postServletRequest, postResponse, putDeferredResult);
+        if ( HttpResponse != null ) // ответ готов без ожидания исходящего
+            putDeferredResult.setResult( HttpResponse );
+        return putDeferredResult;
+    }
+
+    // null - ответ в putDeferredResult выставит SyncCallWait
+    private String PerformPutHermesRestApi(ServletRequest postServletRequest, HttpServletResponse postResponse, DeferredResult<String> putDeferredResult)
     {
         InputStream inputStream = null;
         HttpServletRequest httpRequest = (HttpServletRequest) postServletRequest;
@@ -86,37 +96,17 @@ public class PutController {
 
         if (MessageTemplateVOkey >= 0)
         {
-            String ConfigExecute = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getConfigExecute();
-            Controller_log.info("ConfigExecute:" + ConfigExecute);
-            if (ConfigExecute != null) {
-                Properties properties = new Properties();
-                InputStream propertiesStream = new ByteArrayInputStream(ConfigExecute.getBytes(StandardCharsets.UTF_8));
-                try {
-                    properties.load(propertiesStream);
-                    for (String key : properties.stringPropertyNames()) {
-                        if (key.equals(PropDebug)) {
-                            Controller_log.info("PropDebug Property[" + key + "]=[" + properties.getProperty(key) + "]");
-                            if ((properties.getProperty(key).equalsIgnoreCase("on")) ||
-                                    (properties.getProperty(key).equalsIgnoreCase("full"))
-                            ) {
-                                isDebugged = true;
-                            }
-//                            if ((properties.getProperty(key).equalsIgnoreCase("ON")) ||
-//                                    (properties.getProperty(key).equalsIgnoreCase("FULL"))
-//                            ) {
-//                                isDebugged = true;
-//                            }
-                        }
-                    }
-                } catch (IOException ioException) {
-                    postResponse.setStatus(500);
-                    ioException.printStackTrace(System.err);
-                    Controller_log.error("properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage());
-                    String OutResponse = Fault_Client_Rest_Begin +
-                            "properties.load('" + ConfigExecute + "') fault:" + ioException.getMessage() +
-                            Fault_Rest_End;
-                    return OutResponse;
-                }
+            // ConfigExecute разобран один раз при загрузке шаблона - берём готовые настройки из плана
+            MessageTemplate4Perform messageTemplate4Perform =
+                    MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getMessageTemplate4Perform(Controller_log);
+            isDebugged = messageTemplate4Perform.getIsDebugged();
+            if ( messageTemplate4Perform.getConfigExecute_Fault() != null ) {
+                postResponse.setStatus(500);
+                Controller_log.error(messageTemplate4Perform.getConfigExecute_Fault());
+                String OutResponse = Fault_Client_Rest_Begin +
+                        messageTemplate4Perform.getConfigExecute_Fault() +
+                        Fault_Rest_End;
+                return OutResponse;
             }
         }
 
@@ -161,8 +151,46 @@ public class PutController {
             // получив на вход интерфейса (на основе входного URL) ищем для него Шаблон
             int MessageOperationId = Integer.parseInt(OperationId);
 
+            // ожидание исходящего - без потока, ответ тогда соберёт SyncCallWait
+            messageReceiveTask.isSyncWaitDeferred = true;
             Long Queue_ID = messageReceiveTask.ProcessRestAPIMessage(Interface_id, Message, MessageOperationId, isDebugged);
+            // сессию дальше держит тот, кто строит ответ
+            TheadDataAccess theadDataAccess = messageReceiveTask.theadDataAccess;
+            messageReceiveTask.theadDataAccess = null;
+            if ( messageReceiveTask.SyncWait != null ) {
+                // исходящее ещё не готово: поток Jetty освобождается, ответ соберёт SyncCallWait по завершении исходящего или по тайм-ауту
+                final boolean isDebugged4Response = isDebugged;
+                messageReceiveTask.SyncWait.start( theadDataAccess, (Finish_Queue_ID, Finish_theadDataAccess) -> {
+                    String PutResponse = PutHermesRestApiResponse( Finish_Queue_ID, Message, Finish_theadDataAccess, postResponse, Url_Soap_Send, isDebugged4Response );
+                    // @ResponseStatus(HttpStatus.OK) выставляется до отложенного ответа, а не после, как при ответе сразу - статус тот же 200
+                    postResponse.setStatus(200);
+                    putDeferredResult.setResult( PutResponse );
+                } );
+                HttpResponse = null; // ответ в putDeferredResult выставит SyncCallWait
+                return HttpResponse;
+            }
+            HttpResponse = PutHermesRestApiResponse( Queue_ID, Message, theadDataAccess, postResponse, Url_Soap_Send, isDebugged );
+        }
+        catch ( Exception RestAPI_ReceiveTaskE) {
+            Controller_log.error( "RestAPI_ReceiveTask Exception: " + RestAPI_ReceiveTaskE.getMessage());
+            System.err.println(strInterruptedException (RestAPI_ReceiveTaskE) ); //.printStackTrace();
+            HttpResponse = Fault_Server_Rest_Begin + "RestAPI_ReceiveTask Exception: " + RestAPI_ReceiveTaskE.getMessage() + Fault_Rest_End;
+        }
+        finally {
+            if ( messageReceiveTask != null)
+                if (messageReceiveTask.theadDataAccess != null) {
+                    TheadDataAccessPool.releaseTheadDataAccess( messageReceiveTask.theadDataAccess, Controller_log );
+                    messageReceiveTask.theadDataAccess = null;
+                }
+            return HttpResponse;
+        }
+    }
 
+    // ответ PutHermesRestApi по результату ProcessRestAPIMessage(), сессию theadDataAccess возвращает в пул
+    private String PutHermesRestApiResponse( Long Queue_ID, MessageDetails Message, TheadDataAccess theadDataAccess, HttpServletResponse postResponse,
+                                             String Url_Soap_Send, boolean isDebugged ) {
+        String HttpResponse = null;
+        try {
             if (Queue_ID == 0L)
             {
                 postResponse.setStatus(200);
@@ -204,18 +232,9 @@ public class PutController {
                 HttpResponse = jsonPrettyPrintString;
                 Controller_log.warn("JSON-HttpResponse готов [" + jsonPrettyPrintString + "]" );
                 if (isDebugged)
-                    messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
-                try {
-                    if (messageReceiveTask.theadDataAccess != null) {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    }
-                } catch (SQLException SQLe) {
-                    Controller_log.error(SQLe.getMessage());
-                    Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                    System.err.println( strInterruptedException( SQLe ) );
-                }
+                    theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, jsonPrettyPrintString, Controller_log);
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
                 Controller_log.info( "jsonPrettyPrint:[" + jsonPrettyPrintString +"] DataSourcePool=" + DataSourcePoolMetadata.getActive() );
                 postResponse.setContentType("application/json;Charset=UTF-8");
 
@@ -229,18 +248,11 @@ public class PutController {
             }
 
             postResponse.setContentType("application/json;Charset=UTF-8");
-            if (messageReceiveTask.theadDataAccess != null) {
+            if (theadDataAccess != null) {
                 if (isDebugged)
-                    messageReceiveTask.theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
-                try {
-                    if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                        messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                    messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                } catch (SQLException SQLe) {
-                    Controller_log.error(SQLe.getMessage());
-                    Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                    System.err.println( strInterruptedException( SQLe ) );
-                }
+                    theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, HttpResponse, Controller_log);
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
             }
             Controller_log.warn("HttpResponse: !!" + HttpResponse );
             return HttpResponse;
@@ -251,19 +263,10 @@ public class PutController {
             HttpResponse = Fault_Server_Rest_Begin + "RestAPI_ReceiveTask Exception: " + RestAPI_ReceiveTaskE.getMessage() + Fault_Rest_End;
         }
         finally {
-            if ( messageReceiveTask != null)
-                if (messageReceiveTask.theadDataAccess != null) {
-                    try {
-                        if (messageReceiveTask.theadDataAccess.Hermes_Connection != null)
-                            messageReceiveTask.theadDataAccess.Hermes_Connection.close();
-                        messageReceiveTask.theadDataAccess.Hermes_Connection = null;
-                    } catch (SQLException SQLe) {
-                        Controller_log.error(SQLe.getMessage());
-                        Controller_log.error("Hermes_Connection.close() fault:" + SQLe.getMessage());
-                        SQLe.printStackTrace();
-                        return HttpResponse;
-                    }
-                }
+            if (theadDataAccess != null) {
+                TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, Controller_log );
+                theadDataAccess = null;
+            }
             return HttpResponse;
         }
     }
@@ -6,6 +6,7 @@ import net.plumbing.msgbus.common.sStackTrace;
 import net.plumbing.msgbus.common.xlstErrorListener;
 import net.plumbing.msgbus.model.*;
 import net.plumbing.msgbus.threads.TheadDataAccess;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
 import org.jdom2.input.JDOMParseException;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
@@ -24,6 +25,10 @@ public class RestAPI_ReceiveTask {
     // private ThreadSafeClientConnManager externalConnectionManager;
     private xlstErrorListener XSLTErrorListener=null;
     public TheadDataAccess theadDataAccess=null;
+    // true - контроллер продолжит вызов по SyncWait ( DeferredResult ), ожидание исходящего не держит поток
+    public boolean isSyncWaitDeferred = false;
+    // не null - ProcessRestAPIMessage() вернул SyncCallWait.Pending, исходящее ещё не готово
+    public SyncCallWait SyncWait = null;
     private final String EventInitiator = "HRMS";
 
 
@@ -98,19 +103,13 @@ public class RestAPI_ReceiveTask {
         MessageQueueVO messageQueueVO = new MessageQueueVO();
 
         // TheadDataAccess
-        this.theadDataAccess = new TheadDataAccess();
         // Установаливем " соединение" , что бы зачитывать очередь
         //  theadDataAccess.setDbSchema( ApplicationProperties.HrmsSchema ); - перенесён в make_Hikari_Connection(), что бы не забылось нигде!
         if ( isDebugged )
             RestAPI_Receive_Log.info("Установаливем соединение с БД, что бы зачитывать очередь: [{}] user:{}; passwd:{}.",
                                       ApplicationProperties.HrmsPoint, ApplicationProperties.hrmsDbLogin, ApplicationProperties.hrmsDbPasswd);
-        theadDataAccess.make_Hikari_Connection(
-                ApplicationProperties.HrmsSchema,
-                ApplicationProperties.hrmsDbLogin,
-                ApplicationProperties.dataSource,
-                ApplicationProperties.InternalDbPgSetupConnection,
-                RestAPI_Receive_Log
-        );
+        // сессия с уже подготовленными PreparedStatement-ами берётся из пула, возвращает её контроллер
+        this.theadDataAccess = TheadDataAccessPool.borrowTheadDataAccess( RestAPI_Receive_Log );
         if ( theadDataAccess.Hermes_Connection == null ){
             Message.MsgReason.append("Ошибка на приёме сообщения - theadDataAccess.make_Hikari_Connection return: NULL!"  );
             return -2L;
@@ -270,12 +269,14 @@ public class RestAPI_ReceiveTask {
         Message.XML_MsgResponse.setLength(0); Message.XML_MsgResponse.trimToSize();
 
         PerfotmInputMessages Perfotmer = new PerfotmInputMessages();
+        Perfotmer.isSyncWaitDeferred = this.isSyncWaitDeferred;
         Message.ReInitMessageDetails() ; // sslContext, httpClientBuilder, null, ApiRestHttpClient );
         try {
 
             // Обрабатываем сообщение!
             Function_Result = Perfotmer.performMessage(Message, messageQueueVO, theadDataAccess,
                                                        ConvXMLuseXSLTerr,  RestAPI_Receive_Log );
+            this.SyncWait = Perfotmer.SyncWait;
 
         }
         catch (Exception e) {
@@ -0,0 +1,176 @@
+package net.plumbing.msgbus.controller;
+
+import net.plumbing.msgbus.model.MessageDetails;
+import net.plumbing.msgbus.model.MessageQueueVO;
+import net.plumbing.msgbus.mq.PerformTextMessageJMSQueue;
+import net.plumbing.msgbus.threads.QueueFinishListener;
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import net.plumbing.msgbus.threads.TheadDataAccessPool;
+import net.plumbing.msgbus.threads.utils.MessageUtils;
+import net.plumbing.msgbus.threads.utils.PipelineMetrics;
+import org.slf4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Ожидание исходящего ( Link_Queue_Id ) синхронного вызова без потока.
+// performMessage() доходит до ожидания и возвращает Pending, контроллер отдаёт DeferredResult, а сессию theadDataAccess
+// вызов на время ожидания возвращает в TheadDataAccessPool. Статус OUT перечитывается в WaitExecutor: сразу - по NOTIFY
+// от QueueFinishListener или по ответу на JMS-"будильник", иначе по таймеру, раз в 2 секунды как прежний цикл, а при
+// работающем LISTEN - раз в RecheckInterval. На Wait_Deadline - последняя проверка, и если OUT не готов, вызов завершается
+// тем же -51 ( "не отработало за отведенное на это время" ), что и прежний цикл.
+// performAfterSyncWait() и ответ контроллера ( Finish ) выполняются в WaitExecutor на сессии, взятой для последней проверки.
+public class SyncCallWait {
+    // performMessage() вернул: исходящее ждём без потока, результат получит Finish
+    public static final long Pending = Long.MIN_VALUE;
+    // тайм-аут DeferredResult: без тайм-аута AsyncContext, ожидание ограничивает Wait_Deadline, по нему ответ тот же, что и прежде
+    public static final long AsyncTimeout = -1L;
+
+    // продолжение вызывающего: Queue_ID - результат performMessage(), theadDataAccess - сессия, её Finish возвращает в пул
+    public interface Finish {
+        void finish( Long Queue_ID, TheadDataAccess theadDataAccess );
+    }
+
+    // потоки только проверяют статус и завершают вызовы, ожидание их не держит; размер - hermes.sync-wait-threads-max
+    private static final ScheduledThreadPoolExecutor WaitExecutor = new ScheduledThreadPoolExecutor( 16,
+            Thread.ofPlatform().daemon(true).name( "sync-Wait-", 0 ).factory() );
+    static {
+        WaitExecutor.setRemoveOnCancelPolicy(true);
+    }
+    private static final AtomicInteger Waiting = new AtomicInteger(0);
+    private static final AtomicLong FinishedCount = new AtomicLong(0L);
+    private static final AtomicLong ExpiredCount = new AtomicLong(0L);
+
+    private final PerfotmInputMessages Perfotmer;
+    private final MessageDetails Message;
+    private final MessageQueueVO messageQueueVO;
+    private final StringBuilder ConvXMLuseXSLTerr;
+    private final String Queue_Direction;
+    private final Long Queue_Id;
+    private final Long Link_Queue_Id;
+    private final int time4wait;
+    private final long Wait_Deadline;
+    private final long Stage_Nanos;
+    private final PerformTextMessageJMSQueue performTextMessageJMSQueue;
+    private final Logger MessegeReceive_Log;
+
+    private Finish finish = null;
+    private CompletableFuture<Long> Link_Queue_Finish = null;
+    private ScheduledFuture<?> NextCheck = null;
+    private boolean isDone = false;
+
+    SyncCallWait( PerfotmInputMessages Perfotmer, MessageDetails Message, MessageQueueVO messageQueueVO, StringBuilder ConvXMLuseXSLTerr,
+                  String Queue_Direction, Long Link_Queue_Id, int time4wait, long Wait_Deadline, long Stage_Nanos,
+                  PerformTextMessageJMSQueue performTextMessageJMSQueue, Logger MessegeReceive_Log ) {
+        this.Perfotmer = Perfotmer;
+        this.Message = Message;
+        this.messageQueueVO = messageQueueVO;
+        this.ConvXMLuseXSLTerr = ConvXMLuseXSLTerr;
+        this.Queue_Direction = Queue_Direction;
+        this.Queue_Id = messageQueueVO.getQueue_Id();
+        this.Link_Queue_Id = Link_Queue_Id;
+        this.time4wait = time4wait;
+        this.Wait_Deadline = Wait_Deadline;
+        this.Stage_Nanos = Stage_Nanos;
+        this.performTextMessageJMSQueue = performTextMessageJMSQueue;
+        this.MessegeReceive_Log = MessegeReceive_Log;
+    }
+
+    public static void setThreadsMax( int ThreadsMax ) {
+        WaitExecutor.setCorePoolSize( ThreadsMax );
+    }
+
+    // Вызывающий отдаёт сессию и продолжение и сразу возвращается, поток не ждёт.
+    public void start( TheadDataAccess theadDataAccess, Finish finish ) {
+        this.finish = finish;
+        Waiting.incrementAndGet();
+        TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, MessegeReceive_Log );
+        CompletableFuture<String> Reply = performTextMessageJMSQueue.getReplyFuture();
+        if ( Reply != null )
+            Reply.thenRun( this::wakeUp );
+        wakeUp();
+    }
+
+    // из потока QueueFinishListener, JMS или таймера - сама проверка идёт в WaitExecutor
+    private void wakeUp() {
+        try {
+            WaitExecutor.execute( this::check );
+        } catch ( RejectedExecutionException e ) {
+            check();
+        }
+    }
+
+    private synchronized void check() {
+        if ( isDone )
+            return;
+        if ( NextCheck != null )
+            NextCheck.cancel(false);
+        // регистрируемся ДО проверки статуса в БД, иначе NOTIFY между проверкой и ожиданием будет потерян
+        if ( QueueFinishListener.isListening() && ( Link_Queue_Finish == null || Link_Queue_Finish.isDone() ) ) {
+            Link_Queue_Finish = QueueFinishListener.register( Link_Queue_Id );
+            Link_Queue_Finish.thenRun( this::wakeUp );
+        }
+        TheadDataAccess theadDataAccess = TheadDataAccessPool.borrowTheadDataAccess( MessegeReceive_Log );
+        boolean isLink_Queue_Finish = false;
+        if ( theadDataAccess.Hermes_Connection != null )
+            isLink_Queue_Finish = MessageUtils.isLink_Queue_Finish( theadDataAccess, Link_Queue_Id, Message.MessageTemplate4Perform.getIsDebugged(), MessegeReceive_Log );
+        long Wait_Millis = Wait_Deadline - System.currentTimeMillis();
+        if ( isLink_Queue_Finish || Wait_Millis <= 0 ) {
+            isDone = true;
+            done( isLink_Queue_Finish, theadDataAccess );
+            return;
+        }
+        TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, MessegeReceive_Log );
+        if ( Message.MessageTemplate4Perform.getIsDebugged() )
+            MessegeReceive_Log.warn( "[{}] OUT Link_Queue_Id={} не готов, ждём ещё {} мс из {} секунд", Queue_Id, Link_Queue_Id, Wait_Millis, time4wait );
+        // если LISTEN отвалится - перечитываем раз в 2 секунды на оставшееся время
+        long Recheck_Millis = QueueFinishListener.isListening() ? QueueFinishListener.RecheckInterval * 1000L : 2 * 1000L;
+        try {
+            NextCheck = WaitExecutor.schedule( this::check, Math.min( Recheck_Millis, Wait_Millis ), TimeUnit.MILLISECONDS );
+        } catch ( RejectedExecutionException e ) { // остановка: дальше не ждём
+            isDone = true;
+            done( false, TheadDataAccessPool.borrowTheadDataAccess( MessegeReceive_Log ) );
+        }
+    }
+
+    private void done( boolean isLink_Queue_Finish, TheadDataAccess theadDataAccess ) {
+        QueueFinishListener.unregister( Link_Queue_Id );
+        performTextMessageJMSQueue.Stop_and_Close_MessageJMSQueue( Queue_Id, MessegeReceive_Log );
+        PipelineMetrics.receive( "sync_wait", Message.MessageTemplate4Perform, Stage_Nanos );
+        Waiting.decrementAndGet();
+        if ( isLink_Queue_Finish ) FinishedCount.incrementAndGet();
+        else ExpiredCount.incrementAndGet();
+
+        long Function_Result = 0L;
+        if ( theadDataAccess.Hermes_Connection == null ) {
+            Message.MsgReason.append("Ошибка на приёме сообщения - theadDataAccess.make_Hikari_Connection return: NULL!"  );
+            Function_Result = -2L;
+        }
+        else
+        try {
+            // ждём только при is_NoWait4Sender == false
+            Function_Result = Perfotmer.performAfterSyncWait( Message, messageQueueVO, theadDataAccess, ConvXMLuseXSLTerr, Queue_Direction,
+                                                              Link_Queue_Id, false, isLink_Queue_Finish, time4wait, MessegeReceive_Log );
+        } catch ( Exception e ) { // как в MessageReceiveTask.ProcessInputMessage()
+            MessegeReceive_Log.error("performMessage Exception Queue_Id:[{}] {}", Queue_Id, e.getMessage(), e );
+            MessageUtils.ProcessingIn2ErrorIN( messageQueueVO, Message, theadDataAccess,
+                    "performMessage Exception fault:"  + e.getMessage() + " " + Message.XML_MsgClear.toString()  ,
+                    null ,  MessegeReceive_Log);
+        }
+        try {
+            finish.finish( Function_Result, theadDataAccess );
+        } catch ( RuntimeException e ) {
+            MessegeReceive_Log.error( "[{}] SyncCallWait: ответ на синхронный вызов не сформирован: {}", Queue_Id, e.getMessage(), e );
+        }
+    }
+
+    public static String getStatistics() {
+        return "SyncCallWait: waiting=" + Waiting.get() + " finished=" + FinishedCount.get() + " expired=" + ExpiredCount.get() +
+                " threads=" + WaitExecutor.getPoolSize() + " queued=" + WaitExecutor.getQueue().size();
+    }
+}
@@ -126,6 +126,8 @@ public class ConfigMsgTemplates {
                         break;
                     case "MessageXSD":
                         messageTemplateVO.setMessageXSD( configContent);
+                        if (configContent != null)
+                            messageTemplateVO.makeMessageXSD_schema( AppThead_log );
                         break;
                     case "HeaderXSLT":
                         messageTemplateVO.setHeaderXSLT( configContent);
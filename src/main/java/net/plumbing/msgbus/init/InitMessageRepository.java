@@ -9,11 +9,13 @@ import net.plumbing.msgbus.model.MessageTypeVO;
 import net.plumbing.msgbus.model.MessageType;
 import net.plumbing.msgbus.model.MessageTemplateVO;
 import net.plumbing.msgbus.model.MessageTemplate;
+import net.plumbing.msgbus.model.MessageRepositorySnapshot;
 
 import net.plumbing.msgbus.threads.utils.MessageRepositoryHelper;
 
 
 import java.sql.*;
+import java.util.HashMap;
 
 public class InitMessageRepository {
    // private static PreparedStatement stmtMsgTypeReRead;
@@ -26,9 +28,33 @@ public class InitMessageRepository {
             Logger AppThead_log )
     {         }
 */
-    public static  int ReReadMsgTypes(Long intervalReInit, Logger AppThead_log )  {
+    // Перечитывание изменённых Типов и Шаблонов: копии карт текущего снимка дополняются в стороне и публикуются одним
+    // MessageRepositorySnapshot.publish(), потоки обработки продолжают работать со старым снимком до подмены.
+    // Если перечитывание одного из справочников упало, в снимок идёт его прежняя карта.
+    public static int ReReadMessageRepository(Long intervalReInit, Logger AppThead_log ) {
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        HashMap<Integer, MessageTypeVO> AllMessageType = new HashMap<>( Snapshot.AllMessageType );
+        HashMap<Integer, MessageTemplateVO> AllMessageTemplate = new HashMap<>( Snapshot.AllMessageTemplate );
+
+        int TypesReRead = ReReadMsgTypes( intervalReInit, AllMessageType, AppThead_log );
+        int TemplatesReRead = ReReadMsgTemplates( intervalReInit, AllMessageTemplate, AppThead_log );
+        if ( TypesReRead <= 0 && TemplatesReRead <= 0 ) {
+            AppThead_log.info("ReReadMessageRepository: изменений нет, остаётся снимок v.{}", Snapshot.Version);
+            return 0;
+        }
+        MessageRepositorySnapshot NewSnapshot = MessageRepositorySnapshot.publish( Snapshot.AllMessageDirections,
+                ( TypesReRead > 0 ) ? AllMessageType : Snapshot.AllMessageType,
+                ( TemplatesReRead > 0 ) ? AllMessageTemplate : Snapshot.AllMessageTemplate );
+        AppThead_log.info("ReReadMessageRepository: опубликован снимок v.{}, MsgTypes: {} (перечитано {}), MessageTemplates: {} (перечитано {})",
+                NewSnapshot.Version, NewSnapshot.AllMessageType.size(), TypesReRead, NewSnapshot.AllMessageTemplate.size(), TemplatesReRead);
+        return Math.max(TypesReRead, 0) + Math.max(TemplatesReRead, 0);
+    }
+
+    // дополняет AllMessageType ( копию карты снимка ), возвращает число перечитанных строк или < 0 при ошибке
+    private static  int ReReadMsgTypes(Long intervalReInit, HashMap<Integer, MessageTypeVO> AllMessageType, Logger AppThead_log )  {
 
         int MessageTypeVOkey;
+        int ReReadCount = 0;
         ResultSet rs = null;
 
         if ( DataAccess.Hermes_Connection == null )
@@ -75,12 +101,28 @@ public class InitMessageRepository {
                 MessageTypeVOkey  = MessageRepositoryHelper.look4MessageTypeVO_by_Operation_Id(
                         rs.getInt("interface_id"),
                          rs.getInt("operation_id"), AppThead_log );
+                ReReadCount += 1;
                 if ( MessageTypeVOkey >= 0 ) {
-                    AppThead_log.info("Update MessageTypes[" +   MessageTypeVOkey + "]: Msg_Type " + MessageType.AllMessageType.get( MessageTypeVOkey ).getMsg_Type() );
-                    MessageType.AllMessageType.get( MessageTypeVOkey ).setURL_SOAP_Send( rs.getString("url_soap_send") );
-                    MessageType.AllMessageType.get( MessageTypeVOkey ).setMax_Retry_Count( rs.getInt("max_retry_count") );
-                    MessageType.AllMessageType.get( MessageTypeVOkey ).setMax_Retry_Time( rs.getInt("max_retry_time"));
-                    AppThead_log.info(" Types ["+ MessageTypeVOkey + "] URL_SOAP_Send=" + MessageType.AllMessageType.get( MessageTypeVOkey ).getURL_SOAP_Send());
+                    // опубликованный MessageTypeVO не меняем - на его место встаёт копия с новыми значениями
+                    MessageTypeVO oldMessageTypeVO = AllMessageType.get( MessageTypeVOkey );
+                    AppThead_log.info("Update MessageTypes[" +   MessageTypeVOkey + "]: Msg_Type " + oldMessageTypeVO.getMsg_Type() );
+                    MessageTypeVO messageTypeVO = new MessageTypeVO();
+                    messageTypeVO.setMessageTypeVO(
+                            oldMessageTypeVO.getInterface_Id(),
+                            oldMessageTypeVO.getOperation_Id(),
+                            oldMessageTypeVO.getMsg_Type(),
+                            oldMessageTypeVO.getMsg_Type_own(),
+                            oldMessageTypeVO.getMsg_TypeDesc(),
+                            oldMessageTypeVO.getMsg_Direction(),
+                            oldMessageTypeVO.getMsg_Handler(),
+                            rs.getString("url_soap_send"),
+                            oldMessageTypeVO.getURL_SOAP_Ack(),
+                            rs.getInt("max_retry_count"),
+                            rs.getInt("max_retry_time"),
+                            oldMessageTypeVO.getLast_Update_Dt()
+                    );
+                    AllMessageType.put( MessageTypeVOkey, messageTypeVO );
+                    AppThead_log.info(" Types ["+ MessageTypeVOkey + "] URL_SOAP_Send=" + messageTypeVO.getURL_SOAP_Send());
                 }
                 else {
                     MessageTypeVO messageTypeVO = new MessageTypeVO();
@@ -99,9 +141,9 @@ public class InitMessageRepository {
                             rs.getTimestamp( "Last_Update_Dt")
                     );
 
-                    MessageType.AllMessageType.put(MessageType.RowNum, messageTypeVO);
-                    MessageType.RowNum += 1;
-                    AppThead_log.info(" Types.size=" + MessageType.AllMessageType.size() + ", MessageRowNum[" + MessageType.RowNum + "] :" + messageTypeVO.getMsg_Type());
+                    // ключи строк идут подряд, новая - в конец
+                    AllMessageType.put(AllMessageType.size(), messageTypeVO);
+                    AppThead_log.info(" Types.size=" + AllMessageType.size() + ", MessageRowNum[" + AllMessageType.size() + "] :" + messageTypeVO.getMsg_Type());
                 }
             }
             rs.close();
@@ -126,12 +168,14 @@ public class InitMessageRepository {
             // e.printStackTrace();
             return -2;
         }
-        return MessageType.RowNum;
+        return ReReadCount;
     }
 
-    public static  int ReReadMsgTemplates(Long intervalReInit, Logger AppThead_log )  {
+    // дополняет AllMessageTemplate ( копию карты снимка ), возвращает число перечитанных строк или < 0 при ошибке
+    private static  int ReReadMsgTemplates(Long intervalReInit, HashMap<Integer, MessageTemplateVO> AllMessageTemplate, Logger AppThead_log )  {
         int parseResult;
         int MessageTemplateVOkey;
+        int ReReadCount = 0;
 
         ResultSet rs=null;
         Logger log = AppThead_log;
@@ -172,61 +216,42 @@ public class InitMessageRepository {
             while (rs.next()) {
                 AppThead_log.info("ReReadMsgTemplates: Обновляем template_id[" + rs.getInt("template_id") + "]");
                 MessageTemplateVOkey  = MessageRepositoryHelper.look4MessageTemplate(rs.getInt("template_id"), AppThead_log );
+                ReReadCount += 1;
+                // и для нового, и для изменённого шаблона собирается новый MessageTemplateVO:
+                // опубликованный не меняем, пока его используют потоки обработки
+                MessageTemplateVO messageTemplateVO = new MessageTemplateVO();
+                messageTemplateVO.setMessageTemplateVO(
+                        rs.getInt("template_id"),
+                        rs.getInt("Interface_Id"),
+                        rs.getInt("Operation_Id"),
+                        rs.getInt("Source_Id"),
+                        rs.getString("Src_SubCod"),
+                        rs.getInt("Destin_Id"),
+                        rs.getString("Dst_SubCod"),
+                        rs.getString("Msg_Type"),
+                        rs.getString("Msg_Type_own"),
+                        rs.getString("Template_name"),
+                        rs.getString("Template_Dir"),
+//                        rs.getString("Log_Level"),
+                        "INFO",
+                        rs.getString("Conf_Text"),
+                        rs.getString("LastMaker"),
+                        rs.getString("LastDate")
+                );
+                parseResult = ConfigMsgTemplates.performConfig(messageTemplateVO, log);
+                messageTemplateVO.makeMessageTemplate4Perform(log);
+
                 if ( MessageTemplateVOkey >= 0 ) {
-                    MessageTemplateVO messageTemplateVO = MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey );
-                    messageTemplateVO.setInterface_Id( rs.getInt("Interface_Id") );
-
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setInterface_Id( rs.getInt("Interface_Id") );
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setOperation_Id( rs.getInt("Operation_Id"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setSource_Id(rs.getInt("Source_Id"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setSrc_SubCod(rs.getString("Src_SubCod"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setDestin_Id(rs.getInt("Destin_Id"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setDst_SubCod(rs.getString("Dst_SubCod"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setMsg_Type(rs.getString("Msg_Type"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setMsg_Type_own(rs.getString("Msg_Type_own"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setTemplate_name(rs.getString("Template_name"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setTemplate_Dir(rs.getString("Template_Dir"));
-//                        rs.getString("Log_Level"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setLog_Level("INFO");
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setConf_Text(rs.getString("Conf_Text"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setLastMaker(rs.getString("LastMaker"));
-                    MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ).setLastDate(rs.getString("LastDate"));
-                    parseResult = ConfigMsgTemplates.performConfig(MessageTemplate.AllMessageTemplate.get( MessageTemplateVOkey ), log);
+                    AllMessageTemplate.put(MessageTemplateVOkey, messageTemplateVO);
+                    log.info(" Update AllMessageTemplate[" + MessageTemplateVOkey + "] Template_name:" + messageTemplateVO.getTemplate_name() + " parseConfigResult=" + parseResult);
                 }
                 else {
+                    // ключи строк идут подряд, новая - в конец
+                    MessageTemplateVOkey = AllMessageTemplate.size();
+                    AllMessageTemplate.put(MessageTemplateVOkey, messageTemplateVO);
 
-                    MessageTemplateVO messageTemplateVO = new MessageTemplateVO();
-                    messageTemplateVO.setMessageTemplateVO(
-                            rs.getInt("template_id"),
-                            rs.getInt("Interface_Id"),
-                            rs.getInt("Operation_Id"),
-                            rs.getInt("Source_Id"),
-                            rs.getString("Src_SubCod"),
-                            rs.getInt("Destin_Id"),
-                            rs.getString("Dst_SubCod"),
-                            rs.getString("Msg_Type"),
-                            rs.getString("Msg_Type_own"),
-                            rs.getString("Template_name"),
-                            rs.getString("Template_Dir"),
-//                        rs.getString("Log_Level"),
-                            "INFO",
-                            rs.getString("Conf_Text"),
-                            rs.getString("LastMaker"),
-                            rs.getString("LastDate")
-                    );
-                    //messageTypeVO.LogMessageDirections( log );
-                    //log.info(" MessageTemplateVO :", MessageTemplateVO. );
-
-
-                    // log.info(" Directions.size :" +  MessageTemplate.AllMessageTemplate.size() );
-
-                    parseResult = ConfigMsgTemplates.performConfig(messageTemplateVO, log);
-                    MessageTemplate.AllMessageTemplate.put(MessageTemplate.RowNum, messageTemplateVO);
-
-                    log.info(" AllMessageTemplate.size :" + MessageTemplate.AllMessageTemplate.size() + " MessageRowNum =" + MessageTemplate.RowNum +
-                            " Template_name:" + MessageTemplate.AllMessageTemplate.get(MessageTemplate.RowNum).getTemplate_name() + " parseConfigResult=" + parseResult);
-
-                    MessageTemplate.RowNum += 1;
+                    log.info(" AllMessageTemplate.size :" + AllMessageTemplate.size() + " MessageRowNum =" + MessageTemplateVOkey +
+                            " Template_name:" + messageTemplateVO.getTemplate_name() + " parseConfigResult=" + parseResult);
                 }
 
             }
@@ -251,7 +276,7 @@ public class InitMessageRepository {
             }
             return -2;
         }
-        return MessageTemplate.RowNum;
+        return ReReadCount;
     }
 
     public static  int SelectMsgDirections(
@@ -260,8 +285,8 @@ public class InitMessageRepository {
         PreparedStatement stmtMsgDirection = null;
         ResultSet rs = null;
         Logger log = AppThead_log;
-
-        MessageDirections.AllMessageDirections.clear();
+        // собирается в стороне, публикуется в MessageRepositorySnapshot после чтения
+        HashMap<Integer, MessageDirectionsVO> AllMessageDirections = new HashMap<>();
 
         if ( DataAccess.Hermes_Connection != null )
             try {
@@ -334,10 +359,8 @@ public class InitMessageRepository {
                 if (messageDirectionsVO.getLong_retry_interval() == 0 )
                     messageDirectionsVO.setLong_retry_interval( LongRetryInterval );
 
-                MessageDirections.AllMessageDirections.put( MessageDirections.RowNum, messageDirectionsVO );
-                log.info( "RowNum[" + MessageDirections.RowNum + "] =" + messageDirectionsVO.LogMessageDirections() );
-
-                MessageDirections.RowNum += 1;
+                log.info( "RowNum[" + AllMessageDirections.size() + "] =" + messageDirectionsVO.LogMessageDirections() );
+                AllMessageDirections.put( AllMessageDirections.size(), messageDirectionsVO );
 
                 // log.info(" MessageDirections[" +   MessageDirections.AllMessageDirections.size() + "]: longRetryInterval=" + messageDirectionsVO.getLong_retry_interval() + ", "+ messageDirectionsVO.getMsgDirection_Desc() );
 
@@ -347,6 +370,9 @@ public class InitMessageRepository {
         } catch (Exception e) {
             e.printStackTrace();
             return -2;
+        } finally {
+            MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+            MessageRepositorySnapshot.publish( AllMessageDirections, Snapshot.AllMessageType, Snapshot.AllMessageTemplate );
         }
            return MessageDirections.RowNum;
     }
@@ -356,8 +382,8 @@ public class InitMessageRepository {
         ResultSet rs = null;
         Logger log = AppThead_log;
 
-        MessageType.AllMessageType.clear();
-        MessageType.RowNum = 0;
+        // собирается в стороне, публикуется в MessageRepositorySnapshot после чтения
+        HashMap<Integer, MessageTypeVO> AllMessageType = new HashMap<>();
 
         if ( DataAccess.Hermes_Connection != null )
             try {
@@ -427,14 +453,16 @@ public class InitMessageRepository {
                 // log.info(" messageTypeVO :", messageTypeVO );
                 // log.info(" AllMessageType.size :" +   MessageType.AllMessageType.size() );
 
-                    MessageType.AllMessageType.put( MessageType.RowNum, messageTypeVO );
-                    MessageType.RowNum += 1;
+                    AllMessageType.put( AllMessageType.size(), messageTypeVO );
 
-                log.info(" Types.size=" +   MessageType.AllMessageType.size() + ", MessageRowNum[" + MessageType.RowNum + "] :" + messageTypeVO.getMsg_Type() );
+                log.info(" Types.size=" +   AllMessageType.size() + ", MessageRowNum[" + AllMessageType.size() + "] :" + messageTypeVO.getMsg_Type() );
             }
         } catch (Exception e) {
             e.printStackTrace();
             return -2;
+        } finally {
+            MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+            MessageRepositorySnapshot.publish( Snapshot.AllMessageDirections, AllMessageType, Snapshot.AllMessageTemplate );
         }
         return MessageType.RowNum;
     }
@@ -444,8 +472,8 @@ public class InitMessageRepository {
         PreparedStatement stmtMsgTemplate;
         ResultSet rs;
         Logger log = AppThead_log;
-        MessageTemplate.AllMessageTemplate.clear();
-        MessageTemplate.RowNum = 0;
+        // собирается в стороне, публикуется в MessageRepositorySnapshot после чтения
+        HashMap<Integer, MessageTemplateVO> AllMessageTemplate = new HashMap<>();
 
         if ( DataAccess.Hermes_Connection != null )
             try {
@@ -525,18 +553,21 @@ public class InitMessageRepository {
                 // log.info(" Directions.size :" +  MessageTemplate.AllMessageTemplate.size() );
 
                 parseResult = ConfigMsgTemplates.performConfig(messageTemplateVO, log);
-                MessageTemplate.AllMessageTemplate.put(MessageTemplate.RowNum, messageTemplateVO);
-
-                log.info(" AllMessageTemplate.size :" + MessageTemplate.AllMessageTemplate.size() + " MessageRowNum =" + MessageTemplate.RowNum +
-                        " Template_name:" + MessageTemplate.AllMessageTemplate.get(MessageTemplate.RowNum).getTemplate_name() +" parseConfigResult=" + parseResult);
+                messageTemplateVO.makeMessageTemplate4Perform(log);
+                int MessageRowNum = AllMessageTemplate.size();
+                AllMessageTemplate.put(MessageRowNum, messageTemplateVO);
 
-                MessageTemplate.RowNum += 1;
+                log.info(" AllMessageTemplate.size :" + AllMessageTemplate.size() + " MessageRowNum =" + MessageRowNum +
+                        " Template_name:" + messageTemplateVO.getTemplate_name() +" parseConfigResult=" + parseResult);
 
 
             }
         } catch (Exception e) {
             e.printStackTrace();
             return -2;
+        } finally {
+            MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+            MessageRepositorySnapshot.publish( Snapshot.AllMessageDirections, Snapshot.AllMessageType, AllMessageTemplate );
         }
         return MessageTemplate.RowNum;
     }
@@ -0,0 +1,18 @@
+package net.plumbing.msgbus.model;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+// Отправка без потока ( OutboundDeliveryEngine ) идёт через MessageHttpSend в два прохода.
+// Первый строит запрос, пишет его в журнал MESSAGE_QUEUElog и отдаёт в sendAsync(): Response становится не null,
+// метод возвращает MessageHttpSend.SendPending. Второй, по ответу, строит тот же запрос ещё раз, но не отправляет, а берёт
+// готовый Response и разбирает его прежним кодом - тексты ошибок и статусы те же, что и при блокирующем send().
+public class DeferredHttpSend {
+    // GET / POST / SOAP - какой метод MessageHttpSend делает второй проход
+    public String WebMetod;
+    // строка журнала запроса ( IsDebugged ), записанная в первом проходе
+    public String ROWID_QUEUElog;
+    // начало этапа http_call для PipelineMetrics
+    public long Stage_Nanos;
+    public CompletableFuture<? extends HttpResponse<?>> Response;
+}
@@ -1,22 +1,23 @@
 package net.plumbing.msgbus.model;
+import net.sf.saxon.s9api.XdmNode;
 import org.jdom2.Document;
 import org.jdom2.Element;
-
-import java.util.ArrayList;
-import java.util.HashMap;
+import org.jdom2.input.JDOMParseException;
 
 
 public class MessageDetails {
 
     public  int MessageRowNum =0;
-    public  HashMap<Integer, MessageDetailVO > Message = new HashMap<Integer, MessageDetailVO >();
-    public  HashMap<Integer, ArrayList> MessageIndex_by_Tag_Par_Num = new HashMap<Integer, ArrayList>(); // для получения messageDetails.Message.get( messageDetails.RecordIndex_by_TagId.get(Tag_Num) )
+    public  MessageTree Message = new MessageTree(); // дочерние элементы - Message.getChildRow( Tag_Num, j )
     public  int ConfirmationRowNum=0;
-    public  HashMap<Integer, MessageDetailVO > Confirmation = new HashMap<Integer, MessageDetailVO >();
+    public  MessageTree Confirmation = new MessageTree();
     // public StringBuilder XML_MsgOUT = new StringBuilder();
     // public String XML_MsgSEND;
     public String XML_MsgInput;
+    public Document Input_XMLDocument=null; // запрос, разобранный прямо из потока ( XMLutils.parseRequestStream ), XML_MsgInput при этом null
+    public JDOMParseException Input_ParseException=null;
     public Document Input_Clear_XMLDocument=null;
+    public XdmNode Input_Clear_XdmNode=null; // XML_MsgClear деревом Saxon для XSLT, строится при первом обращении ( XMLutils.getClearXdmNode )
     public Element Input_Header_Context=null;
     public Element Request_Method=null;
     public StringBuilder XML_Request_Method = new StringBuilder(); // XML, формируется в процессе очистки SOAP от ns: для проследующей проверки по XSD и XSLT преобразованию
@@ -61,6 +62,7 @@ public class MessageDetails {
        this.Message.clear();
        this.Confirmation.clear();
        this.XML_MsgClear.setLength(0);
+       this.Input_Clear_XdmNode = null;
        //this.XML_MsgOUT.setLength(0);
        // this.XML_ClearBodyResponse.setLength(0);
        this.XML_MsgResponse.setLength(0);
@@ -27,6 +27,8 @@ public class MessageDetails4Send {
     public StringBuilder MsgReason = new StringBuilder();
     public Integer X_Total_Count =0;
     public int ApiRestWaitTime=120;
+    // не null - отправка без потока ( OutboundDeliveryEngine ), см. DeferredHttpSend
+    public DeferredHttpSend DeferredSend = null;
 
     public int Message_Tag_Num = 0; // счетчик XML элнментов в Message
     public int Confirmation_Tag_Num = 0; // счетчик XML элнментов в Confirmation
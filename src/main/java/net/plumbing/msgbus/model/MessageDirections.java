@@ -1,6 +1,7 @@
 package net.plumbing.msgbus.model;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 //import org.springframework.context.annotation.Bean;
 
@@ -14,7 +15,8 @@ import org.springframework.stereotype.Component;
 public  class MessageDirections {
    // public static HashMap<Integer, MessageDirectionsVO > AllMessageDirections;
     public static int RowNum=0;
-    public static HashMap<Integer, MessageDirectionsVO > AllMessageDirections = new HashMap<Integer, MessageDirectionsVO >();
+    // карта текущего MessageRepositorySnapshot, только для чтения - новые строки публикует InitMessageRepository
+    public static volatile Map<Integer, MessageDirectionsVO > AllMessageDirections = new HashMap<Integer, MessageDirectionsVO >();
 
     public static int sizeAllMessageDirections() {
         return AllMessageDirections.size();
@@ -0,0 +1,171 @@
+package net.plumbing.msgbus.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Неизменяемый снимок справочников ( MessageDirections, MessageType, MessageTemplate ) с индексами для MessageRepositoryHelper.
+// InitMessageRepository собирает новые HashMap в стороне и публикует их одним присваиванием volatile Current - потоки обработки
+// видят либо старый снимок целиком, либо новый, без put() в HashMap под чтением.
+// Ключи строк ( RowNum ) между снимками не меняются: перечитанная строка остаётся под своим ключом, новые добавляются в конец,
+// поэтому ключ, найденный в одном снимке, годится для MessageTemplate.AllMessageTemplate.get() в следующем.
+// Индексы повторяют порядок прежних циклов по ключам 0..size-1: где цикл возвращал первую подходящую строку - в индексе первая,
+// где брал последнюю - список строк в порядке ключей, и выбор делает MessageRepositoryHelper как раньше.
+public final class MessageRepositorySnapshot {
+
+    private static volatile MessageRepositorySnapshot Current =
+            new MessageRepositorySnapshot(0L, new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+    public final long Version;
+    public final Map<Integer, MessageDirectionsVO> AllMessageDirections;
+    public final Map<Integer, MessageTypeVO> AllMessageType;
+    public final Map<Integer, MessageTemplateVO> AllMessageTemplate;
+
+    // MessageDirections
+    private final HashMap<Integer, String> MsgDirection_Cod_by_Num_Thread = new HashMap<>();
+    private final HashMap<String, Integer> DirectionKey_by_MsgDirection_Cod = new HashMap<>();
+    private final HashMap<Integer, List<Integer>> DirectionKeys_by_MsgDirection_Id = new HashMap<>();
+    // MessageType, интерфейс - тип с Operation_Id == 0
+    private final HashMap<String, Integer> InterfaceKey_by_URL_SOAP_Send = new HashMap<>();
+    private final HashMap<Integer, Integer> InterfaceKey_by_Interface_Id = new HashMap<>();
+    private final HashMap<Integer, Integer> TypeKey_by_Operation_Id = new HashMap<>();
+    private final HashMap<Long, Integer> TypeKey_by_Interface_Operation = new HashMap<>();
+    private final HashMap<Integer, HashMap<String, Integer>> TypeKey_by_Interface_Msg_Type = new HashMap<>();
+    private final HashMap<String, Integer> TypeKey_by_Msg_Type = new HashMap<>();
+    // MessageTemplate
+    private final HashMap<Integer, Integer> TemplateKey_by_Template_Id = new HashMap<>();
+    private final HashMap<Integer, Integer> InterfaceTemplateKey_by_Interface_Id = new HashMap<>();
+    private final HashMap<Integer, List<Integer>> TemplateKeys_by_Operation_Id = new HashMap<>();
+
+    private MessageRepositorySnapshot(long Version,
+                                      Map<Integer, MessageDirectionsVO> AllMessageDirections,
+                                      Map<Integer, MessageTypeVO> AllMessageType,
+                                      Map<Integer, MessageTemplateVO> AllMessageTemplate) {
+        this.Version = Version;
+        this.AllMessageDirections = Collections.unmodifiableMap(AllMessageDirections);
+        this.AllMessageType = Collections.unmodifiableMap(AllMessageType);
+        this.AllMessageTemplate = Collections.unmodifiableMap(AllMessageTemplate);
+
+        for (int j = 0; j < AllMessageDirections.size(); j++) {
+            MessageDirectionsVO messageDirectionsVO = AllMessageDirections.get(j);
+            if ( messageDirectionsVO == null ) continue;
+            if ( messageDirectionsVO.getMsgDirection_Cod() != null )
+                DirectionKey_by_MsgDirection_Cod.put( messageDirectionsVO.getMsgDirection_Cod().toUpperCase(), j );
+            DirectionKeys_by_MsgDirection_Id.computeIfAbsent( messageDirectionsVO.getMsgDirection_Id(), k -> new ArrayList<>() ).add(j);
+        }
+        // для каждого номера потока - система с наибольшим Base_Thread_Id, чей диапазон его накрывает
+        HashMap<Integer, Integer> maxBase_Thread_Id_by_Num_Thread = new HashMap<>();
+        for (int j = 0; j < AllMessageDirections.size(); j++) {
+            MessageDirectionsVO messageDirectionsVO = AllMessageDirections.get(j);
+            if ( messageDirectionsVO == null ) continue;
+            int Base_Thread_Id = messageDirectionsVO.getBase_Thread_Id();
+            if ( Base_Thread_Id < 0 ) continue;
+            for (int Num_Thread = Base_Thread_Id; Num_Thread <= Base_Thread_Id + messageDirectionsVO.getNum_Thread(); Num_Thread++) {
+                Integer maxBase_Thread_Id = maxBase_Thread_Id_by_Num_Thread.get(Num_Thread);
+                if ( maxBase_Thread_Id == null || Base_Thread_Id > maxBase_Thread_Id ) {
+                    maxBase_Thread_Id_by_Num_Thread.put(Num_Thread, Base_Thread_Id);
+                    MsgDirection_Cod_by_Num_Thread.put(Num_Thread, messageDirectionsVO.getMsgDirection_Cod());
+                }
+            }
+        }
+
+        for (int i = 0; i < AllMessageType.size(); i++) {
+            MessageTypeVO messageTypeVO = AllMessageType.get(i);
+            if ( messageTypeVO == null ) continue;
+            int Interface_Id = messageTypeVO.getInterface_Id();
+            int Operation_Id = messageTypeVO.getOperation_Id();
+            if ( Operation_Id == 0 ) { // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
+                InterfaceKey_by_Interface_Id.putIfAbsent(Interface_Id, i);
+                if ( messageTypeVO.getURL_SOAP_Send() != null )
+                    InterfaceKey_by_URL_SOAP_Send.putIfAbsent(messageTypeVO.getURL_SOAP_Send(), i);
+            }
+            TypeKey_by_Operation_Id.putIfAbsent(Operation_Id, i);
+            TypeKey_by_Interface_Operation.putIfAbsent(interfaceOperation(Interface_Id, Operation_Id), i);
+            if ( messageTypeVO.getMsg_Type() != null ) {
+                String Msg_Type = messageTypeVO.getMsg_Type().toUpperCase();
+                TypeKey_by_Interface_Msg_Type.computeIfAbsent(Interface_Id, k -> new HashMap<>()).putIfAbsent(Msg_Type, i);
+                TypeKey_by_Msg_Type.putIfAbsent(Msg_Type, i);
+            }
+        }
+
+        for (int i = 0; i < AllMessageTemplate.size(); i++) {
+            MessageTemplateVO messageTemplateVO = AllMessageTemplate.get(i);
+            if ( messageTemplateVO == null ) continue;
+            TemplateKey_by_Template_Id.putIfAbsent(messageTemplateVO.getTemplate_Id(), i);
+            if ( messageTemplateVO.getOperation_Id() == 0 )
+                InterfaceTemplateKey_by_Interface_Id.putIfAbsent(messageTemplateVO.getInterface_Id(), i);
+            TemplateKeys_by_Operation_Id.computeIfAbsent(messageTemplateVO.getOperation_Id(), k -> new ArrayList<>()).add(i);
+        }
+    }
+
+    public static MessageRepositorySnapshot getCurrent() { return Current; }
+
+    // Публикация нового снимка. Переданные HashMap после вызова не изменяются - InitMessageRepository каждый раз собирает свежие копии.
+    // Прежние статические поля MessageDirections / MessageType / MessageTemplate указывают на карты последнего снимка.
+    public static synchronized MessageRepositorySnapshot publish(Map<Integer, MessageDirectionsVO> AllMessageDirections,
+                                                                 Map<Integer, MessageTypeVO> AllMessageType,
+                                                                 Map<Integer, MessageTemplateVO> AllMessageTemplate) {
+        MessageRepositorySnapshot Snapshot = new MessageRepositorySnapshot(Current.Version + 1,
+                AllMessageDirections, AllMessageType, AllMessageTemplate);
+        Current = Snapshot;
+        MessageDirections.AllMessageDirections = Snapshot.AllMessageDirections;
+        MessageDirections.RowNum = Snapshot.AllMessageDirections.size();
+        MessageType.AllMessageType = Snapshot.AllMessageType;
+        MessageType.RowNum = Snapshot.AllMessageType.size();
+        MessageTemplate.AllMessageTemplate = Snapshot.AllMessageTemplate;
+        MessageTemplate.RowNum = Snapshot.AllMessageTemplate.size();
+        return Snapshot;
+    }
+
+    public String getMsgDirection_Cod_4_Num_Thread(int Num_Thread) { return MsgDirection_Cod_by_Num_Thread.get(Num_Thread); }
+
+    // последняя по ключу система с таким кодом, без учёта регистра
+    public int getDirectionKey_by_MsgDirection_Cod(String MsgDirection_Cod) {
+        if ( MsgDirection_Cod == null ) return -1;
+        return DirectionKey_by_MsgDirection_Cod.getOrDefault(MsgDirection_Cod.toUpperCase(), -1);
+    }
+
+    public List<Integer> getDirectionKeys_by_MsgDirection_Id(int MsgDirection_Id) {
+        return DirectionKeys_by_MsgDirection_Id.getOrDefault(MsgDirection_Id, Collections.emptyList());
+    }
+
+    public int getInterfaceKey_by_URL_SOAP_Send(String URL_SOAP_Send) {
+        if ( URL_SOAP_Send == null ) return -1;
+        return InterfaceKey_by_URL_SOAP_Send.getOrDefault(URL_SOAP_Send, -1);
+    }
+
+    public int getInterfaceKey_by_Interface_Id(int Interface_Id) { return InterfaceKey_by_Interface_Id.getOrDefault(Interface_Id, -1); }
+
+    public int getTypeKey_by_Operation_Id(int Operation_Id) { return TypeKey_by_Operation_Id.getOrDefault(Operation_Id, -1); }
+
+    public int getTypeKey_by_Interface_Operation(int Interface_Id, int Operation_Id) {
+        return TypeKey_by_Interface_Operation.getOrDefault(interfaceOperation(Interface_Id, Operation_Id), -1);
+    }
+
+    public int getTypeKey_by_Interface_Msg_Type(int Interface_Id, String Msg_Type) {
+        HashMap<String, Integer> TypeKey_by_Msg_Type4Interface = TypeKey_by_Interface_Msg_Type.get(Interface_Id);
+        if ( TypeKey_by_Msg_Type4Interface == null || Msg_Type == null ) return -1;
+        return TypeKey_by_Msg_Type4Interface.getOrDefault(Msg_Type.toUpperCase(), -1);
+    }
+
+    public int getTypeKey_by_Msg_Type(String Msg_Type) {
+        if ( Msg_Type == null ) return -1;
+        return TypeKey_by_Msg_Type.getOrDefault(Msg_Type.toUpperCase(), -1);
+    }
+
+    public int getTemplateKey_by_Template_Id(int Template_Id) { return TemplateKey_by_Template_Id.getOrDefault(Template_Id, -1); }
+
+    public int getInterfaceTemplateKey_by_Interface_Id(int Interface_Id) {
+        return InterfaceTemplateKey_by_Interface_Id.getOrDefault(Interface_Id, -1);
+    }
+
+    public List<Integer> getTemplateKeys_by_Operation_Id(int Operation_Id) {
+        return TemplateKeys_by_Operation_Id.getOrDefault(Operation_Id, Collections.emptyList());
+    }
+
+    private static long interfaceOperation(int Interface_Id, int Operation_Id) {
+        return ((long) Interface_Id << 32) | (Operation_Id & 0xFFFFFFFFL);
+    }
+}
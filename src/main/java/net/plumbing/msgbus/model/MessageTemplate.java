@@ -1,6 +1,7 @@
 package net.plumbing.msgbus.model;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.stereotype.Component;
 // import MessageDirectionsVO;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Component;
 
 public class MessageTemplate {
     public static int RowNum=0;
-    public static HashMap<Integer, MessageTemplateVO > AllMessageTemplate = new HashMap<Integer, MessageTemplateVO >();
+    // карта текущего MessageRepositorySnapshot, только для чтения - новые строки публикует InitMessageRepository
+    public static volatile Map<Integer, MessageTemplateVO > AllMessageTemplate = new HashMap<Integer, MessageTemplateVO >();
     //public static ArrayList AllMessageTemplate = new ArrayList();
 }
@@ -1,17 +1,22 @@
 package net.plumbing.msgbus.model;
 
+import net.plumbing.msgbus.threads.utils.MessageBodyStore;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.Xslt30Transformer;
 import net.sf.saxon.s9api.XsltCompiler;
 import net.sf.saxon.s9api.XsltExecutable;
 import org.slf4j.Logger;
 
+import javax.xml.validation.Schema;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Properties;
 
+// План исполнения шаблона: строится один раз на MessageTemplateVO ( MessageTemplateVO.getMessageTemplate4Perform ) при загрузке /
+// перечитывании и дальше только читается всеми потоками - ConfigExecute / ConfigPostExec на каждое сообщение больше не разбираются.
 public class MessageTemplate4Perform {
     private int Template_Id;
     private int Interface_Id;
@@ -32,6 +37,7 @@ public class MessageTemplate4Perform {
     private String ConfigExecute;
     private String ConfigPostExec;
     private String MessageXSD;
+    private Schema MessageXSD_schema;
     private String MessageXSLT;
     private String EnvelopeXSLTExt;
     private String EnvelopeInXSLT;
@@ -71,10 +77,19 @@ public class MessageTemplate4Perform {
     private String PropQueryPostExec;
     private String PropEncoding_Out;
     private String PropEncoding_In;
+    // encoding_in / encoding_out, разрешённые в Charset при построении плана, по умолчанию UTF-8
+    private Charset Encoding_Out = StandardCharsets.UTF_8;
+    private Charset Encoding_In = StandardCharsets.UTF_8;
+    // обрамление текста ошибки для Post-интерфейсов без SOAP ( custom_Fault_Begin / custom_Fault_End )
+    private String PropCustomFault_Server_Begin;
+    private String PropCustomFault_Server_End;
+    // ошибка разбора ConfigExecute, контроллер возвращает её клиенту
+    private String ConfigExecute_Fault;
     private Integer PropTimeout_Conn;
     private Integer PropTimeout_Read;
     private boolean isExtSystemAccess =false;
     private boolean isExtSystemAccessPostExec=false;
+    private boolean isBodyCompressed=false;
 
     private Integer ShortRetryCount;
     private Integer ShortRetryInterval;
@@ -126,6 +141,8 @@ public class MessageTemplate4Perform {
 
     private final String  PropDebug  = "debug";
     private final String  PropPreemptive = "Preemptive";
+    private final String  PropBodyStorage = "BodyStorage";
+    public final String   BodyStorageCompressed = "compressed";
     private final String  PropNameSearchString  = "SearchString";
     private final String  ProprNameReplacement  = "Replacement";
     private final String  PropNameSOAPAction_11 = "SOAPAction";
@@ -137,20 +154,19 @@ public class MessageTemplate4Perform {
     // AckAnswXSLT
     private Processor AckAnswXSLT_processor; // = new Processor(false);
     private XsltCompiler AckAnswXSLT_xsltCompiler; // = processor.newXsltCompiler();
-    private Xslt30Transformer AckAnswXSLT_xslt30Transformer;
+    private XsltExecutable AckAnswXSLT_xsltStylesheet;
     // HeaderInXSLT
     private Processor HeaderInXSLT_processor; // = new Processor(false);
     private XsltCompiler HeaderInXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable HeaderInXSLT_xsltStylesheet;
-    private Xslt30Transformer HeaderInXSLT_xslt30Transformer;
 
-    private Xslt30Transformer HeaderXSLT_xslt30Transformer;
-    private Xslt30Transformer MessageXSLT_xslt30Transformer;
-    private Xslt30Transformer MsgAnswXSLT_xslt30Transformer;
-    private Xslt30Transformer AckXSLT_xslt30Transformer;
-    private Xslt30Transformer EnvelopeXSLTPost_xslt30Transformer;
-    private Xslt30Transformer EnvelopeXSLTExt_xslt30Transformer;
-    private Xslt30Transformer ErrTransXSLT_xslt30Transformer;
+    private XsltExecutable HeaderXSLT_xsltStylesheet;
+    private XsltExecutable MessageXSLT_xsltStylesheet;
+    private XsltExecutable MsgAnswXSLT_xsltStylesheet;
+    private XsltExecutable AckXSLT_xsltStylesheet;
+    private XsltExecutable EnvelopeXSLTPost_xsltStylesheet;
+    private XsltExecutable EnvelopeXSLTExt_xsltStylesheet;
+    private XsltExecutable ErrTransXSLT_xsltStylesheet;
 
     private Processor ErrTransXSLT_processor; // = new Processor(false);
     private XsltCompiler ErrTransXSLT_xsltCompiler; // = processor.newXsltCompiler();
@@ -193,12 +209,11 @@ public class MessageTemplate4Perform {
                         "PostExecShortRetryInterval:" + ShortRetryIntervalPostExec + ", " +
                         "PostExecLongRetryCount:" + LongRetryCountPostExec + ", " +
                         "getPropJavaMethodName:" + PropJavaMethodName + ", " +
-                        "AckXSLT_xslt30Transformer: `" +
-                        ( (AckXSLT_xslt30Transformer != null) ? AckXSLT_xslt30Transformer.toString() :"null") + "`"
+                        "AckXSLT_xsltStylesheet: `" +
+                        ( (AckXSLT_xsltStylesheet != null) ? AckXSLT_xsltStylesheet.toString() :"null") + "`"
         ;
     }
     public MessageTemplate4Perform( MessageTemplateVO messageTemplateVO,
-                                    Long Queue_Id,
                                     Logger MessageTemplate_Log
                                     ) {
         //if ( messageTemplateVO != null ) {
@@ -239,19 +254,19 @@ public class MessageTemplate4Perform {
 
         this.AckAnswXSLT_processor = messageTemplateVO.getAckAnswXSLT_processor();
         this.AckAnswXSLT_xsltCompiler = messageTemplateVO.getAckAnswXSLT_xsltCompiler();
-        this.AckAnswXSLT_xslt30Transformer = messageTemplateVO.getAckAnswXSLT_xslt30Transformer();
+        this.AckAnswXSLT_xsltStylesheet = messageTemplateVO.getAckAnswXSLT_xsltStylesheet();
         // HeaderInXSLT
         this.HeaderInXSLT_processor = messageTemplateVO.getHeaderInXSLT_processor() ; // = new Processor(false);
         this.HeaderInXSLT_xsltCompiler = messageTemplateVO.getHeaderInXSLT_xsltCompiler() ; // = processor.newXsltCompiler();
-        this.HeaderInXSLT_xslt30Transformer = messageTemplateVO.getHeaderInXSLT_xslt30Transformer();
-
-        this.HeaderXSLT_xslt30Transformer = messageTemplateVO.getHeaderXSLT_xslt30Transformer();
-        this.MessageXSLT_xslt30Transformer = messageTemplateVO.getMessageXSLT_xslt30Transformer();
-        this.MsgAnswXSLT_xslt30Transformer = messageTemplateVO.getMsgAnswXSLT_xslt30Transformer();
-        this.AckXSLT_xslt30Transformer = messageTemplateVO.getAckXSLT_xslt30Transformer();
-        this.EnvelopeXSLTPost_xslt30Transformer = messageTemplateVO.getEnvelopeXSLTPost_xslt30Transformer();
-        this.EnvelopeXSLTExt_xslt30Transformer = messageTemplateVO.getEnvelopeXSLTExt_xslt30Transformer();
-        this.ErrTransXSLT_xslt30Transformer = messageTemplateVO.getErrTransXSLT_xslt30Transformer();
+        this.HeaderInXSLT_xsltStylesheet = messageTemplateVO.getHeaderInXSLT_xsltStylesheet();
+
+        this.HeaderXSLT_xsltStylesheet = messageTemplateVO.getHeaderXSLT_xsltStylesheet();
+        this.MessageXSLT_xsltStylesheet = messageTemplateVO.getMessageXSLT_xsltStylesheet();
+        this.MsgAnswXSLT_xsltStylesheet = messageTemplateVO.getMsgAnswXSLT_xsltStylesheet();
+        this.AckXSLT_xsltStylesheet = messageTemplateVO.getAckXSLT_xsltStylesheet();
+        this.EnvelopeXSLTPost_xsltStylesheet = messageTemplateVO.getEnvelopeXSLTPost_xsltStylesheet();
+        this.EnvelopeXSLTExt_xsltStylesheet = messageTemplateVO.getEnvelopeXSLTExt_xsltStylesheet();
+        this.ErrTransXSLT_xsltStylesheet = messageTemplateVO.getErrTransXSLT_xsltStylesheet();
         this.ErrTransXSLT_processor = messageTemplateVO.getErrTransXSLT_processor() ;
         this.ErrTransXSLT_xsltCompiler = messageTemplateVO.getErrTransXSLT_xsltCompiler()  ;
         this.EnvelopeXSLTExt_processor = messageTemplateVO.getEnvelopeXSLTExt_processor() ;
@@ -279,7 +294,7 @@ public class MessageTemplate4Perform {
                     //проходимся по всем ключам и печатаем все их значения на консоль
 
                     for (String key : properties.stringPropertyNames()) {
-                         MessageTemplate_Log.info( "[" + Queue_Id + "]" + "ConfigExecute Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                         MessageTemplate_Log.info( "[" + Template_Id + "]" + "ConfigExecute Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                         if ( key.equals(PropNameExeMetod) ) this.PropExeMetodExecute = properties.getProperty(key);
                         if ( key.equals(PropNameShortRetryCount)) this.ShortRetryCount = Integer.valueOf(properties.getProperty(key) );
                         if ( key.equals(PropNameShortRetryInterval)) this.ShortRetryInterval = Integer.valueOf(properties.getProperty(key) );
@@ -295,7 +310,7 @@ public class MessageTemplate4Perform {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             {
-                                MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropPreemptive Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                                MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropPreemptive Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                                 this.isPreemptive=true;
                             }
                         }
@@ -306,6 +321,8 @@ public class MessageTemplate4Perform {
 
                         if ( key.equals(PropNameCharOut)) this.PropEncoding_Out = properties.getProperty(key);
                         if ( key.equals(PropNameCharIn)) this.PropEncoding_In = properties.getProperty(key);
+                        if ( key.equals(MessageTemplateVO.PropCustomFaultBegin)) this.PropCustomFault_Server_Begin = properties.getProperty(key);
+                        if ( key.equals(MessageTemplateVO.PropCustomFaultEnd)) this.PropCustomFault_Server_End = properties.getProperty(key);
 
                         if ( key.equals(PropNameWebUser)) this.PropUser = properties.getProperty(key);
                         if ( key.equals(PropNameWebPswd)) this.PropPswd = properties.getProperty(key);
@@ -316,22 +333,22 @@ public class MessageTemplate4Perform {
                         if ( key.equals(ProprNameReplacement)) this.PropReplacement = properties.getProperty(key).trim();
                         if ( key.equals(PropNameSOAPAction_11)) {
                             this.SOAPAction = properties.getProperty(key);
-                            MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropNameSOAPAction Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                            MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropNameSOAPAction Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                         }
                         if ( key.equals(PropDebug) ) {
-                           //   MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropDebug Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                           //   MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropDebug Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                             if (( properties.getProperty(key).equalsIgnoreCase("on") ) ||
                                     ( properties.getProperty(key).equalsIgnoreCase("full") )
                             )
                             {
-                             //   MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropDebug Property[" + key +"]=lover[" + properties.getProperty(key) + "]" );
+                             //   MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropDebug Property[" + key +"]=lover[" + properties.getProperty(key) + "]" );
                                 this.isDebugged=true;
                             }
                             if (( properties.getProperty(key).equalsIgnoreCase("ON") ) ||
                                     ( properties.getProperty(key).equalsIgnoreCase("FULL") )
                             )
                             {
-                             //   MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropDebug Property[" + key +"]=UPPER[" + properties.getProperty(key) + "]" );
+                             //   MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropDebug Property[" + key +"]=UPPER[" + properties.getProperty(key) + "]" );
                                 this.isDebugged=true;
                             }
                         }
@@ -342,19 +359,31 @@ public class MessageTemplate4Perform {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             {
-                                MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropExtSystemAccess Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                                MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropExtSystemAccess Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                                 this.isExtSystemAccess=true;
                             }
                         }
+                        if ( key.equals(PropBodyStorage) ) {
+                            // BodyStorage=compressed - тело храним целиком в MESSAGE_QueueBody, MESSAGE_QueueDET только для SQL-обработчика
+                            if ( properties.getProperty(key).trim().equalsIgnoreCase(BodyStorageCompressed) )
+                            {
+                                MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropBodyStorage Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                                this.isBodyCompressed=true;
+                                MessageBodyStore.BodyStorageInUse=true;
+                            }
+                        }
 
                       /*  else {
-                            MessageTemplate_Log.info( "[" + Queue_Id + "] (" + key + "( != (" + PropDebug + ")" );
+                            MessageTemplate_Log.info( "[" + Template_Id + "] (" + key + "( != (" + PropDebug + ")" );
                         }*/
                     }
                 }catch ( IOException ex) {
                     ex.printStackTrace(System.out);
+                    this.ConfigExecute_Fault = "properties.load('" + this.ConfigExecute + "') fault:" + ex.getMessage();
                 }
             }
+            this.Encoding_Out = toCharset( PropNameCharOut, PropEncoding_Out, MessageTemplate_Log );
+            this.Encoding_In = toCharset( PropNameCharIn, PropEncoding_In, MessageTemplate_Log );
             if (( PropHost != null ) && ( PropUrl != null )) {
                 if (!PropHost.isEmpty())
                     EndPointUrl = PropHost + PropUrl;
@@ -376,7 +405,7 @@ public class MessageTemplate4Perform {
 
                     //проходимся по всем ключам и печатаем все их значения на консоль
                     for (String key : properties.stringPropertyNames()) {
-                        // MessageTemplate_Log.info( "[" + Queue_Id + "]" + "ConfigPostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                        // MessageTemplate_Log.info( "[" + Template_Id + "]" + "ConfigPostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                         if ( key.equals(PropNameExeMetod)) PropExeMetodPostExec = properties.getProperty(key);
                         if ( key.equals(PropNameWebHost)) PropHostPostExec = properties.getProperty(key);
                         if ( key.equals(PropNameWebUrl)) PropUrlPostExec = properties.getProperty(key);
@@ -389,7 +418,7 @@ public class MessageTemplate4Perform {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             {
-                                MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PreemptivePostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                                MessageTemplate_Log.info( "[" + Template_Id + "]" + "PreemptivePostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                                 this.isPreemptivePostExec=true;
                             }
                         }
@@ -405,7 +434,7 @@ public class MessageTemplate4Perform {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             {
-                                MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropExtSystemAccess 4 PostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                                MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropExtSystemAccess 4 PostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                                 this.isExtSystemAccessPostExec=true;
                             }
                         }
@@ -426,19 +455,31 @@ public class MessageTemplate4Perform {
             this.EnvelopeXSLTPost = messageTemplateVO.getEnvelopeXSLTPost();
             this.MsgAnswXSLT = messageTemplateVO.getMsgAnswXSLT();
             this.MessageXSD = messageTemplateVO.getMessageXSD();
+            this.MessageXSD_schema = messageTemplateVO.getMessageXSD_schema();
     }
 
-    public Xslt30Transformer getAckAnswXSLT_xslt30Transformer() {return AckAnswXSLT_xslt30Transformer;}
+    // неизвестная кодировка в шаблоне - ошибка в лог один раз при построении плана и UTF-8, а не исключение на каждом запросе
+    private Charset toCharset( String PropName, String CharsetName, Logger MessageTemplate_Log ) {
+        if ( CharsetName == null ) return StandardCharsets.UTF_8;
+        try {
+            return Charset.forName( CharsetName.trim() );
+        } catch ( IllegalArgumentException ex ) {
+            MessageTemplate_Log.error("[{}] ConfigExecute Property[{}]=[{}] is not a supported charset, UTF-8 is used: {}", Template_Id, PropName, CharsetName, ex.toString());
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    public Xslt30Transformer getAckAnswXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(AckAnswXSLT_xsltStylesheet);}
     public Processor getAckAnswXSLT_processor() {return AckAnswXSLT_processor;}
     public XsltCompiler getAckAnswXSLT_xsltCompiler() {return AckAnswXSLT_xsltCompiler;}
 
-    public Xslt30Transformer getEnvelopeXSLTExt_xslt30Transformer() {return EnvelopeXSLTExt_xslt30Transformer;}
-    public Xslt30Transformer getEnvelopeXSLTPost_xslt30Transformer() {return EnvelopeXSLTPost_xslt30Transformer;}
-    public Xslt30Transformer getAckXSLT_xslt30Transformer() {return AckXSLT_xslt30Transformer;}
-    public Xslt30Transformer getMessageXSLT_xslt30Transformer() {return MessageXSLT_xslt30Transformer;}
-    public Xslt30Transformer getMsgAnswXSLT_xslt30Transformer() {return MsgAnswXSLT_xslt30Transformer;}
-    public Xslt30Transformer getHeaderXSLT_xslt30Transformer() {return HeaderXSLT_xslt30Transformer;}
-    public Xslt30Transformer getErrTransXSLT_xslt30Transformer() {return ErrTransXSLT_xslt30Transformer;}
+    public Xslt30Transformer getEnvelopeXSLTExt_xslt30Transformer() {return XsltExecutableRegistry.load30(EnvelopeXSLTExt_xsltStylesheet);}
+    public Xslt30Transformer getEnvelopeXSLTPost_xslt30Transformer() {return XsltExecutableRegistry.load30(EnvelopeXSLTPost_xsltStylesheet);}
+    public Xslt30Transformer getAckXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(AckXSLT_xsltStylesheet);}
+    public Xslt30Transformer getMessageXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(MessageXSLT_xsltStylesheet);}
+    public Xslt30Transformer getMsgAnswXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(MsgAnswXSLT_xsltStylesheet);}
+    public Xslt30Transformer getHeaderXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(HeaderXSLT_xsltStylesheet);}
+    public Xslt30Transformer getErrTransXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(ErrTransXSLT_xsltStylesheet);}
 
     public Processor getHeaderXSLT_processor() {return HeaderXSLT_processor;}
     public XsltCompiler getHeaderXSLT_xsltCompiler() {return HeaderXSLT_xsltCompiler;}
@@ -467,6 +508,9 @@ public class MessageTemplate4Perform {
         //return true;
         return this.isDebugged;
     }
+    public boolean getIsBodyCompressed() {
+        return this.isBodyCompressed;
+    }
     public boolean getIsExtSystemAccess() {
         // TODO: this.isExtSystemAccess=true; -- для Документирования
         //return true;
@@ -483,11 +527,17 @@ public class MessageTemplate4Perform {
 
     public  String getMessageXSLT() { return this.MessageXSLT; }
     public String getMessageXSD () { return this.MessageXSD ; }
+    public Schema getMessageXSD_schema () { return this.MessageXSD_schema ; }
     public String getAckXSLT() { return this.AckXSLT ; }
     public String getAckAnswXSLT() { return this.AckAnswXSLT ; }
     public  String getConfigPostExec() { return this.ConfigPostExec; }
     public  String getEnvelopeXSLTPost() { return this.EnvelopeXSLTPost; }
     public  String getPropEncoding_Out() { return this.PropEncoding_Out; }
+    public Charset getEncoding_Out() { return this.Encoding_Out; }
+    public Charset getEncoding_In() { return this.Encoding_In; }
+    public String getPropCustomFault_Server_Begin() { return this.PropCustomFault_Server_Begin; }
+    public String getPropCustomFault_Server_End() { return this.PropCustomFault_Server_End; }
+    public String getConfigExecute_Fault() { return this.ConfigExecute_Fault; }
 
     public void setMessageTemplateVO(
             int Template_Id,
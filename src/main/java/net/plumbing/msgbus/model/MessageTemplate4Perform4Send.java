@@ -3,8 +3,10 @@ package net.plumbing.msgbus.model;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.Xslt30Transformer;
 import net.sf.saxon.s9api.XsltCompiler;
+import net.sf.saxon.s9api.XsltExecutable;
 import org.slf4j.Logger;
 
+import javax.xml.validation.Schema;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,6 +14,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Properties;
 import java.net.Authenticator;
 
+// План исполнения шаблона для отправки в конкретную систему-приёмник: строится один раз на пару MessageTemplateVO + MessageDirectionsVO
+// ( MessageTemplateVO.getMessageTemplate4Perform4Send ) и дальше только читается всеми потоками.
 public class MessageTemplate4Perform4Send {
     private int Template_Id;
     private int Interface_Id;
@@ -32,6 +36,7 @@ public class MessageTemplate4Perform4Send {
     private String ConfigExecute;
     private String ConfigPostExec;
     private String MessageXSD;
+    private Schema MessageXSD_schema;
     private String MessageXSLT;
     private String EnvelopeXSLTExt;
     private String MessageXSLTNew;
@@ -143,6 +148,7 @@ public class MessageTemplate4Perform4Send {
     private Logger MessageTemplate4Perform_Log;
 
     private String EndPointUrl;
+    private String URL_SOAP_Send;
     private String Type_Connection = null;
     public String printMessageTemplate4Perform() {
         return  "Template_Id:" + Template_Id + ", " +
@@ -168,13 +174,13 @@ public class MessageTemplate4Perform4Send {
     public Authenticator restPasswordAuthenticator;
     public Authenticator postExecPasswordAuthenticator;
 
-    private Xslt30Transformer HeaderXSLT_xslt30Transformer;
-    private Xslt30Transformer MessageXSLT_xslt30Transformer;
-    private Xslt30Transformer MsgAnswXSLT_xslt30Transformer;
+    private XsltExecutable HeaderXSLT_xsltStylesheet;
+    private XsltExecutable MessageXSLT_xsltStylesheet;
+    private XsltExecutable MsgAnswXSLT_xsltStylesheet;
 
-    private Xslt30Transformer AckXSLT_xslt30Transformer;
-    private Xslt30Transformer EnvelopeXSLTPost_xslt30Transformer;
-    private Xslt30Transformer ErrTransXSLT_xslt30Transformer;
+    private XsltExecutable AckXSLT_xsltStylesheet;
+    private XsltExecutable EnvelopeXSLTPost_xsltStylesheet;
+    private XsltExecutable ErrTransXSLT_xsltStylesheet;
     private Processor ErrTransXSLT_processor; // = new Processor(false);
     private XsltCompiler ErrTransXSLT_xsltCompiler;
 
@@ -197,11 +203,11 @@ public class MessageTemplate4Perform4Send {
                                     String Db_pswd,
                                     Integer Type_Connect,
                                     Integer ShortRetryCount, Integer ShortRetryInterval, Integer LongRetryCount, Integer LongRetryInterval,
-                                    Long Queue_Id,
                                     Logger MessageTemplate_Log
                                     ) {
         //if ( messageTemplateVO != null ) {
         this.MessageTemplate4Perform_Log = MessageTemplate_Log;
+        this.URL_SOAP_Send = URL_SOAP_Send;
             this.Template_Id = messageTemplateVO.getTemplate_Id();
             this.Interface_Id = messageTemplateVO.getInterface_Id();
             this.Operation_Id = messageTemplateVO.getOperation_Id();
@@ -232,9 +238,9 @@ public class MessageTemplate4Perform4Send {
             this.isPreemptivePostExec =false;
             this.isPreemptive =false;
 
-        this.HeaderXSLT_xslt30Transformer = messageTemplateVO.getHeaderXSLT_xslt30Transformer();
-        this.MessageXSLT_xslt30Transformer = messageTemplateVO.getMessageXSLT_xslt30Transformer();
-        this.AckXSLT_xslt30Transformer = messageTemplateVO.getAckXSLT_xslt30Transformer();
+        this.HeaderXSLT_xsltStylesheet = messageTemplateVO.getHeaderXSLT_xsltStylesheet();
+        this.MessageXSLT_xsltStylesheet = messageTemplateVO.getMessageXSLT_xsltStylesheet();
+        this.AckXSLT_xsltStylesheet = messageTemplateVO.getAckXSLT_xsltStylesheet();
         this.AckXSLT_processor = messageTemplateVO.getMAckXSLT_processor() ;
         this.AckXSLT_xsltCompiler = messageTemplateVO.getAckXSLT_xsltCompiler()  ;
         this.MessageXSLT_processor = messageTemplateVO.getMessageXSLT_processor() ;
@@ -242,15 +248,15 @@ public class MessageTemplate4Perform4Send {
         this.HeaderXSLT_processor = messageTemplateVO.getHeaderXSLT_processor() ;
         this.HeaderXSLT_xsltCompiler = messageTemplateVO.getHeaderXSLT_xsltCompiler()  ;
 
-        this.EnvelopeXSLTPost_xslt30Transformer = messageTemplateVO.getEnvelopeXSLTPost_xslt30Transformer();
+        this.EnvelopeXSLTPost_xsltStylesheet = messageTemplateVO.getEnvelopeXSLTPost_xsltStylesheet();
         this.EnvelopeXSLTPost_processor = messageTemplateVO.getEnvelopeXSLTPost_processor() ;
         this.EnvelopeXSLTPost_xsltCompiler = messageTemplateVO.getEnvelopeXSLTPost_xsltCompiler()  ;
 
-        this.MsgAnswXSLT_xslt30Transformer = messageTemplateVO.getMsgAnswXSLT_xslt30Transformer();
+        this.MsgAnswXSLT_xsltStylesheet = messageTemplateVO.getMsgAnswXSLT_xsltStylesheet();
         this.MsgAnswXSLT_processor = messageTemplateVO.getMsgAnswXSLT_processor() ;
         this.MsgAnswXSLT_xsltCompiler = messageTemplateVO.getMsgAnswXSLT_xsltCompiler()  ;
 
-        this.ErrTransXSLT_xslt30Transformer = messageTemplateVO.getErrTransXSLT_xslt30Transformer();
+        this.ErrTransXSLT_xsltStylesheet = messageTemplateVO.getErrTransXSLT_xsltStylesheet();
         this.ErrTransXSLT_processor = messageTemplateVO.getErrTransXSLT_processor() ;
         this.ErrTransXSLT_xsltCompiler = messageTemplateVO.getErrTransXSLT_xsltCompiler()  ;
 
@@ -265,7 +271,7 @@ public class MessageTemplate4Perform4Send {
                     //проходимся по всем ключам и печатаем все их значения на консоль
 
                     for (String key : properties.stringPropertyNames()) {
-                        MessageTemplate_Log.info( "[" + Queue_Id + "]" + "ConfigExecute Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                        MessageTemplate_Log.info( "[" + Template_Id + "]" + "ConfigExecute Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                         if ( key.equals(PropNameExeMetod) ) this.PropExeMetodExecute = properties.getProperty(key);
                         if ( key.equals(PropNameShortRetryCount)) this.ShortRetryCount = Integer.valueOf(properties.getProperty(key).trim() );
                         if ( key.equals(PropNameShortRetryInterval)) this.ShortRetryInterval = Integer.valueOf(properties.getProperty(key).trim() );
@@ -295,22 +301,22 @@ public class MessageTemplate4Perform4Send {
                         if ( key.equals(ProprNameReplacement)) this.PropReplacement = properties.getProperty(key).trim();
                         if ( key.equals(PropNameSOAPAction_11)) {
                             this.SOAPAction = properties.getProperty(key);
-                            MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropNameSOAPAction Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                            MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropNameSOAPAction Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                         }
                         if ( key.equals(PropDebug) ) {
-                            MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropDebug Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                            MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropDebug Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                             if (( properties.getProperty(key).equalsIgnoreCase("on") ) ||
                                     ( properties.getProperty(key).equalsIgnoreCase("full") )
                             )
                             {
-                              //  MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropDebug Property[" + key +"]=lover[" + properties.getProperty(key) + "]" );
+                              //  MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropDebug Property[" + key +"]=lover[" + properties.getProperty(key) + "]" );
                                 this.isDebugged=true;
                             }
                             if (( properties.getProperty(key).equalsIgnoreCase("ON") ) ||
                                     ( properties.getProperty(key).equalsIgnoreCase("FULL") )
                             )
                             {
-                               // MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PropDebug Property[" + key +"]=UPPER[" + properties.getProperty(key) + "]" );
+                               // MessageTemplate_Log.info( "[" + Template_Id + "]" + "PropDebug Property[" + key +"]=UPPER[" + properties.getProperty(key) + "]" );
                                 this.isDebugged=true;
                             }
                         }
@@ -321,7 +327,7 @@ public class MessageTemplate4Perform4Send {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             { if (isDebugged )
-                                MessageTemplate_Log.info("[{}]PropExtSystemAccess Property[{}]=[{}]", Queue_Id, key, properties.getProperty(key));
+                                MessageTemplate_Log.info("[{}]PropExtSystemAccess Property[{}]=[{}]", Template_Id, key, properties.getProperty(key));
                                 this.isExtSystemAccess=true;
                             }
                         }
@@ -332,12 +338,12 @@ public class MessageTemplate4Perform4Send {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             { if (isDebugged )
-                                MessageTemplate_Log.info("[{}]PropPreemptive Property[{}]=[{}]", Queue_Id, key, properties.getProperty(key));
+                                MessageTemplate_Log.info("[{}]PropPreemptive Property[{}]=[{}]", Template_Id, key, properties.getProperty(key));
                                 this.isPreemptive=true;
                             }
                         }
                       /*  else {
-                            MessageTemplate_Log.info( "[" + Queue_Id + "] (" + key + "( != (" + PropDebug + ")" );
+                            MessageTemplate_Log.info( "[" + Template_Id + "] (" + key + "( != (" + PropDebug + ")" );
                         }*/
                     }
                 }catch ( IOException ex) {
@@ -351,11 +357,11 @@ public class MessageTemplate4Perform4Send {
             else {
                 if ( WSDL_Name != null ) {
                     EndPointUrl = WSDL_Name;
-                    MessageTemplate_Log.info( "[" + Queue_Id + "]" + " if ( WSDL_Name != null ) EndPointUrl " + EndPointUrl );
+                    MessageTemplate_Log.info( "[" + Template_Id + "]" + " if ( WSDL_Name != null ) EndPointUrl " + EndPointUrl );
                 if ( URL_SOAP_Send != null )
                     EndPointUrl = WSDL_Name + URL_SOAP_Send ;
 
-                    MessageTemplate_Log.info( "[" + Queue_Id + "]" + " if ( URL_SOAP_Send != null ) EndPointUrl " + EndPointUrl );
+                    MessageTemplate_Log.info( "[" + Template_Id + "]" + " if ( URL_SOAP_Send != null ) EndPointUrl " + EndPointUrl );
                 }
             }
             if ( EndPointUrl == null) EndPointUrl ="http://no.endpoint.error";
@@ -385,7 +391,7 @@ public class MessageTemplate4Perform4Send {
                     properties.load(propertiesStream);
                     //проходимся по всем ключам и печатаем все их значения на консоль
                     for (String key : properties.stringPropertyNames()) {
-                        // MessageTemplate_Log.info( "[" + Queue_Id + "]" + "ConfigPostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                        // MessageTemplate_Log.info( "[" + Template_Id + "]" + "ConfigPostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                         if ( key.equals(PropNameExeMetod)) PropExeMetodPostExec = properties.getProperty(key);
                         if ( key.equals(PropNameWebHost)) PropHostPostExec = properties.getProperty(key);
                         if ( key.equals(PropNameWebUrl)) PropUrlPostExec = properties.getProperty(key);
@@ -398,7 +404,7 @@ public class MessageTemplate4Perform4Send {
                                     ( properties.getProperty(key).equalsIgnoreCase("TRUE") )
                             )
                             {
-                                MessageTemplate_Log.info( "[" + Queue_Id + "]" + "PreemptivePostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
+                                MessageTemplate_Log.info( "[" + Template_Id + "]" + "PreemptivePostExec Property[" + key +"]=[" + properties.getProperty(key) + "]" );
                                 this.isPreemptivePostExec=true;
                             }
                         }
@@ -427,15 +433,16 @@ public class MessageTemplate4Perform4Send {
             this.EnvelopeXSLTPost = messageTemplateVO.getEnvelopeXSLTPost();
             this.MsgAnswXSLT = messageTemplateVO.getMsgAnswXSLT();
             this.MessageXSD = messageTemplateVO.getMessageXSD();
+            this.MessageXSD_schema = messageTemplateVO.getMessageXSD_schema();
             this.ErrTransXSLT = messageTemplateVO.getErrTransXSLT();
             this.AckXSLT = messageTemplateVO.getAckXSLT();
     }
-    public Xslt30Transformer getAckXSLT_xslt30Transformer() { return this.AckXSLT_xslt30Transformer;}
-    public Xslt30Transformer getMessageXSLT_xslt30Transformer() {return this.MessageXSLT_xslt30Transformer;}
-    public Xslt30Transformer getHeaderXSLT_xslt30Transformer() {return this.HeaderXSLT_xslt30Transformer;}
-    public Xslt30Transformer getEnvelopeXSLTPost_xslt30Transformer() {return EnvelopeXSLTPost_xslt30Transformer;}
-    public Xslt30Transformer getMsgAnswXSLT_xslt30Transformer() {return MsgAnswXSLT_xslt30Transformer;}
-    public Xslt30Transformer getErrTransXSLT_xslt30Transformer() {return ErrTransXSLT_xslt30Transformer;}
+    public Xslt30Transformer getAckXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(AckXSLT_xsltStylesheet);}
+    public Xslt30Transformer getMessageXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(MessageXSLT_xsltStylesheet);}
+    public Xslt30Transformer getHeaderXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(HeaderXSLT_xsltStylesheet);}
+    public Xslt30Transformer getEnvelopeXSLTPost_xslt30Transformer() {return XsltExecutableRegistry.load30(EnvelopeXSLTPost_xsltStylesheet);}
+    public Xslt30Transformer getMsgAnswXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(MsgAnswXSLT_xsltStylesheet);}
+    public Xslt30Transformer getErrTransXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(ErrTransXSLT_xsltStylesheet);}
     public Processor getMsgAnswXSLT_processor() {return MsgAnswXSLT_processor;}
     public XsltCompiler getMsgAnswXSLT_xsltCompiler() {return MsgAnswXSLT_xsltCompiler;}
     public Processor getEnvelopeXSLTPost_processor() {return EnvelopeXSLTPost_processor;}
@@ -454,6 +461,7 @@ public class MessageTemplate4Perform4Send {
     public  String getPropSearchString() { return this.PropSearchString; }
     public  String getSOAPAction() { return this.SOAPAction; }
     public  String getEndPointUrl() { return this.EndPointUrl; }
+    public  String getURL_SOAP_Send() { return this.URL_SOAP_Send; }
     public  String getPropMsgStatus() { return this. PropMsgStatus; }
     public  String getPropQueueDirection() { return this. PropQueueDirection; }
     public  String getPropMsgResult() { return this. PropMsgResult; }
@@ -475,6 +483,7 @@ public class MessageTemplate4Perform4Send {
 
     public  String getMessageXSLT() { return this.MessageXSLT; }
     public String getMessageXSD () { return this.MessageXSD ; }
+    public Schema getMessageXSD_schema () { return this.MessageXSD_schema ; }
     public  String getConfigPostExec() { return this.ConfigPostExec; }
     public  String getEnvelopeXSLTPost() { return this.EnvelopeXSLTPost; }
     public String getErrTransXSLT() {  return this.ErrTransXSLT; }
@@ -4,10 +4,12 @@ import net.plumbing.msgbus.common.XMLchars;
 import net.plumbing.msgbus.common.sStackTrace;
 import net.sf.saxon.s9api.*;
 import org.slf4j.Logger;
+import org.xml.sax.SAXException;
+
+import javax.xml.validation.Schema;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.transform.stream.StreamSource;
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
 
 public class MessageTemplateVO {
 
@@ -127,27 +129,17 @@ public class MessageTemplateVO {
     private Processor AckAnswXSLT_processor; // = new Processor(false);
     private XsltCompiler AckAnswXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable AckAnswXSLT_xsltStylesheet;
-    private Xslt30Transformer AckAnswXSLT_xslt30Transformer;
-    public Xslt30Transformer getAckAnswXSLT_xslt30Transformer() {return AckAnswXSLT_xslt30Transformer;}
+    public Xslt30Transformer getAckAnswXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(AckAnswXSLT_xsltStylesheet);}
+    public XsltExecutable getAckAnswXSLT_xsltStylesheet() {return AckAnswXSLT_xsltStylesheet;}
     public Processor getAckAnswXSLT_processor() {return AckAnswXSLT_processor;}
     public XsltCompiler getAckAnswXSLT_xsltCompiler() {return AckAnswXSLT_xsltCompiler;}
     public void makeAckAnswXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( AckAnswXSLT !=null ) && ( ! AckAnswXSLT.isEmpty() )) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(AckAnswXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeAckAnswXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeAckAnswXSLT_Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                AckAnswXSLT_processor = new Processor(false);
-                AckAnswXSLT_xsltCompiler = AckAnswXSLT_processor.newXsltCompiler();
-                AckAnswXSLT_xsltStylesheet = AckAnswXSLT_xsltCompiler.compile(srcXSLT);
+                AckAnswXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                AckAnswXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                AckAnswXSLT_xsltStylesheet = XsltExecutableRegistry.compile(AckAnswXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeAckAnswXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -155,7 +147,6 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeAckAnswXSLT_Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, AckAnswXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            AckAnswXSLT_xslt30Transformer = AckAnswXSLT_xsltStylesheet.load30();
             return;
         }
     }
@@ -164,27 +155,17 @@ public class MessageTemplateVO {
     private Processor HeaderInXSLT_processor; // = new Processor(false);
     private XsltCompiler HeaderInXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable HeaderInXSLT_xsltStylesheet;
-    private Xslt30Transformer HeaderInXSLT_xslt30Transformer;
-    public Xslt30Transformer getHeaderInXSLT_xslt30Transformer() {return HeaderInXSLT_xslt30Transformer;}
+    public Xslt30Transformer getHeaderInXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(HeaderInXSLT_xsltStylesheet);}
+    public XsltExecutable getHeaderInXSLT_xsltStylesheet() {return HeaderInXSLT_xsltStylesheet;}
     public Processor getHeaderInXSLT_processor() {return HeaderInXSLT_processor;}
     public XsltCompiler getHeaderInXSLT_xsltCompiler() {return HeaderInXSLT_xsltCompiler;}
     public void makeHeaderInXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( HeaderInXSLT !=null ) && ( ! HeaderInXSLT.isEmpty() )) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(HeaderInXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeHeaderInXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeHeaderInXSLT_Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                HeaderInXSLT_processor = new Processor(false);
-                HeaderInXSLT_xsltCompiler = HeaderInXSLT_processor.newXsltCompiler();
-                HeaderInXSLT_xsltStylesheet = HeaderInXSLT_xsltCompiler.compile(srcXSLT);
+                HeaderInXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                HeaderInXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                HeaderInXSLT_xsltStylesheet = XsltExecutableRegistry.compile(HeaderInXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeHeaderInXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -192,7 +173,6 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeHeaderInXSLT_Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, HeaderInXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            HeaderInXSLT_xslt30Transformer = HeaderInXSLT_xsltStylesheet.load30();
             return;
         }
     }
@@ -200,27 +180,17 @@ public class MessageTemplateVO {
     private Processor EnvelopeInXSLT_processor;
     private XsltCompiler EnvelopeInXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable EnvelopeInXSLT_xsltStylesheet;
-    private Xslt30Transformer EnvelopeInXSLT_xslt30Transformer;
-    public Xslt30Transformer getEnvelopeInXSLT_xslt30Transformer() {return EnvelopeInXSLT_xslt30Transformer;}
+    public Xslt30Transformer getEnvelopeInXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(EnvelopeInXSLT_xsltStylesheet);}
+    public XsltExecutable getEnvelopeInXSLT_xsltStylesheet() {return EnvelopeInXSLT_xsltStylesheet;}
     public Processor getEnvelopeInXSLT_processor() {return EnvelopeInXSLT_processor;}
     public XsltCompiler getEnvelopeInXSLT_xsltCompiler() {return EnvelopeInXSLT_xsltCompiler;}
     public void makeEnvelopeInXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( EnvelopeInXSLT !=null ) && ( ! EnvelopeInXSLT.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(EnvelopeInXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeEnvelopeInXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeEnvelopeInXSLT_Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                EnvelopeInXSLT_processor = new Processor(false);
-                EnvelopeInXSLT_xsltCompiler = EnvelopeInXSLT_processor.newXsltCompiler();
-                EnvelopeInXSLT_xsltStylesheet = EnvelopeInXSLT_xsltCompiler.compile(srcXSLT);
+                EnvelopeInXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                EnvelopeInXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                EnvelopeInXSLT_xsltStylesheet = XsltExecutableRegistry.compile(EnvelopeInXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeEnvelopeInXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -228,7 +198,6 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeEnvelopeInXSLT_Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, EnvelopeInXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            EnvelopeInXSLT_xslt30Transformer = EnvelopeInXSLT_xsltStylesheet.load30();
             return;
         }
     }
@@ -236,27 +205,17 @@ public class MessageTemplateVO {
     private Processor HeaderXSLT_processor; // = new Processor(false);
     private XsltCompiler HeaderXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable HeaderXSLT_xsltStylesheet;
-    private Xslt30Transformer HeaderXSLT_xslt30Transformer;
-    public Xslt30Transformer getHeaderXSLT_xslt30Transformer() {return HeaderXSLT_xslt30Transformer;}
+    public Xslt30Transformer getHeaderXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(HeaderXSLT_xsltStylesheet);}
+    public XsltExecutable getHeaderXSLT_xsltStylesheet() {return HeaderXSLT_xsltStylesheet;}
     public Processor getHeaderXSLT_processor() {return HeaderXSLT_processor;}
     public XsltCompiler getHeaderXSLT_xsltCompiler() {return HeaderXSLT_xsltCompiler;}
     public void makeHeaderXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( HeaderXSLT !=null ) && ( !HeaderXSLT.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(HeaderXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeHeaderXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeHeaderXSLT_Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                HeaderXSLT_processor = new Processor(false);
-                HeaderXSLT_xsltCompiler = HeaderXSLT_processor.newXsltCompiler();
-                HeaderXSLT_xsltStylesheet = HeaderXSLT_xsltCompiler.compile(srcXSLT);
+                HeaderXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                HeaderXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                HeaderXSLT_xsltStylesheet = XsltExecutableRegistry.compile(HeaderXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeHeaderXSLT_Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -264,7 +223,6 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeHeaderXSLT_Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, HeaderXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            HeaderXSLT_xslt30Transformer = HeaderXSLT_xsltStylesheet.load30();
             return;
         }
     }
@@ -272,27 +230,17 @@ public class MessageTemplateVO {
     private Processor MsgAnswXSLT_processor; // = new Processor(false);
     private XsltCompiler MsgAnswXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable MsgAnswXSLT_xsltStylesheet;
-    private Xslt30Transformer MsgAnswXSLT_xslt30Transformer;
-    public Xslt30Transformer getMsgAnswXSLT_xslt30Transformer() {return MsgAnswXSLT_xslt30Transformer;}
+    public Xslt30Transformer getMsgAnswXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(MsgAnswXSLT_xsltStylesheet);}
+    public XsltExecutable getMsgAnswXSLT_xsltStylesheet() {return MsgAnswXSLT_xsltStylesheet;}
     public Processor getMsgAnswXSLT_processor() {return MsgAnswXSLT_processor;}
     public XsltCompiler getMsgAnswXSLT_xsltCompiler() {return MsgAnswXSLT_xsltCompiler;}
     public void makeMsgAnswXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( MsgAnswXSLT !=null ) && ( !MsgAnswXSLT.isEmpty() )) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(MsgAnswXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeMsgAnswXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeMsgAnswXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                MsgAnswXSLT_processor = new Processor(false);
-                MsgAnswXSLT_xsltCompiler = MsgAnswXSLT_processor.newXsltCompiler();
-                MsgAnswXSLT_xsltStylesheet = MsgAnswXSLT_xsltCompiler.compile(srcXSLT);
+                MsgAnswXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                MsgAnswXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                MsgAnswXSLT_xsltStylesheet = XsltExecutableRegistry.compile(MsgAnswXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeMsgAnswXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -300,34 +248,23 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeMsgAnswXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, MsgAnswXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            MsgAnswXSLT_xslt30Transformer = MsgAnswXSLT_xsltStylesheet.load30();
             return;
         }
     }
     private Processor MessageXSLT_processor; // = new Processor(false);
     private XsltCompiler MessageXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable MessageXSLT_xsltStylesheet;
-    private Xslt30Transformer MessageXSLT_xslt30Transformer;
-    public Xslt30Transformer getMessageXSLT_xslt30Transformer() {return MessageXSLT_xslt30Transformer;}
+    public Xslt30Transformer getMessageXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(MessageXSLT_xsltStylesheet);}
+    public XsltExecutable getMessageXSLT_xsltStylesheet() {return MessageXSLT_xsltStylesheet;}
     public Processor getMessageXSLT_processor() {return MessageXSLT_processor;}
     public XsltCompiler getMessageXSLT_xsltCompiler() {return MessageXSLT_xsltCompiler;}
     public void makeMessageXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( MessageXSLT !=null ) && ( ! MessageXSLT.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(MessageXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeMessageXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeMessageXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                MessageXSLT_processor = new Processor(false);
-                MessageXSLT_xsltCompiler = MessageXSLT_processor.newXsltCompiler();
-                MessageXSLT_xsltStylesheet = MessageXSLT_xsltCompiler.compile(srcXSLT);
+                MessageXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                MessageXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                MessageXSLT_xsltStylesheet = XsltExecutableRegistry.compile(MessageXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeMessageXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -335,36 +272,25 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeMessageXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, MessageXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            MessageXSLT_xslt30Transformer = MessageXSLT_xsltStylesheet.load30();
             return;
         }
     }
     private Processor AckXSLT_processor; // = new Processor(false);
     private XsltCompiler AckXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable AckXSLT_xsltStylesheet;
-    private Xslt30Transformer AckXSLT_xslt30Transformer;
     public Xslt30Transformer getAckXSLT_xslt30Transformer() {
-        //System.err.println("getAckXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") AckXSLT_xslt30Transformer=`"+ AckXSLT_xslt30Transformer.toString()+ "`");
-        return AckXSLT_xslt30Transformer;}
+        //System.err.println("getAckXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") AckXSLT_xsltStylesheet=`"+ AckXSLT_xsltStylesheet.toString()+ "`");
+        return XsltExecutableRegistry.load30(AckXSLT_xsltStylesheet);}
+    public XsltExecutable getAckXSLT_xsltStylesheet() {return AckXSLT_xsltStylesheet;}
     public Processor getMAckXSLT_processor() {return AckXSLT_processor;}
     public XsltCompiler getAckXSLT_xsltCompiler() {return AckXSLT_xsltCompiler;}
     public void makeAckXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( AckXSLT !=null ) && ( ! AckXSLT.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(AckXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeAckXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeAckXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                AckXSLT_processor = new Processor(false);
-                AckXSLT_xsltCompiler = AckXSLT_processor.newXsltCompiler();
-                AckXSLT_xsltStylesheet = AckXSLT_xsltCompiler.compile(srcXSLT);
+                AckXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                AckXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                AckXSLT_xsltStylesheet = XsltExecutableRegistry.compile(AckXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeAckXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -372,7 +298,6 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeAckXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, AckXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            AckXSLT_xslt30Transformer = AckXSLT_xsltStylesheet.load30();
             // --was used for debug if ( Msg_Type.equals("AU_UsersGetList"))
             // AppThead_log.warn("makeAckXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` load30: {}", Msg_Type, Interface_Id, Operation_Id, AckXSLT, AckXSLT_xsltStylesheet.toString());
             return;
@@ -381,27 +306,17 @@ public class MessageTemplateVO {
     private Processor EnvelopeXSLTPost_processor; // = new Processor(false);
     private XsltCompiler EnvelopeXSLTPost_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable EnvelopeXSLTPost_xsltStylesheet;
-    private Xslt30Transformer EnvelopeXSLTPost_xslt30Transformer;
-    public Xslt30Transformer getEnvelopeXSLTPost_xslt30Transformer() {return EnvelopeXSLTPost_xslt30Transformer;}
+    public Xslt30Transformer getEnvelopeXSLTPost_xslt30Transformer() {return XsltExecutableRegistry.load30(EnvelopeXSLTPost_xsltStylesheet);}
+    public XsltExecutable getEnvelopeXSLTPost_xsltStylesheet() {return EnvelopeXSLTPost_xsltStylesheet;}
     public Processor getEnvelopeXSLTPost_processor() {return EnvelopeXSLTPost_processor;}
     public XsltCompiler getEnvelopeXSLTPost_xsltCompiler() {return EnvelopeXSLTPost_xsltCompiler;}
     public void makeEnvelopeXSLTPost_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( EnvelopeXSLTPost !=null ) && ( ! EnvelopeXSLTPost.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(EnvelopeXSLTPost.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeEnvelopeXSLTPost_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeEnvelopeXSLTPost_xslt30Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                EnvelopeXSLTPost_processor = new Processor(false);
-                EnvelopeXSLTPost_xsltCompiler = EnvelopeXSLTPost_processor.newXsltCompiler();
-                EnvelopeXSLTPost_xsltStylesheet = EnvelopeXSLTPost_xsltCompiler.compile(srcXSLT);
+                EnvelopeXSLTPost_processor = XsltExecutableRegistry.SharedProcessor;
+                EnvelopeXSLTPost_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                EnvelopeXSLTPost_xsltStylesheet = XsltExecutableRegistry.compile(EnvelopeXSLTPost);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeEnvelopeXSLTPost_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -409,34 +324,23 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeEnvelopeXSLTPost_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, EnvelopeXSLTPost, ConvXMLuseXSLTerr);
                 return;
             }
-            EnvelopeXSLTPost_xslt30Transformer = EnvelopeXSLTPost_xsltStylesheet.load30();
             return;
         }
     }
     private Processor EnvelopeXSLTExt_processor; // = new Processor(false);
     private XsltCompiler EnvelopeXSLTExt_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable EnvelopeXSLTExt_xsltStylesheet;
-    private Xslt30Transformer EnvelopeXSLTExt_xslt30Transformer;
-    public Xslt30Transformer getEnvelopeXSLTExt_xslt30Transformer() {return EnvelopeXSLTExt_xslt30Transformer;}
+    public Xslt30Transformer getEnvelopeXSLTExt_xslt30Transformer() {return XsltExecutableRegistry.load30(EnvelopeXSLTExt_xsltStylesheet);}
+    public XsltExecutable getEnvelopeXSLTExt_xsltStylesheet() {return EnvelopeXSLTExt_xsltStylesheet;}
     public Processor getEnvelopeXSLTExt_processor() {return EnvelopeXSLTExt_processor;}
     public XsltCompiler getEnvelopeXSLTExt_xsltCompiler() {return EnvelopeXSLTExt_xsltCompiler;}
     public void makeEnvelopeXSLTExt_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( EnvelopeXSLTExt !=null ) && ( ! EnvelopeXSLTExt.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(EnvelopeXSLTExt.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeEnvelopeXSLTExt_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeEnvelopeXSLTExt_xslt30Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                EnvelopeXSLTExt_processor = new Processor(false);
-                EnvelopeXSLTExt_xsltCompiler = EnvelopeXSLTExt_processor.newXsltCompiler();
-                EnvelopeXSLTExt_xsltStylesheet = EnvelopeXSLTExt_xsltCompiler.compile(srcXSLT);
+                EnvelopeXSLTExt_processor = XsltExecutableRegistry.SharedProcessor;
+                EnvelopeXSLTExt_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                EnvelopeXSLTExt_xsltStylesheet = XsltExecutableRegistry.compile(EnvelopeXSLTExt);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeEnvelopeXSLTExt_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -444,34 +348,23 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeEnvelopeXSLTExt_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, EnvelopeXSLTExt, ConvXMLuseXSLTerr);
                 return;
             }
-            EnvelopeXSLTExt_xslt30Transformer = EnvelopeXSLTExt_xsltStylesheet.load30();
             return;
         }
     }
     private Processor ErrTransXSLT_processor; // = new Processor(false);
     private XsltCompiler ErrTransXSLT_xsltCompiler; // = processor.newXsltCompiler();
     private XsltExecutable ErrTransXSLT_xsltStylesheet;
-    private Xslt30Transformer ErrTransXSLT_xslt30Transformer;
-    public Xslt30Transformer getErrTransXSLT_xslt30Transformer() {return ErrTransXSLT_xslt30Transformer;}
+    public Xslt30Transformer getErrTransXSLT_xslt30Transformer() {return XsltExecutableRegistry.load30(ErrTransXSLT_xsltStylesheet);}
+    public XsltExecutable getErrTransXSLT_xsltStylesheet() {return ErrTransXSLT_xsltStylesheet;}
     public Processor getErrTransXSLT_processor() {return ErrTransXSLT_processor;}
     public XsltCompiler getErrTransXSLT_xsltCompiler() {return ErrTransXSLT_xsltCompiler;}
     public void makeErrTransXSLT_xslt30Transformer( Logger AppThead_log )   {
-        StreamSource srcXSLT;
         if (( ErrTransXSLT !=null ) && ( ! ErrTransXSLT.isEmpty()) ) // если не пустой XSLT-текст
         {
             try {
-                srcXSLT = new StreamSource(new ByteArrayInputStream(ErrTransXSLT.getBytes(StandardCharsets.UTF_8)));
-            } catch (Exception exp) {
-                String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
-                System.err.println("makeErrTransXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") ByteArrayInputStream Exception:");
-                exp.printStackTrace();
-                AppThead_log.error("makeErrTransXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) ByteArrayInputStream Exception: {}", Msg_Type, Interface_Id, Operation_Id, ConvXMLuseXSLTerr);
-                return;
-            }
-            try {
-                ErrTransXSLT_processor = new Processor(false);
-                ErrTransXSLT_xsltCompiler = ErrTransXSLT_processor.newXsltCompiler();
-                ErrTransXSLT_xsltStylesheet = ErrTransXSLT_xsltCompiler.compile(srcXSLT);
+                ErrTransXSLT_processor = XsltExecutableRegistry.SharedProcessor;
+                ErrTransXSLT_xsltCompiler = XsltExecutableRegistry.SharedXsltCompiler;
+                ErrTransXSLT_xsltStylesheet = XsltExecutableRegistry.compile(ErrTransXSLT);
             } catch (SaxonApiException exp) {
                 String ConvXMLuseXSLTerr = sStackTrace.strInterruptedException(exp);
                 System.err.println("makeErrTransXSLT_xslt30Transformer for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") xsltCompiler Exception:");
@@ -479,7 +372,6 @@ public class MessageTemplateVO {
                 AppThead_log.error("makeErrTransXSLT_xslt30Transformer for Msg_Type `{}` ({}|{}) xsltCompiler of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, ErrTransXSLT, ConvXMLuseXSLTerr);
                 return;
             }
-            ErrTransXSLT_xslt30Transformer = ErrTransXSLT_xsltStylesheet.load30();
             return;
         }
     }
@@ -501,13 +393,14 @@ public class MessageTemplateVO {
             String LastMaker,
             String LastDate) {
 
-        HeaderXSLT_xslt30Transformer = null;
-        MsgAnswXSLT_xslt30Transformer = null;
-        AckXSLT_xslt30Transformer = null;
-        MessageXSLT_xslt30Transformer =null;
-        EnvelopeXSLTPost_xslt30Transformer = null;
-        EnvelopeXSLTExt_xslt30Transformer = null;
-        ErrTransXSLT_xslt30Transformer = null;
+        HeaderXSLT_xsltStylesheet = null;
+        MsgAnswXSLT_xsltStylesheet = null;
+        AckXSLT_xsltStylesheet = null;
+        MessageXSLT_xsltStylesheet = null;
+        EnvelopeXSLTPost_xsltStylesheet = null;
+        EnvelopeXSLTExt_xsltStylesheet = null;
+        ErrTransXSLT_xsltStylesheet = null;
+        MessageXSD_schema = null;
 
         this.Template_Id = Template_Id ;
         this.Interface_Id = Interface_Id ;
@@ -570,6 +463,59 @@ public class MessageTemplateVO {
     public void setMessageXSD (String MessageXSD) { this.MessageXSD = MessageXSD ; }
     public String getMessageXSD() { return this.MessageXSD; }
 
+    private Schema MessageXSD_schema;
+    // null - XSD не скомпилировался, TestXMLByXSD попробует ещё раз на сообщении и вернёт ошибку клиенту
+    public Schema getMessageXSD_schema() {return MessageXSD_schema;}
+    public void makeMessageXSD_schema( Logger AppThead_log )   {
+        if (( MessageXSD !=null ) && ( ! MessageXSD.isEmpty()) ) // если не пустой XSD-текст
+        {
+            try {
+                MessageXSD_schema = XsdSchemaRegistry.compile(MessageXSD);
+            } catch (SAXException exp) {
+                System.err.println("makeMessageXSD_schema for Msg_Type `" + Msg_Type + "` (" + Interface_Id + "|" + Operation_Id + ") SchemaFactory Exception:");
+                exp.printStackTrace();
+                AppThead_log.error("makeMessageXSD_schema for Msg_Type `{}` ({}|{}) SchemaFactory of `{}` Exception: {}", Msg_Type, Interface_Id, Operation_Id, MessageXSD, sStackTrace.strInterruptedException(exp));
+            }
+        }
+    }
+
+    // План исполнения шаблона строится один раз: при загрузке / перечитывании ( InitMessageRepository ) или при первом обращении.
+    // Перечитанный шаблон - это новый MessageTemplateVO, поэтому планы старого просто уходят вместе с ним.
+    private volatile MessageTemplate4Perform MessageTemplate4Perform_Plan;
+    // для отправки - свой план на каждую систему-приёмник, в нём URL_SOAP_Send типа сообщения: тип перечитывается отдельно от шаблона
+    private final ConcurrentHashMap<MessageDirectionsVO, MessageTemplate4Perform4Send> MessageTemplate4Perform4Send_Plans = new ConcurrentHashMap<>();
+
+    public void makeMessageTemplate4Perform( Logger AppThead_log ) {
+        MessageTemplate4Perform_Plan = new MessageTemplate4Perform(this, AppThead_log);
+    }
+    public MessageTemplate4Perform getMessageTemplate4Perform( Logger MessageTemplate_Log ) {
+        MessageTemplate4Perform messageTemplate4Perform = MessageTemplate4Perform_Plan;
+        if ( messageTemplate4Perform == null ) { // VO собран в обход InitMessageRepository - строим при первом обращении
+            messageTemplate4Perform = new MessageTemplate4Perform(this, MessageTemplate_Log);
+            MessageTemplate4Perform_Plan = messageTemplate4Perform;
+        }
+        return messageTemplate4Perform;
+    }
+    public MessageTemplate4Perform4Send getMessageTemplate4Perform4Send( String URL_SOAP_Send, MessageDirectionsVO messageDirectionsVO,
+                                                                         Logger MessageTemplate_Log ) {
+        MessageTemplate4Perform4Send messageTemplate4Perform4Send = MessageTemplate4Perform4Send_Plans.get(messageDirectionsVO);
+        if ( messageTemplate4Perform4Send == null || !Objects.equals(messageTemplate4Perform4Send.getURL_SOAP_Send(), URL_SOAP_Send) ) {
+            messageTemplate4Perform4Send = new MessageTemplate4Perform4Send(this,
+                    URL_SOAP_Send, //  хвост для добавления к getWSDL_Name() из MessageDirections
+                    messageDirectionsVO.getWSDL_Name(),
+                    messageDirectionsVO.getDb_user(),
+                    messageDirectionsVO.getDb_pswd(),
+                    messageDirectionsVO.getType_Connect(),
+                    messageDirectionsVO.getShort_retry_count(),
+                    messageDirectionsVO.getShort_retry_interval(),
+                    messageDirectionsVO.getLong_retry_count(),
+                    messageDirectionsVO.getLong_retry_interval(),
+                    MessageTemplate_Log );
+            MessageTemplate4Perform4Send_Plans.put(messageDirectionsVO, messageTemplate4Perform4Send);
+        }
+        return messageTemplate4Perform4Send;
+    }
+
     public void setMessageXSLT (String MessageXSLT) { this.MessageXSLT = MessageXSLT ; }
     public String getMessageXSLT () { return this.MessageXSLT; }
 
@@ -0,0 +1,159 @@
+package net.plumbing.msgbus.model;
+
+import net.plumbing.msgbus.common.XMLchars;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Разобранное по тегам сообщение ( строки MESSAGE_QueueDET ) в параллельных массивах -
+// вместо HashMap<Integer, MessageDetailVO>, где на каждый тег приходится Integer-ключ, Map.Entry и VO.
+// Строка - индекс 0..size()-1 в порядке добавления.
+// Объект переиспользуется между сообщениями: clear() сбрасывает счётчик, массивы остаются.
+public class MessageTree {
+    private static final int InitialCapacity = 64;
+    // словарь имён тегов живёт между сообщениями, но не бесконечно
+    private static final int MaxTagNames = 4096;
+
+    private int RowNum = 0;
+    private int[] Tag_Id_Index = new int[InitialCapacity];
+    private String[] Tag_Value = new String[InitialCapacity];
+    private int[] Tag_Num = new int[InitialCapacity];
+    private int[] Tag_Par_Num = new int[InitialCapacity];
+
+    // имена тегов в сообщении повторяются - каждое храним один раз
+    private final HashMap<String, Integer> TagNameIndex = new HashMap<>();
+    private String[] TagNames = new String[InitialCapacity];
+    private int TagNameNum = 0;
+
+    // дочерние строки ( и атрибуты ) по Tag_Num родителя:
+    // ChildRows[ ChildStart[Tag_Par_Num] .. ChildStart[Tag_Par_Num + 1] - 1 ], в порядке добавления
+    private int[] ChildStart = new int[InitialCapacity];
+    private int[] ChildRows = new int[InitialCapacity];
+    private int ChildIndexTagNum = -1; // -1 - индекс не построен
+    private int ChildIndexRowNum = -1;
+
+    public int add(String Tag_Id, String Tag_Value, int Tag_Num, int Tag_Par_Num) {
+        if ( RowNum == this.Tag_Num.length ) {
+            int newCapacity = RowNum * 2;
+            this.Tag_Id_Index = Arrays.copyOf(this.Tag_Id_Index, newCapacity);
+            this.Tag_Value = Arrays.copyOf(this.Tag_Value, newCapacity);
+            this.Tag_Num = Arrays.copyOf(this.Tag_Num, newCapacity);
+            this.Tag_Par_Num = Arrays.copyOf(this.Tag_Par_Num, newCapacity);
+        }
+        this.Tag_Id_Index[RowNum] = tagNameIndex(Tag_Id);
+        this.Tag_Value[RowNum] = Tag_Value;
+        this.Tag_Num[RowNum] = Tag_Num;
+        this.Tag_Par_Num[RowNum] = Tag_Par_Num;
+        ChildIndexTagNum = -1;
+        return RowNum++;
+    }
+
+    public int size() {
+        return RowNum;
+    }
+
+    public void clear() {
+        // ссылки на значения не держим, что бы не удерживать в памяти прошлое сообщение
+        Arrays.fill(this.Tag_Value, 0, RowNum, null);
+        RowNum = 0;
+        ChildIndexTagNum = -1;
+        if ( TagNameNum > MaxTagNames ) {
+            TagNameIndex.clear();
+            Arrays.fill(TagNames, 0, TagNameNum, null);
+            TagNameNum = 0;
+        }
+    }
+
+    public String getTag_Id(int Row) {
+        return TagNames[ Tag_Id_Index[checkRow(Row)] ];
+    }
+
+    // как есть, может быть null
+    public String getTag_Value(int Row) {
+        return Tag_Value[checkRow(Row)];
+    }
+
+    // как MessageDetailVO.getTag_Value(): null -> пробел
+    public String getTag_ValueOrSpace(int Row) {
+        String Value = Tag_Value[checkRow(Row)];
+        if ( Value != null ) return Value;
+        else return XMLchars.Space;
+    }
+
+    public int getTag_Num(int Row) {
+        return Tag_Num[checkRow(Row)];
+    }
+
+    public int getTag_Par_Num(int Row) {
+        return Tag_Par_Num[checkRow(Row)];
+    }
+
+    public int getMaxTag_Num() {
+        int MaxTag_Num = 0;
+        for (int i = 0; i < RowNum; i++)
+            if ( Tag_Num[i] > MaxTag_Num ) MaxTag_Num = Tag_Num[i];
+        return MaxTag_Num;
+    }
+
+    // число дочерних строк ( элементов и атрибутов ) у элемента с Tag_Num
+    public int getChildCount(int Parent_Tag_Num) {
+        buildChildIndex();
+        if ( Parent_Tag_Num < 0 || Parent_Tag_Num > ChildIndexTagNum ) return 0;
+        return ChildStart[Parent_Tag_Num + 1] - ChildStart[Parent_Tag_Num];
+    }
+
+    // номер строки j-го потомка элемента с Tag_Num
+    public int getChildRow(int Parent_Tag_Num, int j) {
+        return ChildRows[ ChildStart[Parent_Tag_Num] + j ];
+    }
+
+    // индекс строится за один проход ( подсчёт + раскладка ) и перестраивается только после add()
+    public void buildChildIndex() {
+        if ( ChildIndexTagNum >= 0 && ChildIndexRowNum == RowNum ) return;
+
+        int MaxTag_Par_Num = 0;
+        for (int i = 0; i < RowNum; i++)
+            if ( Tag_Par_Num[i] > MaxTag_Par_Num ) MaxTag_Par_Num = Tag_Par_Num[i];
+
+        if ( ChildStart.length < MaxTag_Par_Num + 2 )
+            ChildStart = new int[ Math.max(MaxTag_Par_Num + 2, ChildStart.length * 2) ];
+        else
+            Arrays.fill(ChildStart, 0, MaxTag_Par_Num + 2, 0);
+        if ( ChildRows.length < RowNum )
+            ChildRows = new int[ Math.max(RowNum, ChildRows.length * 2) ];
+
+        // ChildStart[p + 1] - сколько строк ссылается на p
+        for (int i = 0; i < RowNum; i++)
+            if ( Tag_Par_Num[i] >= 0 )
+                ChildStart[ Tag_Par_Num[i] + 1 ]++;
+        for (int p = 0; p <= MaxTag_Par_Num; p++)
+            ChildStart[p + 1] += ChildStart[p];
+        // раскладываем, ChildStart[p] временно служит курсором записи
+        for (int i = 0; i < RowNum; i++)
+            if ( Tag_Par_Num[i] >= 0 )
+                ChildRows[ ChildStart[ Tag_Par_Num[i] ]++ ] = i;
+        // курсор ушёл на начало следующей группы - сдвигаем обратно
+        for (int p = MaxTag_Par_Num; p > 0; p--)
+            ChildStart[p] = ChildStart[p - 1];
+        ChildStart[0] = 0;
+
+        ChildIndexTagNum = MaxTag_Par_Num;
+        ChildIndexRowNum = RowNum;
+    }
+
+    private int checkRow(int Row) {
+        if ( Row < 0 || Row >= RowNum )
+            throw new IndexOutOfBoundsException("MessageTree row " + Row + " of " + RowNum);
+        return Row;
+    }
+
+    private int tagNameIndex(String Tag_Id) {
+        Integer Index = TagNameIndex.get(Tag_Id);
+        if ( Index != null ) return Index;
+        if ( TagNameNum == TagNames.length )
+            TagNames = Arrays.copyOf(TagNames, TagNameNum * 2);
+        TagNames[TagNameNum] = Tag_Id;
+        TagNameIndex.put(Tag_Id, TagNameNum);
+        return TagNameNum++;
+    }
+}
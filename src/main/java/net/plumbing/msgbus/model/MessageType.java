@@ -6,5 +6,6 @@ import java.util.Map;
 public class MessageType {
     public static int RowNum=0;
     //public static ArrayList AllMessageType = new ArrayList();
-    public static Map<Integer, MessageTypeVO > AllMessageType = new HashMap<Integer, MessageTypeVO >();
+    // карта текущего MessageRepositorySnapshot, только для чтения - новые строки публикует InitMessageRepository
+    public static volatile Map<Integer, MessageTypeVO > AllMessageType = new HashMap<Integer, MessageTypeVO >();
 }
@@ -53,6 +53,7 @@ public class MessageTypeVO {
     public String getURL_SOAP_Ack(){ return this.URL_SOAP_Ack; }
     public int getMax_Retry_Count(){ return this.Max_Retry_Count; }
     public int getMax_Retry_Time(){ return this.Max_Retry_Time; }
+    public java.sql.Timestamp getLast_Update_Dt(){ return this.Last_Update_Dt; }
 
     public void setMax_Retry_Count(int Max_Retry_Count ){  this.Max_Retry_Count=Max_Retry_Count; }
     public void setMax_Retry_Time(int Max_Retry_Time){  this.Max_Retry_Time = Max_Retry_Time; }
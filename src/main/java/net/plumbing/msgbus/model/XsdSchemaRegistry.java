@@ -0,0 +1,72 @@
+package net.plumbing.msgbus.model;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Скомпилированные MessageXSD шаблонов - вместо SchemaFactory.newInstance(..).newSchema(..) на каждое сообщение в TestXMLByXSD.
+// XSD компилируется при загрузке / перечитывании шаблона ( MessageTemplateVO.makeMessageXSD_schema ), Schema потокобезопасна
+// и используется всеми потоками, на каждую проверку берётся свой Validator - он дешёвый, но не потокобезопасный.
+// Хранение как в XsltExecutableRegistry: по SHA-256 текста, слабые ссылки - держат сами шаблоны.
+public class XsdSchemaRegistry {
+    // SchemaFactory не потокобезопасна - компиляция под synchronized
+    private static final SchemaFactory SharedSchemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+
+    private static final HashMap<String, WeakReference<Schema>> Schemas = new HashMap<>();
+    private static final AtomicLong CompiledCount = new AtomicLong(0L);
+    private static final AtomicLong ReusedCount = new AtomicLong(0L);
+    private static final AtomicLong CompileNanos = new AtomicLong(0L);
+    private static final AtomicLong ValidateCount = new AtomicLong(0L);
+    private static final AtomicLong ValidateNanos = new AtomicLong(0L);
+
+    public static synchronized Schema compile(String XSD_Text) throws SAXException {
+        String XSD_Hash = XsltExecutableRegistry.hash(XSD_Text);
+        WeakReference<Schema> SchemaRef = Schemas.get(XSD_Hash);
+        Schema XSDschema = ( SchemaRef == null ) ? null : SchemaRef.get();
+        if ( XSDschema != null ) {
+            ReusedCount.incrementAndGet();
+            return XSDschema;
+        }
+        long startNanos = System.nanoTime();
+        XSDschema = SharedSchemaFactory.newSchema( new StreamSource(new StringReader(XSD_Text)) );
+        CompileNanos.addAndGet(System.nanoTime() - startNanos);
+        CompiledCount.incrementAndGet();
+        Schemas.put(XSD_Hash, new WeakReference<>(XSDschema));
+        return XSDschema;
+    }
+
+    // Validator на каждый вызов: как Xslt30Transformer, он хранит состояние проверки
+    public static void validate(Schema XSDschema, Source xmlSource) throws SAXException, IOException {
+        long startNanos = System.nanoTime();
+        try {
+            XSDschema.newValidator().validate(xmlSource);
+        } finally {
+            ValidateCount.incrementAndGet();
+            ValidateNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static long getValidateCount() { return ValidateCount.get(); }
+    public static long getValidateNanos() { return ValidateNanos.get(); }
+
+    public static String getStatistics() {
+        int Alive = 0;
+        synchronized (XsdSchemaRegistry.class) {
+            Schemas.values().removeIf(SchemaRef -> SchemaRef.get() == null);
+            Alive = Schemas.size();
+        }
+        long Validations = ValidateCount.get();
+        return "XsdSchemaRegistry: compiled=" + CompiledCount.get() + " reused=" + ReusedCount.get() +
+                " alive=" + Alive + " compileTime=" + (CompileNanos.get() / 1000000L) + " ms" +
+                "; validate=" + Validations + " avg=" + ( Validations == 0 ? 0 : ValidateNanos.get() / Validations / 1000L ) + " us";
+    }
+}
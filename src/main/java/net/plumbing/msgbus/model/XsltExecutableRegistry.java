@@ -0,0 +1,106 @@
+package net.plumbing.msgbus.model;
+
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.Xslt30Transformer;
+import net.sf.saxon.s9api.XsltCompiler;
+import net.sf.saxon.s9api.XsltExecutable;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Один Processor ( Configuration, NamePool ) на все XSLT всех шаблонов - вместо new Processor(false) на каждый слот
+// HeaderInXSLT / EnvelopeInXSLT / AckAnswXSLT / MessageXSLT / ErrTransXSLT ... каждого MessageTemplateVO.
+// Скомпилированные XsltExecutable хранятся по SHA-256 текста XSLT: одинаковые стили из разных шаблонов компилируются один раз.
+// Ссылка на XsltExecutable в реестре слабая - держат его сами шаблоны, после перечитывания шаблона
+// с изменённым XSLT старый вариант уходит вместе с последним шаблоном, который на него ссылался.
+public class XsltExecutableRegistry {
+    public static final Processor SharedProcessor = new Processor(false);
+    // XsltCompiler не потокобезопасен - компиляция под synchronized, в ConvXMLuseXSLT30 от него нужен только getXsltLanguageVersion()
+    public static final XsltCompiler SharedXsltCompiler = SharedProcessor.newXsltCompiler();
+
+    private static final HashMap<String, WeakReference<XsltExecutable>> Executables = new HashMap<>();
+    private static final AtomicLong CompiledCount = new AtomicLong(0L);
+    private static final AtomicLong ReusedCount = new AtomicLong(0L);
+    private static final AtomicLong CompileNanos = new AtomicLong(0L);
+    private static final AtomicLong LoadCount = new AtomicLong(0L);
+    private static final AtomicLong LoadNanos = new AtomicLong(0L);
+    private static final AtomicLong TransformCount = new AtomicLong(0L);
+    private static final AtomicLong TransformNanos = new AtomicLong(0L);
+    private static final AtomicLong TransformMaxNanos = new AtomicLong(0L);
+
+    public static synchronized XsltExecutable compile(String XSLT_Text) throws SaxonApiException {
+        String XSLT_Hash = hash(XSLT_Text);
+        WeakReference<XsltExecutable> ExecutableRef = Executables.get(XSLT_Hash);
+        XsltExecutable xsltExecutable = ( ExecutableRef == null ) ? null : ExecutableRef.get();
+        if ( xsltExecutable != null ) {
+            ReusedCount.incrementAndGet();
+            return xsltExecutable;
+        }
+        long startNanos = System.nanoTime();
+        xsltExecutable = SharedXsltCompiler.compile( new StreamSource(new ByteArrayInputStream(XSLT_Text.getBytes(StandardCharsets.UTF_8))) );
+        CompileNanos.addAndGet(System.nanoTime() - startNanos);
+        CompiledCount.incrementAndGet();
+        Executables.put(XSLT_Hash, new WeakReference<>(xsltExecutable));
+        return xsltExecutable;
+    }
+
+    // Новый Xslt30Transformer на каждый вызов: XsltExecutable потокобезопасен, Xslt30Transformer - нет, он хранит состояние
+    // вызова ( параметры, результат, Controller ). load30() дешёвый, пул не нужен и не даёт ожидания на горячем интерфейсе.
+    // Через этот метод transformer берут все get*XSLT_xslt30Transformer() шаблонов.
+    // null - стиль не скомпилировался, ConvXMLuseXSLT30 сам сообщит об ошибке
+    public static Xslt30Transformer load30(XsltExecutable xsltExecutable) {
+        if ( xsltExecutable == null ) return null;
+        long startNanos = System.nanoTime();
+        Xslt30Transformer xslt30Transformer = xsltExecutable.load30();
+        LoadCount.incrementAndGet();
+        LoadNanos.addAndGet(System.nanoTime() - startNanos);
+        return xslt30Transformer;
+    }
+
+    // вызывается из ConvXMLuseXSLT30 после transform()
+    public static void recordTransform(long transformNanos) {
+        TransformCount.incrementAndGet();
+        TransformNanos.addAndGet(transformNanos);
+        TransformMaxNanos.accumulateAndGet(transformNanos, Math::max);
+    }
+
+    public static long getLoadCount() { return LoadCount.get(); }
+    public static long getLoadNanos() { return LoadNanos.get(); }
+    public static long getTransformCount() { return TransformCount.get(); }
+    public static long getTransformNanos() { return TransformNanos.get(); }
+
+    // сколько стилей скомпилировано / взято готовыми, и сколько времени ушло на компиляцию;
+    // получение transformer ( load30 ) и сами преобразования - число и среднее время
+    public static String getStatistics() {
+        int Alive = 0;
+        synchronized (XsltExecutableRegistry.class) {
+            Executables.values().removeIf(ExecutableRef -> ExecutableRef.get() == null);
+            Alive = Executables.size();
+        }
+        long Loads = LoadCount.get();
+        long Transforms = TransformCount.get();
+        return "XsltExecutableRegistry: compiled=" + CompiledCount.get() + " reused=" + ReusedCount.get() +
+                " alive=" + Alive + " compileTime=" + (CompileNanos.get() / 1000000L) + " ms" +
+                "; load30=" + Loads + " avg=" + ( Loads == 0 ? 0 : LoadNanos.get() / Loads / 1000L ) + " us" +
+                "; transform=" + Transforms + " avg=" + ( Transforms == 0 ? 0 : TransformNanos.get() / Transforms / 1000L ) + " us" +
+                " max=" + (TransformMaxNanos.get() / 1000L) + " us";
+    }
+
+    static String hash(String XSLT_Text) {
+        try {
+            MessageDigest Digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex( Digest.digest(XSLT_Text.getBytes(StandardCharsets.UTF_8)) );
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 есть в любой JRE
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.plumbing.msgbus.monitoring;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Диагностика pinning виртуальных потоков: виртуальный поток, заблокированный внутри synchronized
+// ( или в native-вызове ) держит carrier-поток, и при массовых синхронных вызовах пул carrier-ов кончается.
+// Слушаем JFR-событие jdk.VirtualThreadPinned в самом процессе и пишем в лог верх стека.
+// Тот же диагноз без JFR: -Djdk.tracePinnedThreads=short
+public class VirtualThreadPinningMonitor {
+    // короче - не интересно, столько стоит обычный round-trip в БД
+    public static Duration PinnedThreshold = Duration.ofMillis(20);
+    private static final int StackDepth = 8;
+
+    private static final AtomicLong PinnedCount = new AtomicLong(0);
+    private static RecordingStream PinnedEventStream = null;
+
+    public static synchronized void start( Logger Monitor_log ) {
+        if ( PinnedEventStream != null ) return;
+        try {
+            RecordingStream recordingStream = new RecordingStream();
+            recordingStream.enable("jdk.VirtualThreadPinned").withThreshold( PinnedThreshold ).withStackTrace();
+            recordingStream.onEvent("jdk.VirtualThreadPinned", event -> logPinned( event, Monitor_log ) );
+            // startAsync() держит JVM от завершения, поэтому свой daemon-поток
+            Thread MonitorThread = new Thread( recordingStream::start, "VirtualThreadPinningMonitor" );
+            MonitorThread.setDaemon(true);
+            MonitorThread.start();
+            PinnedEventStream = recordingStream;
+            Monitor_log.info("VirtualThreadPinningMonitor: jdk.VirtualThreadPinned, threshold {} ms", PinnedThreshold.toMillis());
+        } catch ( Exception e ) {
+            // JFR может быть недоступен ( -XX:-FlightRecorder ), работе не мешает
+            Monitor_log.warn("VirtualThreadPinningMonitor не запущен: {}", e.getMessage());
+        }
+    }
+
+    public static long getPinnedCount() {
+        return PinnedCount.get();
+    }
+
+    private static void logPinned( RecordedEvent event, Logger Monitor_log ) {
+        long pinnedCount = PinnedCount.incrementAndGet();
+        StringBuilder Stack = new StringBuilder();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if ( stackTrace != null ) {
+            List<RecordedFrame> frames = stackTrace.getFrames();
+            for (int i = 0; i < frames.size() && i < StackDepth; i++) {
+                RecordedFrame frame = frames.get(i);
+                Stack.append("\n\tat ").append( frame.getMethod().getType().getName() ).append('.')
+                     .append( frame.getMethod().getName() ).append(':').append( frame.getLineNumber() );
+            }
+        }
+        Monitor_log.warn("VirtualThreadPinned #{}: {} ms, thread `{}`{}", pinnedCount, event.getDuration().toMillis(),
+                         event.getThread() != null ? event.getThread().getJavaName() : "?", Stack );
+    }
+}
@@ -0,0 +1,209 @@
+package net.plumbing.msgbus.mq;
+
+import jakarta.jms.*;
+import org.apache.activemq.pool.PooledConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Общие для узла JMS-ресурсы для сообщений-"будильников" в Q.<direction>.IN.
+// Раньше каждый синхронный вызов открывал соединение, сессию, producer, TemporaryQueue и consumer на ней - создание
+// TemporaryQueue это round-trip к брокеру и ресурс брокера на каждый запрос. Теперь на узел одна очередь ответов
+// ( TemporaryQueue живёт, пока живёт соединение ) с одним consumer-ом, ответ отдаётся ожидающему запросу по JMSCorrelationID.
+// Запрос уходит с JMSCorrelationID = UUID; если Sender в ответе ставит JMSMessageID запроса, а не его JMSCorrelationID,
+// ожидание находится и по нему. Ответ, который никто не ждёт, отбрасывается - ждущий всё равно перепроверяет БД.
+// Сессии с producer-ом без адресата переиспользуются: Session не потокобезопасна, поэтому каждая отдаётся одному потоку за раз.
+public class JMSReplyDispatcher {
+    private static final Logger JMSReplyDispatcher_Log = LoggerFactory.getLogger(JMSReplyDispatcher.class);
+
+    private record SendChannel( Session Qsession, MessageProducer Producer ) { }
+
+    private static final ReentrantLock InitLock = new ReentrantLock();
+    private static volatile Connection Qconnection = null;
+    private static volatile Session ReplySession = null;
+    private static volatile TemporaryQueue ReplyQueue = null;
+    private static final ConcurrentLinkedDeque<SendChannel> IdleSendChannels = new ConcurrentLinkedDeque<>();
+    private static final ConcurrentHashMap<String, Queue> Queues = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, CompletableFuture<String>> WaitingReplies = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> MessageID_by_CorrelationID = new ConcurrentHashMap<>();
+
+    private static final AtomicLong SentCount = new AtomicLong(0L);
+    private static final AtomicLong ReplyCount = new AtomicLong(0L);
+    private static final AtomicLong UnmatchedReplyCount = new AtomicLong(0L);
+
+    // Отправляет TextMessage в очередь QueueName с JMSReplyTo на общую очередь ответов.
+    // isReplyAwaited - ответ ждём через awaitReply( CorrelationID ), иначе ответ будет отброшен и cancel() не нужен.
+    public static String send( String TextMessageSring, String QueueName, boolean isReplyAwaited,
+                               PooledConnectionFactory MQpooledConnectionFactory ) throws JMSException {
+        Connection connection = getConnection( MQpooledConnectionFactory );
+        String CorrelationID = UUID.randomUUID().toString();
+        CompletableFuture<String> Reply = null;
+        if ( isReplyAwaited ) {
+            Reply = new CompletableFuture<>();
+            WaitingReplies.put( CorrelationID, Reply );
+        }
+        SendChannel sendChannel = IdleSendChannels.pollFirst();
+        boolean isChannelValid = false;
+        try {
+            if ( sendChannel == null ) {
+                Session Qsession = connection.createSession( false, Session.AUTO_ACKNOWLEDGE );
+                MessageProducer Producer = Qsession.createProducer( null );
+                Producer.setDeliveryMode( DeliveryMode.NON_PERSISTENT );
+                sendChannel = new SendChannel( Qsession, Producer );
+            }
+            Queue JMSdestination = Queues.get( QueueName );
+            if ( JMSdestination == null ) {
+                JMSdestination = sendChannel.Qsession().createQueue( QueueName );
+                Queues.putIfAbsent( QueueName, JMSdestination );
+            }
+            TextMessage message = sendChannel.Qsession().createTextMessage( TextMessageSring );
+            message.setJMSDeliveryMode( DeliveryMode.NON_PERSISTENT );
+            message.setJMSCorrelationID( CorrelationID );
+            message.setJMSReplyTo( ReplyQueue );
+            sendChannel.Producer().send( JMSdestination, message );
+            SentCount.incrementAndGet();
+            if ( isReplyAwaited && message.getJMSMessageID() != null ) {
+                MessageID_by_CorrelationID.put( CorrelationID, message.getJMSMessageID() );
+                WaitingReplies.put( message.getJMSMessageID(), Reply );
+            }
+            isChannelValid = true;
+            return CorrelationID;
+        } finally {
+            if ( isChannelValid )
+                IdleSendChannels.offerFirst( sendChannel );
+            else {
+                if ( isReplyAwaited ) WaitingReplies.remove( CorrelationID );
+                if ( sendChannel != null ) closeQuietly( sendChannel.Qsession() );
+            }
+        }
+    }
+
+    // текст ответа или null, если за TimeOutMillis ответа не было
+    public static String awaitReply( String CorrelationID, long TimeOutMillis ) throws InterruptedException {
+        CompletableFuture<String> Reply = WaitingReplies.get( CorrelationID );
+        if ( Reply == null )
+            return null;
+        try {
+            return Reply.get( TimeOutMillis, TimeUnit.MILLISECONDS );
+        } catch ( TimeoutException | ExecutionException e ) {
+            return null;
+        }
+    }
+
+    // ответ как future - для ожидания без потока ( SyncCallWait ); null - ответа на CorrelationID не ждём
+    public static CompletableFuture<String> getReply( String CorrelationID ) {
+        return WaitingReplies.get( CorrelationID );
+    }
+
+    public static void cancel( String CorrelationID ) {
+        WaitingReplies.remove( CorrelationID );
+        String JMSMessageID = MessageID_by_CorrelationID.remove( CorrelationID );
+        if ( JMSMessageID != null )
+            WaitingReplies.remove( JMSMessageID );
+    }
+
+    private static Connection getConnection( PooledConnectionFactory MQpooledConnectionFactory ) throws JMSException {
+        Connection connection = Qconnection;
+        if ( connection != null )
+            return connection;
+        if ( MQpooledConnectionFactory == null )
+            throw new JMSException( "JMSReplyDispatcher: MQpooledConnectionFactory is not ready" );
+        InitLock.lock();
+        try {
+            if ( Qconnection != null )
+                return Qconnection;
+            connection = MQpooledConnectionFactory.createConnection();
+            try {
+                connection.setExceptionListener( JMSReplyDispatcher::onConnectionFault );
+                connection.start();
+                Session Rsession = connection.createSession( false, Session.AUTO_ACKNOWLEDGE );
+                TemporaryQueue Rqueue = Rsession.createTemporaryQueue();
+                Rsession.createConsumer( Rqueue ).setMessageListener( JMSReplyDispatcher::onReply );
+                ReplySession = Rsession;
+                ReplyQueue = Rqueue;
+            } catch ( JMSException e ) {
+                closeQuietly( connection );
+                throw e;
+            }
+            JMSReplyDispatcher_Log.info( "JMSReplyDispatcher: reply queue `{}` is ready", ReplyQueue );
+            Qconnection = connection;
+            return connection;
+        } finally {
+            InitLock.unlock();
+        }
+    }
+
+    private static void onReply( Message message ) {
+        try {
+            String CorrelationID = message.getJMSCorrelationID();
+            CompletableFuture<String> Reply = ( CorrelationID == null ) ? null : WaitingReplies.get( CorrelationID );
+            if ( Reply == null ) {
+                UnmatchedReplyCount.incrementAndGet();
+                return;
+            }
+            ReplyCount.incrementAndGet();
+            Reply.complete( ( message instanceof TextMessage ) ? ((TextMessage) message).getText() : "" );
+        } catch ( JMSException e ) {
+            JMSReplyDispatcher_Log.error( "JMSReplyDispatcher: reply read fault: {}", e.getMessage() );
+        }
+    }
+
+    // соединение потеряно - следующий send() откроет новое, ждущие досмотрят статус в БД
+    private static void onConnectionFault( JMSException e ) {
+        JMSReplyDispatcher_Log.error( "JMSReplyDispatcher: connection fault: {}", e.getMessage() );
+        close( JMSReplyDispatcher_Log );
+    }
+
+    public static void close( Logger AppThead_log ) {
+        InitLock.lock();
+        try {
+            Connection connection = Qconnection;
+            Qconnection = null;
+            ReplyQueue = null;
+            SendChannel sendChannel;
+            while ( ( sendChannel = IdleSendChannels.pollFirst() ) != null )
+                closeQuietly( sendChannel.Qsession() );
+            if ( ReplySession != null ) {
+                closeQuietly( ReplySession );
+                ReplySession = null;
+            }
+            Queues.clear();
+            if ( connection != null ) {
+                closeQuietly( connection );
+                AppThead_log.info( "JMSReplyDispatcher: closed" );
+            }
+        } finally {
+            InitLock.unlock();
+        }
+    }
+
+    public static String getStatistics() {
+        return "JMSReplyDispatcher: sent=" + SentCount.get() + " replies=" + ReplyCount.get() +
+                " unmatched=" + UnmatchedReplyCount.get() + " waiting=" + ( WaitingReplies.size() - MessageID_by_CorrelationID.size() ) +
+                " idleSessions=" + IdleSendChannels.size();
+    }
+
+    private static void closeQuietly( Session Qsession ) {
+        try { Qsession.close(); } catch ( JMSException e ) {
+            JMSReplyDispatcher_Log.warn( "JMSReplyDispatcher: session close fault: {}", e.getMessage() );
+        }
+    }
+
+    private static void closeQuietly( Connection connection ) {
+        try {
+            connection.stop();
+            connection.close();
+        } catch ( JMSException e ) {
+            JMSReplyDispatcher_Log.warn( "JMSReplyDispatcher: connection close fault: {}", e.getMessage() );
+        }
+    }
+}
@@ -4,72 +4,51 @@ import org.apache.activemq.pool.PooledConnectionFactory;
 import org.slf4j.Logger;
 
 import jakarta.jms.*;
+import java.util.concurrent.CompletableFuture;
 
+// Сообщение-"будильник" в Q.<direction>.IN и ожидание ответа на него.
+// Соединение, сессии и очередь ответов общие для узла - их держит JMSReplyDispatcher, здесь только CorrelationID запроса.
 public class PerformTextMessageJMSQueue {
-    private Connection Qconnection;
-    private MessageConsumer ReplyConsumer;
-    private Session Qsession;
+    private String CorrelationID;
 
     public PerformTextMessageJMSQueue() {
-        this.Qconnection =null;
-        this.Qsession = null;
-        this.ReplyConsumer = null;
+        this.CorrelationID = null;
     }
 
-    public Connection SendTextMessageJMSQueue(String TextMessageSring, String QueueName, PooledConnectionFactory MQpooledConnectionFactory ) throws JMSException {
-
-        this.Qconnection = MQpooledConnectionFactory.createConnection();
-        //this.Qconnection.setClientID("JMS.Receiver." + Thread.currentThread().getName() ); ! // fault:Setting clientID on a used Connection is not allowed
-        this.Qconnection.start();
-
-        this.Qsession = Qconnection.createSession(false,
-                Session.AUTO_ACKNOWLEDGE);
-        Destination JMSdestination = this.Qsession.createQueue(QueueName);
-        MessageProducer producer = this.Qsession.createProducer(JMSdestination);
-        // We will send a small text message saying 'Hello World!!!'
-        TextMessage message = this.Qsession.createTextMessage( TextMessageSring );
-        message.setJMSDeliveryMode(DeliveryMode.NON_PERSISTENT);
-        ////////////////////////////////////
-        Destination tempDestResponce = this.Qsession.createTemporaryQueue();
-        message.setJMSReplyTo( tempDestResponce );
-
-        this.ReplyConsumer = this.Qsession.createConsumer(tempDestResponce);
-        producer.setDeliveryMode( DeliveryMode.NON_PERSISTENT );
-        producer.send(message);
-        producer.close();
-
-        return this.Qconnection;
+    // возвращает CorrelationID отправленного сообщения, по нему ReadTextMessageReplyQueue() ждёт ответ
+    public String SendTextMessageJMSQueue(String TextMessageSring, String QueueName, PooledConnectionFactory MQpooledConnectionFactory ) throws JMSException {
+        this.CorrelationID = JMSReplyDispatcher.send( TextMessageSring, QueueName, true, MQpooledConnectionFactory );
+        return this.CorrelationID;
     }
 
     public String ReadTextMessageReplyQueue ( int TimeOut, boolean IsDebugged, Logger MessegeReceive_Log) throws JMSException {
-        // JMSconsumer надо читать с блокировкой
-        if ( this.ReplyConsumer != null) {
-
-            TextMessage JMSTextMessage = (TextMessage) this.ReplyConsumer.receive(TimeOut * 1);
-            if (JMSTextMessage != null) {
-                String JMSMessageID = JMSTextMessage.getJMSMessageID();
+        if ( this.CorrelationID != null) {
+            String ReplyText;
+            try {
+                ReplyText = JMSReplyDispatcher.awaitReply( this.CorrelationID, TimeOut );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new JMSException( "ReadTextMessageReplyQueue is interrupted" );
+            }
+            if (ReplyText != null) {
                 if (IsDebugged)
-                    MessegeReceive_Log.info("Received message: (" + JMSMessageID + ") [" + JMSTextMessage.getText() + "]");
-                return JMSTextMessage.getText();
+                    MessegeReceive_Log.info("Received message: (" + this.CorrelationID + ") [" + ReplyText + "]");
+                return ReplyText;
             }
         }
         return null;
     }
+    // ответ на отправленное сообщение как future, null - сообщение не отправлено
+    public CompletableFuture<String> getReplyFuture() {
+        if ( this.CorrelationID == null )
+            return null;
+        return JMSReplyDispatcher.getReply( this.CorrelationID );
+    }
+
     public void Stop_and_Close_MessageJMSQueue ( Long Queue_Id,  Logger MessegeReceive_Log)  {
-        try {
-        if ( this.ReplyConsumer != null)
-            this.ReplyConsumer.close();
-        /////////////////////////////////
-        if ( this.Qsession != null )
-            this.Qsession.close();
-            if ( this.Qconnection != null ) {
-                this.Qconnection.stop();
-                this.Qconnection.close();
-            }
-        } catch ( JMSException e) { // | InterruptedException
-            MessegeReceive_Log.error("Message Stop_and_Close_MessageJMSQueue()  Task[" + Queue_Id + "]: fault: " + e.getMessage());
-            System.err.println("Message Stop_and_Close_MessageJMSQueue()  Task[" + Queue_Id + "]: fault: ");
-            e.printStackTrace();
+        if ( this.CorrelationID != null ) {
+            JMSReplyDispatcher.cancel( this.CorrelationID );
+            this.CorrelationID = null;
         }
     }
 
@@ -0,0 +1,182 @@
+package net.plumbing.msgbus.telegramm;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Очередь уведомлений одного канала, её разбирает один фоновый отправитель ( см. NotifyByChannel ).
+// - Похожие уведомления ( совпадают с точностью до чисел: Queue_Id, номера потоков, порты ) за CoalesceWindowMillis
+//   не отправляются, по окончании окна уходит одно "Ещё N похожих ... : <первое>".
+// - Не больше MaxPerMinute отправок за последние 60 сек., остальные ждут в очереди.
+// - Очередь не больше QueueSize, при переполнении выбрасывается самое старое.
+// Время передаётся явно, чтобы окна и предел проверялись без ожидания.
+public class NotificationDispatcher {
+    private static final long RateWindowMillis = TimeUnit.MINUTES.toMillis(1);
+    private static final int CoalesceKeyLength = 256;
+
+    private final String ChannelName;
+    private volatile int QueueSize;
+    private volatile long CoalesceWindowMillis;
+    private volatile int MaxPerMinute;
+
+    private final ReentrantLock Lock = new ReentrantLock();
+    private final Condition NotEmpty = Lock.newCondition();
+    private final ArrayDeque<String> Pending = new ArrayDeque<>();
+    private final ArrayDeque<Long> SentTimes = new ArrayDeque<>();
+    private final LinkedHashMap<String, CoalesceWindow> RecentNotifications = new LinkedHashMap<>();
+    private long OfferedCount = 0L;
+    private long CoalescedCount = 0L;
+    private long DroppedCount = 0L;
+    private long SentCount = 0L;
+
+    private static final class CoalesceWindow {
+        final String FirstText;
+        final long Start_Millis;
+        int Suppressed = 0;
+
+        CoalesceWindow( String FirstText, long Start_Millis ) {
+            this.FirstText = FirstText;
+            this.Start_Millis = Start_Millis;
+        }
+    }
+
+    public NotificationDispatcher( String ChannelName, int QueueSize, long CoalesceWindowMillis, int MaxPerMinute ) {
+        this.ChannelName = ChannelName;
+        setLimits( QueueSize, CoalesceWindowMillis, MaxPerMinute );
+    }
+
+    // MaxPerMinute <= 0 - без предела, CoalesceWindowMillis <= 0 - без склейки
+    public void setLimits( int QueueSize, long CoalesceWindowMillis, int MaxPerMinute ) {
+        this.QueueSize = Math.max( QueueSize, 1 );
+        this.CoalesceWindowMillis = CoalesceWindowMillis;
+        this.MaxPerMinute = MaxPerMinute;
+    }
+
+    // false - уведомление склеено с похожим и отдельно не отправится
+    public boolean offer( String Text, long Now_Millis ) {
+        Lock.lock();
+        try {
+            OfferedCount += 1;
+            if ( CoalesceWindowMillis > 0 ) {
+                String Key = getCoalesceKey( Text );
+                CoalesceWindow Window = RecentNotifications.get( Key );
+                if ( Window != null ) {
+                    if ( Now_Millis - Window.Start_Millis < CoalesceWindowMillis ) {
+                        Window.Suppressed += 1;
+                        CoalescedCount += 1;
+                        return false;
+                    }
+                    RecentNotifications.remove( Key );
+                    enqueueSummary( Window );
+                }
+                RecentNotifications.put( Key, new CoalesceWindow( Text, Now_Millis ) );
+            }
+            enqueue( Text );
+            return true;
+        } finally {
+            Lock.unlock();
+        }
+    }
+
+    // Следующее уведомление к отправке или null, если очередь пуста или предел отправок исчерпан
+    public String poll( long Now_Millis ) {
+        Lock.lock();
+        try {
+            closeExpiredWindows( Now_Millis, false );
+            if ( Pending.isEmpty() )
+                return null;
+            while ( !SentTimes.isEmpty() && Now_Millis - SentTimes.peekFirst() >= RateWindowMillis )
+                SentTimes.pollFirst();
+            if ( MaxPerMinute > 0 && SentTimes.size() >= MaxPerMinute )
+                return null;
+            SentTimes.addLast( Now_Millis );
+            SentCount += 1;
+            return Pending.pollFirst();
+        } finally {
+            Lock.unlock();
+        }
+    }
+
+    // poll() с ожиданием уведомления не дольше WaitMillis - для фонового отправителя
+    public String take( long WaitMillis ) throws InterruptedException {
+        String Text = poll( System.currentTimeMillis() );
+        if ( Text != null )
+            return Text;
+        Lock.lock();
+        try {
+            if ( Pending.isEmpty() )
+                NotEmpty.await( WaitMillis, TimeUnit.MILLISECONDS );
+        } finally {
+            Lock.unlock();
+        }
+        Text = poll( System.currentTimeMillis() );
+        if ( Text == null && !isEmpty() )
+            // в очереди есть, но исчерпан предел отправок - ждём, пока освободится место в окне
+            TimeUnit.MILLISECONDS.sleep( WaitMillis );
+        return Text;
+    }
+
+    // при остановке: незакрытые окна склейки сразу ставим в очередь итогом
+    public void closeAllWindows() {
+        Lock.lock();
+        try {
+            closeExpiredWindows( 0L, true );
+        } finally {
+            Lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        Lock.lock();
+        try {
+            return Pending.isEmpty();
+        } finally {
+            Lock.unlock();
+        }
+    }
+
+    public String getStatistics() {
+        Lock.lock();
+        try {
+            return "NotificationDispatcher " + ChannelName + ": offered=" + OfferedCount + " sent=" + SentCount +
+                    " coalesced=" + CoalescedCount + " dropped=" + DroppedCount + " pending=" + Pending.size();
+        } finally {
+            Lock.unlock();
+        }
+    }
+
+    // числа заменяем на #, чтобы "Queue_Id=123 ..." и "Queue_Id=456 ..." считались похожими
+    static String getCoalesceKey( String Text ) {
+        String Key = ( Text == null ) ? "" : Text.replaceAll( "\\d+", "#" );
+        return ( Key.length() > CoalesceKeyLength ) ? Key.substring( 0, CoalesceKeyLength ) : Key;
+    }
+
+    private void closeExpiredWindows( long Now_Millis, boolean isAll ) {
+        Iterator<Map.Entry<String, CoalesceWindow>> Windows = RecentNotifications.entrySet().iterator();
+        while ( Windows.hasNext() ) {
+            CoalesceWindow Window = Windows.next().getValue();
+            if ( !isAll && Now_Millis - Window.Start_Millis < CoalesceWindowMillis )
+                continue;
+            Windows.remove();
+            enqueueSummary( Window );
+        }
+    }
+
+    private void enqueueSummary( CoalesceWindow Window ) {
+        if ( Window.Suppressed > 0 )
+            enqueue( "Ещё " + Window.Suppressed + " похожих за " + TimeUnit.MILLISECONDS.toSeconds( CoalesceWindowMillis ) + " сек.: " + Window.FirstText );
+    }
+
+    private void enqueue( String Text ) {
+        if ( Pending.size() >= QueueSize ) {
+            Pending.pollFirst();
+            DroppedCount += 1;
+        }
+        Pending.addLast( Text );
+        NotEmpty.signal();
+    }
+}
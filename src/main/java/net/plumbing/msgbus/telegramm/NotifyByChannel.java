@@ -10,9 +10,11 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
@@ -25,7 +27,12 @@ import java.net.http.HttpResponse;
 //import javax.net.ssl.X509TrustManager;
 //import javax.net.ssl.SSLParameters;
 
+// Telegram_sendMessage() только ставит уведомление в очередь NotificationDispatcher и сразу возвращается: его зовут из
+// путей обработки ошибок ( JMSReceiveTask перед переподключением и т.п. ), и при недоступности брокера или БД каждый поток
+// ждал бы ответа api.telegram.org и слал почти одинаковые сообщения. Отправляет один фоновый поток,
+// похожие уведомления склеиваются, число отправок в минуту ограничено.
 public class NotifyByChannel {
+    private static final Logger NotifyByChannel_Log = LoggerFactory.getLogger(NotifyByChannel.class);
     // https://api.telegram.org/bot1450268713:AAGMgWJ1ET91dvY5KofxNfXJBRJ_iFpTqZo/sendMessage
     // ?chat_id=-1001328897633
     // &text=*bold text* normal-text _italic text_ ```pre-formatted Ext-fixed-width code block```
@@ -36,6 +43,27 @@ public class NotifyByChannel {
     private static String httpProxyPort=null;
     private static String httpProxyHost=null;
 
+    // telegramm.queue-size
+    public static int QueueSize = 1000;
+    // telegramm.coalesce-window, секунд
+    public static long CoalesceWindowMillis = TimeUnit.SECONDS.toMillis(60);
+    // telegramm.max-per-minute, у Telegram для группы - 20 сообщений в минуту
+    public static int MaxPerMinute = 20;
+
+    private static final NotificationDispatcher TelegramDispatcher =
+            new NotificationDispatcher( "Telegram", QueueSize, CoalesceWindowMillis, MaxPerMinute );
+    private static final ReentrantLock SenderLock = new ReentrantLock();
+    private static volatile Thread TelegramSender = null;
+    private static volatile boolean isSending = false;
+
+    public static void Telegram_setLimits( int pQueueSize, long pCoalesceWindowMillis, int pMaxPerMinute, Logger sendMessage_log) {
+        QueueSize = pQueueSize;
+        CoalesceWindowMillis = pCoalesceWindowMillis;
+        MaxPerMinute = pMaxPerMinute;
+        TelegramDispatcher.setLimits( QueueSize, CoalesceWindowMillis, MaxPerMinute );
+        sendMessage_log.warn("Telegram_setLimits queueSize={} coalesceWindow={} ms maxPerMinute={}", QueueSize, CoalesceWindowMillis, MaxPerMinute);
+    }
+
     public static void Telegram_setChatBotUrl( String ChatBotUrlProperties, Logger sendMessage_log) {
         ChatBotUrl= ChatBotUrlProperties;
         sendMessage_log.warn("Telegram_setChatBotUrl to `{}`", ChatBotUrlProperties);
@@ -88,6 +116,63 @@ public class NotifyByChannel {
             sendMessage_log.info(message4telegramm);
             return ;
         }
+        if ( !TelegramDispatcher.offer( message4telegramm, System.currentTimeMillis() ) )
+            sendMessage_log.info( "Telegram_SendMessage coalesced: {}", message4telegramm );
+        startTelegramSender();
+    }
+
+    private static void startTelegramSender() {
+        if ( TelegramSender != null )
+            return;
+        SenderLock.lock();
+        try {
+            if ( TelegramSender == null )
+                TelegramSender = Thread.ofPlatform().name( "TelegramSender" ).daemon().start( NotifyByChannel::runTelegramSender );
+        } finally {
+            SenderLock.unlock();
+        }
+    }
+
+    private static void runTelegramSender() {
+        for (;;) {
+            try {
+                String message4telegramm = TelegramDispatcher.take( 1000L );
+                if ( message4telegramm != null ) {
+                    isSending = true;
+                    try {
+                        Telegram_sendNow( message4telegramm, NotifyByChannel_Log );
+                    } finally {
+                        isSending = false;
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                return;
+            } catch ( RuntimeException e ) {
+                NotifyByChannel_Log.error( "TelegramSender fault: {}", e.toString() );
+            }
+        }
+    }
+
+    // При остановке приложения: склеенные итоги в очередь и ждём отправки не дольше WaitMillis
+    public static void Telegram_flush( long WaitMillis, Logger sendMessage_log) {
+        TelegramDispatcher.closeAllWindows();
+        long Deadline = System.currentTimeMillis() + WaitMillis;
+        while ( TelegramSender != null && ( isSending || !TelegramDispatcher.isEmpty() ) && System.currentTimeMillis() < Deadline ) {
+            try {
+                Thread.sleep( 100L );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        sendMessage_log.info( TelegramDispatcher.getStatistics() );
+    }
+
+    public static String Telegram_getStatistics() {
+        return TelegramDispatcher.getStatistics();
+    }
+
+    private static void Telegram_sendNow( String message4telegramm, Logger sendMessage_log) {
 
         String URI_Sring=null;
         //
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PreDestroy;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
 
 import static  net.plumbing.msgbus.ServletApplication.propJDBC;
 import static  net.plumbing.msgbus.ServletApplication.propExtJDBC;
@@ -35,6 +36,8 @@ public class ShutdownHook {
         } catch ( UnknownHostException e) {
             ShutdownHook_log.error(" хрякнулось InetAddress.getLocalHost().getHostAddress()", e);;
         }
+        // уведомления отправляет фоновый поток, дожидаемся их до выхода
+        NotifyByChannel.Telegram_flush( TimeUnit.SECONDS.toMillis(10), ShutdownHook_log );
         ShutdownHook_log.info("###STOP FROM THE LIFECYCLE###");
 
     }
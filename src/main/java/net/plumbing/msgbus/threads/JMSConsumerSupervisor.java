@@ -0,0 +1,285 @@
+package net.plumbing.msgbus.threads;
+
+import jakarta.jms.*;
+import net.plumbing.msgbus.common.ApplicationProperties;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Число читателей JMSReceiveTask на каждое JMS-направление ( Type_Connect == 6 ) меняется между MinConsumers и Num_Thread
+// направления. Раз в ScaleIntervalMillis по каждой очереди смотрим:
+//  - остаток в брокере - ответ statisticsBrokerPlugin ActiveMQ на сообщение в ActiveMQ.Statistics.Destination.<очередь>
+//    ( поле "size" ); если плагин на брокере не включён, остаток неизвестен ( -1 );
+//  - загрузку читателей - долю времени, которую они обрабатывали пачки, а не ждали сообщения.
+// Остаток больше ScaleUpBacklog на читателя, или неизвестный остаток при загрузке выше ScaleUpUtilization - добавляем читателей,
+// пустая очередь и загрузка ниже ScaleDownUtilization - останавливаем одного. Остановленный читатель дообрабатывает
+// и подтверждает текущую пачку, закрывает соединения с брокером и БД и завершается.
+public class JMSConsumerSupervisor {
+    private static final Logger JMSConsumerSupervisor_Log = LoggerFactory.getLogger(JMSConsumerSupervisor.class);
+
+    // hermes.jms-consumer-scaling-enabled, false - на направление сразу Num_Thread читателей, как раньше
+    public static boolean Enabled = true;
+    // hermes.jms-consumers-min
+    public static int MinConsumers = 1;
+    // hermes.jms-scale-interval, секунд
+    public static long ScaleIntervalMillis = TimeUnit.SECONDS.toMillis(15);
+    // hermes.jms-scale-up-backlog, сообщений в брокере на одного читателя
+    public static long ScaleUpBacklog = 100L;
+    public static double ScaleUpUtilization = 0.8;
+    public static double ScaleDownUtilization = 0.25;
+    // сколько ждать ответ statisticsBrokerPlugin
+    public static long StatisticsWaitMillis = 2000L;
+    // через сколько снова спрашивать остаток, если брокер не ответил: плагин могут включить, брокер - перезапустить
+    public static long StatisticsRetryMillis = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String StatisticsDestinationPrefix = "ActiveMQ.Statistics.Destination.";
+
+    private static final List<ConsumerGroup> ConsumerGroups = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService SupervisorExecutor = null;
+
+    // читатели одной очереди
+    private static class ConsumerGroup {
+        final String JMSPoint;
+        final String JMSLogin;
+        final String JMSPasswd;
+        final String JMSQueueName;
+        final int Min;
+        final int Max;
+        final List<JMSReceiveTask> Consumers = new CopyOnWriteArrayList<>();
+        final AtomicInteger ThreadNum = new AtomicInteger(0);
+        long LastScan_Nanos = System.nanoTime();
+        long Backlog = -1L;
+        double Utilization = 0.0;
+        boolean isFailed = false;
+        // до этого момента ( System.currentTimeMillis() ) остаток в брокере не запрашиваем
+        long StatisticsRetryAt = 0L;
+        // соединение, сессия и временная очередь для ответов statisticsBrokerPlugin - одни на группу, пока брокер отвечает
+        Connection StatisticsConnection = null;
+        Session StatisticsSession = null;
+        MessageProducer StatisticsProducer = null;
+        MessageConsumer StatisticsReplyConsumer = null;
+        TemporaryQueue StatisticsReplyQueue = null;
+        long StatisticsRequestNum = 0L;
+
+        ConsumerGroup( String JMSPoint, String JMSLogin, String JMSPasswd, String JMSQueueName, int Min, int Max ) {
+            this.JMSPoint = JMSPoint;
+            this.JMSLogin = JMSLogin;
+            this.JMSPasswd = JMSPasswd;
+            this.JMSQueueName = JMSQueueName;
+            this.Min = Min;
+            this.Max = Max;
+        }
+    }
+
+    // Вызывается из ServletApplication для каждого направления Type_Connect == 6 до start()
+    public static void addDirection( String JMSPoint, String JMSLogin, String JMSPasswd, String JMSQueueName, int Num_Thread ) {
+        int Max = Math.max( Num_Thread, 1 );
+        int Min = Enabled ? Math.min( Math.max( MinConsumers, 1 ), Max ) : Max;
+        ConsumerGroups.add( new ConsumerGroup( JMSPoint, JMSLogin, JMSPasswd, JMSQueueName, Min, Max ) );
+    }
+
+    public static void start( Logger AppThead_log ) {
+        for ( ConsumerGroup Group : ConsumerGroups ) {
+            for ( int i = 0; i < Group.Min; i++ )
+                startConsumer( Group, AppThead_log );
+            AppThead_log.info( "JMSConsumerSupervisor: Q {} consumers min={} max={}", Group.JMSQueueName, Group.Min, Group.Max );
+        }
+        if ( !Enabled || ConsumerGroups.isEmpty() )
+            return;
+        // остановка читателя не должна ждать первое сообщение пачки дольше интервала опроса
+        JMSReceiveTask.ReceiveWaitMillis = Math.min( JMSReceiveTask.ReceiveWaitMillis, ScaleIntervalMillis );
+        SupervisorExecutor = Executors.newSingleThreadScheduledExecutor( Thread.ofPlatform().name( "JMSConsumerSupervisor" ).daemon().factory() );
+        SupervisorExecutor.scheduleWithFixedDelay( JMSConsumerSupervisor::scale, ScaleIntervalMillis, ScaleIntervalMillis, TimeUnit.MILLISECONDS );
+    }
+
+    private static void startConsumer( ConsumerGroup Group, Logger AppThead_log ) {
+        JMSReceiveTask jmsReceiveTask = new JMSReceiveTask();
+        jmsReceiveTask.setJMSPoint( Group.JMSPoint );
+        jmsReceiveTask.setJMSLogin( Group.JMSLogin );
+        jmsReceiveTask.setJMSPasswd( Group.JMSPasswd );
+        jmsReceiveTask.setJMSQueueName( Group.JMSQueueName );
+        // ActiveMQ receive() ждёт в Object.wait() - как и taskExecutor, виртуальные потоки только по spring.threads.virtual.enabled
+        Thread.Builder threadBuilder = ApplicationProperties.VirtualThreadsEnabled ? Thread.ofVirtual() : Thread.ofPlatform();
+        Thread JMSReceiveThread = threadBuilder.name( "jms-Reader-" + Group.JMSQueueName + "-" + Group.ThreadNum.incrementAndGet() )
+                                               .start( jmsReceiveTask );
+        Group.Consumers.add( jmsReceiveTask );
+        AppThead_log.info( "JMSReceiveThread for Q {} run: {} JMSReceiveThread_Id={}", Group.JMSQueueName, JMSReceiveThread.getName(), JMSReceiveThread.threadId() );
+    }
+
+    private static void scale() {
+        for ( ConsumerGroup Group : ConsumerGroups ) {
+            try {
+                scaleGroup( Group );
+            } catch ( RuntimeException e ) {
+                JMSConsumerSupervisor_Log.error( "JMSConsumerSupervisor: Q {} fault: {}", Group.JMSQueueName, e.getMessage() );
+            }
+        }
+    }
+
+    private static void scaleGroup( ConsumerGroup Group ) {
+        if ( Group.isFailed )
+            return;
+        // читатель, завершившийся сам ( нет интерфейса для очереди, нет соединения с БД ), уже сообщил об ошибке -
+        // новых на эту очередь не запускаем, чтобы не повторять ошибку каждый интервал
+        int Running = 0;
+        long Received = 0L;
+        long Busy_Nanos = 0L;
+        for ( JMSReceiveTask Consumer : Group.Consumers ) {
+            Received += Consumer.takeReceivedCount();
+            Busy_Nanos += Consumer.takeBusyNanos();
+            if ( Consumer.isFinished() && !Consumer.isStopRequested() )
+                Group.isFailed = true;
+            if ( !Consumer.isStopRequested() )
+                Running += 1;
+        }
+        Group.Consumers.removeIf( JMSReceiveTask::isFinished );
+        if ( Group.isFailed ) {
+            JMSConsumerSupervisor_Log.error( "JMSConsumerSupervisor: Q {} consumer finished by itself, scaling is stopped for this Q", Group.JMSQueueName );
+            return;
+        }
+        long Now_Nanos = System.nanoTime();
+        long Interval_Nanos = Math.max( Now_Nanos - Group.LastScan_Nanos, 1L );
+        Group.LastScan_Nanos = Now_Nanos;
+        Group.Utilization = ( Running == 0 ) ? 0.0 : (double) Busy_Nanos / ( (double) Interval_Nanos * Running );
+        Group.Backlog = getBacklog( Group );
+
+        int Target = getTargetConsumers( Running, Group.Min, Group.Max, Group.Backlog, Group.Utilization );
+        if ( Target != Running )
+            JMSConsumerSupervisor_Log.warn( "JMSConsumerSupervisor: Q {} consumers {} -> {}, backlog={} utilization={} received={}",
+                    Group.JMSQueueName, Running, Target, Group.Backlog, String.format( "%.2f", Group.Utilization ), Received );
+        for ( int i = Running; i < Target; i++ )
+            startConsumer( Group, JMSConsumerSupervisor_Log );
+        for ( int i = Target; i < Running; i++ ) {
+            for ( JMSReceiveTask Consumer : Group.Consumers )
+                if ( !Consumer.isStopRequested() ) {
+                    Consumer.requestStop();
+                    break;
+                }
+        }
+    }
+
+    // Backlog < 0 - остаток в брокере неизвестен, решаем только по загрузке читателей
+    static int getTargetConsumers( int Running, int Min, int Max, long Backlog, double Utilization ) {
+        int Target = Running;
+        if ( Backlog > ScaleUpBacklog * Math.max( Running, 1 ) )
+            // сразу столько, чтобы на читателя пришлось не больше ScaleUpBacklog
+            Target = (int) Math.min( (long) Max, Math.max( Running + 1L, ( Backlog + ScaleUpBacklog - 1 ) / ScaleUpBacklog ) );
+        else if ( Backlog < 0 && Utilization > ScaleUpUtilization )
+            Target = Running + 1;
+        else if ( Backlog <= 0 && Utilization < ScaleDownUtilization )
+            Target = Running - 1;
+        return Math.max( Min, Math.min( Max, Target ) );
+    }
+
+    // остаток очереди по statisticsBrokerPlugin, -1 - неизвестен
+    private static long getBacklog( ConsumerGroup Group ) {
+        if ( System.currentTimeMillis() < Group.StatisticsRetryAt )
+            return -1L;
+        try {
+            if ( Group.StatisticsConnection == null ) {
+                ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory( Group.JMSPoint );
+                connectionFactory.setUserName( Group.JMSLogin != null ? Group.JMSLogin : "" );
+                connectionFactory.setPassword( Group.JMSPasswd != null ? Group.JMSPasswd : "" );
+                Group.StatisticsConnection = connectionFactory.createConnection();
+                Group.StatisticsConnection.start();
+                Group.StatisticsSession = Group.StatisticsConnection.createSession( false, Session.AUTO_ACKNOWLEDGE );
+                Group.StatisticsReplyQueue = Group.StatisticsSession.createTemporaryQueue();
+                Group.StatisticsReplyConsumer = Group.StatisticsSession.createConsumer( Group.StatisticsReplyQueue );
+                Group.StatisticsProducer = Group.StatisticsSession.createProducer(
+                        Group.StatisticsSession.createQueue( StatisticsDestinationPrefix + Group.JMSQueueName ) );
+                Group.StatisticsProducer.setDeliveryMode( DeliveryMode.NON_PERSISTENT );
+            }
+            Message StatisticsRequest = Group.StatisticsSession.createMessage();
+            String CorrelationID = Group.JMSQueueName + "." + ( ++Group.StatisticsRequestNum );
+            StatisticsRequest.setJMSReplyTo( Group.StatisticsReplyQueue );
+            StatisticsRequest.setJMSCorrelationID( CorrelationID );
+            Group.StatisticsProducer.send( StatisticsRequest );
+            // опоздавший ответ на прошлый запрос пропускаем
+            long Deadline = System.currentTimeMillis() + StatisticsWaitMillis;
+            for ( long Wait = StatisticsWaitMillis; Wait > 0; Wait = Deadline - System.currentTimeMillis() ) {
+                Message StatisticsReply = Group.StatisticsReplyConsumer.receive( Wait );
+                if ( StatisticsReply == null )
+                    break;
+                if ( StatisticsReply instanceof MapMessage && CorrelationID.equals( StatisticsReply.getJMSCorrelationID() ) )
+                    return ((MapMessage) StatisticsReply).getLong( "size" );
+            }
+            Group.StatisticsRetryAt = System.currentTimeMillis() + StatisticsRetryMillis;
+            JMSConsumerSupervisor_Log.warn( "JMSConsumerSupervisor: Q {} no reply from {}{} ( statisticsBrokerPlugin is not enabled? ), scaling by consumer utilization only, retry in {} ms",
+                    Group.JMSQueueName, StatisticsDestinationPrefix, Group.JMSQueueName, StatisticsRetryMillis );
+        } catch ( JMSException e ) {
+            JMSConsumerSupervisor_Log.warn( "JMSConsumerSupervisor: Q {} statistics fault: {}", Group.JMSQueueName, e.getMessage() );
+        }
+        closeStatisticsConnection( Group );
+        return -1L;
+    }
+
+    // временную очередь удаляем явно, не полагаясь на то, что брокер уберёт её вместе с соединением
+    private static void closeStatisticsConnection( ConsumerGroup Group ) {
+        if ( Group.StatisticsConnection == null )
+            return;
+        try {
+            if ( Group.StatisticsReplyConsumer != null )
+                Group.StatisticsReplyConsumer.close();
+            if ( Group.StatisticsReplyQueue != null )
+                Group.StatisticsReplyQueue.delete();
+        } catch ( JMSException e ) {
+            JMSConsumerSupervisor_Log.warn( "JMSConsumerSupervisor: StatisticsReplyQueue.delete() {}", e.getMessage() );
+        }
+        try { Group.StatisticsConnection.close(); } catch ( JMSException e ) {
+            JMSConsumerSupervisor_Log.warn( "JMSConsumerSupervisor: StatisticsConnection.close() {}", e.getMessage() );
+        }
+        Group.StatisticsConnection = null;
+        Group.StatisticsSession = null;
+        Group.StatisticsProducer = null;
+        Group.StatisticsReplyConsumer = null;
+        Group.StatisticsReplyQueue = null;
+    }
+
+    public static String getStatistics() {
+        StringBuilder Statistics = new StringBuilder( "JMSConsumerSupervisor: queues=" ).append( ConsumerGroups.size() );
+        for ( ConsumerGroup Group : ConsumerGroups ) {
+            int Running = 0;
+            for ( JMSReceiveTask Consumer : Group.Consumers )
+                if ( !Consumer.isStopRequested() ) Running += 1;
+            Statistics.append( "\n  " ).append( Group.JMSQueueName ).append( " consumers=" ).append( Running )
+                      .append( " [" ).append( Group.Min ).append( ".." ).append( Group.Max ).append( "]" )
+                      .append( " backlog=" ).append( Group.Backlog )
+                      .append( " utilization=" ).append( String.format( "%.2f", Group.Utilization ) );
+            if ( Group.isFailed ) Statistics.append( " FAILED" );
+        }
+        return Statistics.toString();
+    }
+
+    // при остановке: читатели дообрабатывают пачки и возвращают соединения с БД до закрытия пула сессий
+    public static void shutdown( long WaitMillis, Logger AppThead_log ) {
+        if ( SupervisorExecutor != null )
+            SupervisorExecutor.shutdownNow();
+        for ( ConsumerGroup Group : ConsumerGroups ) {
+            closeStatisticsConnection( Group );
+            for ( JMSReceiveTask Consumer : Group.Consumers )
+                Consumer.requestStop();
+        }
+        long Deadline = System.currentTimeMillis() + WaitMillis;
+        for ( ConsumerGroup Group : ConsumerGroups )
+            for ( JMSReceiveTask Consumer : Group.Consumers )
+                while ( !Consumer.isFinished() && System.currentTimeMillis() < Deadline ) {
+                    try {
+                        Thread.sleep( 100L );
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+        for ( ConsumerGroup Group : ConsumerGroups )
+            for ( JMSReceiveTask Consumer : Group.Consumers )
+                if ( !Consumer.isFinished() )
+                    AppThead_log.warn( "JMSConsumerSupervisor: consumer for Q {} is not finished in {} ms", Group.JMSQueueName, WaitMillis );
+    }
+}
@@ -11,12 +11,12 @@ import net.plumbing.msgbus.controller.PerfotmInputMessages;
 import net.plumbing.msgbus.model.MessageDetails;
 //import net.plumbing.msgbus.mq.JMS_MessageDirection_MQConnectionFactory;
 import net.plumbing.msgbus.telegramm.NotifyByChannel;
-import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
 import net.sf.saxon.s9api.Xslt30Transformer;
-import net.sf.saxon.s9api.XsltCompiler;
 import org.apache.activemq.ActiveMQConnectionFactory;
+import org.jdom2.Document;
 import org.jdom2.input.JDOMParseException;
+import org.jdom2.output.XMLOutputter;
 //import org.jdom2.input.JDOMParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +34,12 @@ import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import java.net.InetAddress;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static net.plumbing.msgbus.common.XMLchars.*;
 import static net.plumbing.msgbus.common.XMLchars.Body_noNS_Begin;
@@ -74,6 +79,48 @@ public class JMSReceiveTask  implements Runnable {
     
     public static final Logger JMSReceiveTask_Log = LoggerFactory.getLogger(JMSReceiveTask.class);
 
+    // Приём пачками: при BatchSize > 1 сессия транзакционная, сообщения читаются до BatchSize штук или BatchMillis
+    // от первого в пачке, и пачка подтверждается брокеру одним Qsession.commit() после обработки последнего.
+    // Пока пачка не подтверждена, сообщения числятся за потоком - при обрыве соединения или падении узла брокер отдаст
+    // их повторно ( at-least-once ), а не теряет, как при AUTO_ACKNOWLEDGE. Если сообщение не удалось сохранить в БД,
+    // пачка откатывается ( Qsession.rollback() ) и приходит снова по RedeliveryPolicy брокера.
+    // BatchSize == 1 - как раньше, AUTO_ACKNOWLEDGE на каждое сообщение.
+    // hermes.jms-batch-size
+    public static int BatchSize = 50;
+    // hermes.jms-batch-time, миллисекунд
+    public static long BatchMillis = 200L;
+    // hermes.jms-prefetch - сколько сообщений брокер заранее отдаёт потоку, не меньше BatchSize
+    public static int Prefetch = 1000;
+
+    private static final AtomicLong ReceivedCount = new AtomicLong(0L);
+    private static final AtomicLong CommittedBatchCount = new AtomicLong(0L);
+    private static final AtomicLong RolledBackCount = new AtomicLong(0L);
+    private static final AtomicLong SkippedRedeliveredCount = new AtomicLong(0L);
+    private boolean isTransacted = false;
+    // БД фиксируется по каждому сообщению ( MakeNewMessage_Queue и далее делают COMMIT сами ), а брокеру пачка
+    // подтверждается одним Qsession.commit(). Откат пачки из-за одного несохранённого сообщения возвращает и уже
+    // сохранённые - их JMSMessageID помним, и при повторной доставке второй раз в MESSAGE_Queue не пишем.
+    final StoredRedeliveryFilter StoredNotAcknowledged = new StoredRedeliveryFilter();
+    private final List<String> BatchMessageIDs = new ArrayList<>();
+    private String LastJMSMessageID = null;
+    private boolean LastJMSRedelivered = false;
+
+    // сколько ждать первое сообщение пачки; JMSConsumerSupervisor уменьшает, чтобы остановленный читатель не ждал 120 сек.
+    public static long ReceiveWaitMillis = TimeUnit.SECONDS.toMillis(120);
+    // остановка по запросу JMSConsumerSupervisor: дочитанная пачка обрабатывается и подтверждается, затем поток
+    // закрывает соединения с брокером и БД и завершается
+    private volatile boolean isStopRequested = false;
+    private volatile boolean isFinished = false;
+    // для JMSConsumerSupervisor: принято сообщений и время обработки пачек с прошлого опроса
+    private final AtomicLong TaskReceivedCount = new AtomicLong(0L);
+    private final AtomicLong BusyNanos = new AtomicLong(0L);
+
+    public void requestStop() { this.isStopRequested = true; }
+    public boolean isStopRequested() { return this.isStopRequested; }
+    public boolean isFinished() { return this.isFinished; }
+    public long takeReceivedCount() { return TaskReceivedCount.getAndSet(0L); }
+    public long takeBusyNanos() { return BusyNanos.getAndSet(0L); }
+
     private ActiveMQConnectionFactory MakeActiveMQConnectionFactory(String brokerURL, String pUserName, String pPassword, Logger JMSReceiveTask_Log ) throws JMSException {
 
         JMSReceiveTask_Log.info("ActiveMQConnectionFactory MsgBus preSet");
@@ -95,6 +142,7 @@ public class JMSReceiveTask  implements Runnable {
         connectionFactory.setAlwaysSessionAsync(false);
         connectionFactory.setDispatchAsync(false);
         connectionFactory.setCopyMessageOnSend(false);
+        connectionFactory.getPrefetchPolicy().setQueuePrefetch( Math.max( Prefetch, BatchSize ) );
         if (pUserName != null) connectionFactory.setUserName(pUserName);
         else connectionFactory.setUserName("");
         if (pPassword != null) connectionFactory.setPassword(pPassword);
@@ -107,15 +155,12 @@ public class JMSReceiveTask  implements Runnable {
         return connectionFactory;
     }
 
-    private int initJMSconnector( String jmsQueueName ) {
-    boolean isFaultHappend ;
-    for(;;) {
-        isFaultHappend =false;
-        try {
+    private void closeJMSconnector() {
             if ( this.Qconnection != null)
             {
                 if ( this.JMS_Q_Consumer != null)
                 {  try  {this.JMS_Q_Consumer.close(); } catch (JMSException e) { JMSReceiveTask_Log.warn( "JMS_Q_Consumer.close()" + e.getMessage() );}
+                   this.JMS_Q_Consumer = null;
                 }
                 if ( this.Qsession != null)
                 { try { this.Qsession.close(); } catch (JMSException e) { JMSReceiveTask_Log.warn( "Qsession.close()" + e.getMessage() );}
@@ -127,6 +172,14 @@ public class JMSReceiveTask  implements Runnable {
 
                 this.Qconnection = null;
             }
+    }
+
+    private int initJMSconnector( String jmsQueueName ) {
+    boolean isFaultHappend ;
+    for(;;) {
+        isFaultHappend =false;
+        try {
+            closeJMSconnector();
              // TODO !
              this.Qconnection = runMQConnectionFactory.createConnection();
 
@@ -145,7 +198,11 @@ public class JMSReceiveTask  implements Runnable {
                 }
             if ( !isFaultHappend )
                     try {
-                    this.Qsession = Qconnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    this.isTransacted = ( BatchSize > 1 );
+                    if ( this.isTransacted )
+                        this.Qsession = Qconnection.createSession(true, Session.SESSION_TRANSACTED);
+                    else
+                        this.Qsession = Qconnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
                     } catch (JMSException e) {
                         isFaultHappend =true;
                         JMSReceiveTask_Log.error("Ошибка Qconnection.createSession(): " + e.getMessage());
@@ -161,6 +218,8 @@ public class JMSReceiveTask  implements Runnable {
                 JMSReceiveTask_Log.error("Ошибка получения Destination createQueue( из Q: " + jmsQueueName + " for Interface: " + e.getMessage());
         }
 
+        if ( this.isStopRequested )
+            return -1;
         try {
             JMSReceiveTask_Log.warn("Пробуем переподключится к брокеру сообщений ActiveMQ, QueueName:" + jmsQueueName + " через 60 сек." );
             Thread.sleep(TimeUnit.SECONDS.toMillis(60));
@@ -192,6 +251,14 @@ public class JMSReceiveTask  implements Runnable {
         }
     }
 public void run()   {
+    try {
+        runReceiver();
+    } finally {
+        this.isFinished = true;
+    }
+}
+
+private void runReceiver()   {
     boolean isDebugged = true;
         //if (( theadNum != null ) && ((theadNum == 17) || (theadNum == 18) || (theadNum == 19) || (theadNum == 20)) )
 
@@ -297,63 +364,76 @@ public void run()   {
 
       int theadRunTotalCount = 1;
       for (int theadRunCount = 0; theadRunCount < theadRunTotalCount; theadRunCount += 1 ) {
+          if ( this.isStopRequested )
+              break;
           try
           {
-          Message.Message.clear();
-          Message.Confirmation.clear();
-          Message.XML_MsgClear.setLength(0); Message.XML_MsgClear.trimToSize();
-          Message.Soap_HeaderRequest.setLength(0); Message.Soap_HeaderRequest.trimToSize();
-          Message.XML_Request_Method.setLength(0); Message.XML_Request_Method.trimToSize();
-          Message.XML_MsgResponse.setLength(0); Message.XML_MsgResponse.trimToSize();
-          Message.MsgReason.setLength(0); Message.MsgReason.trimToSize();
-          Message.XML_MsgConfirmation.setLength(0); Message.XML_MsgConfirmation.trimToSize();
-
-          // получаем JMS-сообщение из очереди
+          // получаем JMS-сообщения из очереди: первое ждём до ReceiveWaitMillis, следующие в пачку - пока не прошло BatchMillis от первого
+          int MessageInBatch = 0;
+          long BatchDeadline = 0L;
+          long BatchStart_Nanos = 0L;
+          long TimeOut = ReceiveWaitMillis;
+          for (;;) {
+              Message.Message.clear();
+              Message.Confirmation.clear();
+              Message.XML_MsgClear.setLength(0); Message.XML_MsgClear.trimToSize();
+              Message.Soap_HeaderRequest.setLength(0); Message.Soap_HeaderRequest.trimToSize();
+              Message.XML_Request_Method.setLength(0); Message.XML_Request_Method.trimToSize();
+              Message.XML_MsgResponse.setLength(0); Message.XML_MsgResponse.trimToSize();
+              Message.MsgReason.setLength(0); Message.MsgReason.trimToSize();
+              Message.XML_MsgConfirmation.setLength(0); Message.XML_MsgConfirmation.trimToSize();
+
               if (isDebugged)
                   JMSReceiveTask_Log.info("ReadTextMessageQueue: ждём появления JMS-сообщение в очереди JMS_Q_Consumer: " + this.JMS_Q_Consumer.toString() );
-          Message.XML_MsgConfirmation.append( ReadTextMessageQueue(120 * 1000, isDebugged, JMSReceiveTask_Log));
-        if ( Message.XML_MsgConfirmation.length() > 4 ) // != 'null'
-        { // не пустое сообщение
-            JMSReceiveTask_Log.info("JMS_MsgInput: [" + Message.XML_MsgConfirmation + "], length =" + Message.XML_MsgConfirmation.length() +
-                    " Message.XML_MsgConfirmation.substring(0, 1) =[" + Message.XML_MsgConfirmation.substring(0,1) + "]"); // сообщение зачитано
-
-            if (Message.XML_MsgConfirmation.substring(0,1).equals("<")) {
-                Message.XML_MsgResponse.append( Message.XML_MsgConfirmation );
-            } else {
-                if (Message.XML_MsgConfirmation.substring(0, 1).equals("{")) { // Разбираем Json
-                    // JSONObject postJSONObject = new JSONObject( Message.XML_MsgConfirmation.toString() );
-                    JSONObject RestResponseJSON = new JSONObject(Message.XML_MsgConfirmation.toString());
-                    Message.XML_MsgResponse.append(XML.toString(RestResponseJSON, XMLchars.NameRootTagContentJsonResponse));
-                    JMSReceiveTask_Log.info("JSONObject: [" + RestResponseJSON + "]");
-
-                } else { // Кладем полученный ответ в <MsgData><![CDATA[" RestResponse "]]</MsgData>
-                    Message.XML_MsgResponse.append(XMLchars.OpenTag + XMLchars.NameRootTagContentJsonResponse + XMLchars.CloseTag + XMLchars.CDATAopen);
-                    Message.XML_MsgResponse.append(Message.XML_MsgConfirmation);
-                    Message.XML_MsgResponse.append(XMLchars.OpenTag + XMLchars.EndTag + XMLchars.NameRootTagContentJsonResponse + XMLchars.CloseTag + XMLchars.CDATAclose);
-                }
-            }
-            Message.XML_MsgInput = Envelope_noNS_Begin
-                    + Header_noNS_Begin + Header_noNS_End
-                    + Body_noNS_Begin
-                    + Message.XML_MsgResponse
-                    + Body_noNS_End + Envelope_noNS_End
-            ;
-            Message.XML_MsgResponse.setLength(0);
-            Message.XML_MsgResponse.trimToSize();
-            Message.XML_MsgConfirmation.setLength(0);
-            Message.XML_MsgConfirmation.trimToSize();
-            JMSReceiveTask_Log.info("XML_MsgInput: [" + Message.XML_MsgInput + "]"); // сообщение зачитано
-
-            Long ProcessInputMessageQueue_Result;
-            ProcessInputMessageQueue_Result = ProcessInputMessage(Interface_id, Message, MessageTemplateVOkey, messageQueueVO, JMSReceiveTask_Log, isDebugged);
-
-            if (isDebugged) {
-                JMSReceiveTask_Log.info("Queue_ID ["+ messageQueueVO.getOutQueue_Id() + "] : XML_MsgResponse => [" + Message.XML_MsgResponse + "], ProcessInputMessageQueue_Result =" + ProcessInputMessageQueue_Result);
-                theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, Message.XML_MsgResponse.toString(), JMSReceiveTask_Log);
-            }
-        }
+              String JMSTextMessage = ReadTextMessageQueue(TimeOut, isDebugged, JMSReceiveTask_Log);
+              if ( JMSTextMessage == null )
+                  break;
+              if ( MessageInBatch == 0 ) {
+                  BatchDeadline = System.currentTimeMillis() + BatchMillis;
+                  BatchStart_Nanos = System.nanoTime();
+              }
+              MessageInBatch += 1;
+              ReceivedCount.incrementAndGet();
+              TaskReceivedCount.incrementAndGet();
+
+              Long ProcessInputMessageQueue_Result;
+              if ( this.isTransacted && LastJMSRedelivered && StoredNotAcknowledged.remove( LastJMSMessageID ) ) {
+                  // сохранено при прошлой доставке, пачку тогда откатили из-за другого сообщения
+                  JMSReceiveTask_Log.warn("Сообщение ({}) из Q: {} уже сохранено в БД до отката пачки, повторно не обрабатываем", LastJMSMessageID, jmsQueueName);
+                  SkippedRedeliveredCount.incrementAndGet();
+                  ProcessInputMessageQueue_Result = 0L;
+              }
+              else
+                  ProcessInputMessageQueue_Result = ProcessJMSTextMessage( JMSTextMessage, Interface_id, jmsQueueName, Message, MessageTemplateVOkey, messageQueueVO, isDebugged );
+              if ( this.isTransacted && ( ProcessInputMessageQueue_Result == -3L ) ) {
+                  // сообщение не сохранено в БД - вся пачка вернётся от брокера повторно, сохранённые до него пропустим
+                  JMSReceiveTask_Log.error("Сообщение из Q: " + jmsQueueName + " не сохранено в БД, откатываем пачку из " + MessageInBatch + " JMS-сообщений");
+                  StoredNotAcknowledged.addAll( BatchMessageIDs, BatchSize );
+                  BatchMessageIDs.clear();
+                  this.Qsession.rollback();
+                  RolledBackCount.addAndGet( MessageInBatch );
+                  MessageInBatch = 0;
+                  break;
+              }
+              if ( this.isTransacted && LastJMSMessageID != null )
+                  BatchMessageIDs.add( LastJMSMessageID );
+              if ( MessageInBatch >= BatchSize )
+                  break;
+              TimeOut = BatchDeadline - System.currentTimeMillis();
+              if ( TimeOut <= 0 )
+                  break;
+          }
+          if ( MessageInBatch > 0 ) {
+              if ( this.isTransacted ) {
+                  this.Qsession.commit();
+                  BatchMessageIDs.clear();
+              }
+              CommittedBatchCount.incrementAndGet();
+          }
+          if ( BatchStart_Nanos != 0L )
+              BusyNanos.addAndGet( System.nanoTime() - BatchStart_Nanos );
           theadRunTotalCount += 1;
-      }    catch (  JMSException | JSONException e)
+      }    catch (  JMSException e)
           {
               String notify_Error = "Ошибка приёма JMS-сообщения из Q: " + jmsQueueName + " for Interface: " + Interface_id + " returned: "  + e.getMessage() ;
               String localHostName;
@@ -380,11 +460,18 @@ public void run()   {
               theadRunTotalCount += 1;
           }
 
+    }
+    if ( this.isStopRequested ) {
+        JMSReceiveTask_Log.warn( "JMSReceiveTask for Q " + jmsQueueName + " is stopped by request, ThreadId=" + Thread.currentThread().threadId() );
+        closeJMSconnector();
+        Hermes_DB_Connection_close();
+        return;
     }
       String notify_Error = "JMSReceiveTask is finished, JMSPoint =" + JMSPoint ;
         JMSReceiveTask_Log.error( notify_Error );
     NotifyByChannel.Telegram_sendMessage( notify_Error, JMSReceiveTask_Log );
       // Если уж выходим, освобождаем DB_Connection
+    closeJMSconnector();
     Hermes_DB_Connection_close();
         return;
 }
@@ -407,13 +494,15 @@ public void run()   {
         return ;
     }
 */
-    public String ReadTextMessageQueue ( int TimeOut, boolean IsDebugged, Logger MessegeReceive_Log) throws JMSException {
+    public String ReadTextMessageQueue ( long TimeOut, boolean IsDebugged, Logger MessegeReceive_Log) throws JMSException {
         // JMSconsumer надо читать с блокировкой
         if ( this.JMS_Q_Consumer != null) {
 
             TextMessage JMSTextMessage = (TextMessage) this.JMS_Q_Consumer.receive(TimeOut * 1);
             if (JMSTextMessage != null) {
                 String JMSMessageID = JMSTextMessage.getJMSMessageID();
+                this.LastJMSMessageID = JMSMessageID;
+                this.LastJMSRedelivered = JMSTextMessage.getJMSRedelivered();
                 if (IsDebugged)
                     MessegeReceive_Log.info("Received message: (" + JMSMessageID + ") [" + JMSTextMessage.getText() + "]");
                 return JMSTextMessage.getText();
@@ -422,6 +511,87 @@ public void run()   {
         return null;
     }
 
+    // Разбор текста JMS-сообщения в Message.XML_MsgInput и обработка.
+    // Ошибка разбора JSON - сообщение отбрасывается с уведомлением, соединение с брокером не переоткрываем и пачку не откатываем
+    private Long ProcessJMSTextMessage( String JMSTextMessage, Integer Interface_id, String jmsQueueName,
+                                        MessageDetails Message, int MessageTemplateVOkey, MessageQueueVO messageQueueVO,
+                                        boolean isDebugged ) {
+        Message.XML_MsgConfirmation.append( JMSTextMessage );
+        if ( Message.XML_MsgConfirmation.length() <= 4 ) // пустое сообщение
+            return 0L;
+
+        JMSReceiveTask_Log.info("JMS_MsgInput: [" + Message.XML_MsgConfirmation + "], length =" + Message.XML_MsgConfirmation.length() +
+                " Message.XML_MsgConfirmation.substring(0, 1) =[" + Message.XML_MsgConfirmation.substring(0,1) + "]"); // сообщение зачитано
+
+        if (Message.XML_MsgConfirmation.substring(0,1).equals("<")) {
+            Message.XML_MsgResponse.append( Message.XML_MsgConfirmation );
+        } else {
+            if (Message.XML_MsgConfirmation.substring(0, 1).equals("{")) { // Разбираем Json
+                try {
+                    JSONObject RestResponseJSON = new JSONObject(Message.XML_MsgConfirmation.toString());
+                    Message.XML_MsgResponse.append(XML.toString(RestResponseJSON, XMLchars.NameRootTagContentJsonResponse));
+                    JMSReceiveTask_Log.info("JSONObject: [" + RestResponseJSON + "]");
+                } catch ( JSONException e ) {
+                    String notify_Error = "Ошибка разбора JSON JMS-сообщения из Q: " + jmsQueueName + " for Interface: " + Interface_id + " returned: "  + e.getMessage() ;
+                    JMSReceiveTask_Log.error( notify_Error );
+                    NotifyByChannel.Telegram_sendMessage( notify_Error, JMSReceiveTask_Log );
+                    return 1L;
+                }
+            } else { // Кладем полученный ответ в <MsgData><![CDATA[" RestResponse "]]</MsgData>
+                Message.XML_MsgResponse.append(XMLchars.OpenTag + XMLchars.NameRootTagContentJsonResponse + XMLchars.CloseTag + XMLchars.CDATAopen);
+                Message.XML_MsgResponse.append(Message.XML_MsgConfirmation);
+                Message.XML_MsgResponse.append(XMLchars.OpenTag + XMLchars.EndTag + XMLchars.NameRootTagContentJsonResponse + XMLchars.CloseTag + XMLchars.CDATAclose);
+            }
+        }
+        Message.XML_MsgInput = Envelope_noNS_Begin
+                + Header_noNS_Begin + Header_noNS_End
+                + Body_noNS_Begin
+                + Message.XML_MsgResponse
+                + Body_noNS_End + Envelope_noNS_End
+        ;
+        Message.XML_MsgResponse.setLength(0);
+        Message.XML_MsgResponse.trimToSize();
+        Message.XML_MsgConfirmation.setLength(0);
+        Message.XML_MsgConfirmation.trimToSize();
+        JMSReceiveTask_Log.info("XML_MsgInput: [" + Message.XML_MsgInput + "]"); // сообщение зачитано
+
+        Long ProcessInputMessageQueue_Result;
+        ProcessInputMessageQueue_Result = ProcessInputMessage(Interface_id, Message, MessageTemplateVOkey, messageQueueVO, JMSReceiveTask_Log, isDebugged);
+
+        if (isDebugged) {
+            JMSReceiveTask_Log.info("Queue_ID ["+ messageQueueVO.getOutQueue_Id() + "] : XML_MsgResponse => [" + Message.XML_MsgResponse + "], ProcessInputMessageQueue_Result =" + ProcessInputMessageQueue_Result);
+            theadDataAccess.doUPDATE_QUEUElog(Message.ROWID_QUEUElog, Message.Queue_Id, Message.XML_MsgResponse.toString(), JMSReceiveTask_Log);
+        }
+        return ProcessInputMessageQueue_Result;
+    }
+
+    public static String getStatistics() {
+        return "JMSReceiveTask: batchSize=" + BatchSize + " received=" + ReceivedCount.get() +
+                " batches=" + CommittedBatchCount.get() + " rolledBack=" + RolledBackCount.get() +
+                " skippedRedelivered=" + SkippedRedeliveredCount.get();
+    }
+
+    // JMSMessageID сообщений, сохранённых в БД, но возвращённых брокеру откатом пачки. Запись снимается при повторной
+    // доставке; если сообщение ушло другому читателю или в DLQ, старые записи вытесняются, храним не больше нескольких пачек
+    static final class StoredRedeliveryFilter {
+        private final LinkedHashSet<String> MessageIDs = new LinkedHashSet<>();
+
+        void addAll( List<String> JMSMessageIDs, int BatchSize ) {
+            MessageIDs.addAll( JMSMessageIDs );
+            Iterator<String> Oldest = MessageIDs.iterator();
+            for ( int i = MessageIDs.size() - 4 * Math.max( BatchSize, 1 ); i > 0; i-- ) {
+                Oldest.next();
+                Oldest.remove();
+            }
+        }
+
+        boolean remove( String JMSMessageID ) {
+            return JMSMessageID != null && MessageIDs.remove( JMSMessageID );
+        }
+
+        int size() { return MessageIDs.size(); }
+    }
+
     public Long  ProcessInputMessage( Integer Interface_id , MessageDetails Message, // контейнер сообщения для обработкиMessage.XML_MsgInput - заполнен входящими данными <Envelope/>
                                       int MessageTemplateVOkey, // индекс интерфейсного Шаблона
                                       MessageQueueVO messageQueueVO,
@@ -484,27 +654,29 @@ public void run()   {
             //  заменяет SOAP-Header запроса, вне зависимости от того был он или нет.
             if ( (MessageXSLT_4_HeaderIn != null) && (!MessageXSLT_4_HeaderIn.isEmpty()) )
             {
-                Processor xslt30Processor = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getHeaderInXSLT_processor();
-                XsltCompiler xsltCompiler = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getHeaderInXSLT_xsltCompiler();
                 Xslt30Transformer xslt30Transformer = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getHeaderInXSLT_xslt30Transformer();
                 ConvXMLuseXSLTerr.setLength(0); ConvXMLuseXSLTerr.trimToSize();
+                Document Soap_HeaderDocument;
                 try {
-                    Message.Soap_HeaderRequest.append(
-                            XMLutils.ConvXMLuseXSLT30(Queue_Id,
-                                            Message.XML_MsgClear.toString(),
-                                            xslt30Processor, xsltCompiler, xslt30Transformer,
-                                            MessageXSLT_4_HeaderIn,
-                                            Message.MsgReason,
-                                            ConvXMLuseXSLTerr,
-                                            MessegeReceive_Log,
-                                            isDebugged
-                                            )
-                            //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
-                    );
+                    // XSLT получает XML_MsgClear деревом ( getClearXdmNode, разбирается один раз на сообщение ),
+                    // заголовок возвращается деревом - Soap_HeaderRequest нужен только для журнала
+                    Soap_HeaderDocument =
+                            XMLutils.ConvXMLuseXSLT30toDocument(Queue_Id,
+                                                XMLutils.getClearXdmNode(Message).asSource(),
+                                                xslt30Transformer,
+                                                MessageXSLT_4_HeaderIn,
+                                                Message.MsgReason,
+                                                ConvXMLuseXSLTerr,
+                                                MessegeReceive_Log,
+                                                isDebugged
+                                                );
                     //if ( Message.MessageTemplate4Perform.getIsDebugged() )
-                    if ( isDebugged )
+                    if ( isDebugged ) {
+                        Message.Soap_HeaderRequest.append( Soap_HeaderDocument == null ? XMLchars.nanXSLT_Result
+                                                                                       : new XMLOutputter().outputString(Soap_HeaderDocument.getRootElement()) );
                         MessegeReceive_Log.info( "[{}] {} после XSLT=:{{}}", Queue_Id, Queue_Direction, Message.Soap_HeaderRequest.toString());
-                    if ( Message.Soap_HeaderRequest.toString().equals(XMLchars.nanXSLT_Result) ) {
+                    }
+                    if ( Soap_HeaderDocument == null ) {
                         MessageUtils.ProcessingIn2ErrorIN(messageQueueVO, Message, theadDataAccess, "В результате XSLT преобразования получен пустой заголовок из (" + Message.XML_MsgClear.toString() + ")",
                                 null, MessegeReceive_Log);
                         Message.MsgReason.append("В результате XSLT преобразования получен пустой XML для заголовка сообщения");
@@ -523,7 +695,7 @@ public void run()   {
                 }
 
                 try { // Парсим заголовок - получаем атрибуты messageQueueVO для сохранения в БД
-                    XMLutils.Soap_HeaderRequest2messageQueueVO(Message.Soap_HeaderRequest.toString(), messageQueueVO, MessegeReceive_Log);
+                    XMLutils.Soap_HeaderDocument2messageQueueVO(Soap_HeaderDocument, messageQueueVO, MessegeReceive_Log);
 
                 }
                 catch (Exception e) {
@@ -0,0 +1,144 @@
+package net.plumbing.msgbus.threads;
+
+import net.plumbing.msgbus.model.DeferredHttpSend;
+import net.plumbing.msgbus.model.MessageDetails4Send;
+import net.plumbing.msgbus.model.MessageQueueVO;
+import net.plumbing.msgbus.threads.utils.MessageHttpSend;
+import org.slf4j.Logger;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Отправка связанного OUT-сообщения ( is_NoWait4Sender, пост-обработка web-json / web-rest ) без потока и без сессии БД
+// на время ответа внешней системы.
+// Раньше PerfotmInputMessages вызывал PerformQueueMessages4Send.performMessage() сам и держал поток HTTP-запроса и сессию,
+// пока внешняя система отвечает. Теперь performMessage() идёт в два вызова ( DeferredHttpSend ):
+// - первый - в потоке входящего запроса на его же сессии, сразу после COMMIT-а: XSLT, OUT -> SEND, запрос уходит в
+//   MessageHttpSend.sendAsync(), предел адреса назначения ждётся там же без потока; вызов возвращает SendPending;
+// - второй - по ответу, в CompletionExecutor: берёт сессию из TheadDataAccessPool только на разбор ответа и статус
+//   ( Send2finishedOUT / Send2ErrorOUT / Send2AttOUT ) и сразу её возвращает.
+// Сессий БД отправки держат не больше CompletionThreads, MaxInFlight ограничивает только ждущие ответа запросы в памяти.
+// Нет соединения с БД для статуса - повтор через 1, 2, 4 ... 30 секунд, ответ не теряется, пока приложение не остановлено.
+// Сверх MaxInFlight, и если отправка выключена или останавливается, performMessage() идёт в вызывающем потоке, как раньше.
+// Сообщение к моменту submit() уже переведено вызывающим из OUT в SEND ( doUPDATE_MessageQueue_Out2Claim ), а в
+// MessageQueueVO остаётся OUT: performMessage() проходит обычный путь OUT -> SEND, а Sender его уже не берёт.
+public class OutboundDeliveryEngine {
+    // hermes.outbound-async-enabled
+    public static boolean Enabled = true;
+    // hermes.outbound-max-in-flight
+    public static int MaxInFlight = 2048;
+
+    private static final long RetryMaxMillis = TimeUnit.SECONDS.toMillis(30);
+
+    // разбор ответов и статусы, каждый поток держит сессию БД только на это; размер - hermes.outbound-completion-threads
+    private static final ScheduledThreadPoolExecutor CompletionExecutor = new ScheduledThreadPoolExecutor( 8,
+            Thread.ofPlatform().daemon(true).name( "OutboundComplete-", 0 ).factory() );
+    private static final AtomicInteger InFlight = new AtomicInteger(0);
+    private static final AtomicLong SubmittedCount = new AtomicLong(0L);
+    private static final AtomicLong InlineCount = new AtomicLong(0L);
+    private static final AtomicLong FailedCount = new AtomicLong(0L);
+    private static final AtomicLong RetriedCount = new AtomicLong(0L);
+    private static volatile boolean isShutdown = false;
+
+    public static void setCompletionThreads( int CompletionThreads ) {
+        CompletionExecutor.setCorePoolSize( CompletionThreads );
+    }
+
+    public static int getCompletionThreads() { return CompletionExecutor.getCorePoolSize(); }
+
+    // Вызывается после COMMIT-а входящего сообщения на сессии вызывающего.
+    // true - запрос ушёл в sendAsync(), статус выставит CompletionExecutor; false - performMessage() выполнен целиком здесь.
+    public static boolean submit( MessageQueueVO messageQueueVO, MessageDetails4Send Message, Long Queue_Id,
+                                  TheadDataAccess theadDataAccess, Logger MessageSend_Log ) {
+        if ( Enabled && !isShutdown ) {
+            if ( InFlight.incrementAndGet() <= MaxInFlight ) {
+                Message.DeferredSend = new DeferredHttpSend();
+                if ( perform( messageQueueVO, Message, Queue_Id, theadDataAccess, MessageSend_Log ) == MessageHttpSend.SendPending ) {
+                    SubmittedCount.incrementAndGet();
+                    Message.DeferredSend.Response.whenComplete( ( response, throwable ) ->
+                            complete( messageQueueVO, Message, Queue_Id, 0, MessageSend_Log ) );
+                    return true;
+                }
+                // до отправки не дошло ( ошибка шаблона, XSLT ... ) - статус уже выставлен
+                InFlight.decrementAndGet();
+                InlineCount.incrementAndGet();
+                return false;
+            }
+            InFlight.decrementAndGet();
+        }
+        InlineCount.incrementAndGet();
+        perform( messageQueueVO, Message, Queue_Id, theadDataAccess, MessageSend_Log );
+        return false;
+    }
+
+    // из потока HttpClient - сам разбор идёт в CompletionExecutor
+    private static void complete( MessageQueueVO messageQueueVO, MessageDetails4Send Message, Long Queue_Id, int Attempt, Logger MessageSend_Log ) {
+        try {
+            if ( Attempt == 0 )
+                CompletionExecutor.execute( () -> deliver( messageQueueVO, Message, Queue_Id, Attempt, MessageSend_Log ) );
+            else
+                CompletionExecutor.schedule( () -> deliver( messageQueueVO, Message, Queue_Id, Attempt, MessageSend_Log ),
+                                             Math.min( 1000L << Math.min( Attempt - 1, 5 ), RetryMaxMillis ), TimeUnit.MILLISECONDS );
+        } catch ( RejectedExecutionException e ) { // остановка: shutdown() уже не дождался
+            InFlight.decrementAndGet();
+            FailedCount.incrementAndGet();
+            MessageSend_Log.error( "[{}] OutboundDeliveryEngine: ответ для Link_Queue={} получен после остановки, статус не выставлен, сообщение остаётся в SEND",
+                                   Queue_Id, messageQueueVO.getQueue_Id() );
+        }
+    }
+
+    private static void deliver( MessageQueueVO messageQueueVO, MessageDetails4Send Message, Long Queue_Id, int Attempt, Logger MessageSend_Log ) {
+        TheadDataAccess theadDataAccess = TheadDataAccessPool.borrowTheadDataAccess( MessageSend_Log );
+        if ( theadDataAccess.Hermes_Connection == null ) {
+            TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, MessageSend_Log );
+            RetriedCount.incrementAndGet();
+            MessageSend_Log.error( "[{}] OutboundDeliveryEngine: нет соединения с БД для статуса Link_Queue={}, повтор {}", Queue_Id, messageQueueVO.getQueue_Id(), Attempt + 1 );
+            complete( messageQueueVO, Message, Queue_Id, Attempt + 1, MessageSend_Log );
+            return;
+        }
+        try {
+            perform( messageQueueVO, Message, Queue_Id, theadDataAccess, MessageSend_Log );
+        } finally {
+            TheadDataAccessPool.releaseTheadDataAccess( theadDataAccess, MessageSend_Log );
+            InFlight.decrementAndGet();
+        }
+    }
+
+    private static long perform( MessageQueueVO messageQueueVO, MessageDetails4Send Message, Long Queue_Id,
+                                 TheadDataAccess theadDataAccess, Logger MessageSend_Log ) {
+        try {
+            MessageSend_Log.warn( "[{}] performQueueMessage4Send:{} record  locked, Msg_InfoStreamId={}", Queue_Id, messageQueueVO.getQueue_Id(), messageQueueVO.getMsg_InfoStreamId() );
+            return new PerformQueueMessages4Send().performMessage( Message, messageQueueVO, theadDataAccess, MessageSend_Log );
+        } catch ( Exception e ) {
+            FailedCount.incrementAndGet();
+            MessageSend_Log.error( "[{}] performMessage Exception for Link_Queue={}: {}", Queue_Id, messageQueueVO.getQueue_Id(), e.getMessage(), e );
+            return -1L;
+        }
+    }
+
+    public static int getInFlight() { return InFlight.get(); }
+
+    public static String getStatistics() {
+        return "OutboundDeliveryEngine: inFlight=" + InFlight.get() + " submitted=" + SubmittedCount.get() +
+                " inline=" + InlineCount.get() + " failed=" + FailedCount.get() + " retried=" + RetriedCount.get() +
+                " threads=" + CompletionExecutor.getPoolSize() + " queued=" + CompletionExecutor.getQueue().size();
+    }
+
+    // при остановке: новые отправки идут в вызывающем потоке, ответы на начатые дожидаемся до закрытия пула сессий
+    public static void shutdown( long WaitMillis, Logger AppThead_log ) {
+        isShutdown = true;
+        long Deadline = System.currentTimeMillis() + WaitMillis;
+        try {
+            while ( InFlight.get() > 0 && System.currentTimeMillis() < Deadline )
+                Thread.sleep( 100L );
+            CompletionExecutor.shutdown();
+            if ( !CompletionExecutor.awaitTermination( Math.max( Deadline - System.currentTimeMillis(), 0L ), TimeUnit.MILLISECONDS ) || InFlight.get() > 0 )
+                AppThead_log.warn( "OutboundDeliveryEngine: не дождались {} отправок за {} мс, их сообщения остаются в SEND", InFlight.get(), WaitMillis );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
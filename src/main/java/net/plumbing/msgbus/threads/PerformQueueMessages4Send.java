@@ -6,14 +6,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 import javax.validation.constraints.NotNull;
-import javax.xml.XMLConstants;
 //import javax.xml.transform.*;
 //import javax.xml.transform.stream.StreamResult;
 //import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
 import java.io.*;
 
 import java.nio.charset.StandardCharsets;
@@ -34,6 +31,9 @@ public class PerformQueueMessages4Send {
     // private xlstErrorListener XSLTErrorListener=null;
 
     private String ConvXMLuseXSLTerr = "";
+    // ответ на отложенную отправку ( DeferredHttpSend ) получен: шаблон найден и запрос построен в первом вызове,
+    // второй продолжает с разбора ответа
+    private static final String DirectSENDcomplete = "SEND>";
 
     //public void setExternalConnectionManager( ThreadSafeClientConnManager externalConnectionManager ) {this.ExternalConnectionManager = externalConnectionManager;}
     //public void setConvXMLuseXSLTerr( String p_ConvXMLuseXSLTerr) { this.ConvXMLuseXSLTerr = p_ConvXMLuseXSLTerr; }
@@ -49,6 +49,7 @@ public class PerformQueueMessages4Send {
 
         String URL_SOAP_Send = "";
         int Function_Result = 0;
+        long Stage_Nanos; // начало этапа для PipelineMetrics
 
         //XSLTErrorListener = new xlstErrorListener();
         //XSLTErrorListener.setXlstError_Log( MessageSend_Log );
@@ -88,29 +89,24 @@ public class PerformQueueMessages4Send {
             return -12L;
         }
 
-        Message.MessageTemplate4Perform = new MessageTemplate4Perform4Send (MessageTemplate.AllMessageTemplate.get(Template_Id),
+        Message.MessageTemplate4Perform = MessageTemplate.AllMessageTemplate.get(Template_Id).getMessageTemplate4Perform4Send(
                 URL_SOAP_Send, //  хвост для добавления к getWSDL_Name() из MessageDirections
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getWSDL_Name(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getDb_user(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getDb_pswd(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getType_Connect(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getShort_retry_count(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getShort_retry_interval(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getLong_retry_count(),
-                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key).getLong_retry_interval(),
-                Queue_Id,
+                MessageDirections.AllMessageDirections.get(MsgDirectionVO_Key),
                 MessageSend_Log
         );
         MessageSend_Log.info("[{}] MessageTemplate4Perform[{}", Queue_Id, Message.MessageTemplate4Perform.printMessageTemplate4Perform());
 
-        switch (Queue_Direction){
+        switch ( ( Message.DeferredSend != null && Message.DeferredSend.Response != null ) ? DirectSENDcomplete : Queue_Direction ){
             case XMLchars.DirectOUT:
                 // читаем их БД тело XML
                 MessageSend_Log.info("{} [{}] зачитывем из БД тело XML, IsDebugged={}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getIsDebugged());
+                Stage_Nanos = PipelineMetrics.start();
                 MessageUtils.ReadMessageDetai4Send( theadDataAccess, Queue_Id, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessageSend_Log);
+                PipelineMetrics.send( "read_message_details", Message.MessageTemplate4Perform, Stage_Nanos );
                 if ( Message.MessageTemplate4Perform.getMessageXSD() != null )
                 { boolean is_Message_OUT_Valid;
-                    is_Message_OUT_Valid = TestXMLByXSD( Message.XML_MsgOUT.toString(), Message.MessageTemplate4Perform.getMessageXSD(), Message.MsgReason, MessageSend_Log );
+                    is_Message_OUT_Valid = TestXMLByXSD( Message.XML_MsgOUT.toString(), Message.MessageTemplate4Perform.getMessageXSD_schema(),
+                                                         Message.MessageTemplate4Perform.getMessageXSD(), Message.MsgReason, MessageSend_Log );
                     if ( ! is_Message_OUT_Valid ) {
                         MessageSend_Log.error(" [{}] validateXMLSchema: message `{}` is not valid for XSD`{}`", Queue_Id, Message.XML_MsgOUT.toString(), Message.MessageTemplate4Perform.getMessageXSD());
                         MessageUtils.ProcessingOut2ErrorOUT(  messageQueueVO,   Message,  theadDataAccess,
@@ -137,6 +133,7 @@ public class PerformQueueMessages4Send {
                     }
                     else srcXML_4_XSLT_String = Message.XML_MsgOUT.toString();
                     try {
+                        Stage_Nanos = PipelineMetrics.start();
                         // Чисто для проверки конструкторов byte[] bb = new Message.XML_MsgOUT;Message.XML_MsgOUT.toString()
                         //StringBuilder xmlStringBuilder = new StringBuilder();
                         //ByteArrayInputStream xmlByteArrayInputStream  = new ByteArrayInputStream( xmlStringBuilder.toString().getBytes("UTF-8") );
@@ -153,6 +150,7 @@ public class PerformQueueMessages4Send {
                         ;
                         if ( Message.MessageTemplate4Perform.getIsDebugged() )
                             MessageSend_Log.info(Queue_Direction + " [" + Queue_Id + "] после XSLT=:{" + Message.XML_MsgSEND + "}");
+                        PipelineMetrics.send( "xslt_message", Message.MessageTemplate4Perform, Stage_Nanos );
                     } catch ( SaxonApiException exception ) // TransformerException ==> SaxonApiException
                     {
                         MessageSend_Log.error("{} [{}] ConvXMLuseXSLT fault: {}", Queue_Direction, Queue_Id, exception.getMessage());
@@ -208,7 +206,9 @@ public class PerformQueueMessages4Send {
                 if ( !Queue_Direction.equals("OUT") ) {
                     // надо читать из БД
                     MessageSend_Log.info("{}-> SEND [{}] читаем SEND БД тело XML", Queue_Direction, Queue_Id);
+                    Stage_Nanos = PipelineMetrics.start();
                     MessageUtils.ReadMessageDetai4Send( theadDataAccess, Queue_Id, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessageSend_Log);
+                    PipelineMetrics.send( "read_message_details", Message.MessageTemplate4Perform, Stage_Nanos );
                     if ( Message.MessageRowNum <= 0 ) {
                         MessageSend_Log.error("{}-> SEND [{}] тело XML для SEND в БД пустое !", Queue_Direction, Queue_Id);
                         MessageUtils.ProcessingOutError(  messageQueueVO,   Message,  theadDataAccess,
@@ -257,6 +257,7 @@ public class PerformQueueMessages4Send {
                                 MessageSend_Log.info("{} [{}] XSLT-преобразователь заголовка (что):`{}`", Queue_Direction, Queue_Id, Message.XML_MsgOUT);
                             }
                             try {
+                                Stage_Nanos = PipelineMetrics.start();
                                 Message.Soap_HeaderRequest.append(
                                         ConvXMLuseXSLT30(messageQueueVO.getQueue_Id(), Message.XML_MsgOUT.toString(), // содержание того, что отправляем
                                                 Message.MessageTemplate4Perform.getHeaderXSLT_processor(),
@@ -268,6 +269,7 @@ public class PerformQueueMessages4Send {
                                         )
                                         //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
                                 );
+                                PipelineMetrics.send( "xslt_header", Message.MessageTemplate4Perform, Stage_Nanos );
                             } catch (SaxonApiException exception) {
                                 MessageSend_Log.error("{} [{}] XSLT-преобразователь заголовка:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getHeaderXSLT());
 
@@ -281,7 +283,10 @@ public class PerformQueueMessages4Send {
 
                         if (Message.MessageTemplate4Perform.getPropWebMetod() != null) {
                             if (Message.MessageTemplate4Perform.getPropWebMetod().equalsIgnoreCase("GET")) {
+                                Stage_Nanos = PipelineMetrics.start();
                                 Function_Result = MessageHttpSend.HttpGetMessage(messageQueueVO, Message, theadDataAccess, MessageSend_Log);
+                                if ( Function_Result == MessageHttpSend.SendPending ) return Function_Result;
+                                PipelineMetrics.send( "http_call", Message.MessageTemplate4Perform, Stage_Nanos );
                             }
                             if (Message.MessageTemplate4Perform.getPropWebMetod().equalsIgnoreCase("POST")) {
                                 String AckXSLT_4_make_JSON = Message.MessageTemplate4Perform.getAckXSLT() ; // получили XSLT-для
@@ -289,6 +294,7 @@ public class PerformQueueMessages4Send {
                                     if (Message.MessageTemplate4Perform.getIsDebugged())
                                         MessageSend_Log.info("[{}] PropWebMetod is `post`, AckXSLT_4_make_JSON ({})", Queue_Id, AckXSLT_4_make_JSON);
                                     try {
+                                        Stage_Nanos = PipelineMetrics.start();
                                         Message.XML_MsgSEND = // make_JSON -> сохраняем для отправки результат преобразования
                                                 ConvXMLuseXSLT30(messageQueueVO.getQueue_Id(),
                                                         Message.XML_MsgSEND, // то, что подготовлено для передачи во внешнюю систему в формате XML
@@ -303,6 +309,7 @@ public class PerformQueueMessages4Send {
                                         if (Message.MessageTemplate4Perform.getIsDebugged())
                                             MessageSend_Log.info("[{}] PropWebMetod is `post`as JSON ({})", Queue_Id, Message.XML_MsgResponse);
 
+                                        PipelineMetrics.send( "xslt_ack_json", Message.MessageTemplate4Perform, Stage_Nanos );
                                     } catch (SaxonApiException exception) {
                                         MessageSend_Log.error("[{}] SEND  XSLT-преобразователь для JSON :{{}}", messageQueueVO.getQueue_Id(), AckXSLT_4_make_JSON);
 
@@ -320,7 +327,10 @@ public class PerformQueueMessages4Send {
                                     }
                                 }
 
+                                Stage_Nanos = PipelineMetrics.start();
                                 Function_Result = MessageHttpSend.sendPostMessage(messageQueueVO, Message, theadDataAccess, MessageSend_Log);
+                                if ( Function_Result == MessageHttpSend.SendPending ) return Function_Result;
+                                PipelineMetrics.send( "http_call", Message.MessageTemplate4Perform, Stage_Nanos );
                             }
                             if ((!Message.MessageTemplate4Perform.getPropWebMetod().equalsIgnoreCase("GET")) &&
                                     (!Message.MessageTemplate4Perform.getPropWebMetod().equalsIgnoreCase("POST")) )
@@ -338,6 +348,7 @@ public class PerformQueueMessages4Send {
                             Message.Soap_HeaderRequest.setLength(0);
                             if (Message.MessageTemplate4Perform.getHeaderXSLT() != null && Message.MessageTemplate4Perform.getHeaderXSLT().length() > 10) // Есть чем преобразовывать HeaderXSLT
                                 try {
+                                    Stage_Nanos = PipelineMetrics.start();
                                     Message.Soap_HeaderRequest.append(
                                             ConvXMLuseXSLT30(messageQueueVO.getQueue_Id(), MessageUtils.MakeEntryOutHeader(messageQueueVO, MsgDirectionVO_Key), // стандартный заголовок c учетом системы-получателя
                                                     Message.MessageTemplate4Perform.getHeaderXSLT_processor(),
@@ -349,6 +360,7 @@ public class PerformQueueMessages4Send {
                                             )
                                             //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
                                     );
+                                    PipelineMetrics.send( "xslt_header", Message.MessageTemplate4Perform, Stage_Nanos );
                                 } catch (SaxonApiException exception) {
                                     MessageSend_Log.error( "{} [{}}] XSLT-преобразователь заголовка:{ {} } : {}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getHeaderXSLT(), exception.getMessage());
 
@@ -360,10 +372,19 @@ public class PerformQueueMessages4Send {
                             else
                                 Message.Soap_HeaderRequest.append(MessageUtils.MakeEntryOutHeader(messageQueueVO, MsgDirectionVO_Key));
                             // Собсвенно, ВЫЗОВ!
+                            Stage_Nanos = PipelineMetrics.start();
                             Function_Result = MessageHttpSend.sendSoapMessage(messageQueueVO, Message, theadDataAccess, MessageSend_Log);
+                            if ( Function_Result == MessageHttpSend.SendPending ) return Function_Result;
+                            PipelineMetrics.send( "http_call", Message.MessageTemplate4Perform, Stage_Nanos );
                             // MessageSend_Log.info("sendSOAPMessage:" + Queue_Direction + " [" + Queue_Id + "] для SOAP=:\n" + Message.XML_MsgSEND);
                         }
 
+            case DirectSENDcomplete:
+                if ( Message.DeferredSend != null && Message.DeferredSend.Response != null ) {
+                    Function_Result = MessageHttpSend.completeSend(messageQueueVO, Message, theadDataAccess, MessageSend_Log);
+                    PipelineMetrics.send( "http_call", Message.MessageTemplate4Perform, Message.DeferredSend.Stage_Nanos );
+                }
+
                 if ( Function_Result <0 ) {
                     // TODO
                     // Надо бы всзести переменную - что c Http всё плохо, но пост-обработчик надо всё же вызвать хоть раз.
@@ -377,6 +398,7 @@ public class PerformQueueMessages4Send {
                         MessageSend_Log.info("{} [{}] MsgAnswXSLT: {}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getMsgAnswXSLT());
                     }
                     try {
+                        Stage_Nanos = PipelineMetrics.start();
                     Message.XML_MsgRESOUT.append(
                             ConvXMLuseXSLT30(
                                     Queue_Id, Message.XML_ClearBodyResponse.toString(), // очищенный от ns: /Envelope/Body
@@ -389,6 +411,7 @@ public class PerformQueueMessages4Send {
                                     )
                             //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
                     );
+                        PipelineMetrics.send( "xslt_msg_answ", Message.MessageTemplate4Perform, Stage_Nanos );
                     } catch ( Exception exception ) {
                         MessageSend_Log.error("{} [{}] XSLT-преобразователь ответа:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getMsgAnswXSLT());
 
@@ -436,7 +459,9 @@ public class PerformQueueMessages4Send {
                     if ( !Queue_Direction.equals("SEND") ) {
                         // надо читать из БД
                         MessageSend_Log.error("{}-> DELOUT/ATTOUT/ERROUT [{}] читаем SEND БД тело XML", Queue_Direction, Queue_Id);
+                        Stage_Nanos = PipelineMetrics.start();
                         MessageUtils.ReadMessageDetai4Send( theadDataAccess, Queue_Id, Message, Message.MessageTemplate4Perform.getIsDebugged(), MessageSend_Log);
+                        PipelineMetrics.send( "read_message_details", Message.MessageTemplate4Perform, Stage_Nanos );
                         Message.XML_MsgSEND = Message.XML_MsgOUT.toString();
                         Queue_Direction = XMLchars.DirectPOSTOUT;
                         MessageSend_Log.error("[{}] Этот код для повторнй обработки Ответв на Исходящее событие ещё не написан.  ", Queue_Id);
@@ -461,6 +486,7 @@ public class PerformQueueMessages4Send {
 
                                 String Passed_Envelope4XSLTPost;
                                 try {
+                                    Stage_Nanos = PipelineMetrics.start();
                                     Passed_Envelope4XSLTPost= ConvXMLuseXSLT30(messageQueueVO.getQueue_Id(),
                                             MessageUtils.PrepareEnvelope4XSLTPost4Send( messageQueueVO, Message, MessageSend_Log), // Искуственный Envelope/Head/Body is XML_MsgRESOUT
                                             Message.MessageTemplate4Perform.getEnvelopeXSLTPost_processor(),
@@ -468,6 +494,7 @@ public class PerformQueueMessages4Send {
                                             Message.MessageTemplate4Perform.getEnvelopeXSLTPost_xslt30Transformer(),
                                             Message.MessageTemplate4Perform.getEnvelopeXSLTPost(),  // через EnvelopeXSLTPost
                                             Message.MsgReason, MessageSend_Log, Message.MessageTemplate4Perform.getIsDebugged());
+                                    PipelineMetrics.send( "xslt_post", Message.MessageTemplate4Perform, Stage_Nanos );
                                 } catch ( SaxonApiException exception ) {
                                     MessageSend_Log.error("{} [{}] XSLT-пост-преобразователь ответа:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getEnvelopeXSLTPost());
                                     theadDataAccess.doUPDATE_MessageQueue_Send2AttOUT(messageQueueVO,
@@ -603,6 +630,7 @@ public class PerformQueueMessages4Send {
 
                         String Passed_Envelope4ErrTransXSLT;
                         try {
+                            Stage_Nanos = PipelineMetrics.start();
                             Passed_Envelope4ErrTransXSLT = ConvXMLuseXSLT30(messageQueueVO.getQueue_Id(),
                                     MessageUtils.PrepareEnvelope4ErrTransXSLT( messageQueueVO, Message, MessageSend_Log), // Искуственный Envelope/Head/Body is XML_MsgRESOUT
                                     Message.MessageTemplate4Perform.getErrTransXSLT_processor(),
@@ -610,6 +638,7 @@ public class PerformQueueMessages4Send {
                                     Message.MessageTemplate4Perform.getErrTransXSLT_xslt30Transformer(),
                                     Message.MessageTemplate4Perform.getErrTransXSLT(),  // через getErrTransXSLT
                                     Message.MsgReason, MessageSend_Log, Message.MessageTemplate4Perform.getIsDebugged());
+                            PipelineMetrics.send( "xslt_err_trans", Message.MessageTemplate4Perform, Stage_Nanos );
                         } catch (SaxonApiException exception) {
                             MessageSend_Log.error("{} [{}] XSLT для обработки ERROUT ответа:{{}}", Queue_Direction, Queue_Id, Message.MessageTemplate4Perform.getErrTransXSLT());
                             theadDataAccess.doUPDATE_MessageQueue_Send2AttOUT(messageQueueVO,
@@ -691,19 +720,14 @@ public class PerformQueueMessages4Send {
         client.getConnectionManager().getSchemeRegistry().register(sch);
     }
 */
-    private  boolean TestXMLByXSD(@NotNull String xmldata, @NotNull String XSDdata, StringBuilder MsgResult,  Logger MessageSend_Log)// throws Exception
+    // XSDshema скомпилирован при загрузке шаблона ( null - не скомпилировался, пробуем ещё раз через XsdSchemaRegistry )
+    private  boolean TestXMLByXSD(@NotNull String xmldata, Schema XSDshema, @NotNull String XSDdata, StringBuilder MsgResult,  Logger MessageSend_Log)// throws Exception
     {
-        Validator valid=null;
-        StreamSource reqwsdl=null, xsdss = null;
-        Schema XSDshema= null;
-
         try
-        { reqwsdl = new StreamSource(new ByteArrayInputStream(xmldata.getBytes()));
-            xsdss   = new StreamSource(new ByteArrayInputStream(XSDdata.getBytes()));
-            XSDshema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsdss);
-            valid =XSDshema.newValidator();
-            valid.validate(reqwsdl);
-
+        {
+            if ( XSDshema == null )
+                XSDshema = XsdSchemaRegistry.compile(XSDdata);
+            XsdSchemaRegistry.validate(XSDshema, new StreamSource(new StringReader(xmldata)));
         }
         catch ( Exception exp ) {
             MessageSend_Log.error("Exception: {}", exp.getMessage());
@@ -881,7 +905,9 @@ public class PerformQueueMessages4Send {
             outSerializer.setOutputProperty(Serializer.Property.INDENT, "no");
             outSerializer.setOutputProperty(Serializer.Property.OMIT_XML_DECLARATION, "yes");
             outSerializer.setOutputStream(outputByteArrayStream);
+            long transformStart = System.nanoTime();
             xslt30Transformer.transform( xmlStreamSource, outSerializer);
+            XsltExecutableRegistry.recordTransform(System.nanoTime() - transformStart);
 
 
             stringResult_of_XSLT = outputByteArrayStream.toString();
@@ -0,0 +1,161 @@
+package net.plumbing.msgbus.threads;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Завершение исходящего ( Link_Queue_Id ) для синхронного вызова - по событию из БД, а не опросом MESSAGE_QUEUE раз в 2 секунды.
+// Одно выделенное соединение делает LISTEN на ChannelName, триггер на MESSAGE_QUEUE при переходе сообщения
+// в ERROUT / ATTOUT / DELOUT делает pg_notify с Queue_Id. Ожидающий запрос паркуется на future по Link_Queue_Id.
+// Для Oracle, или если соединение для LISTEN потеряно, PerfotmInputMessages остаётся на прежнем опросе.
+//
+// Триггер ( db/postgresql/message_queue_finish_notify.sql ) ставится отдельно, до включения hermes.queue-finish-notify-enabled;
+// пока его нет в БД, LISTEN не включается - иначе синхронные вызовы ждали бы NOTIFY, которого не будет, до RecheckInterval.
+public class QueueFinishListener implements Runnable {
+    public static final String ChannelName = "hermes_queue_finish";
+    public static final String TriggerName = "message_queue_finish_notify";
+    // hermes.queue-finish-notify-enabled
+    public static boolean NotifyEnabled = false;
+    // hermes.queue-finish-recheck-interval, секунд: на случай потерянного NOTIFY статус всё равно перечитывается из БД
+    public static int RecheckInterval = 30;
+
+    private static final ConcurrentHashMap<Long, CompletableFuture<Long>> Waiters = new ConcurrentHashMap<>();
+    private static volatile boolean isListening = false;
+
+    private final String JdbcUrl;
+    private final String Username;
+    private final String Password;
+    private final Logger Listener_Log;
+    // триггера нет - перепроверяем реже, чем переподключаемся после обрыва
+    private boolean isTriggerMissing = false;
+
+    private QueueFinishListener(String JdbcUrl, String Username, String Password, Logger Listener_Log) {
+        this.JdbcUrl = JdbcUrl;
+        this.Username = Username;
+        this.Password = Password;
+        this.Listener_Log = Listener_Log;
+    }
+
+    public static void start(String JdbcUrl, String Username, String Password, Logger Listener_Log) {
+        if ( !NotifyEnabled || JdbcUrl == null || JdbcUrl.indexOf("oracle") > 0 ) {
+            Listener_Log.info("QueueFinishListener не запускается ( {} ), завершение синхронных вызовов - опросом БД", JdbcUrl);
+            return;
+        }
+        Thread ListenerThread = new Thread( new QueueFinishListener(JdbcUrl, Username, Password, Listener_Log), "QueueFinishListener" );
+        ListenerThread.setDaemon(true);
+        ListenerThread.start();
+    }
+
+    public static boolean isListening() {
+        return isListening;
+    }
+
+    // регистрировать надо ДО проверки статуса в БД, иначе NOTIFY между проверкой и ожиданием будет потерян
+    public static CompletableFuture<Long> register(long Link_Queue_Id) {
+        return Waiters.computeIfAbsent(Link_Queue_Id, k -> new CompletableFuture<>());
+    }
+
+    public static void unregister(long Link_Queue_Id) {
+        Waiters.remove(Link_Queue_Id);
+    }
+
+    // true - пришло событие ( или потеряно соединение LISTEN ), статус надо перечитать; false - истёк тайм-аут
+    public static boolean await(CompletableFuture<Long> Link_Queue_Finish, long timeoutMillis) {
+        try {
+            Link_Queue_Finish.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+
+    public static int getWaitersCount() {
+        return Waiters.size();
+    }
+
+    @Override
+    public void run() {
+        while ( !Thread.currentThread().isInterrupted() ) {
+            try ( Connection Listener_Connection = DriverManager.getConnection(JdbcUrl, Username, Password) ) {
+                Listener_Connection.setAutoCommit(true);
+                PGConnection pgConnection = Listener_Connection.unwrap(PGConnection.class);
+                if ( isTriggerInstalled(Listener_Connection) ) {
+                    try ( Statement stmt = Listener_Connection.createStatement() ) {
+                        stmt.execute("LISTEN " + ChannelName);
+                    }
+                    isListening = true;
+                    Listener_Log.info("QueueFinishListener: LISTEN {} на {}", ChannelName, JdbcUrl);
+
+                    while ( !Thread.currentThread().isInterrupted() ) {
+                        // ждём не бесконечно, что бы драйвер проверял живость соединения
+                        PGNotification[] notifications = pgConnection.getNotifications(10 * 1000);
+                        if ( notifications == null ) continue;
+                        for (PGNotification notification : notifications) {
+                            Long Link_Queue_Id;
+                            try {
+                                Link_Queue_Id = Long.parseLong( notification.getParameter().trim() );
+                            } catch (NumberFormatException e) {
+                                Listener_Log.warn("QueueFinishListener: неожиданный payload `{}`", notification.getParameter());
+                                continue;
+                            }
+                            CompletableFuture<Long> Link_Queue_Finish = Waiters.remove(Link_Queue_Id);
+                            if ( Link_Queue_Finish != null )
+                                Link_Queue_Finish.complete(Link_Queue_Id);
+                        }
+                    }
+                }
+                else // синхронные вызовы остаются на опросе, триггер ищем снова на следующем круге
+                    Listener_Log.warn("QueueFinishListener: в БД нет включённого триггера {}, LISTEN {} не включается", TriggerName, ChannelName);
+            } catch (SQLException e) {
+                Listener_Log.error("QueueFinishListener: соединение для LISTEN {} потеряно: {}", ChannelName, e.getMessage());
+            } finally {
+                isListening = false;
+                wakeAll();
+            }
+            try {
+                Thread.sleep( isTriggerMissing ? 60 * 1000 : 5 * 1000 );
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Listener_Log.warn("QueueFinishListener: остановлен");
+    }
+
+    // tgenabled = 'D' - триггер выключен ( alter table ... disable trigger ), NOTIFY от него не придёт
+    private boolean isTriggerInstalled(Connection Listener_Connection) throws SQLException {
+        try ( PreparedStatement stmt = Listener_Connection.prepareStatement(
+                "select 1 from pg_trigger where tgname = ? and not tgisinternal and tgenabled <> 'D'") ) {
+            stmt.setString(1, TriggerName);
+            try ( ResultSet rs = stmt.executeQuery() ) {
+                isTriggerMissing = !rs.next();
+            }
+        }
+        return !isTriggerMissing;
+    }
+
+    // пока LISTEN не работает, события могли пропасть - будим всех, пусть перечитают статус и уйдут на опрос
+    private static void wakeAll() {
+        for (Long Link_Queue_Id : Waiters.keySet()) {
+            CompletableFuture<Long> Link_Queue_Finish = Waiters.remove(Link_Queue_Id);
+            if ( Link_Queue_Finish != null )
+                Link_Queue_Finish.complete(Link_Queue_Id);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package net.plumbing.msgbus.threads;
+
+import org.slf4j.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Выдача Queue_Id для новых сообщений из локального кэша:
+// за один round-trip из MESSAGE_QUEUE_SEQ выбирается блок из QueueIdBlockSize значений,
+// дальше потоки берут id из кэша, не обращаясь к БД.
+// При рестарте невыданные id теряются - "дыры" в Queue_Id, как и при CACHE у самой последовательности.
+public class QueueIdAllocator {
+    // hermes.queue-id-block-size, 1 - без кэширования, каждый раз nextval
+    public static int QueueIdBlockSize = 20;
+
+    private static final ConcurrentLinkedQueue<Long> CachedQueueIds = new ConcurrentLinkedQueue<>();
+    // не synchronized: под блокировкой идёт запрос в БД, а виртуальный поток в synchronized занимает carrier
+    private static final ReentrantLock RefillLock = new ReentrantLock();
+
+    public static Long nextQueue_Id( TheadDataAccess theadDataAccess, Logger dataAccess_log ) {
+        Long Queue_Id = CachedQueueIds.poll();
+        if ( Queue_Id != null )
+            return Queue_Id;
+
+        RefillLock.lock();
+        try {
+            // пока ждали блокировку, кэш мог заполнить другой поток
+            Queue_Id = CachedQueueIds.poll();
+            if ( Queue_Id != null )
+                return Queue_Id;
+
+            int blockSize = Math.max( QueueIdBlockSize, 1 );
+            ResultSet rs = null;
+            try {
+                PreparedStatement stmt_SELECT_Queue_Id_Block = theadDataAccess.getStmt_SELECT_Queue_Id_Block();
+                stmt_SELECT_Queue_Id_Block.setInt( 1, blockSize );
+                rs = stmt_SELECT_Queue_Id_Block.executeQuery();
+                while ( rs.next() ) {
+                    if ( Queue_Id == null )
+                        Queue_Id = rs.getLong( 1 );
+                    else
+                        CachedQueueIds.offer( rs.getLong( 1 ) );
+                }
+                rs.close();
+            } catch ( SQLException e ) {
+                dataAccess_log.error( "QueueIdAllocator: `{}` fault: {}", theadDataAccess.SELECT_Queue_Id_Block, e.getMessage() );
+                e.printStackTrace();
+                if ( rs != null )
+                    try { rs.close(); } catch ( SQLException ignored ) { }
+                return null;
+            }
+        } finally {
+            RefillLock.unlock();
+        }
+        return Queue_Id;
+    }
+
+    public static int getCachedCount() {
+        return CachedQueueIds.size();
+    }
+}
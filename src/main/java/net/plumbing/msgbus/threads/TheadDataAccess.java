@@ -6,9 +6,14 @@ import com.zaxxer.hikari.HikariDataSource;
 // import oracle.jdbc.internal.OracleRowId;
 // import oracle.sql.NUMBER;
 import net.plumbing.msgbus.ServletApplication;
+import net.plumbing.msgbus.common.ApplicationProperties;
 import net.plumbing.msgbus.common.XMLchars;
 import net.plumbing.msgbus.model.MessageQueueVO;
+import net.plumbing.msgbus.threads.utils.BatchMessageDetailsWriter;
+import net.plumbing.msgbus.threads.utils.CopyMessageDetailsWriter;
+import net.plumbing.msgbus.threads.utils.MessageDetailsWriter;
 import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 //import net.plumbing.msgbus.common.XMLchars;
 
 //import javax.validation.constraints.NotNull;
@@ -26,7 +31,11 @@ import static net.plumbing.msgbus.common.XMLchars.*;
 
 
 public class TheadDataAccess {
+    private static final Logger TheadDataAccess_Log = LoggerFactory.getLogger(TheadDataAccess.class);
     private final int maxReasonLen =1996;
+    // время открытия соединения и последнего возврата сессии в TheadDataAccessPool
+    public long Created_Millis = 0L;
+    public long Released_Millis = 0L;
     public  Connection  Hermes_Connection=null;
     public PreparedStatement stmtMsgQueueDet=null;
     public PreparedStatement stmtMsgQueue=null;
@@ -72,6 +81,10 @@ public class TheadDataAccess {
     // HE-5481  q.Queue_Date = sysdate -> надо отображать дату первой попытки отправки
     private  String UPDATE_MessageQueue_Out2Send;
 
+    // захват связанного OUT-сообщения для OutboundDeliveryEngine, без COMMIT-а: фиксируется вместе с ExeIn2DelIN
+    private PreparedStatement stmtUPDATE_MessageQueue_Out2Claim=null;
+    private String UPDATE_MessageQueue_Out2Claim;
+
     private PreparedStatement stmt_UPDATE_Message_In2ExeIn=null;
     private  String UPDATE_MessageQueue_In2ExeIn;
 
@@ -133,6 +146,12 @@ public class TheadDataAccess {
     public PreparedStatement stmt_INSERT_Message_Details;
     public String INSERT_Message_Details ;
 
+    // тело сообщения целиком, сжатое - см. MessageBodyStore
+    public String INSERT_Message_Body;
+    private PreparedStatement stmt_INSERT_Message_Body;
+    public String SELECT_Message_Body;
+    private PreparedStatement stmt_SELECT_Message_Body;
+
     private String UPDATE_QUEUElog_Response;
     private PreparedStatement stmt_UPDATE_QUEUElog;
 
@@ -157,6 +176,101 @@ public class TheadDataAccess {
     private  PreparedStatement stmt_update_MESSAGE_Template_Param=null;
 
 
+    // ленивая подготовка PreparedStatement-ов, которые используются напрямую из MessageUtils / PerformSaveRequest / XmlSQLStatement
+    public PreparedStatement getStmtMsgQueue() throws SQLException {
+        if ( stmtMsgQueue == null && make_Message_Query( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_Message_Query() fault" );
+        return stmtMsgQueue;
+    }
+    public PreparedStatement getStmtMsgQueueConfirmationDet() throws SQLException {
+        if ( stmtMsgQueueConfirmationDet == null && make_Message_QueryConfirmation( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_Message_QueryConfirmation() fault" );
+        return stmtMsgQueueConfirmationDet;
+    }
+    public PreparedStatement getStmtMsgQueueConfirmationTag() throws SQLException {
+        if ( stmtMsgQueueConfirmationTag == null && make_Message_ConfirmationTag_Query( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_Message_ConfirmationTag_Query() fault" );
+        return stmtMsgQueueConfirmationTag;
+    }
+    public PreparedStatement getStmtMsgQueueDet() throws SQLException {
+        if ( stmtMsgQueueDet == null && make_MessageDet_Query( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_MessageDet_Query() fault" );
+        return stmtMsgQueueDet;
+    }
+    public PreparedStatement getStmtMsgQueueVO_Query() throws SQLException {
+        if ( stmtMsgQueueVO_Query == null && make_MessageVO_Query( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_MessageVO_Query() fault" );
+        return stmtMsgQueueVO_Query;
+    }
+    public PreparedStatement getStmtMsgLastBodyTag() throws SQLException {
+        if ( stmtMsgLastBodyTag == null && make_Message_LastBodyTag_Query( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_Message_LastBodyTag_Query() fault" );
+        return stmtMsgLastBodyTag;
+    }
+    public PreparedStatement getStmt_DELETE_Message_Details() throws SQLException {
+        if ( stmt_DELETE_Message_Details == null && make_delete_Message_Details( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_delete_Message_Details() fault" );
+        return stmt_DELETE_Message_Details;
+    }
+    public PreparedStatement getStmt_INSERT_Message_Details() throws SQLException {
+        if ( stmt_INSERT_Message_Details == null && make_insert_Message_Details( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_insert_Message_Details() fault" );
+        return stmt_INSERT_Message_Details;
+    }
+    public PreparedStatement getStmt_New_Queue_Insert() throws SQLException {
+        if ( stmt_New_Queue_Insert == null && make_insert_Message_Queue( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_insert_Message_Queue() fault" );
+        return stmt_New_Queue_Insert;
+    }
+    public PreparedStatement getStmt_New_Queue_Prepare() throws SQLException {
+        if ( stmt_New_Queue_Prepare == null && make_SelectNew_Queue( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_SelectNew_Queue() fault" );
+        return stmt_New_Queue_Prepare;
+    }
+    public CallableStatement getStmt_New_Queue_Insert_Returning() throws SQLException {
+        if ( stmt_New_Queue_Insert_Returning == null && make_insert_Message_Queue_Returning( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_insert_Message_Queue_Returning() fault" );
+        return stmt_New_Queue_Insert_Returning;
+    }
+    public PreparedStatement getStmt_SELECT_Queue_Id_Block() throws SQLException {
+        if ( stmt_SELECT_Queue_Id_Block == null && make_SELECT_Queue_Id_Block( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_SELECT_Queue_Id_Block() fault" );
+        return stmt_SELECT_Queue_Id_Block;
+    }
+    // для PostgreSQL детали пишутся через COPY, для Oracle ( и если COPY недоступен ) - batch INSERT
+    private MessageDetailsWriter messageDetailsWriter = null;
+    public MessageDetailsWriter getMessageDetailsWriter() throws SQLException {
+        if ( messageDetailsWriter == null ) {
+            if ( !rdbmsVendor.equals("oracle") && ApplicationProperties.DetailsCopyEnabled ) {
+                try {
+                    messageDetailsWriter = new CopyMessageDetailsWriter( Hermes_Connection, dbSchema );
+                } catch (SQLException e) {
+                    TheadDataAccess_Log.warn( "CopyMessageDetailsWriter: CopyManager недоступен ({}), используем batch `{}`", e.getMessage(), INSERT_Message_Details );
+                }
+            }
+            if ( messageDetailsWriter == null )
+                messageDetailsWriter = new BatchMessageDetailsWriter( getStmt_INSERT_Message_Details(), INSERT_Message_Details );
+        }
+        // остатки от предыдущей, неудачной, записи не должны попасть в новую
+        messageDetailsWriter.discard();
+        return messageDetailsWriter;
+    }
+    public PreparedStatement getStmt_INSERT_Message_Body() throws SQLException {
+        if ( stmt_INSERT_Message_Body == null && make_Message_Body( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_Message_Body() fault" );
+        return stmt_INSERT_Message_Body;
+    }
+    public PreparedStatement getStmt_SELECT_Message_Body() throws SQLException {
+        if ( stmt_SELECT_Message_Body == null && make_Message_Body( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_Message_Body() fault" );
+        return stmt_SELECT_Message_Body;
+    }
+    public PreparedStatement getStmt_SELECT_Link_Queue_Id() throws SQLException {
+        if ( stmt_SELECT_Link_Queue_Id == null && make_SelectLink_Queue_Id( TheadDataAccess_Log ) == null )
+            throw new SQLException( "make_SelectLink_Queue_Id() fault" );
+        return stmt_SELECT_Link_Queue_Id;
+    }
+
     public Connection make_Hikari_Connection_Only( String db_userid , String db_password,
                                                  HikariDataSource dataSource,
                                                  Logger dataAccess_log) {
@@ -246,168 +360,10 @@ public class TheadDataAccess {
           }
     }
 
-        if (make_SelectNew_Queue(  dataAccess_log) == null ) {
-            dataAccess_log.error( "make_SelectNew_Queue() fault");
-            if ( Hermes_Connection != null)
-                try {
-                    Hermes_Connection.close();
-                } catch ( SQLException SQLe) {
-                    dataAccess_log.error( "make_Hikari_Connection close() for : `" + connectionUrl + "` fault:" + SQLe.getMessage() );
-                }
-            return null;
-        }
-
-        if (  make_Message_Query(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Query() fault");
-            return null;
-        }
-
-        if (  make_Message_QueryConfirmation(dataAccess_log) == null ) {
-               dataAccess_log.error( "make_Message_QueryConfirmation() fault");
-               return null;
-           }
-
-        if (  make_MessageDet_Query(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_MessageDet_Query() fault");
-            return null;
-        }
-
-        if (  make_Message_ConfirmationTag_Query(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_ConfirmationTag_Query() fault");
-            return null;
-        }
-
-        if (  make_update_MESSAGE_Template(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_update_MESSAGE_Template() fault");
-            return null;
-        }
-
-
-        if (   make_MessageVO_Query(  dataAccess_log ) == null ) {
-            dataAccess_log.error( "make_MessageVO_Query() fault");
-            return null;
-        }
-
-
-        if (  make_Message_Update_In2ExeIn(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_MessageQueue_ExeIn2DelIN() fault");
-            return null;
-        }
-
-        if (  make_Message_Update_ExeIN2PostIN(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_ExeIN2PostIN() fault");
-            return null;
-        }
-// make_Message_Update_Out2Send
-        if ( make_Message_Update_Out2Send(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_Send2ErrorOUT() fault");
-            return null;
-        }
-/*
-        if (  make_delete_Message_Details(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_delete_Message_Details() fault");
-            return null;
-        }
-        */
-
-        if (  make_insert_Message_Details(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_insert_Message_Details() fault");
-            return null;
-        }
-
-        if ( make_Message_Update_Send2ErrorOUT(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_Send2ErrorOUT() fault");
-            return null;
-        }
-
-        if ( make_UPDATE_MessageQueue_Send2finishedOUT(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_MessageQueue_Send2finishedOUT() fault");
-            return null;
-        }
-
-
-        if ( make_UPDATE_MessageQueue_Send2AttOUT(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_MessageQueue_Send2finishedOUT() fault");
-            return null;
-        }
-
-
-        if ( make_DELETE_Message_Confirmation(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_DELETE_Message_Confirmation() fault");
-            return null;
-        }
-
-
-
-//        if ( make_UPDATE_MessageQueue_DirectionAsIS(dataAccess_log) == null ) {
-//            dataAccess_log.error( "make_UPDATE_MessageQueue_DirectionAsIS() fault");
-//            return null;
-//        }
-
-        if ( make_UPDATE_QUEUElog(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_QUEUElog() fault");
-            return null;
-        }
-
-        if ( make_INSERT_QUEUElog(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_QUEUElog() fault");
-            return null;
-        }
-
-        /*if ( make_UPDATE_MessageQueue_SetMsg_Reason(dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_MessageQueue_SetMsg_Reason() fault");
-            return null;
-        }*/
-        /*
-        if ( make_Message_Update_Queue_Queue_Date4Send( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_MessageQueue_SetMsg_Reason() fault");
-            return null;
-        }
-        */
-
-        if (make_insert_Message_Queue( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_insert_Message_Queue() fault");
-            return null;
-        }
-
-        if ( make_Message_Update_In2ErrorIN( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_In2ErrorIN() fault");
-            return null;
-        }
-        if ( make_UPDATE_MessageQueue_In2Ok( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_UPDATE_MessageQueue_In2Ok() fault");
-            return null;
-        }
-
-        if ( make_Message_Update_Out2ErrorOUT( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_Out2ErrorOUT() fault");
-            return null;
-        }
-
-        if ( make_Message_Update_ExeIn2DelIN( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_ExeIn2DelIN() fault");
-            return null;
-        }
-
-        if ( make_SelectLink_Queue_Id( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_Message_Update_ExeIn2DelIN() fault");
-            return null;
-        }
-
-        if ( make_delete_Message_Details( dataAccess_log) == null ) {
-            dataAccess_log.error( "make_delete_Message_Details() fault");
-            return null;
-        }
-
-        if (make_Message_LastBodyTag_Query(dataAccess_log) == null) {
-            dataAccess_log.error("make_Message_LastBodyTag_Query() fault");
-            return null;
-        }
-
-        if (make_update_MESSAGE_Template_Param(HrmsSchema, dataAccess_log) == null) {
-            dataAccess_log.error("make_Message_LastBodyTag_Query() fault");
-            return null;
-        }
+        // PreparedStatement-ы готовятся лениво, при первом обращении ( do*() / getStmt*() ),
+        // и живут вместе с Hermes_Connection, пока сессия возвращается в TheadDataAccessPool
+        this.Created_Millis = System.currentTimeMillis();
+        this.Released_Millis = this.Created_Millis;
         return Target_Connection;
     }
 
@@ -464,6 +420,7 @@ public class TheadDataAccess {
     }
 
     public int doUpdate_MESSAGE_Template_Param( long Queue_Id, Integer Template_Id, String Login_LastMaker, Logger dataAccess_log ) {
+        if ( stmt_update_MESSAGE_Template_Param == null && make_update_MESSAGE_Template_Param( dbSchema, dataAccess_log ) == null ) return -1;
 
         if (stmt_update_MESSAGE_Template_Param != null) {
             try {
@@ -599,6 +556,7 @@ public class TheadDataAccess {
     }
 
     public int  do_SelectMESSAGE_QUEUE( MessageQueueVO messageQueueVO, Logger dataAccess_log ) {
+        if ( stmtSelectMESSAGE_QUEUE == null && make_SelectMESSAGE_QUEUE( dataAccess_log ) == null ) return -1;
         long Queue_Id = messageQueueVO.getQueue_Id();
         messageQueueVO.setMsg_Date( java.sql.Timestamp.valueOf( LocalDateTime.now( ZoneId.of( "Europe/Moscow" ) ) ) );
         messageQueueVO.setPrev_Msg_Date( messageQueueVO.getMsg_Date() );
@@ -627,6 +585,69 @@ public class TheadDataAccess {
         return  0;
     }
 
+    // Заголовок сообщения вставляется одним запросом, Queue_Date возвращается через RETURNING,
+    // Queue_Id берётся из блока, заранее выбранного из MESSAGE_QUEUE_SEQ ( см. QueueIdAllocator )
+    public String INSERT_Message_Queue_Returning;
+    public CallableStatement stmt_New_Queue_Insert_Returning;
+    public String SELECT_Queue_Id_Block;
+    public PreparedStatement stmt_SELECT_Queue_Id_Block;
+
+    private CallableStatement  make_insert_Message_Queue_Returning( Logger dataAccess_log ) {
+        CallableStatement StmtMsg_Queue;
+        if ( rdbmsVendor.equals("oracle") )
+            INSERT_Message_Queue_Returning = "{call INSERT into " + dbSchema + ".MESSAGE_Queue " +
+                    "(QUEUE_ID, QUEUE_DIRECTION, QUEUE_DATE, MSG_STATUS, MSG_DATE, OPERATION_ID, OUTQUEUE_ID, MSG_TYPE) " +
+                    "values (?,        '"+ DirectNEWIN +"',          current_timestamp,    0,          current_timestamp,  0,            0,          'Undefine') " +
+                    "returning QUEUE_DATE into ? }";
+        else
+            INSERT_Message_Queue_Returning = "INSERT into " + dbSchema + ".MESSAGE_Queue " +
+                    "(QUEUE_ID, QUEUE_DIRECTION, QUEUE_DATE, MSG_STATUS, MSG_DATE, OPERATION_ID, OUTQUEUE_ID, MSG_TYPE) " +
+                    "values (?,        '"+ DirectNEWIN +"',          current_timestamp,    0,          current_timestamp,  0,            0,          'Undefine') " +
+                    "returning QUEUE_DATE";
+        try {
+            StmtMsg_Queue = this.Hermes_Connection.prepareCall( INSERT_Message_Queue_Returning );
+        } catch (SQLException e) {
+            dataAccess_log.error( "make_insert_Message_Queue_Returning 4 `{}` fault: {}", INSERT_Message_Queue_Returning, e.getMessage() );
+            e.printStackTrace();
+            return ( (CallableStatement) null );
+        }
+        this.stmt_New_Queue_Insert_Returning = StmtMsg_Queue;
+        return  StmtMsg_Queue ;
+    }
+
+    private PreparedStatement  make_Message_Body( Logger dataAccess_log ) {
+        INSERT_Message_Body = "INSERT into " + dbSchema + ".MESSAGE_QueueBody (QUEUE_ID, BODY_CODEC, BODY_LENGTH, BODY) values (?, ?, ?, ?)";
+        SELECT_Message_Body = "select BODY_CODEC, BODY_LENGTH, BODY from " + dbSchema + ".MESSAGE_QueueBody where QUEUE_ID = ?";
+        try {
+            this.stmt_INSERT_Message_Body = this.Hermes_Connection.prepareStatement( INSERT_Message_Body );
+            this.stmt_SELECT_Message_Body = this.Hermes_Connection.prepareStatement( SELECT_Message_Body );
+        } catch (SQLException e) {
+            dataAccess_log.error( "make_Message_Body 4 `{}` fault: {}", INSERT_Message_Body, e.getMessage() );
+            e.printStackTrace();
+            this.stmt_INSERT_Message_Body = null;
+            this.stmt_SELECT_Message_Body = null;
+            return ( (PreparedStatement) null );
+        }
+        return  this.stmt_INSERT_Message_Body ;
+    }
+
+    private PreparedStatement  make_SELECT_Queue_Id_Block( Logger dataAccess_log ) {
+        PreparedStatement StmtMsg_Queue;
+        if ( rdbmsVendor.equals("oracle") )
+            SELECT_Queue_Id_Block = "select " + dbSchema + ".MESSAGE_QUEUE_SEQ.NEXTVAL as queue_id from DUAL connect by level <= ?";
+        else
+            SELECT_Queue_Id_Block = "select nextval('" + dbSchema + ".MESSAGE_QUEUE_SEQ') as queue_id from generate_series(1, ?)";
+        try {
+            StmtMsg_Queue = this.Hermes_Connection.prepareStatement( SELECT_Queue_Id_Block );
+        } catch (SQLException e) {
+            dataAccess_log.error( "make_SELECT_Queue_Id_Block 4 `{}` fault: {}", SELECT_Queue_Id_Block, e.getMessage() );
+            e.printStackTrace();
+            return ( (PreparedStatement) null );
+        }
+        this.stmt_SELECT_Queue_Id_Block = StmtMsg_Queue;
+        return  StmtMsg_Queue ;
+    }
+
     private PreparedStatement  make_insert_Message_Queue( Logger dataAccess_log ) {
         PreparedStatement StmtMsg_Queue;
         try {
@@ -664,6 +685,7 @@ public class TheadDataAccess {
     public int doUPDATE_QUEUElog( String ROWID_QUEUElog, // TODO RowId ROWID_QUEUElog, (oracle)
                                   long Queue_Id, String sResponse,
                                                        Logger dataAccess_log ) {
+        if ( stmt_UPDATE_QUEUElog == null && make_UPDATE_QUEUElog( dataAccess_log ) == null ) return -1;
         dataAccess_log.info("[{}] doUPDATE_QUEUElog: `update {}.MESSAGE_QUEUElog L set l.Resp_DT = current_timestamp, l.Response = '{}' where l.Queue_Id = {} and ROWID = '{}' ;`", Queue_Id, dbSchema, sResponse, Queue_Id, ROWID_QUEUElog);
         try {
            // TODO for Postgree !!!
@@ -763,6 +785,7 @@ public class TheadDataAccess {
     public  String // TODO RowId Postgree
             doINSERT_QUEUElog(long Queue_Id, String sRequest,
                                      Logger dataAccess_log ) {
+        if ( stmt_INSERT_QUEUElog == null && make_INSERT_QUEUElog( dataAccess_log ) == null ) return null;
         dataAccess_log.info("[{}] {} Queue_Id={}, Request='{}' ", Queue_Id, INSERT_QUEUElog_Request, Queue_Id, sRequest);
         int count ;
         String ROWID_QUEUElog=null;
@@ -878,6 +901,7 @@ public class TheadDataAccess {
                                                  String Msg_Type, String Msg_Type_own,
                                                  String Msg_Reason, Long OutQueue_Id,
                                                  Logger dataAccess_log ) {
+        if ( stmt_UPDATE_MessageQueue_In2Ok == null && make_UPDATE_MessageQueue_In2Ok( dataAccess_log ) == null ) return -1;
         //dataAccess_log.info( "[" + Queue_Id + "] doUPDATE_MessageQueue_In: \"update ARTX_PROJ.MESSAGE_QUEUE Q " +
         //        "set q.Queue_Direction = 'IN', q.Msg_Reason = '"+ Msg_Reason+ "' " +
         //        ", q.Msg_Date= current_timestamp,  q.Msg_Status = 0, q.Retry_Count= 1 " +
@@ -947,6 +971,7 @@ public class TheadDataAccess {
                                             String Msg_Type, String Msg_Type_own,
                                             String Msg_Reason, String OutQueue_Id,
                                             Logger dataAccess_log ) {
+        if ( stmt_UPDATE_MessageQueue_In2Ok == null && make_UPDATE_MessageQueue_In2Ok( dataAccess_log ) == null ) return -1;
         // dataAccess_log.info( "[" + Queue_Id + "] doUPDATE_MessageQueue_In2Ok: " + UPDATE_MessageQueue_In2Ok + " {"+ Queue_Id +"} SubSys_Cod=`" + SubSys_Cod+ "`" );
         try {
             stmt_UPDATE_MessageQueue_In2Ok.setInt( 1, Operation_Id );
@@ -1000,6 +1025,7 @@ public class TheadDataAccess {
     public  int doUPDATE_MessageQueue_IN2ExeIN(Long Queue_Id,
                                                        String pMsg_Reason,
                                                        Logger dataAccess_log ) {
+        if ( stmt_UPDATE_Message_In2ExeIn == null && make_Message_Update_In2ExeIn( dataAccess_log ) == null ) return -1;
 //        dataAccess_log.info( "[" + Queue_Id + "] doUPDATE_MessageQueue_IN2ExeIN: \"update ARTX_PROJ.MESSAGE_QUEUE Q " +
 //                "set  q.Msg_Reason = '"+ pMsg_Reason+ "' " +
 //                ", q.Msg_Date= current_timestamp,  " +
@@ -1046,6 +1072,7 @@ public class TheadDataAccess {
                                                     String pMsg_Reason,
                                                     int Msg_Status, int Retry_Count,
                                                     Logger dataAccess_log ) {
+        if ( stmt_UPDATE_MessageQueue_DirectionAsIS == null && make_UPDATE_MessageQueue_DirectionAsIS( dataAccess_log ) == null ) return -1;
         try {
             BigDecimal queueId = new BigDecimal( Queue_Id.toString() );
             //dataAccess_log.info("[" + Queue_Id + "] try UPDATE_MessageQueue_DirectionAsIS : ["+ UPDATE_MessageQueue_DirectionAsIS + "]" );
@@ -1092,6 +1119,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public  int doDELETE_Message_Confirmation(long Queue_Id, Logger dataAccess_log ) {
+        if ( stmt_DELETE_Message_Confirmation == null && make_DELETE_Message_Confirmation( dataAccess_log ) == null ) return -1;
         dataAccess_log.info("[{}] doDELETE_Message_ConfirmationBody! {};", Queue_Id, DELETE_Message_Confirmation);
         try {
                 // сначала удаляем всЁ, что растет из Confirmation
@@ -1169,6 +1197,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public  int doUPDATE_MessageQueue_Out2Send(  MessageQueueVO  messageQueueVO,  String pMsg_Reason, Logger dataAccess_log ) {
+        if ( stmtUPDATE_MessageQueue_Out2Send == null && make_Message_Update_Out2Send( dataAccess_log ) == null ) return -1;
         long Queue_Id = messageQueueVO.getQueue_Id();
         // устанавливаем признак "SEND"
         messageQueueVO.setMsg_Date( java.sql.Timestamp.valueOf( LocalDateTime.now( ZoneId.of( "Europe/Moscow" ) ) ) );
@@ -1197,6 +1226,39 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
 
+    private PreparedStatement  make_Message_Update_Out2Claim( Logger dataAccess_log ) {
+        PreparedStatement StmtMsg_Queue;
+        UPDATE_MessageQueue_Out2Claim =
+                "update " + dbSchema + ".MESSAGE_QUEUE " +
+                        "set Queue_Date = current_timestamp, Queue_Direction = 'SEND', Msg_Reason = ?" +
+                        ", Msg_Date= current_timestamp " +
+                        ", Prev_Queue_Direction='OUT', Prev_Msg_Date=current_timestamp " +
+                        "where Queue_Id = ? and Queue_Direction = 'OUT'";
+        try {
+            StmtMsg_Queue = this.Hermes_Connection.prepareStatement(UPDATE_MessageQueue_Out2Claim );
+        } catch (Exception e) {
+            dataAccess_log.error("make_Message_Update_Out2Claim({}) fault: {}", UPDATE_MessageQueue_Out2Claim, e.getMessage());
+            return ( (PreparedStatement) null );
+        }
+        this.stmtUPDATE_MessageQueue_Out2Claim = StmtMsg_Queue;
+        return  StmtMsg_Queue ;
+    }
+
+    // Переводит OUT в SEND, как это делает Sender, начиная отправку: после COMMIT-а Sender такое сообщение уже не возьмёт.
+    // 1 - сообщение наше, 0 - оно уже не в OUT ( его взял Sender ), -1 - ошибка. COMMIT делает вызывающий.
+    public int doUPDATE_MessageQueue_Out2Claim( Long Queue_Id, String pMsg_Reason, Logger dataAccess_log ) {
+        if ( stmtUPDATE_MessageQueue_Out2Claim == null && make_Message_Update_Out2Claim( dataAccess_log ) == null ) return -1;
+        try {
+            stmtUPDATE_MessageQueue_Out2Claim.setString( 1, pMsg_Reason.length() > maxReasonLen ? pMsg_Reason.substring(0, maxReasonLen) : pMsg_Reason );
+            stmtUPDATE_MessageQueue_Out2Claim.setLong( 2, Queue_Id );
+            return stmtUPDATE_MessageQueue_Out2Claim.executeUpdate();
+        } catch (SQLException e) {
+            dataAccess_log.error("[{}] doUPDATE_MessageQueue_Out2Claim({}) fault: {}", Queue_Id, UPDATE_MessageQueue_Out2Claim, e.getMessage());
+            return -1;
+        }
+    }
+
+
     public PreparedStatement  make_Message_Update_Send2ErrorOUT( Logger dataAccess_log ) {
         PreparedStatement StmtMsg_Queue;
         UPDATE_MessageQueue_Send2ErrorOUT =
@@ -1218,6 +1280,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public int doUPDATE_MessageQueue_Send2ErrorOUT( MessageQueueVO  messageQueueVO,  String pMsg_Reason, int pMsgStatus, int pMsgRetryCount,  Logger dataAccess_log) {
+        if ( stmtUPDATE_MessageQueue_Send2ErrorOUT == null && make_Message_Update_Send2ErrorOUT( dataAccess_log ) == null ) return -1;
         // dataAccess_log.info( "doUPDATE_MessageQueue_Send2ErrorOUT:" + pMsg_Reason );
         long Queue_Id = messageQueueVO.getQueue_Id();
 
@@ -1269,6 +1332,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
 
 
     public int doUPDATE_MessageQueue_Send2AttOUT(MessageQueueVO  messageQueueVO, String pMsg_Reason, int pMsgStatus, int pMsgRetryCount,  Logger dataAccess_log) {
+        if ( stmtUPDATE_MessageQueue_Send2AttOUT == null && make_UPDATE_MessageQueue_Send2AttOUT( dataAccess_log ) == null ) return -1;
         // dataAccess_log.info( "doUPDATE_MessageQueue_Send2ErrorOUT:" + pMsg_Reason );
         long Queue_Id = messageQueueVO.getQueue_Id();
         messageQueueVO.setMsg_Date( java.sql.Timestamp.valueOf( LocalDateTime.now( ZoneId.of( "Europe/Moscow" ) ) ) );
@@ -1320,6 +1384,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
                                                        String pMsg_Reason,
                                                        int Msg_Status, int Retry_Count,
                                                        Logger dataAccess_log ) {
+        if ( stmt_UPDATE_MessageQueue_Send2finishedOUT == null && make_UPDATE_MessageQueue_Send2finishedOUT( dataAccess_log ) == null ) return -1;
         try {
             stmt_UPDATE_MessageQueue_Send2finishedOUT.setString( 1, Queue_Direction );
             stmt_UPDATE_MessageQueue_Send2finishedOUT.setString( 2, pMsg_Reason.length() > maxReasonLen ? pMsg_Reason.substring(0, maxReasonLen) : pMsg_Reason );
@@ -1397,6 +1462,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public int doUPDATE_MessageQueue_ExeIn2DelIN(Long Queue_Id, Logger dataAccess_log) {
+        if ( stmtUPDATE_MessageQueue_ExeIn2DelIN == null && make_Message_Update_ExeIn2DelIN( dataAccess_log ) == null ) return -1;
         // dataAccess_log.info( "doUPDATE_MessageQueue_ExeIn2DelIN:" + pMsg_Reason );
         try {
             stmtUPDATE_MessageQueue_ExeIn2DelIN.setLong( 1, Queue_Id );
@@ -1439,6 +1505,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public int doUPDATE_MessageQueue_In2ErrorIN(Long Queue_Id, String pMsg_Reason, Integer pMsg_Status, Logger dataAccess_log) {
+        if ( stmtUPDATE_MessageQueue_In2ErrorIN == null && make_Message_Update_In2ErrorIN( dataAccess_log ) == null ) return -1;
          // dataAccess_log.warn( "["+ Queue_Id + "] doUPDATE_MessageQueue_In2ErrorIN:" + pMsg_Reason );
         try {
             stmtUPDATE_MessageQueue_In2ErrorIN.setString( 1, pMsg_Reason.length() > maxReasonLen ? pMsg_Reason.substring(0, maxReasonLen) : pMsg_Reason );
@@ -1463,6 +1530,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public int doUPDATE_MessageQueue_Out2ErrorOUT(MessageQueueVO messageQueueVO , String pMsg_Reason, Logger dataAccess_log) {
+        if ( stmtUPDATE_MessageQueue_Out2ErrorOUT == null && make_Message_Update_Out2ErrorOUT( dataAccess_log ) == null ) return -1;
         // dataAccess_log.info( "doUPDATE_MessageQueue_Out2ErrorOUT:" + pMsg_Reason );
         long Queue_Id= messageQueueVO.getQueue_Id();
         messageQueueVO.setMsg_Reason(pMsg_Reason);
@@ -1507,6 +1575,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
     }
 
     public int doUPDATE_MessageQueue_ExeIN2PostIN(Long Queue_Id, String pMsg_Reason, Logger dataAccess_log) {
+        if ( stmtUPDATE_MessageQueue_ExeIN2PostIN == null && make_Message_Update_ExeIN2PostIN( dataAccess_log ) == null ) return -1;
          dataAccess_log.info( "doUPDATE_MessageQueue_ExeIN2PostIN:" + pMsg_Reason );
         try {
             stmtUPDATE_MessageQueue_ExeIN2PostIN.setString( 1, pMsg_Reason.length() > maxReasonLen ? pMsg_Reason.substring(0, maxReasonLen) : pMsg_Reason );
@@ -1627,6 +1696,7 @@ private PreparedStatement  make_DELETE_Message_Confirmation( Logger dataAccess_l
         return StmtMsg_Queue;
     }
     public  int doUpdate_MESSAGE_Template( long Queue_Id, int updatedTemplate_Id, String Conf_Text , Logger dataAccess_log) {
+        if ( stmt_update_MESSAGE_Template == null && make_update_MESSAGE_Template( dataAccess_log ) == null ) return -1;
 
         if (stmt_update_MESSAGE_Template != null) {
             try {
@@ -0,0 +1,134 @@
+package net.plumbing.msgbus.threads;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.plumbing.msgbus.common.ApplicationProperties;
+import org.slf4j.Logger;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Пул сессий TheadDataAccess для HTTP-запросов: сессия держит соединение из Hikari вместе с уже
+// подготовленными PreparedStatement-ами и выполненным InternalDbPgSetupConnection,
+// поэтому повторный запрос не тратит ~20 round-trip на prepare.
+public class TheadDataAccessPool {
+    // сколько сессий держим в простое, остальные возвращаем в Hikari
+    public static int MaxIdleSessions = 32;
+    // если сессия лежала в простое дольше - перед выдачей проверяем соединение
+    public static final long ValidateAfterIdleMillis = TimeUnit.SECONDS.toMillis(30);
+
+    // LIFO - чаще используем "горячие" сессии, лишние старые вытесняются по возрасту
+    private static final ConcurrentLinkedDeque<TheadDataAccess> IdleSessions = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger IdleCount = new AtomicInteger(0);
+
+    public static int getIdleCount() {
+        return IdleCount.get();
+    }
+
+    // Соединение, взятое из Hikari, должно вернуться раньше, чем сработает leakDetectionThreshold или maxLifetime
+    public static long getMaxSessionAgeMillis( HikariDataSource dataSource ) {
+        long limitMillis = dataSource.getMaxLifetime();
+        if ( dataSource.getLeakDetectionThreshold() > 0 && dataSource.getLeakDetectionThreshold() < limitMillis )
+            limitMillis = dataSource.getLeakDetectionThreshold();
+        limitMillis = limitMillis - TimeUnit.MINUTES.toMillis(1);
+        if ( limitMillis < ValidateAfterIdleMillis )
+            limitMillis = ValidateAfterIdleMillis;
+        return limitMillis;
+    }
+
+    public static TheadDataAccess borrowTheadDataAccess( Logger dataAccess_log ) {
+        long maxSessionAgeMillis = getMaxSessionAgeMillis( ApplicationProperties.dataSource );
+        TheadDataAccess theadDataAccess;
+        while ( (theadDataAccess = IdleSessions.pollFirst()) != null ) {
+            IdleCount.decrementAndGet();
+            long currentMillis = System.currentTimeMillis();
+            if ( currentMillis - theadDataAccess.Created_Millis > maxSessionAgeMillis ) {
+                closeSession( theadDataAccess, dataAccess_log );
+                continue;
+            }
+            if ( currentMillis - theadDataAccess.Released_Millis > ValidateAfterIdleMillis ) {
+                try {
+                    if ( !theadDataAccess.Hermes_Connection.isValid( 5 ) ) {
+                        dataAccess_log.warn( "borrowTheadDataAccess: соединение сессии не прошло проверку isValid(), закрываем" );
+                        closeSession( theadDataAccess, dataAccess_log );
+                        continue;
+                    }
+                } catch ( SQLException e ) {
+                    dataAccess_log.error( "borrowTheadDataAccess: isValid() fault: {}", e.getMessage() );
+                    closeSession( theadDataAccess, dataAccess_log );
+                    continue;
+                }
+            }
+            return theadDataAccess;
+        }
+
+        theadDataAccess = new TheadDataAccess();
+        theadDataAccess.make_Hikari_Connection(
+                ApplicationProperties.HrmsSchema,
+                ApplicationProperties.hrmsDbLogin,
+                ApplicationProperties.dataSource,
+                ApplicationProperties.InternalDbPgSetupConnection,
+                dataAccess_log
+        );
+        // при ошибке Hermes_Connection == null, это проверяет вызывающий
+        return theadDataAccess;
+    }
+
+    public static void releaseTheadDataAccess( TheadDataAccess theadDataAccess, Logger dataAccess_log ) {
+        if ( theadDataAccess == null || theadDataAccess.Hermes_Connection == null )
+            return;
+        try {
+            // незавершённая транзакция не должна достаться следующему запросу
+            theadDataAccess.Hermes_Connection.rollback();
+        } catch ( SQLException e ) {
+            dataAccess_log.error( "releaseTheadDataAccess: rollback() fault: {}", e.getMessage() );
+            closeSession( theadDataAccess, dataAccess_log );
+            return;
+        }
+        long currentMillis = System.currentTimeMillis();
+        if ( currentMillis - theadDataAccess.Created_Millis > getMaxSessionAgeMillis( ApplicationProperties.dataSource )
+             || IdleCount.get() >= MaxIdleSessions ) {
+            closeSession( theadDataAccess, dataAccess_log );
+            return;
+        }
+        theadDataAccess.Released_Millis = currentMillis;
+        IdleCount.incrementAndGet();
+        IdleSessions.offerFirst( theadDataAccess );
+    }
+
+    // вызывается из основного цикла ServletApplication, что бы простаивающие сессии не держали соединения дольше положенного
+    public static int evictExpiredSessions( Logger dataAccess_log ) {
+        long maxSessionAgeMillis = getMaxSessionAgeMillis( ApplicationProperties.dataSource );
+        long currentMillis = System.currentTimeMillis();
+        int evicted = 0;
+        for ( TheadDataAccess theadDataAccess : IdleSessions ) {
+            if ( currentMillis - theadDataAccess.Created_Millis > maxSessionAgeMillis
+                 && IdleSessions.remove( theadDataAccess ) ) {
+                IdleCount.decrementAndGet();
+                closeSession( theadDataAccess, dataAccess_log );
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public static void closeAllSessions( Logger dataAccess_log ) {
+        TheadDataAccess theadDataAccess;
+        while ( (theadDataAccess = IdleSessions.pollFirst()) != null ) {
+            IdleCount.decrementAndGet();
+            closeSession( theadDataAccess, dataAccess_log );
+        }
+    }
+
+    private static void closeSession( TheadDataAccess theadDataAccess, Logger dataAccess_log ) {
+        try {
+            // вместе с соединением Hikari закрывает и все его PreparedStatement
+            if ( theadDataAccess.Hermes_Connection != null )
+                theadDataAccess.Hermes_Connection.close();
+        } catch ( SQLException e ) {
+            dataAccess_log.error( "TheadDataAccessPool: Hermes_Connection.close() fault: {}", e.getMessage() );
+        }
+        theadDataAccess.Hermes_Connection = null;
+    }
+}
@@ -0,0 +1,50 @@
+package net.plumbing.msgbus.threads.utils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public class BatchMessageDetailsWriter implements MessageDetailsWriter {
+    private final PreparedStatement stmt_INSERT_Message_Details;
+    private final String INSERT_Message_Details;
+    private int RowsInBatch = 0;
+
+    public BatchMessageDetailsWriter( PreparedStatement stmt_INSERT_Message_Details, String INSERT_Message_Details ) {
+        this.stmt_INSERT_Message_Details = stmt_INSERT_Message_Details;
+        this.INSERT_Message_Details = INSERT_Message_Details;
+    }
+
+    @Override
+    public void addRow( long Queue_Id, String Tag_Id, String Tag_Value, int Tag_Num, int Tag_Par_Num ) throws SQLException {
+        stmt_INSERT_Message_Details.setLong(1, Queue_Id);
+        stmt_INSERT_Message_Details.setString(2, Tag_Id);
+        stmt_INSERT_Message_Details.setString(3, Tag_Value);
+        stmt_INSERT_Message_Details.setInt(4, Tag_Num);
+        stmt_INSERT_Message_Details.setInt(5, Tag_Par_Num);
+        stmt_INSERT_Message_Details.addBatch();
+        RowsInBatch++;
+    }
+
+    @Override
+    public int flush() throws SQLException {
+        int nn = RowsInBatch;
+        RowsInBatch = 0;
+        if ( nn > 0 )
+            // Insert data in Oracle with Java … Batched mode
+            stmt_INSERT_Message_Details.executeBatch();
+        return nn;
+    }
+
+    @Override
+    public void discard() {
+        RowsInBatch = 0;
+        try {
+            stmt_INSERT_Message_Details.clearBatch();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    @Override
+    public String getInsertSQL() {
+        return INSERT_Message_Details;
+    }
+}
@@ -0,0 +1,102 @@
+package net.plumbing.msgbus.threads.utils;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// COPY ... FROM STDIN ( текстовый формат ) для PostgreSQL: строки копятся в буфере и уходят на сервер кусками
+// по FlushBufferSize, без round-trip на каждую строку batch-а. Работает в текущей транзакции соединения.
+public class CopyMessageDetailsWriter implements MessageDetailsWriter {
+    private static final int FlushBufferSize = 64 * 1024;
+
+    private final CopyManager copyManager;
+    private final String COPY_Message_Details;
+    private final StringBuilder RowBuffer = new StringBuilder( FlushBufferSize + 4096 );
+    private CopyIn copyIn = null;
+    private int RowsInCopy = 0;
+
+    public CopyMessageDetailsWriter( Connection Hermes_Connection, String dbSchema ) throws SQLException {
+        // Hikari отдаёт proxy, CopyManager берём у соединения драйвера
+        this.copyManager = Hermes_Connection.unwrap( PGConnection.class ).getCopyAPI();
+        this.COPY_Message_Details = "COPY " + dbSchema + ".MESSAGE_QueueDET (QUEUE_ID, TAG_ID, TAG_VALUE, TAG_NUM, TAG_PAR_NUM) FROM STDIN";
+    }
+
+    @Override
+    public void addRow( long Queue_Id, String Tag_Id, String Tag_Value, int Tag_Num, int Tag_Par_Num ) throws SQLException {
+        RowBuffer.append( Queue_Id ).append( '\t' );
+        appendCopyValue( RowBuffer, Tag_Id );
+        RowBuffer.append( '\t' );
+        appendCopyValue( RowBuffer, Tag_Value );
+        RowBuffer.append( '\t' ).append( Tag_Num )
+                 .append( '\t' ).append( Tag_Par_Num ).append( '\n' );
+        RowsInCopy++;
+        if ( RowBuffer.length() >= FlushBufferSize )
+            sendBuffer();
+    }
+
+    @Override
+    public int flush() throws SQLException {
+        if ( RowsInCopy == 0 )
+            return 0;
+        try {
+            sendBuffer();
+            return (int) copyIn.endCopy();
+        } catch (SQLException e) {
+            discard();
+            throw e;
+        } finally {
+            copyIn = null;
+            RowsInCopy = 0;
+            RowBuffer.setLength( 0 );
+        }
+    }
+
+    @Override
+    public void discard() {
+        if ( copyIn != null && copyIn.isActive() )
+            try {
+                copyIn.cancelCopy();
+            } catch (SQLException ignored) {
+            }
+        copyIn = null;
+        RowsInCopy = 0;
+        RowBuffer.setLength( 0 );
+    }
+
+    @Override
+    public String getInsertSQL() {
+        return COPY_Message_Details;
+    }
+
+    private void sendBuffer() throws SQLException {
+        if ( copyIn == null )
+            copyIn = copyManager.copyIn( COPY_Message_Details );
+        if ( RowBuffer.length() > 0 ) {
+            byte[] CopyData = RowBuffer.toString().getBytes( StandardCharsets.UTF_8 );
+            RowBuffer.setLength( 0 );
+            copyIn.writeToCopy( CopyData, 0, CopyData.length );
+        }
+    }
+
+    // экранирование для текстового формата COPY: \ , TAB, LF, CR; NULL -> \N
+    static void appendCopyValue( StringBuilder RowBuffer, String Value ) {
+        if ( Value == null ) {
+            RowBuffer.append( "\\N" );
+            return;
+        }
+        for ( int i = 0; i < Value.length(); i++ ) {
+            char c = Value.charAt( i );
+            switch ( c ) {
+                case '\\': RowBuffer.append( "\\\\" ); break;
+                case '\t': RowBuffer.append( "\\t" ); break;
+                case '\n': RowBuffer.append( "\\n" ); break;
+                case '\r': RowBuffer.append( "\\r" ); break;
+                default:   RowBuffer.append( c );
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package net.plumbing.msgbus.threads.utils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Автомат ( CLOSED / OPEN / HALF_OPEN ) и предел одновременных запросов на один адрес назначения ( scheme://host:port
+// из HttpClientRegistry - WSDL_Name системы-приёмника или PropHost шаблона ).
+// FailureThreshold ошибок подряд ( IOException, timeout, http 429/502/503/504 ) переводят адрес в OPEN: OpenMillis запросы
+// к нему сразу получают DestinationUnavailableException, не занимая поток и сессию БД на время connect/read timeout.
+// Затем HALF_OPEN - пропускается один пробный запрос, успех закрывает автомат, ошибка снова открывает.
+// Если заняты все MaxRequestsPerDestination разрешений и за BulkheadWaitMillis ни одно не освободилось - тоже отказ.
+// Отказ - это IOException из HttpClient.send(), дальше его обрабатывает обычный ProcessingSendError ( ShortRetryCount / LongRetryCount ).
+// sendAsync() ждёт разрешения без потока ( acquireAsync ): в очереди Waiters, разрешение ему отдаёт release().
+public final class DestinationCircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // hermes.circuit-breaker-failure-threshold, 0 - автомат выключен, остаётся только предел запросов
+    public static int FailureThreshold = 5;
+    // hermes.circuit-breaker-open-time, секунд
+    public static long OpenMillis = TimeUnit.SECONDS.toMillis(30);
+    // hermes.bulkhead-wait, секунд
+    public static long BulkheadWaitMillis = TimeUnit.SECONDS.toMillis(5);
+
+    private static final ConcurrentHashMap<String, DestinationCircuitBreaker> Breakers = new ConcurrentHashMap<>();
+
+    public static class DestinationUnavailableException extends IOException {
+        public DestinationUnavailableException( String message ) { super( message ); }
+    }
+
+    // ожидание разрешения для sendAsync(): завершается isTrial, когда разрешение получено
+    private static final class PermitWaiter extends CompletableFuture<Boolean> {
+        private final boolean isTrial;
+        private PermitWaiter( boolean isTrial ) { this.isTrial = isTrial; }
+    }
+
+    public final String Destination;
+    private final Semaphore Bulkhead;
+    private final ConcurrentLinkedQueue<PermitWaiter> Waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<State> CurrentState = new AtomicReference<>( State.CLOSED );
+    private final AtomicInteger ConsecutiveFailures = new AtomicInteger(0);
+    private final AtomicBoolean TrialInProgress = new AtomicBoolean(false);
+    private final AtomicInteger InFlight = new AtomicInteger(0);
+    private final AtomicLong FailureCount = new AtomicLong(0L);
+    private final AtomicLong RejectedCount = new AtomicLong(0L);
+    private final AtomicLong OpenedCount = new AtomicLong(0L);
+    private volatile long Opened_Millis = 0L;
+
+    private DestinationCircuitBreaker( String Destination, int MaxRequests ) {
+        this.Destination = Destination;
+        this.Bulkhead = new Semaphore( Math.max( MaxRequests, 1 ), true );
+    }
+
+    public static DestinationCircuitBreaker forDestination( String Destination ) {
+        return Breakers.computeIfAbsent( Destination, d -> new DestinationCircuitBreaker( d, HttpClientRegistry.MaxRequestsPerDestination ) );
+    }
+
+    public static int getDestinationCount() { return Breakers.size(); }
+
+    public State getState() { return CurrentState.get(); }
+    public int getInFlight() { return InFlight.get(); }
+    public long getFailureCount() { return FailureCount.get(); }
+    public long getRejectedCount() { return RejectedCount.get(); }
+    public long getOpenedCount() { return OpenedCount.get(); }
+
+    // true - это пробный запрос HALF_OPEN, его результат решает, закрыть ли автомат
+    boolean acquire() throws DestinationUnavailableException, InterruptedException {
+        boolean isTrial = acquireState();
+        if ( !Bulkhead.tryAcquire( BulkheadWaitMillis, TimeUnit.MILLISECONDS ) ) {
+            if ( isTrial ) TrialInProgress.set( false );
+            throw rejectBusy();
+        }
+        InFlight.incrementAndGet();
+        return isTrial;
+    }
+
+    // то же для sendAsync(): без свободного разрешения запрос ждёт в Waiters не дольше BulkheadWaitMillis, поток не занят
+    CompletableFuture<Boolean> acquireAsync() {
+        boolean isTrial;
+        try {
+            isTrial = acquireState();
+        } catch ( DestinationUnavailableException e ) {
+            return CompletableFuture.failedFuture( e );
+        }
+        if ( Bulkhead.tryAcquire() ) {
+            InFlight.incrementAndGet();
+            return CompletableFuture.completedFuture( isTrial );
+        }
+        PermitWaiter Waiter = new PermitWaiter( isTrial );
+        Waiters.add( Waiter );
+        // ожидание снимает тот, кто первым достал его из Waiters: drainWaiters() - разрешением, таймер - отказом
+        CompletableFuture.delayedExecutor( BulkheadWaitMillis, TimeUnit.MILLISECONDS ).execute( () -> {
+            if ( Waiters.remove( Waiter ) ) {
+                if ( Waiter.isTrial ) TrialInProgress.set( false );
+                Waiter.completeExceptionally( rejectBusy() );
+            }
+        });
+        // разрешение могли вернуть между tryAcquire() и add()
+        drainWaiters();
+        return Waiter;
+    }
+
+    private boolean acquireState() throws DestinationUnavailableException {
+        if ( FailureThreshold > 0 ) {
+            State state = CurrentState.get();
+            if ( state == State.OPEN ) {
+                if ( System.currentTimeMillis() - Opened_Millis < OpenMillis )
+                    throw reject( "circuit breaker is OPEN" );
+                CurrentState.compareAndSet( State.OPEN, State.HALF_OPEN );
+                state = CurrentState.get();
+            }
+            if ( state == State.HALF_OPEN ) {
+                if ( !TrialInProgress.compareAndSet( false, true ) )
+                    throw reject( "circuit breaker is HALF_OPEN, trial request in progress" );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drainWaiters() {
+        while ( !Waiters.isEmpty() && Bulkhead.tryAcquire() ) {
+            PermitWaiter Waiter = Waiters.poll();
+            if ( Waiter == null ) { // забрал другой release() или таймер
+                Bulkhead.release();
+                return;
+            }
+            InFlight.incrementAndGet();
+            Waiter.complete( Waiter.isTrial );
+        }
+    }
+
+    // isSuccess == null - запрос прерван, о состоянии адреса ничего не известно
+    void release( boolean isTrial, Boolean isSuccess ) {
+        InFlight.decrementAndGet();
+        Bulkhead.release();
+        drainWaiters();
+        if ( isSuccess == null ) {
+            if ( isTrial ) TrialInProgress.set( false );
+            return;
+        }
+        if ( isSuccess ) {
+            ConsecutiveFailures.set(0);
+            if ( isTrial ) {
+                CurrentState.set( State.CLOSED );
+                TrialInProgress.set( false );
+            }
+            return;
+        }
+        FailureCount.incrementAndGet();
+        int Failures = ConsecutiveFailures.incrementAndGet();
+        if ( isTrial || ( FailureThreshold > 0 && Failures >= FailureThreshold && CurrentState.get() == State.CLOSED ) ) {
+            Opened_Millis = System.currentTimeMillis();
+            if ( CurrentState.getAndSet( State.OPEN ) != State.OPEN )
+                OpenedCount.incrementAndGet();
+        }
+        if ( isTrial ) TrialInProgress.set( false );
+    }
+
+    // 429 и 502/503/504 - адрес перегружен или недоступен; 500 - не в счёт, так SOAP возвращает Fault
+    static boolean isFailureStatus( int httpStatusCode ) {
+        return httpStatusCode == 429 || httpStatusCode == 502 || httpStatusCode == 503 || httpStatusCode == 504;
+    }
+
+    private DestinationUnavailableException rejectBusy() {
+        return reject( "all " + HttpClientRegistry.MaxRequestsPerDestination + " requests are busy for " + BulkheadWaitMillis + " ms" );
+    }
+
+    private DestinationUnavailableException reject( String Reason ) {
+        RejectedCount.incrementAndGet();
+        return new DestinationUnavailableException( "`" + Destination + "` unavailable: " + Reason );
+    }
+
+    public static Map<String, DestinationCircuitBreaker> getBreakers() { return new TreeMap<>( Breakers ); }
+
+    // адреса не в CLOSED или с отказами - для журнала основного цикла ServletApplication
+    public static String getStatistics() {
+        StringBuilder Statistics = new StringBuilder( "DestinationCircuitBreaker: destinations=" ).append( Breakers.size() );
+        for ( DestinationCircuitBreaker Breaker : getBreakers().values() ) {
+            if ( Breaker.getState() == State.CLOSED && Breaker.getRejectedCount() == 0L && Breaker.getFailureCount() == 0L )
+                continue;
+            Statistics.append( "\n  " ).append( Breaker.Destination ).append( " state=" ).append( Breaker.getState() )
+                      .append( " inFlight=" ).append( Breaker.getInFlight() )
+                      .append( " waiting=" ).append( Breaker.Waiters.size() )
+                      .append( " failures=" ).append( Breaker.getFailureCount() )
+                      .append( " rejected=" ).append( Breaker.getRejectedCount() )
+                      .append( " opened=" ).append( Breaker.getOpenedCount() );
+        }
+        return Statistics.toString();
+    }
+}
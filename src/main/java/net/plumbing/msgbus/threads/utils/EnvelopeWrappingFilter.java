@@ -0,0 +1,38 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.common.XMLchars;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+// Оборачивает разбираемый XML в <Envelope><Header></Header><Body> ... </Body></Envelope> событиями парсера -
+// то же, что Envelope_noNS_Begin + Header_noNS_Begin + Header_noNS_End + Body_noNS_Begin + запрос + Body_noNS_End + Envelope_noNS_End,
+// но без склейки строк: XML over Http-POST ( не SOAP ) разбирается прямо из потока запроса.
+// <?xml ...?> во входном потоке обрабатывает сам парсер, вырезать его не нужно.
+public class EnvelopeWrappingFilter extends XMLFilterImpl {
+    private static final AttributesImpl NoAttributes = new AttributesImpl();
+
+    @Override
+    public void startDocument() throws SAXException {
+        super.startDocument();
+        startElement(XMLchars.Envelope);
+        startElement(XMLchars.Header);
+        endElement(XMLchars.Header);
+        startElement(XMLchars.Body);
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        endElement(XMLchars.Body);
+        endElement(XMLchars.Envelope);
+        super.endDocument();
+    }
+
+    private void startElement(String Name) throws SAXException {
+        super.startElement("", Name, Name, NoAttributes);
+    }
+
+    private void endElement(String Name) throws SAXException {
+        super.endElement("", Name, Name);
+    }
+}
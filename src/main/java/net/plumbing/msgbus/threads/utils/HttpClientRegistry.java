@@ -0,0 +1,211 @@
+package net.plumbing.msgbus.threads.utils;
+
+import org.slf4j.Logger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Исходящие HttpClient для MessageHttpSend и PerfotmInputMessages: раньше на каждое сообщение строился новый клиент и закрывался
+// после ответа - каждый вызов платил TCP и TLS handshake. Теперь клиент один на ( адрес назначения, учётка для Authenticator,
+// timeout_conn ), его пул keep-alive соединений и TLS-сессии переживают сообщение.
+// Все клиенты строятся на одном SSLContext. Одновременных запросов к одному адресу не больше MaxRequestsPerDestination -
+// для HTTP/1.1 это и предел соединений к нему, его вместе с автоматом отказов держит DestinationCircuitBreaker. Соединения в простое закрывает сам HttpClient ( jdk.httpclient.keepalive.timeout ),
+// клиенты, не использованные дольше IdleEvictMillis, закрывает evictIdleClients() из основного цикла ServletApplication.
+public class HttpClientRegistry {
+    // hermes.http-client-max-per-destination
+    public static int MaxRequestsPerDestination = 64;
+    // hermes.http-client-idle-evict, секунд
+    public static long IdleEvictMillis = TimeUnit.MINUTES.toMillis(5);
+
+    private static final SSLContext SharedSSLContext = defaultSSLContext();
+
+    private record ClientKey( String Destination, String PropUser, String PropPswd, int ConnectTimeout ) { }
+
+    private static final ConcurrentHashMap<ClientKey, RegisteredHttpClient> Clients = new ConcurrentHashMap<>();
+    private static final AtomicLong CreatedCount = new AtomicLong(0L);
+    private static final AtomicLong ReusedCount = new AtomicLong(0L);
+    private static final AtomicLong EvictedCount = new AtomicLong(0L);
+
+    private static SSLContext defaultSSLContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SSLContext.getDefault() fault", e);
+        }
+    }
+
+    // Authenticator передаётся, только если учётка не Preemptive - иначе Authorization ставится заголовком запроса
+    // и клиент для всех учёток один.
+    public static HttpClient getHttpClient( String EndPointUrl, Authenticator authenticator, String PropUser, String PropPswd, int ConnectTimeout ) {
+        String Destination = getDestination( EndPointUrl );
+        ClientKey clientKey = ( authenticator == null )
+                ? new ClientKey( Destination, null, null, ConnectTimeout )
+                : new ClientKey( Destination, PropUser, PropPswd, ConnectTimeout );
+        RegisteredHttpClient registeredHttpClient = Clients.get( clientKey );
+        if ( registeredHttpClient != null && !registeredHttpClient.isEvicted ) {
+            ReusedCount.incrementAndGet();
+            registeredHttpClient.LastUsed_Millis = System.currentTimeMillis();
+            return registeredHttpClient;
+        }
+        registeredHttpClient = Clients.compute( clientKey, ( key, current ) -> {
+            if ( current != null && !current.isEvicted ) return current;
+            HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+                    .version( HttpClient.Version.HTTP_1_1 )
+                    .followRedirects( HttpClient.Redirect.ALWAYS )
+                    .sslContext( SharedSSLContext )
+                    .connectTimeout( Duration.ofSeconds( ConnectTimeout ) );
+            if ( authenticator != null )
+                httpClientBuilder.authenticator( authenticator );
+            CreatedCount.incrementAndGet();
+            return new RegisteredHttpClient( httpClientBuilder.build(), DestinationCircuitBreaker.forDestination( Destination ) );
+        });
+        registeredHttpClient.LastUsed_Millis = System.currentTimeMillis();
+        return registeredHttpClient;
+    }
+
+    // scheme://host:port - по нему делятся клиенты и предел одновременных запросов
+    static String getDestination( String EndPointUrl ) {
+        try {
+            URI uri = URI.create( EndPointUrl );
+            if ( uri.getHost() != null ) {
+                String scheme = ( uri.getScheme() == null ) ? "http" : uri.getScheme().toLowerCase();
+                int port = uri.getPort();
+                if ( port < 0 ) port = scheme.equals("https") ? 443 : 80;
+                return scheme + "://" + uri.getHost().toLowerCase() + ":" + port;
+            }
+        } catch ( IllegalArgumentException e ) {
+            // URI.create в запросе всё равно упадёт и ошибка попадёт в сообщение
+        }
+        return EndPointUrl;
+    }
+
+    public static int evictIdleClients( Logger AppThead_log ) {
+        long currentMillis = System.currentTimeMillis();
+        int evicted = 0;
+        for ( Map.Entry<ClientKey, RegisteredHttpClient> entry : Clients.entrySet() ) {
+            RegisteredHttpClient registeredHttpClient = entry.getValue();
+            if ( currentMillis - registeredHttpClient.LastUsed_Millis <= IdleEvictMillis || registeredHttpClient.InFlight.get() > 0 )
+                continue;
+            if ( Clients.remove( entry.getKey(), registeredHttpClient ) ) {
+                registeredHttpClient.isEvicted = true;
+                // запрос, успевший взять клиента до remove(), shutdown() дождётся
+                registeredHttpClient.Delegate.shutdown();
+                evicted++;
+                AppThead_log.info( "HttpClientRegistry: idle client for `{}` closed", entry.getKey().Destination() );
+            }
+        }
+        EvictedCount.addAndGet( evicted );
+        return evicted;
+    }
+
+    public static String getStatistics() {
+        int InFlight = 0;
+        for ( RegisteredHttpClient registeredHttpClient : Clients.values() )
+            InFlight += registeredHttpClient.InFlight.get();
+        return "HttpClientRegistry: clients=" + Clients.size() + " destinations=" + DestinationCircuitBreaker.getDestinationCount() +
+                " created=" + CreatedCount.get() + " reused=" + ReusedCount.get() + " evicted=" + EvictedCount.get() +
+                " inFlight=" + InFlight;
+    }
+
+    // Клиент из реестра общий: close() / shutdown() у вызывающего ничего не закрывают, клиент закрывает только evictIdleClients().
+    // send() / sendAsync() проходят через DestinationCircuitBreaker адреса назначения.
+    private static final class RegisteredHttpClient extends HttpClient {
+        private final HttpClient Delegate;
+        private final DestinationCircuitBreaker Breaker;
+        private final AtomicInteger InFlight = new AtomicInteger(0);
+        private volatile long LastUsed_Millis = System.currentTimeMillis();
+        private volatile boolean isEvicted = false;
+
+        private RegisteredHttpClient( HttpClient Delegate, DestinationCircuitBreaker Breaker ) {
+            this.Delegate = Delegate;
+            this.Breaker = Breaker;
+        }
+
+        @Override
+        public <T> HttpResponse<T> send( HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler )
+                throws IOException, InterruptedException {
+            boolean isTrial = Breaker.acquire();
+            InFlight.incrementAndGet();
+            Boolean isSuccess = null;
+            try {
+                HttpResponse<T> response = Delegate.send( request, responseBodyHandler );
+                isSuccess = !DestinationCircuitBreaker.isFailureStatus( response.statusCode() );
+                return response;
+            } catch ( IOException e ) {
+                isSuccess = false;
+                throw e;
+            } finally {
+                InFlight.decrementAndGet();
+                Breaker.release( isTrial, isSuccess );
+                LastUsed_Millis = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync( HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler ) {
+            return sendAsync( request, responseBodyHandler, null );
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync( HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler ) {
+            // ожидание предела адреса назначения - тоже без потока; клиент считается занятым с постановки в очередь,
+            // чтобы evictIdleClients() не закрыл его под ждущим запросом
+            InFlight.incrementAndGet();
+            return Breaker.acquireAsync().thenCompose( isTrial -> {
+                CompletableFuture<HttpResponse<T>> responseFuture;
+                try {
+                    responseFuture = Delegate.sendAsync( request, responseBodyHandler, pushPromiseHandler );
+                } catch ( RuntimeException e ) {
+                    Breaker.release( isTrial, null );
+                    throw e;
+                }
+                return responseFuture.whenComplete( ( response, throwable ) ->
+                        Breaker.release( isTrial, ( throwable == null ) ? !DestinationCircuitBreaker.isFailureStatus( response.statusCode() ) : false ) );
+            }).whenComplete( ( response, throwable ) -> {
+                InFlight.decrementAndGet();
+                LastUsed_Millis = System.currentTimeMillis();
+            });
+        }
+
+        @Override public Optional<CookieHandler> cookieHandler() { return Delegate.cookieHandler(); }
+        @Override public Optional<Duration> connectTimeout() { return Delegate.connectTimeout(); }
+        @Override public Redirect followRedirects() { return Delegate.followRedirects(); }
+        @Override public Optional<ProxySelector> proxy() { return Delegate.proxy(); }
+        @Override public SSLContext sslContext() { return Delegate.sslContext(); }
+        @Override public SSLParameters sslParameters() { return Delegate.sslParameters(); }
+        @Override public Optional<Authenticator> authenticator() { return Delegate.authenticator(); }
+        @Override public Version version() { return Delegate.version(); }
+        @Override public Optional<Executor> executor() { return Delegate.executor(); }
+
+        @Override public void shutdown() { }
+        @Override public void shutdownNow() { }
+        @Override public boolean awaitTermination( Duration duration ) { return true; }
+        @Override public boolean isTerminated() { return false; }
+        @Override public void close() { }
+
+        @Override
+        public boolean equals( Object o ) { return this == o; }
+        @Override
+        public int hashCode() { return Objects.hashCode( Delegate ); }
+    }
+}
@@ -0,0 +1,145 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.common.sStackTrace;
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Тело сообщения целиком ( XML_Request_Method ), сжатое, в одной записи MESSAGE_QueueBody -
+// вместо разбора по тегам в MESSAGE_QueueDET, где на каждый тег приходится отдельная строка.
+// Включается на шаблоне: BodyStorage=compressed в ConfigExecute.
+// MESSAGE_QueueDET для таких сообщений заполняется только перед SQL-обработчиком ( ExecuteSQLincludedXML ),
+// ReadMessage / ReadMessageDetai4Send читают MESSAGE_QueueDET, и если строк там нет, а BodyStorage=compressed
+// включён хотя бы на одном шаблоне - берут тело отсюда.
+//
+// DDL таблицы: db/postgresql/message_queuebody.sql, db/oracle/message_queuebody.sql
+public class MessageBodyStore {
+    // BODY_CODEC, что бы можно было сменить алгоритм сжатия не переписывая уже сохранённое
+    public static final String CodecDeflate = "deflate";
+    // выставляется при загрузке шаблона с BodyStorage=compressed: пока его нет, таблицы MESSAGE_QueueBody может не быть вовсе
+    public static volatile boolean BodyStorageInUse = false;
+
+    // сохраняет тело и фиксирует транзакцию ( как InsertMessageDetail ), возвращает длину тела в байтах
+    public static int SaveMessageBody(TheadDataAccess theadDataAccess, long Queue_Id, String XML_Body, Logger MessegeReceive_Log) {
+        byte[] Body = XML_Body.getBytes(StandardCharsets.UTF_8);
+        byte[] CompressedBody = compress(Body);
+        try {
+            PreparedStatement stmt_INSERT_Message_Body = theadDataAccess.getStmt_INSERT_Message_Body();
+            stmt_INSERT_Message_Body.setLong(1, Queue_Id);
+            stmt_INSERT_Message_Body.setString(2, CodecDeflate);
+            stmt_INSERT_Message_Body.setInt(3, Body.length);
+            stmt_INSERT_Message_Body.setBytes(4, CompressedBody);
+            stmt_INSERT_Message_Body.executeUpdate();
+        } catch (SQLException e) {
+            MessegeReceive_Log.error("[{}] {}: :{}", Queue_Id, theadDataAccess.INSERT_Message_Body, sStackTrace.strInterruptedException(e));
+            e.printStackTrace();
+            try {
+                theadDataAccess.Hermes_Connection.rollback();
+            } catch (SQLException exp) {
+                MessegeReceive_Log.error("[{}] Hermes_Connection.rollback() fault: {}", Queue_Id, exp.getMessage());
+            }
+            return -2;
+        }
+        try {
+            theadDataAccess.Hermes_Connection.commit();
+        } catch (SQLException exp) {
+            MessegeReceive_Log.error("[{}] Hermes_Connection.commit() fault: {}", Queue_Id, exp.getMessage());
+            return -3;
+        }
+        MessegeReceive_Log.info("[{}] SaveMessageBody: {} байт, сжато до {}", Queue_Id, Body.length, CompressedBody.length);
+        return Body.length;
+    }
+
+    // null - тела в MESSAGE_QueueBody нет или прочитать не удалось
+    public static String ReadMessageBody(TheadDataAccess theadDataAccess, long Queue_Id, Logger MessegeSend_Log) {
+        String Body_Codec = null;
+        int Body_Length = 0;
+        byte[] CompressedBody = null;
+        // в PostgreSQL ошибка SELECT ( например, нет таблицы ) обрывает всю транзакцию, а в ней - незафиксированная работа
+        // вызывающего, поэтому откатываемся только до точки сохранения. Oracle транзакцию не обрывает, и releaseSavepoint не умеет
+        Savepoint BeforeSelect = null;
+        try {
+            if ( !theadDataAccess.rdbmsVendor.equals("oracle") )
+                BeforeSelect = theadDataAccess.Hermes_Connection.setSavepoint();
+            PreparedStatement stmt_SELECT_Message_Body = theadDataAccess.getStmt_SELECT_Message_Body();
+            stmt_SELECT_Message_Body.setLong(1, Queue_Id);
+            ResultSet rs = stmt_SELECT_Message_Body.executeQuery();
+            while (rs.next()) {
+                Body_Codec = rs.getString("BODY_CODEC");
+                Body_Length = rs.getInt("BODY_LENGTH");
+                CompressedBody = rs.getBytes("BODY");
+            }
+            rs.close();
+            if ( BeforeSelect != null )
+                theadDataAccess.Hermes_Connection.releaseSavepoint(BeforeSelect);
+        } catch (SQLException e) {
+            MessegeSend_Log.error("[{}] {}: :{}", Queue_Id, theadDataAccess.SELECT_Message_Body, sStackTrace.strInterruptedException(e));
+            if ( BeforeSelect != null )
+                try {
+                    theadDataAccess.Hermes_Connection.rollback(BeforeSelect);
+                } catch (SQLException exp) {
+                    MessegeSend_Log.error("[{}] Hermes_Connection.rollback(Savepoint) fault: {}", Queue_Id, exp.getMessage());
+                }
+            return null;
+        }
+        if ( CompressedBody == null )
+            return null;
+        if ( !CodecDeflate.equals(Body_Codec) ) {
+            MessegeSend_Log.error("[{}] ReadMessageBody: неизвестный BODY_CODEC `{}`", Queue_Id, Body_Codec);
+            return null;
+        }
+        try {
+            return new String( decompress(CompressedBody, Body_Length), StandardCharsets.UTF_8 );
+        } catch (DataFormatException e) {
+            MessegeSend_Log.error("[{}] ReadMessageBody: тело в MESSAGE_QueueBody повреждено: {}", Queue_Id, e.getMessage());
+            return null;
+        }
+    }
+
+    // BEST_SPEED: XML сжимается и на минимальном уровне в разы, а время приёма важнее лишних процентов
+    static byte[] compress(byte[] Body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(Body);
+            deflater.finish();
+            ByteArrayOutputStream CompressedBody = new ByteArrayOutputStream( Math.max(Body.length / 4, 64) );
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                CompressedBody.write(buffer, 0, n);
+            }
+            return CompressedBody.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] decompress(byte[] CompressedBody, int Body_Length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(CompressedBody);
+            byte[] Body = new byte[Body_Length];
+            int n = 0;
+            while (n < Body_Length && !inflater.finished()) {
+                int r = inflater.inflate(Body, n, Body_Length - n);
+                if ( r == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                    throw new DataFormatException("unexpected end of compressed body at " + n + " of " + Body_Length);
+                n += r;
+            }
+            if ( n != Body_Length )
+                throw new DataFormatException("body length " + n + " != BODY_LENGTH " + Body_Length);
+            return Body;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package net.plumbing.msgbus.threads.utils;
+
+import java.sql.SQLException;
+
+// Запись строк MESSAGE_QueueDET ( QUEUE_ID, TAG_ID, TAG_VALUE, TAG_NUM, TAG_PAR_NUM ).
+// Реализации: BatchMessageDetailsWriter - JDBC batch через stmt_INSERT_Message_Details ( Oracle и запасной вариант ),
+// CopyMessageDetailsWriter - COPY FROM STDIN через CopyManager для PostgreSQL.
+// Экземпляр принадлежит сессии TheadDataAccess, берётся через theadDataAccess.getMessageDetailsWriter(),
+// commit / rollback остаются за вызывающим.
+public interface MessageDetailsWriter {
+
+    void addRow( long Queue_Id, String Tag_Id, String Tag_Value, int Tag_Num, int Tag_Par_Num ) throws SQLException;
+
+    // отправляет в БД всё накопленное, возвращает число записанных строк
+    int flush() throws SQLException;
+
+    // сбрасывает накопленное без записи ( после ошибки )
+    void discard();
+
+    String getInsertSQL();
+}
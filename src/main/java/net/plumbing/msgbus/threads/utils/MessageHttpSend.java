@@ -62,12 +62,76 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static net.plumbing.msgbus.common.XMLchars.OpenTag;
 import static net.plumbing.msgbus.threads.utils.MessageUtils.stripNonValidXMLCharacters;
 
 public class MessageHttpSend {
 
+    // HttpGetMessage() / sendSoapMessage() / sendPostMessage() вернули: запрос ушёл в sendAsync(), ответ разберёт completeSend()
+    public static final int SendPending = Integer.MIN_VALUE;
+
+    // Запрос без потока. У клиентов HttpClientRegistry предел адреса назначения ( DestinationCircuitBreaker ) ждётся тоже без потока.
+    public static <T> CompletableFuture<HttpResponse<T>> sendAsync( HttpClient ApiRestHttpClient, HttpRequest request,
+                                                                   HttpResponse.BodyHandler<T> responseBodyHandler ) {
+        try {
+            return ApiRestHttpClient.sendAsync( request, responseBodyHandler );
+        } catch ( RuntimeException e ) {
+            return CompletableFuture.failedFuture( e );
+        }
+    }
+
+    // второй проход отложенной отправки ( DeferredHttpSend ), когда sendAsync() завершился
+    public static int completeSend( @NotNull MessageQueueVO messageQueueVO, @NotNull MessageDetails4Send messageDetails, TheadDataAccess theadDataAccess, Logger MessageSend_Log ) {
+        switch ( messageDetails.DeferredSend.WebMetod ) {
+            case "GET":
+                return HttpGetMessage( messageQueueVO, messageDetails, theadDataAccess, MessageSend_Log );
+            case "POST":
+                return sendPostMessage( messageQueueVO, messageDetails, theadDataAccess, MessageSend_Log );
+            default:
+                return sendSoapMessage( messageQueueVO, messageDetails, theadDataAccess, MessageSend_Log );
+        }
+    }
+
+    // Без DeferredSend - обычный блокирующий send(). В первом проходе отдаёт запрос в sendAsync() и возвращает null,
+    // во втором - готовый ответ, а ошибку sendAsync() бросает так же, как её бросил бы send().
+    @SuppressWarnings("unchecked")
+    private static <T> HttpResponse<T> send( HttpClient ApiRestHttpClient, HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                             MessageDetails4Send messageDetails, String WebMetod ) throws IOException, InterruptedException {
+        DeferredHttpSend DeferredSend = messageDetails.DeferredSend;
+        if ( DeferredSend == null )
+            return ApiRestHttpClient.send( request, responseBodyHandler );
+        if ( DeferredSend.Response == null ) {
+            DeferredSend.WebMetod = WebMetod;
+            DeferredSend.Stage_Nanos = PipelineMetrics.start();
+            DeferredSend.Response = sendAsync( ApiRestHttpClient, request, responseBodyHandler );
+            return null;
+        }
+        try {
+            return (HttpResponse<T>) DeferredSend.Response.join();
+        } catch ( CompletionException e ) {
+            Throwable cause = ( e.getCause() == null ) ? e : e.getCause();
+            if ( cause instanceof IOException ) throw (IOException) cause;
+            if ( cause instanceof InterruptedException ) throw (InterruptedException) cause;
+            if ( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+            if ( cause instanceof Error ) throw (Error) cause;
+            throw new IOException( cause );
+        }
+    }
+
+    // запрос в журнал пишет первый проход, второй берёт его строку
+    private static String doINSERT_QUEUElog( MessageDetails4Send messageDetails, TheadDataAccess theadDataAccess, Long Queue_Id, String Request, Logger MessageSend_Log ) {
+        DeferredHttpSend DeferredSend = messageDetails.DeferredSend;
+        if ( DeferredSend != null && DeferredSend.Response != null )
+            return DeferredSend.ROWID_QUEUElog;
+        String ROWID_QUEUElog = theadDataAccess.doINSERT_QUEUElog( Queue_Id, Request, MessageSend_Log );
+        if ( DeferredSend != null )
+            DeferredSend.ROWID_QUEUElog = ROWID_QUEUElog;
+        return ROWID_QUEUElog;
+    }
+
     public static SSLContext getSSLContext(StringBuilder MsgReason)  {
         SSLContext sslContext;
         try {
@@ -183,21 +247,14 @@ public class MessageHttpSend {
             if ( IsDebugged ) {
                 MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "] HttpGetMessage.GET PropUser=`" + PropUser + "` PropPswd=`" + PropPswd + "`");
             }
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .authenticator( messageDetails.MessageTemplate4Perform.restPasswordAuthenticator )
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .connectTimeout(Duration.ofSeconds( messageTemplate4Perform.getPropTimeout_Conn()))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, messageDetails.MessageTemplate4Perform.restPasswordAuthenticator,
+                    PropUser, PropPswd, messageTemplate4Perform.getPropTimeout_Conn() );
         }
         else {
             if ( IsDebugged )
                 MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "] HttpGetMessage.GET PropUser== null (`" + PropUser + "`)" );
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .connectTimeout(Duration.ofSeconds(messageTemplate4Perform.getPropTimeout_Conn()))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, null,
+                    null, null, messageTemplate4Perform.getPropTimeout_Conn() );
         }
 
         //  TODO for Oracle ROWID, в случае Postgree String :
@@ -249,7 +306,7 @@ public class MessageHttpSend {
 
                 if (IsDebugged) {
                     MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "]" + " HttpGetMessage.GET URI=`" + EndPointUrl + restElmntEscaper.escape(queryString.toString()) + "`");
-                    ROWID_QUEUElog = theadDataAccess.doINSERT_QUEUElog(messageQueueVO.getQueue_Id(), queryString.toString(), MessageSend_Log);
+                    ROWID_QUEUElog = doINSERT_QUEUElog(messageDetails, theadDataAccess, messageQueueVO.getQueue_Id(), queryString.toString(), MessageSend_Log);
                 }
 ////////////////////////////
                 // формируем заголовки с учетом переменных httpHeaders из параметров
@@ -257,7 +314,6 @@ public class MessageHttpSend {
                 String headerParams[];
                 httpHeaders.put("User-Agent", "msgBus/Java-21");
                 httpHeaders.put("Accept", "*/*");
-                httpHeaders.put("Connection", "close");
                 if ( (messageDetails.MessageTemplate4Perform.restPasswordAuthenticator != null) &&
                         (messageDetails.MessageTemplate4Perform.getIsPreemptive())  // adding the header to the HttpRequest
                 ) {
@@ -301,7 +357,9 @@ public class MessageHttpSend {
                         //.header("Connection", "close")
                         .timeout( Duration.ofSeconds( messageTemplate4Perform.getPropTimeout_Read()) )
                         .build();
-                RestResponseGet = ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofString() );
+                RestResponseGet = send(ApiRestHttpClient, request, HttpResponse.BodyHandlers.ofString(), messageDetails, "GET" );
+                if ( RestResponseGet == null ) // запрос ушёл в sendAsync()
+                    return SendPending;
                 RestResponse = RestResponseGet.body(); //.toString();
                 // messageDetails.SimpleHttpClient.
                 restResponseStatus = RestResponseGet.statusCode();
@@ -413,6 +471,7 @@ public class MessageHttpSend {
       syncConnectionManager = null;*/
 
         } finally {
+            // клиент из HttpClientRegistry общий: close() лишь отдаёт его, keep-alive соединения остаются в пуле
             MessageSend_Log.warn("[" + messageQueueVO.getQueue_Id() + "]" + "HttpGetMessage.ApiRestHttpClient.close finally" );
             if (ApiRestHttpClient != null)
                 try {
@@ -569,21 +628,14 @@ public class MessageHttpSend {
             if ( IsDebugged ) {
                 MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "] sendSoapMessage.POST PropUser=`" + PropUser + "` PropPswd=`" + PropPswd + "`");
             }
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .authenticator( messageDetails.MessageTemplate4Perform.restPasswordAuthenticator )
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .connectTimeout(Duration.ofSeconds( messageTemplate4Perform.getPropTimeout_Conn()))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, messageDetails.MessageTemplate4Perform.restPasswordAuthenticator,
+                    PropUser, PropPswd, messageTemplate4Perform.getPropTimeout_Conn() );
         }
         else {
             if ( IsDebugged )
                 MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "] sendSoapMessage.POST PropUser== null (`" + PropUser + "`)" );
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .connectTimeout(Duration.ofSeconds(messageTemplate4Perform.getPropTimeout_Conn()))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, null,
+                    null, null, messageTemplate4Perform.getPropTimeout_Conn() );
         }
 
         // TODO : for Ora RowId ROWID_QUEUElog=null;
@@ -633,7 +685,7 @@ public class MessageHttpSend {
                     SOAPAction= "";
                 // InputStream parsedMessageStream = new ByteArrayInputStream(SoapEnvelope.toString().getBytes(StandardCharsets.UTF_8));
                 if ( IsDebugged )
-                    ROWID_QUEUElog = theadDataAccess.doINSERT_QUEUElog( messageQueueVO.getQueue_Id(), SoapEnvelope.toString(), MessageSend_Log );
+                    ROWID_QUEUElog = doINSERT_QUEUElog( messageDetails, theadDataAccess, messageQueueVO.getQueue_Id(), SoapEnvelope.toString(), MessageSend_Log );
 
 
                 HttpRequest.Builder requestBuilder = java.net.http.HttpRequest.newBuilder();
@@ -656,7 +708,9 @@ public class MessageHttpSend {
                         .timeout( Duration.ofSeconds( messageTemplate4Perform.getPropTimeout_Read()) )
                         .build();
 
-                HttpResponse<byte[]> Response = ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofByteArray() );
+                HttpResponse<byte[]> Response = send(ApiRestHttpClient, request, HttpResponse.BodyHandlers.ofByteArray(), messageDetails, "SOAP" );
+                if ( Response == null ) // запрос ушёл в sendAsync()
+                    return SendPending;
                 int restResponseStatus = Response.statusCode();
 
                 // Headers headers = Response.getHeaders();
@@ -786,6 +840,7 @@ public class MessageHttpSend {
         syncConnectionManager = null;*/
 
         } finally {
+            // клиент из HttpClientRegistry общий: close() лишь отдаёт его, keep-alive соединения остаются в пуле
             MessageSend_Log.warn("[" + messageQueueVO.getQueue_Id() + "]" + "sendSoapMessage.ApiRestHttpClient.close finally" );
             if (ApiRestHttpClient != null)
                 try {
@@ -838,21 +893,14 @@ public class MessageHttpSend {
             if ( IsDebugged ) {
                 MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "] sendPostMessage.POST PropUser=`" + PropUser + "` PropPswd=`" + PropPswd + "`");
             }
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .authenticator( messageDetails.MessageTemplate4Perform.restPasswordAuthenticator )
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .connectTimeout(Duration.ofSeconds( messageTemplate4Perform.getPropTimeout_Conn()))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, messageDetails.MessageTemplate4Perform.restPasswordAuthenticator,
+                    PropUser, PropPswd, messageTemplate4Perform.getPropTimeout_Conn() );
         }
         else {
             if ( IsDebugged )
                 MessageSend_Log.info("[" + messageQueueVO.getQueue_Id() + "] sendPostMessage.POST PropUser== null (`" + PropUser + "`)" );
-            ApiRestHttpClient = HttpClient.newBuilder()
-                    .version(HttpClient.Version.HTTP_1_1)
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .connectTimeout(Duration.ofSeconds(messageTemplate4Perform.getPropTimeout_Conn()))
-                    .build();
+            ApiRestHttpClient = HttpClientRegistry.getHttpClient( EndPointUrl, null,
+                    null, null, messageTemplate4Perform.getPropTimeout_Conn() );
         }
         byte[] RequestBody;
 
@@ -860,7 +908,6 @@ public class MessageHttpSend {
         String headerParams[];
         httpHeaders.put("User-Agent", "msgBus/Java-21");
         httpHeaders.put("Accept", "*/*");
-        httpHeaders.put("Connection", "close");
         if ( (messageDetails.MessageTemplate4Perform.restPasswordAuthenticator != null) &&
                 (messageDetails.MessageTemplate4Perform.getIsPreemptive())  // adding the header to the HttpRequest
         ) {
@@ -930,7 +977,7 @@ public class MessageHttpSend {
                 messageDetails.XML_MsgResponse.setLength(0);
 
                 if (IsDebugged)
-                    ROWID_QUEUElog = theadDataAccess.doINSERT_QUEUElog(messageQueueVO.getQueue_Id(), messageDetails.XML_MsgSEND.toString(), MessageSend_Log);
+                    ROWID_QUEUElog = doINSERT_QUEUElog(messageDetails, theadDataAccess, messageQueueVO.getQueue_Id(), messageDetails.XML_MsgSEND.toString(), MessageSend_Log);
 
                 HttpRequest.Builder requestBuilder = java.net.http.HttpRequest.newBuilder();
                 // добавляем все заголовки как есть через HttpRequest.Builder
@@ -947,7 +994,9 @@ public class MessageHttpSend {
                         .timeout( Duration.ofSeconds( messageTemplate4Perform.getPropTimeout_Read()) )
                         .build();
 
-                HttpResponse<byte[]> Response = ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofByteArray() );
+                HttpResponse<byte[]> Response = send(ApiRestHttpClient, request, HttpResponse.BodyHandlers.ofByteArray(), messageDetails, "POST" );
+                if ( Response == null ) // запрос ушёл в sendAsync()
+                    return SendPending;
                 restResponseStatus = Response.statusCode();
 
                 //Test = Response.getBody();
@@ -1145,6 +1194,7 @@ public class MessageHttpSend {
         syncConnectionManager = null;*/
 
         } finally {
+            // клиент из HttpClientRegistry общий: close() лишь отдаёт его, keep-alive соединения остаются в пуле
             MessageSend_Log.warn("[" + messageQueueVO.getQueue_Id() +"]" + "sendPostMessage.ApiRestHttpClient.close finally" );
             if (ApiRestHttpClient != null)
                 try {
@@ -1221,7 +1271,6 @@ public class MessageHttpSend {
                     .uri( URI.create(webEndPointUrl))
                     .header("User-Agent", "msgBus/Java-21")
                     .header("Accept", "*/*")
-                    .header("Connection", "close")
                     .timeout( Duration.ofSeconds( ApiRestWaitTime ) )
                     .build();
             HttpResponse<String> RestResponseGet = ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofString() );
@@ -1262,7 +1311,6 @@ public class MessageHttpSend {
                 .header("User-Agent", "msgBus/Java-21")
                 .header("Accept", "*/*")
                 .header("Content-Type", "application/json;charset=UTF-8")
-                .header("Connection", "close")
                 .timeout( Duration.ofSeconds( ApiRestWaitTime ) )
                 .build();
         HttpResponse<String> RestResponseGet = ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofString() );
@@ -1300,7 +1348,6 @@ public class MessageHttpSend {
                     .uri( URI.create( webEndPointUrl ))
                     .header("User-Agent", "msgBus/Java-21")
                     .header("Accept", "*/*")
-                    .header("Connection", "close")
                     .timeout( Duration.ofSeconds( ApiRestWaitTime ) )
                     .build();
             HttpResponse<String> RestResponseGet = ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofString() );
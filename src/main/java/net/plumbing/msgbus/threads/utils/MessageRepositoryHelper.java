@@ -3,45 +3,20 @@ package net.plumbing.msgbus.threads.utils;
 import net.plumbing.msgbus.model.*;
 import org.slf4j.Logger;
 
+// Поиск по справочникам идёт через индексы текущего MessageRepositorySnapshot, возвращаются прежние ключи строк
+// MessageDirections.AllMessageDirections / MessageType.AllMessageType / MessageTemplate.AllMessageTemplate.
 public class MessageRepositoryHelper {
 
     public static String look4MessageDirectionsCode_4_Num_Thread( Integer Num_Thread, Logger messegeSend_log) {
-        int MsgDirection_maxBase_Thread_Id = -1;
-        int MsgDirectionVO_4_Direction_Key = -1;
-        String MessageDirectionsCode = null;
-        for (int j = 0; j < MessageDirections.AllMessageDirections.size(); j++) {
-            MessageDirectionsVO messageDirectionsVO = MessageDirections.AllMessageDirections.get(j);
-            if (( messageDirectionsVO.getBase_Thread_Id() <= Num_Thread ) &&
-                ( messageDirectionsVO.getBase_Thread_Id() + messageDirectionsVO.getNum_Thread() >= Num_Thread ))
-            {
-                if (messageDirectionsVO.getBase_Thread_Id() > MsgDirection_maxBase_Thread_Id )
-                {
-                    MsgDirection_maxBase_Thread_Id = messageDirectionsVO.getBase_Thread_Id();
-                    MsgDirectionVO_4_Direction_Key = j;
-                }
-            }
-        }
-        if ( MsgDirectionVO_4_Direction_Key >= 0 )
-            MessageDirectionsCode = MessageDirections.AllMessageDirections.get(MsgDirectionVO_4_Direction_Key).getMsgDirection_Cod();
-        return MessageDirectionsCode;
+        // система с наибольшим Base_Thread_Id, в диапазон потоков которой попадает Num_Thread
+        return MessageRepositorySnapshot.getCurrent().getMsgDirection_Cod_4_Num_Thread( Num_Thread );
     }
 
 
     public static  int look4MessageDirectionsVO_2_MsgDirection_Cod( String MsgDirection_Cod, Logger messegeSend_log) {
-        int MsgDirectionVO_Key=-1;
-        int MsgDirectionVO_4_Direction_Key=-1;
         // messegeSend_log.warn("look4MessageDirectionsVO_2_MsgDirection_Cod(`"+ MsgDirection_Cod +  "`): MessageDirections.AllMessageDirections.size()= " + MessageDirections.AllMessageDirections.size() );
-        for (int j = 0; j < MessageDirections.AllMessageDirections.size(); j++) {
-            MessageDirectionsVO messageDirectionsVO = MessageDirections.AllMessageDirections.get(j);
-            // messegeSend_log.warn("look4MessageDirectionsVO_2_MsgDirection_Cod: messageDirectionsVO.getMsgDirection_Cod()=`" + messageDirectionsVO.getMsgDirection_Cod() + "`" );
-            if ( messageDirectionsVO.getMsgDirection_Cod().equalsIgnoreCase( MsgDirection_Cod ))
-            { // messegeSend_log.warn("equalsIgnoreCase: messageDirectionsVO.getMsgDirection_Cod()=`" + messageDirectionsVO.getMsgDirection_Cod() + "` == `"+ MsgDirection_Cod + "`" );
-                MsgDirectionVO_4_Direction_Key = j;
-            }
-            // else messegeSend_log.warn("equalsIgnoreCase: messageDirectionsVO.getMsgDirection_Cod()=`" + messageDirectionsVO.getMsgDirection_Cod() + "` != `"+ MsgDirection_Cod + "`" );
-        }
-        if (MsgDirectionVO_4_Direction_Key >= 0 ) MsgDirectionVO_Key = MsgDirectionVO_4_Direction_Key;
-        return  MsgDirectionVO_Key;
+        // без учёта регистра, при повторе кода - последняя система
+        return MessageRepositorySnapshot.getCurrent().getDirectionKey_by_MsgDirection_Cod( MsgDirection_Cod );
     }
 
     public static  int look4MessageDirectionsVO_2_Perform(int MessageMsgDirection_id, String MessageSubSys_cod, Logger messegeSend_log) {
@@ -49,21 +24,19 @@ public class MessageRepositoryHelper {
         int MsgDirectionVO_4_Direction_Key=-1;
         int MsgDirectionVO_4_Direction_SubSys_Id=-1;
 
-        for (int j = 0; j < MessageDirections.AllMessageDirections.size(); j++) {
-            MessageDirectionsVO messageDirectionsVO = MessageDirections.AllMessageDirections.get(j);
-            if ( messageDirectionsVO.getMsgDirection_Id() == MessageMsgDirection_id )
-            { String DirectionsSubSys_Cod = messageDirectionsVO.getSubsys_Cod();
-                if (DirectionsSubSys_Cod == null) // дополнительное или ==0 неправильное, если система имеее суб-код 0, то проблемы     || (DirectionsSubSys_Cod).equals("0")
-                //    if ( (DirectionsSubSys_Cod == null) || (DirectionsSubSys_Cod).equals("0") )
-                {
-                    //  заполнен код ПодСистемы : MESSAGE_DIRECTIONS.subsys_cod == '0' OR MESSAGE_DIRECTIONS.subsys_cod is NULL )
-                    MsgDirectionVO_4_Direction_Key = j;
-                }
-                else {
-                    if ( DirectionsSubSys_Cod.equals( MessageSubSys_cod ))
-                        MsgDirectionVO_4_Direction_SubSys_Id = j;
-                }
-
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // строки с этим MsgDirection_Id в порядке ключей
+        for (int j : Snapshot.getDirectionKeys_by_MsgDirection_Id( MessageMsgDirection_id )) {
+            String DirectionsSubSys_Cod = Snapshot.AllMessageDirections.get(j).getSubsys_Cod();
+            if (DirectionsSubSys_Cod == null) // дополнительное или ==0 неправильное, если система имеее суб-код 0, то проблемы     || (DirectionsSubSys_Cod).equals("0")
+            //    if ( (DirectionsSubSys_Cod == null) || (DirectionsSubSys_Cod).equals("0") )
+            {
+                //  заполнен код ПодСистемы : MESSAGE_DIRECTIONS.subsys_cod == '0' OR MESSAGE_DIRECTIONS.subsys_cod is NULL )
+                MsgDirectionVO_4_Direction_Key = j;
+            }
+            else {
+                if ( DirectionsSubSys_Cod.equals( MessageSubSys_cod ))
+                    MsgDirectionVO_4_Direction_SubSys_Id = j;
             }
         }
         if (MsgDirectionVO_4_Direction_Key >= 0 ) MsgDirectionVO_Key = MsgDirectionVO_4_Direction_Key;
@@ -73,121 +46,67 @@ public class MessageRepositoryHelper {
 
     public static  int look4MessageTypeVO_by_Operation_Id(int BusOperationInterfaceId, int BusOperation_Id,   Logger messegeSend_log) {
         // messegeSend_log.info("look4MessageTypeVO_by_MesssageType [0-" + MessageType.AllMessageType.size() + "]: BusOperationInterfaceId=" +BusOperationInterfaceId + " for " + BusOperationMesssageType);
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            int Operation_Id = messageTypeVO.getOperation_Id();
-            int InterfaceId = messageTypeVO.getInterface_Id();
-                if ( ( InterfaceId == BusOperationInterfaceId) &&
-                        ( Operation_Id == BusOperation_Id )
-                )
-                 //  нашли операцию,
-                    return  i;
-        }
-        return -1;
+        return MessageRepositorySnapshot.getCurrent().getTypeKey_by_Interface_Operation( BusOperationInterfaceId, BusOperation_Id );
     }
 
     public static  int look4MessageTypeVO_2_Perform(int Operation_Id,  Logger messegeSend_log) {
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            if ( messageTypeVO.getOperation_Id() == Operation_Id ) {    //  нашли операцию,
-                return  i;
-            }
-        }
-        return -1;
+        return MessageRepositorySnapshot.getCurrent().getTypeKey_by_Operation_Id( Operation_Id );
     }
 
     public static  String look4MessageURL_SOAP_Send_by_Interface(int pInteface_Id,  Logger messegeSend_log) {
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            if (messageTypeVO.getOperation_Id() == 0 ){ // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
-                int Inteface_Id = messageTypeVO.getInterface_Id();
-                    if ( Inteface_Id ==  pInteface_Id) {    //  нашли интерфейс ,
-                        return messageTypeVO.getURL_SOAP_Send(); // i;
-                    }
-            }
-        }
-        return null;
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        int InterfaceKey = Snapshot.getInterfaceKey_by_Interface_Id( pInteface_Id ); // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
+        if ( InterfaceKey < 0 ) return null;
+        return Snapshot.AllMessageType.get( InterfaceKey ).getURL_SOAP_Send();
     }
 
     public static  int look4MessageTypeVO_2_Interface(String pUrl_Soap_Send,  Logger messegeSend_log) {
        //  messegeSend_log.info("look4MessageTypeVO_2_Interface[0-" + MessageType.AllMessageType.size() + "]:`" + pUrl_Soap_Send+"`");
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            // messegeSend_log.info("look4MessageTypeVO[" + i + "]:" + messageTypeVO.getURL_SOAP_Send() + " , " +messageTypeVO.getMsg_TypeDesc());
-            if (messageTypeVO.getOperation_Id() == 0 ){ // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
-                String URL_SOAP_Send = messageTypeVO.getURL_SOAP_Send();
-             //    messegeSend_log.info("look4MessageTypeVO[" + i + "]:" + URL_SOAP_Send + " , " +messageTypeVO.getMsg_TypeDesc());
-                if ( URL_SOAP_Send != null ) {
-                    if ( URL_SOAP_Send.equals(pUrl_Soap_Send) ) {    //  нашли операцию,
-                        messegeSend_log.info("look4MessageTypeVO ok[{}]: for `{}` == `{}` , Msg_TypeDesc== `{}`", messageTypeVO.getInterface_Id(), pUrl_Soap_Send, URL_SOAP_Send , messageTypeVO.getMsg_TypeDesc());
-                        return messageTypeVO.getInterface_Id(); // i;
-                    }
-                }
-            }
-        }
-        return -1;
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        int InterfaceKey = Snapshot.getInterfaceKey_by_URL_SOAP_Send( pUrl_Soap_Send ); // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
+        if ( InterfaceKey < 0 ) return -1;
+        MessageTypeVO messageTypeVO = Snapshot.AllMessageType.get( InterfaceKey );
+        messegeSend_log.info("look4MessageTypeVO ok[{}]: for `{}` == `{}` , Msg_TypeDesc== `{}`", messageTypeVO.getInterface_Id(), pUrl_Soap_Send, messageTypeVO.getURL_SOAP_Send() , messageTypeVO.getMsg_TypeDesc());
+        return messageTypeVO.getInterface_Id();
     }
 
     public static  String look4MessageTypeVO_by_MesssageType(final String BusOperationMesssageType,  int BusOperationInterfaceId, Logger messegeSend_log) {
         // messegeSend_log.info("look4MessageTypeVO_by_MesssageType [0-" + MessageType.AllMessageType.size() + "]: BusOperationInterfaceId=" +BusOperationInterfaceId + " for " + BusOperationMesssageType);
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-                String OperationMesssageType = messageTypeVO.getMsg_Type();
-                int InterfaceId = messageTypeVO.getInterface_Id();
-                if ( OperationMesssageType != null ) {
-                    if (  ( InterfaceId == BusOperationInterfaceId) && // ищем глобально по типу, игнорируя BusOperationInterfaceId
-                         ( OperationMesssageType.toUpperCase().equals(BusOperationMesssageType.toUpperCase()) )
-                       )
-                    {    //  нашли операцию,
-                        Integer MessageOperationId = messageTypeVO.getOperation_Id(); // i;
-                        // messegeSend_log.info("look4MessageTypeVO_by_MesssageType MessageOperationId=" + MessageOperationId.toString() + " found" );
-                        return MessageOperationId.toString();
-                    }
-                }
-        }
-        return null;
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // тип сообщения без учёта регистра в пределах интерфейса BusOperationInterfaceId
+        int TypeKey = Snapshot.getTypeKey_by_Interface_Msg_Type( BusOperationInterfaceId, BusOperationMesssageType );
+        if ( TypeKey < 0 ) return null;
+        Integer MessageOperationId = Snapshot.AllMessageType.get( TypeKey ).getOperation_Id();
+        // messegeSend_log.info("look4MessageTypeVO_by_MesssageType MessageOperationId=" + MessageOperationId.toString() + " found" );
+        return MessageOperationId.toString();
     }
 
 
     public static  Integer look4MessageTypeVO_by_MesssageTypeGlobally(final String BusOperationMesssageType,   Logger messegeSend_log) {
         // messegeSend_log.info("look4MessageTypeVO_by_MesssageType [0-" + MessageType.AllMessageType.size() + "]: BusOperationInterfaceId=" +BusOperationInterfaceId + " for " + BusOperationMesssageType);
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            String OperationMesssageType = messageTypeVO.getMsg_Type();
-
-            if ( OperationMesssageType != null ) {
-                if ( // ( InterfaceId == BusOperationInterfaceId) && // ищем глобально по типу, игнорируя BusOperationInterfaceId
-                        ( OperationMesssageType.toUpperCase().equals(BusOperationMesssageType.toUpperCase()) )
-                )
-                {    //  нашли операцию,
-                    int MessageOperationId = messageTypeVO.getOperation_Id(); // i;
-                    // messegeSend_log.info("look4MessageTypeVO_by_MesssageType MessageOperationId=" + MessageOperationId.toString() + " found" );
-                    Integer InterfaceId = messageTypeVO.getInterface_Id();
-                    return InterfaceId;
-                }
-            }
-        }
-        return null;
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // ищем глобально по типу, игнорируя BusOperationInterfaceId
+        int TypeKey = Snapshot.getTypeKey_by_Msg_Type( BusOperationMesssageType );
+        if ( TypeKey < 0 ) return null;
+        Integer InterfaceId = Snapshot.AllMessageType.get( TypeKey ).getInterface_Id();
+        return InterfaceId;
     }
 
     public static boolean isNoWaitSender4MessageTypeURL_SOAP_Ack_2_Operation(Integer pOperation_Id,  Logger messegeSend_log) {
         // messegeSend_log.info("isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation[" + MessageType.AllMessageType.size() + "]:" + pOperation_Id);
-        MessageTypeVO messageTypeVO;
-        //int Interface_Id=0;
-        for (int j = 0; j < MessageType.AllMessageType.size(); j++)
-        { // находим тип для текущей операции pOperation_Id
-            messageTypeVO = MessageType.AllMessageType.get(j);
-            if (messageTypeVO.getOperation_Id() == pOperation_Id ) // нашли обрабатывамую операцию
-            {
-                String isNoWait4Sender = messageTypeVO.getURL_SOAP_Ack();
-                if ( isNoWait4Sender != null ) {
-                    messegeSend_log.info("NoWait4Sender on MessageTypeURL_SOAP_Ack_2_Operation: found [" + isNoWait4Sender + "] for " + pOperation_Id);
-                    return isNoWait4Sender.equalsIgnoreCase("NoWait4Sender");
-                }
-                else {
-                    messegeSend_log.info("NoWait4Sender on MessageTypeURL_SOAP_Ack_2_Operation: found as NULL for Operation_Id=" + pOperation_Id);
-                    return false;
-                }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // находим тип для текущей операции pOperation_Id
+        int TypeKey = Snapshot.getTypeKey_by_Operation_Id( pOperation_Id );
+        if ( TypeKey >= 0 ) // нашли обрабатывамую операцию
+        {   MessageTypeVO messageTypeVO = Snapshot.AllMessageType.get( TypeKey );
+            String isNoWait4Sender = messageTypeVO.getURL_SOAP_Ack();
+            if ( isNoWait4Sender != null ) {
+                messegeSend_log.info("NoWait4Sender on MessageTypeURL_SOAP_Ack_2_Operation: found [" + isNoWait4Sender + "] for " + pOperation_Id);
+                return isNoWait4Sender.equalsIgnoreCase("NoWait4Sender");
+            }
+            else {
+                messegeSend_log.info("NoWait4Sender on MessageTypeURL_SOAP_Ack_2_Operation: found as NULL for Operation_Id=" + pOperation_Id);
+                return false;
             }
         }
         messegeSend_log.warn( "в MessageType.AllMessageType не нашли pOperation_Id=" +pOperation_Id );
@@ -196,22 +115,19 @@ public class MessageRepositoryHelper {
     }
     public static  boolean isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation(Integer pOperation_Id,  Logger messegeSend_log) {
         // messegeSend_log.info("isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation[" + MessageType.AllMessageType.size() + "]:" + pOperation_Id);
-        MessageTypeVO messageTypeVO;
-        //int Interface_Id=0;
-        for (int j = 0; j < MessageType.AllMessageType.size(); j++)
-        { // находим тип для текущей операции  pOperation_Id
-            messageTypeVO = MessageType.AllMessageType.get(j);
-            if (messageTypeVO.getOperation_Id() == pOperation_Id ) // нашли обрабатывамую операцию
-            {
-                String isNoConfirmation = messageTypeVO.getURL_SOAP_Ack();
-                if ( isNoConfirmation != null ) {
-                  //  messegeSend_log.info("isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation: found [" + isNoConfirmation + "] for " + pOperation_Id);
-                    return isNoConfirmation.equalsIgnoreCase("NoConfirmation");
-                }
-                else {
-                   // messegeSend_log.info("isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation: found as NULL for Operation_Id=" + pOperation_Id);
-                    return false;
-                }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // находим тип для текущей операции  pOperation_Id
+        int TypeKey = Snapshot.getTypeKey_by_Operation_Id( pOperation_Id );
+        if ( TypeKey >= 0 ) // нашли обрабатывамую операцию
+        {   MessageTypeVO messageTypeVO = Snapshot.AllMessageType.get( TypeKey );
+            String isNoConfirmation = messageTypeVO.getURL_SOAP_Ack();
+            if ( isNoConfirmation != null ) {
+              //  messegeSend_log.info("isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation: found [" + isNoConfirmation + "] for " + pOperation_Id);
+                return isNoConfirmation.equalsIgnoreCase("NoConfirmation");
+            }
+            else {
+               // messegeSend_log.info("isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation: found as NULL for Operation_Id=" + pOperation_Id);
+                return false;
             }
         }
         messegeSend_log.warn( "в MessageType.AllMessageType не нашли pOperation_Id=" +pOperation_Id );
@@ -221,68 +137,53 @@ public class MessageRepositoryHelper {
 
     public static  boolean isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface(String Url_Soap_Send,  Logger messegeSend_log) {
         //messegeSend_log.info("isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface[0-" + MessageType.AllMessageType.size() + "]:" + Url_Soap_Send);
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            if (messageTypeVO.getOperation_Id() == 0 ){ // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
-                String URL_SOAP_Send = messageTypeVO.getURL_SOAP_Send();
-                if ( URL_SOAP_Send != null ) {
-                    if ( URL_SOAP_Send.equals(Url_Soap_Send) ) {    //  нашли операцию,
-                        String isRest = messageTypeVO.getURL_SOAP_Ack();
-                        if ( isRest != null )
-                            return isRest.toUpperCase().contains("REST"); // в формируемое для преобразования не будет добвленр <Body></Body>
-                        // return isRest.equalsIgnoreCase("REST"); //
-                        else
-                            return false;
-                    }
-                }
-            }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        int InterfaceKey = Snapshot.getInterfaceKey_by_URL_SOAP_Send( Url_Soap_Send ); // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
+        if ( InterfaceKey >= 0 ) {    //  нашли операцию,
+            MessageTypeVO messageTypeVO = Snapshot.AllMessageType.get( InterfaceKey );
+            String isRest = messageTypeVO.getURL_SOAP_Ack();
+            if ( isRest != null )
+                return isRest.toUpperCase().contains("REST"); // в формируемое для преобразования не будет добвленр <Body></Body>
+            // return isRest.equalsIgnoreCase("REST"); //
+            else
+                return false;
         }
-        messegeSend_log.warn("isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface[0-" + MessageType.AllMessageType.size() + "]:" + Url_Soap_Send + " не нашёл итерфейса по URL");
+        messegeSend_log.warn("isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface[0-" + Snapshot.AllMessageType.size() + "]:" + Url_Soap_Send + " не нашёл итерфейса по URL");
         return false;
     }
 
     public static  boolean isLooked4MessageTypeURL_SOAP_Ack_RestExel_2_Interface(String Url_Soap_Send,  Logger messegeSend_log) {
         //messegeSend_log.info("isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface[0-" + MessageType.AllMessageType.size() + "]:" + Url_Soap_Send);
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            if (messageTypeVO.getOperation_Id() == 0 ){ // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
-                String URL_SOAP_Send = messageTypeVO.getURL_SOAP_Send();
-                if ( URL_SOAP_Send != null ) {
-                    if ( URL_SOAP_Send.equals(Url_Soap_Send) ) {    //  нашли операцию,
-                        String isRest = messageTypeVO.getURL_SOAP_Ack();
-                        if ( isRest != null )
-                            return isRest.equalsIgnoreCase("REST-EXCEL")
-                                    ; // в формируемое для преобразования не будет добвленр <Body></Body>
-                        else
-                            return false;
-                    }
-                }
-            }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        int InterfaceKey = Snapshot.getInterfaceKey_by_URL_SOAP_Send( Url_Soap_Send ); // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
+        if ( InterfaceKey >= 0 ) {    //  нашли операцию,
+            MessageTypeVO messageTypeVO = Snapshot.AllMessageType.get( InterfaceKey );
+            String isRest = messageTypeVO.getURL_SOAP_Ack();
+            if ( isRest != null )
+                return isRest.equalsIgnoreCase("REST-EXCEL")
+                        ; // в формируемое для преобразования не будет добвленр <Body></Body>
+            else
+                return false;
         }
-        messegeSend_log.warn("isLooked4MessageTypeURL_SOAP_Ack_RestExel_2_Interface[0-" + MessageType.AllMessageType.size() + "]:" + Url_Soap_Send + " не нашёл итерфейса по URL");
+        messegeSend_log.warn("isLooked4MessageTypeURL_SOAP_Ack_RestExel_2_Interface[0-" + Snapshot.AllMessageType.size() + "]:" + Url_Soap_Send + " не нашёл итерфейса по URL");
         return false;
     }
 
     public static  boolean isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface(String Url_Soap_Send,  Logger messegeSend_log) {
         //messegeSend_log.info("isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface[0-" + MessageType.AllMessageType.size() + "]:" + Url_Soap_Send);
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++) {
-            MessageTypeVO messageTypeVO = MessageType.AllMessageType.get(i);
-            if (messageTypeVO.getOperation_Id() == 0 ){ // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
-                String URL_SOAP_Send = messageTypeVO.getURL_SOAP_Send();
-                if ( URL_SOAP_Send != null ) {
-                    if ( URL_SOAP_Send.equals(Url_Soap_Send) ) {    //  нашли операцию,
-                        String isRest = messageTypeVO.getURL_SOAP_Ack();
-                        if ( isRest != null )
-                                 return isRest.equalsIgnoreCase("REST-XML") ||
-                                        isRest.equalsIgnoreCase("REST-EXCEL")
-                                         ; // в формируемое для преобразования не будет добвленр <Body></Body>
-                        else
-                            return false;
-                    }
-                }
-            }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        int InterfaceKey = Snapshot.getInterfaceKey_by_URL_SOAP_Send( Url_Soap_Send ); // Это ИНТПРФЕЙС, тип, у которого № ОПЕРАЦИЯ == 0
+        if ( InterfaceKey >= 0 ) {    //  нашли операцию,
+            MessageTypeVO messageTypeVO = Snapshot.AllMessageType.get( InterfaceKey );
+            String isRest = messageTypeVO.getURL_SOAP_Ack();
+            if ( isRest != null )
+                     return isRest.equalsIgnoreCase("REST-XML") ||
+                            isRest.equalsIgnoreCase("REST-EXCEL")
+                             ; // в формируемое для преобразования не будет добвленр <Body></Body>
+            else
+                return false;
         }
-        messegeSend_log.warn("isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface[0-" + MessageType.AllMessageType.size() + "]:" + Url_Soap_Send + " не нашёл итерфейса по URL");
+        messegeSend_log.warn("isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface[0-" + Snapshot.AllMessageType.size() + "]:" + Url_Soap_Send + " не нашёл итерфейса по URL");
         return false;
     }
 /*  не используется, вместо неё isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation
@@ -322,22 +223,14 @@ public class MessageRepositoryHelper {
 */
     public static  int look4MessageTemplate_2_Interface(int look4_Interface_Id,  Logger messegeSend_log) {
         messegeSend_log.info("look4MessageTemplate_2_Interface[" + MessageTemplate.AllMessageTemplate.size() + "]:" + look4_Interface_Id);
-        int MessageTemplateVOkey=-1;
-
-        for (int i = 0; i < MessageTemplate.AllMessageTemplate.size(); i++) {
-            MessageTemplateVO messageTemplateVO = MessageTemplate.AllMessageTemplate.get( i );
-            int Operation_Id = messageTemplateVO.getOperation_Id();
-            int Interface_Id = messageTemplateVO.getInterface_Id();
-             //messegeSend_log.info("look4MessageTemplate, проверяем MessageTemplateVOkey=[" + i +"]: Operation_Id =" + Operation_Id + ", Interface_Id =" + Interface_Id );
-
-            if ((Interface_Id == look4_Interface_Id) && ( Operation_Id== 0)) {
-                // №№ Шаблонов совпали,  Template_Id = i;
-                MessageTemplateVOkey = i;
-                messegeSend_log.info( "look4MessageTemplate_2_Interface: используем [" + MessageTemplateVOkey +"]: Template_Id=" +
-                        MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_Id() +
-                        ", Template_name:" + MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_name() );
-                return MessageTemplateVOkey;
-            }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // шаблон интерфейса - Operation_Id == 0
+        int MessageTemplateVOkey = Snapshot.getInterfaceTemplateKey_by_Interface_Id( look4_Interface_Id );
+        if ( MessageTemplateVOkey >= 0 ) {
+            messegeSend_log.info( "look4MessageTemplate_2_Interface: используем [" + MessageTemplateVOkey +"]: Template_Id=" +
+                    Snapshot.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_Id() +
+                    ", Template_name:" + Snapshot.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_name() );
+            return MessageTemplateVOkey;
         }
         messegeSend_log.info("look4MessageTemplate, получаем MessageTemplateVOkey=[" + MessageTemplateVOkey +"]: значит, не нашли");
 
@@ -346,21 +239,14 @@ public class MessageRepositoryHelper {
 
     public static int look4MessageTemplate( int look4Template_Id,
                                             Logger messegeSend_log) {
-        int MessageTemplateVOkey=-1;
-
-        for (int i = 0; i < MessageTemplate.AllMessageTemplate.size(); i++) {
-            MessageTemplateVO messageTemplateVO = MessageTemplate.AllMessageTemplate.get( i );
-            int Template_Id = messageTemplateVO.getTemplate_Id();
-
-            if (Template_Id == look4Template_Id) {
-                // №№ Шаблонов совпали,  Template_Id = i;
-                MessageTemplateVOkey = i;
-                messegeSend_log.info( "look4MessageTemplate: используем [" + MessageTemplateVOkey +"]: Template_Id=" +
-                        MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_Id() +
-                        ", Template_name:" + MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_name()
-                );
-                return MessageTemplateVOkey;
-            }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        int MessageTemplateVOkey = Snapshot.getTemplateKey_by_Template_Id( look4Template_Id );
+        if ( MessageTemplateVOkey >= 0 ) {
+            messegeSend_log.info( "look4MessageTemplate: используем [" + MessageTemplateVOkey +"]: Template_Id=" +
+                    Snapshot.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_Id() +
+                    ", Template_name:" + Snapshot.AllMessageTemplate.get(MessageTemplateVOkey).getTemplate_name()
+            );
+            return MessageTemplateVOkey;
         }
         messegeSend_log.info("look4MessageTemplate, получаем MessageTemplateVOkey=[" + MessageTemplateVOkey +"]: значит, не нашли");
 
@@ -375,27 +261,20 @@ public class MessageRepositoryHelper {
         int Template_4_Direction_Id=-1;
         int Template_4_Direction_SubSys_Id=-1;
 
-        int Type_Id = -1;
         int TemplateOperation_Id ;
         int TemplateMsgDirection_Id;
         String  TemplateSubSys_Cod;
-        // 1) пробегаем по Типам сообщений
-        for (int i = 0; i < MessageType.AllMessageType.size(); i++)
-        {
-            MessageTypeVO  messageTypeVO = MessageType.AllMessageType.get(i);
-            if ( messageTypeVO.getOperation_Id() == Operation_Id )
-            {
-                //  нашли операцию,
-                Type_Id = i;
-            }
-        }
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        // 1) есть ли операция среди Типов сообщений
+        int Type_Id = Snapshot.getTypeKey_by_Operation_Id( Operation_Id );
 
         if ( Type_Id < 0) {
             MessegeSend_Log.info("Operation[" + Operation_Id + "] is not found in any MessageType");
             return Template_Id;
         }
-        for (int i = 0; i < MessageTemplate.AllMessageTemplate.size(); i++) {
-            MessageTemplateVO messageTemplateVO = MessageTemplate.AllMessageTemplate.get( i );
+        // 2) шаблоны этой операции в порядке ключей
+        for (int i : Snapshot.getTemplateKeys_by_Operation_Id( Operation_Id )) {
+            MessageTemplateVO messageTemplateVO = Snapshot.AllMessageTemplate.get( i );
             TemplateOperation_Id = messageTemplateVO.getOperation_Id();
             TemplateMsgDirection_Id = messageTemplateVO.getSource_Id();
             TemplateSubSys_Cod = messageTemplateVO.getSrc_SubCod();
@@ -441,7 +320,7 @@ public class MessageRepositoryHelper {
         if ( Template_4_Direction_Id >= 0 ) Template_Id = Template_4_Direction_Id;
         if ( Template_4_Direction_SubSys_Id >= 0 ) Template_Id = Template_4_Direction_SubSys_Id;
         if ( Template_Id >= 0 )
-            MessegeSend_Log.info("Итого, используем [" + Template_Id +"]: Template_Id=" + MessageTemplate.AllMessageTemplate.get(Template_Id).getTemplate_Id());
+            MessegeSend_Log.info("Итого, используем [" + Template_Id +"]: Template_Id=" + Snapshot.AllMessageTemplate.get(Template_Id).getTemplate_Id());
         else
             MessegeSend_Log.error("Итого, получаем Template_Id=[" + Template_Id +"]: значит, не нашли");
 
@@ -4,6 +4,7 @@ package net.plumbing.msgbus.threads.utils;
 import net.plumbing.msgbus.common.XMLchars;
 import net.plumbing.msgbus.common.sStackTrace;
 import net.plumbing.msgbus.model.*;
+import net.plumbing.msgbus.threads.QueueIdAllocator;
 import net.plumbing.msgbus.threads.TheadDataAccess;
 import org.apache.commons.text.StringEscapeUtils;
 import org.jdom2.*;
@@ -29,8 +30,10 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -167,8 +170,8 @@ public class MessageUtils {
     public static Long readMessage_QueueVO(long Queue_Id, MessageQueueVO messageQueueVO, MessageDetails4Send Message_4_Send, TheadDataAccess theadDataAccess, boolean IsDebugged, Logger MessegeReceive_Log ){
         ResultSet rs;
         try {
-            theadDataAccess.stmtMsgQueueVO_Query.setLong(1, messageQueueVO.getQueue_Id() );
-            rs = theadDataAccess.stmtMsgQueueVO_Query.executeQuery();
+            theadDataAccess.getStmtMsgQueueVO_Query().setLong(1, messageQueueVO.getQueue_Id() );
+            rs = theadDataAccess.getStmtMsgQueueVO_Query().executeQuery();
             boolean isRecordFoud = false;
             while (rs.next()) {
                 isRecordFoud = true;
@@ -217,55 +220,35 @@ public class MessageUtils {
     }
 
     public static Long MakeNewMessage_Queue(MessageQueueVO messageQueueVO, TheadDataAccess theadDataAccess, Logger MessegeReceive_Log ){
-        ResultSet rs = null;
-        try {
-            rs = theadDataAccess.stmt_New_Queue_Prepare.executeQuery();
-            while (rs.next()) {
-                messageQueueVO.setMessageQueue(
-                        rs.getLong("Queue_Id"),
-                        rs.getTimestamp("Queue_Date"),
-                        rs.getString("OutQueue_Id"),
-                        rs.getTimestamp("Msg_Date"),
-                        rs.getInt("Msg_Status"),
-                        rs.getInt("MsgDirection_Id"),
-                        rs.getInt("Msg_InfoStreamId"),
-                        rs.getInt("Operation_Id"),
-                        rs.getString("Queue_Direction"),
-                        rs.getString("Msg_Type"),
-                        rs.getString("Msg_Reason"),
-                        rs.getString("Msg_Type_own"),
-                        rs.getString("Msg_Result"),
-                        rs.getString("SubSys_Cod"),
-                        rs.getString("Prev_Queue_Direction"),
-                        rs.getInt("Retry_Count"),
-                        rs.getTimestamp("Prev_Msg_Date"),
-                        rs.getTimestamp("Queue_Create_Date"),
-                        0L
-                );
-            }
-            rs.close();
-            theadDataAccess.Hermes_Connection.commit();
-        }
-        catch (SQLException e)
-        {
-            MessegeReceive_Log.error("MakeNewMessage_Queue: {}" ,e.getMessage());
-            System.err.println("MakeNewMessage_Queue: Queue_Id=[ NewMessage_Queue ] :" + e.getMessage() );
-            e.printStackTrace();
-            MessegeReceive_Log.error("MakeNewMessage_Queue: что то пошло совсем не так...:{}", theadDataAccess.selectMessageStatement);
-            //if ( rs !=null ) rs.close();
+        // Queue_Id - из блока, закэшированного QueueIdAllocator, заголовок - одним INSERT ... RETURNING.
+        // Заголовок фиксируем сразу: дальше по приёму rollback() на ошибках не должен уносить его вместе с деталями,
+        // иначе ProcessingIn2ErrorIN нечего будет переводить в ERRIN
+        Long Queue_Id = QueueIdAllocator.nextQueue_Id( theadDataAccess, MessegeReceive_Log );
+        if ( Queue_Id == null ) {
+            MessegeReceive_Log.error("MakeNewMessage_Queue: что то пошло совсем не так...:{}", theadDataAccess.SELECT_Queue_Id_Block);
             return null;
         }
-
-         long Queue_Id = messageQueueVO.getQueue_Id();
+        java.sql.Timestamp Queue_Date = null;
         try {
-                // "(QUEUE_ID, QUEUE_DIRECTION, QUEUE_DATE, MSG_STATUS, MSG_DATE, OPERATION_ID, OUTQUEUE_ID, MSG_TYPE) "
-                theadDataAccess.stmt_New_Queue_Insert.setLong(1, Queue_Id);
-                theadDataAccess.stmt_New_Queue_Insert.executeUpdate();
-            // MessegeReceive_Log.info(  ">" + theadDataAccess.INSERT_Message_Queue + ":Queue_Id=[" + Queue_Id + "] done");
+            // "(QUEUE_ID, QUEUE_DIRECTION, QUEUE_DATE, MSG_STATUS, MSG_DATE, OPERATION_ID, OUTQUEUE_ID, MSG_TYPE) "
+            CallableStatement stmt_New_Queue_Insert_Returning = theadDataAccess.getStmt_New_Queue_Insert_Returning();
+            stmt_New_Queue_Insert_Returning.setLong(1, Queue_Id);
+            if ( theadDataAccess.rdbmsVendor.equals("oracle") ) {
+                stmt_New_Queue_Insert_Returning.registerOutParameter(2, Types.TIMESTAMP);
+                stmt_New_Queue_Insert_Returning.executeUpdate();
+                Queue_Date = stmt_New_Queue_Insert_Returning.getTimestamp(2);
+            }
+            else {
+                ResultSet rs = stmt_New_Queue_Insert_Returning.executeQuery();
+                if (rs.next())
+                    Queue_Date = rs.getTimestamp(1);
+                rs.close();
+            }
+            // MessegeReceive_Log.info(  ">" + theadDataAccess.INSERT_Message_Queue_Returning + ":Queue_Id=[" + Queue_Id + "] done");
 
         } catch (SQLException e) {
-            MessegeReceive_Log.error("[{}] MakeNewMessage_Queue `{}` fault: {}", Queue_Id, theadDataAccess.INSERT_Message_Queue, sStackTrace.strInterruptedException(e));
-            System.err.println("["+ Queue_Id +"] MakeNewMessage_Queue `" + theadDataAccess.INSERT_Message_Queue + "` fault: " + e.getMessage());
+            MessegeReceive_Log.error("[{}] MakeNewMessage_Queue `{}` fault: {}", Queue_Id, theadDataAccess.INSERT_Message_Queue_Returning, sStackTrace.strInterruptedException(e));
+            System.err.println("["+ Queue_Id +"] MakeNewMessage_Queue `" + theadDataAccess.INSERT_Message_Queue_Returning + "` fault: " + e.getMessage());
             e.printStackTrace();
             try {
                 theadDataAccess.Hermes_Connection.rollback();
@@ -280,6 +263,30 @@ public class MessageUtils {
             MessegeReceive_Log.error("[{}] MakeNewMessage_Queue Hermes_Connection.commit()  fault: {}", Queue_Id, sStackTrace.strInterruptedException(exp));
             return null;
         }
+        if ( Queue_Date == null )
+            Queue_Date = java.sql.Timestamp.valueOf( LocalDateTime.now( ZoneId.of( "Europe/Moscow" ) ) );
+        // те же значения, что прежде зачитывались select-ом stmt_New_Queue_Prepare
+        messageQueueVO.setMessageQueue(
+                Queue_Id,
+                Queue_Date,
+                "0",
+                Queue_Date,
+                0,
+                0,
+                100001,
+                0,
+                XMLchars.DirectNEWIN,
+                "Undefine",
+                null,
+                null,
+                null,
+                null,
+                null,
+                0,
+                Queue_Date,
+                Queue_Date,
+                0L
+        );
         return Queue_Id;
     }
 
@@ -548,8 +555,8 @@ public class MessageUtils {
         int nn = 0;
 
         try {
-            theadDataAccess.stmt_DELETE_Message_Details.setLong(1, Queue_Id);
-            theadDataAccess.stmt_DELETE_Message_Details.executeUpdate();
+            theadDataAccess.getStmt_DELETE_Message_Details().setLong(1, Queue_Id);
+            theadDataAccess.getStmt_DELETE_Message_Details().executeUpdate();
         } catch (SQLException e) {
             MessegeReceive_Log.error("DELETE({}[{}]) fault: {}", theadDataAccess.DELETE_Message_Details, Queue_Id, e.getMessage());
             e.printStackTrace();
@@ -561,22 +568,18 @@ public class MessageUtils {
             return -1;
         }
 
+        MessageDetailsWriter detailsWriter = null;
         try {
+            detailsWriter = theadDataAccess.getMessageDetailsWriter();
             for (int i = 0; i < messageDetails.Message.size(); i++) {
                 MessageDetailVO MessageDetailVO = messageDetails.Message.get(i);
-                theadDataAccess.stmt_INSERT_Message_Details.setLong(1, Queue_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(2, MessageDetailVO.Tag_Id);
                 if ( MessageDetailVO.Tag_Value.length() > (XMLchars.MAX_TAG_VALUE_BYTE_SIZE /2) ) {
                     String ElementContentS = new String( XMLchars.cutUTF8ToMAX_TAG_VALUE_BYTE_SIZE(MessageDetailVO.Tag_Value, MessegeReceive_Log), StandardCharsets.UTF_8 );
-                    theadDataAccess.stmt_INSERT_Message_Details.setString(3, ElementContentS );
+                    detailsWriter.addRow( Queue_Id, MessageDetailVO.Tag_Id, ElementContentS, MessageDetailVO.Tag_Num, MessageDetailVO.Tag_Par_Num );
                 }
                 else {
-                    theadDataAccess.stmt_INSERT_Message_Details.setString(3, MessageDetailVO.Tag_Value);
+                    detailsWriter.addRow( Queue_Id, MessageDetailVO.Tag_Id, MessageDetailVO.Tag_Value, MessageDetailVO.Tag_Num, MessageDetailVO.Tag_Par_Num );
                 }
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(4, MessageDetailVO.Tag_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(5, MessageDetailVO.Tag_Par_Num);
-                //theadDataAccess.stmt_INSERT_Message_Details.executeUpdate();
-                theadDataAccess.stmt_INSERT_Message_Details.addBatch();
         /*MessegeSend_Log.info( i + ">" + theadDataAccess.INSERT_Message_Details + ":Queue_Id=[" + Queue_Id + "]" +
                 "\n Tag_Id=" + MessageDetailVO.Tag_Id +
                 "\n Tag_Value=" + MessageDetailVO.Tag_Value +
@@ -586,10 +589,11 @@ public class MessageUtils {
                 */
                 nn = i;
             }
-            // Insert data in Oracle with Java … Batched mode
-            theadDataAccess.stmt_INSERT_Message_Details.executeBatch();
+            // Insert data in Oracle with Java … Batched mode / COPY для PostgreSQL
+            detailsWriter.flush();
 
         } catch (SQLException e) {
+            if ( detailsWriter != null ) detailsWriter.discard();
             MessegeReceive_Log.error("{}:Queue_Id=[{}] :{}", theadDataAccess.INSERT_Message_Details, Queue_Id, sStackTrace.strInterruptedException(e));
             e.printStackTrace();
             try {
@@ -705,33 +709,28 @@ public class MessageUtils {
             return -1;
         int iNumberRecordInConfirmation=0;
 
+        MessageDetailsWriter detailsWriter = null;
         try {
+            detailsWriter = theadDataAccess.getMessageDetailsWriter();
             for ( iNumberRecordInConfirmation = 0; iNumberRecordInConfirmation < messageDetails.Confirmation.size(); iNumberRecordInConfirmation++) {
                 MessageDetailVO MessageDetailVO = messageDetails.Confirmation.get( iNumberRecordInConfirmation );
-                theadDataAccess.stmt_INSERT_Message_Details.setLong(1, Queue_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(2, MessageDetailVO.Tag_Id);
                 // StringEscapeUtils.unescapeXml(MessageDetailVO.Tag_Value);
-                //theadDataAccess.stmt_INSERT_Message_Details.setString(3, MessageDetailVO.Tag_Value);
                 if ( MessageDetailVO.Tag_Value.length() > (XMLchars.MAX_TAG_VALUE_BYTE_SIZE /2) ) {
                     String ElementContentS = new String( XMLchars.cutUTF8ToMAX_TAG_VALUE_BYTE_SIZE(org.apache.commons.lang3.StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value)), StandardCharsets.UTF_8 );
-                    theadDataAccess.stmt_INSERT_Message_Details.setString(3, ElementContentS );
+                    detailsWriter.addRow( Queue_Id, MessageDetailVO.Tag_Id, ElementContentS, MessageDetailVO.Tag_Num, MessageDetailVO.Tag_Par_Num );
                 }
                 else {
-                    theadDataAccess.stmt_INSERT_Message_Details.setString(3, org.apache.commons.lang3.StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value) );
+                    detailsWriter.addRow( Queue_Id, MessageDetailVO.Tag_Id, org.apache.commons.lang3.StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value),
+                                          MessageDetailVO.Tag_Num, MessageDetailVO.Tag_Par_Num );
                 }
-
                 // MessegeSend_Log.error(theadDataAccess.INSERT_Message_Details + ":Queue_Id=[" + Queue_Id + "]["+  MessageDetailVO.Tag_Id +"] :" + StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value));
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(4, MessageDetailVO.Tag_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(5, MessageDetailVO.Tag_Par_Num);
-
-                // theadDataAccess.stmt_INSERT_Message_Details.executeUpdate();
-                theadDataAccess.stmt_INSERT_Message_Details.addBatch();
 
                 nn = iNumberRecordInConfirmation;
             }
-            // Insert data in Oracle with Java … Batched mode
-            theadDataAccess.stmt_INSERT_Message_Details.executeBatch();
+            // Insert data in Oracle with Java … Batched mode / COPY для PostgreSQL
+            detailsWriter.flush();
         } catch ( Exception e) {
+            if ( detailsWriter != null ) detailsWriter.discard();
             MessegeSend_Log.error("{}:Queue_Id=[{}][{}] :{}", theadDataAccess.INSERT_Message_Details, Queue_Id, iNumberRecordInConfirmation, sStackTrace.strInterruptedException(e));
             messageDetails.MsgReason.append( "ReplaceConfirmation ["+ iNumberRecordInConfirmation +"] " + sStackTrace.strInterruptedException(e) );
             e.printStackTrace();
@@ -914,8 +913,8 @@ public class MessageUtils {
 
         Pattern pattern = Pattern.compile("\\d+");
         try {
-            theadDataAccess.stmtMsgQueueDet.setLong(1, Queue_Id);
-            ResultSet rs = theadDataAccess.stmtMsgQueueDet.executeQuery();
+            theadDataAccess.getStmtMsgQueueDet().setLong(1, Queue_Id);
+            ResultSet rs = theadDataAccess.getStmtMsgQueueDet().executeQuery();
             String rTag_Value=null;
             String rTag_Id=null;
             String xmlTag_Id;
@@ -973,7 +972,17 @@ public class MessageUtils {
         }
         MessegeSend_Log.info("[{}] ReadMessageDetai4Send:считали из БД фрагменты XML,{} записей", Queue_Id, messageDetails.MessageRowNum);
 
-        if ( messageDetails.MessageRowNum > 0 )
+        if ( messageDetails.MessageRowNum == 0 && MessageBodyStore.BodyStorageInUse ) {
+            // BodyStorage=compressed: строк в MESSAGE_QueueDET нет, тело целиком в MESSAGE_QueueBody.
+            // Шаблон, по которому сообщение сохранялось, здесь не известен - смотрим, включено ли хранение вообще
+            String XML_Body = MessageBodyStore.ReadMessageBody( theadDataAccess, Queue_Id, MessegeSend_Log );
+            if ( XML_Body != null ) {
+                messageDetails.XML_MsgOUT.append( XML_Body );
+                messageDetails.MessageRowNum = 1; // тело целиком - одна запись
+                MessegeSend_Log.info("[{}] ReadMessageDetai4Send: тело XML считано из MESSAGE_QueueBody", Queue_Id);
+            }
+        }
+        else
             try {
                 XML_Current_Tags4Send( messageDetails, 0);
             } catch ( NullPointerException e ) {
@@ -1011,18 +1020,15 @@ public class MessageUtils {
 
         Pattern pattern = Pattern.compile("\\d+");
         try {
-            theadDataAccess.stmtMsgQueueDet.setLong(1, Queue_Id);
-            ResultSet rs = theadDataAccess.stmtMsgQueueDet.executeQuery();
+            theadDataAccess.getStmtMsgQueueDet().setLong(1, Queue_Id);
+            ResultSet rs = theadDataAccess.getStmtMsgQueueDet().executeQuery();
             String rTag_Value=null;
             String rTag_Id=null;
             String xmlTag_Id;
-            int PrevTag_Par_Num=-102030405;
             int rTag_Num;
             int rTag_Par_Num;
-            ArrayList<Integer> ChildVO_ArrayList= new ArrayList<Integer>();
 
             while (rs.next()) {
-                MessageDetailVO messageDetailVO = new MessageDetailVO();
                 rTag_Value = rs.getString("Tag_Value");
                 rTag_Num= rs.getInt("Tag_Num");
                 rTag_Par_Num = rs.getInt("Tag_Par_Num");
@@ -1032,30 +1038,12 @@ public class MessageUtils {
                 else
                     xmlTag_Id = rTag_Id;
                 if ( rTag_Value == null )
-                    messageDetailVO.setMessageQueue( xmlTag_Id, null, rTag_Num,rTag_Par_Num);
+                    messageDetails.Message.add( xmlTag_Id, null, rTag_Num,rTag_Par_Num);
                 else
-                    messageDetailVO.setMessageQueue( xmlTag_Id,
+                    messageDetails.Message.add( xmlTag_Id,
                             org.apache.commons.lang3.StringEscapeUtils.escapeXml10(stripNonValidXMLCharacters(rTag_Value)),
                             rTag_Num,rTag_Par_Num);
-
-                messageDetails.Message.put(messageDetails.MessageRowNum, messageDetailVO);
-
-                // для получения messageDetails.Message.get( messageDetails.MessageIndex_by_Tag_Par_Num.get(Tag_Par_Num) )
-                if (PrevTag_Par_Num != rTag_Par_Num) { // получили элемент у которого другой "пара"
-                    if (PrevTag_Par_Num != -102030405 ) {
-                        //MessegeSend_Log.warn("PrevTag_Par_Num[" + PrevTag_Par_Num +"]: ChildVO_ArrayList size=" + ChildVO_ArrayList.size());
-                        ChildVO_ArrayList = new ArrayList<Integer>();
-                    }
-
-                    messageDetails.MessageIndex_by_Tag_Par_Num.put( rTag_Par_Num, ChildVO_ArrayList);
-                    PrevTag_Par_Num = rTag_Par_Num;
-                }
-                else {
-                    ChildVO_ArrayList = messageDetails.MessageIndex_by_Tag_Par_Num.get(rTag_Par_Num);
-                    //MessegeSend_Log.warn("rTag_Par_Num[" + rTag_Par_Num +"]: ChildVO_ArrayList size=" + ChildVO_ArrayList.size());
-                }
-                ChildVO_ArrayList.add( messageDetails.MessageRowNum );
-                //MessegeSend_Log.warn("add to Tag_Par_Num[" + rTag_Par_Num +"]: ChildVO_ArrayList size=" + ChildVO_ArrayList.size());
+                // индекс дочерних элементов по Tag_Par_Num строится в messageDetails.Message за один проход, при первом обращении
 
                 messageDetails.MessageRowNum += 1;
                 if ( messageDetails.MessageRowNum % 10000 == 0)
@@ -1070,25 +1058,26 @@ public class MessageUtils {
         }
         MessegeSend_Log.info("[{}] ReadMessage: считали из БД фрагменты XML {} записей", Queue_Id, messageDetails.MessageRowNum);
 
-        if ( messageDetails.MessageRowNum > 0 )
+        if ( messageDetails.MessageRowNum == 0 && MessageBodyStore.BodyStorageInUse ) {
+            // BodyStorage=compressed: строк в MESSAGE_QueueDET нет, тело целиком в MESSAGE_QueueBody.
+            // Шаблон, по которому сообщение сохранялось, здесь не известен - смотрим, включено ли хранение вообще
+            String XML_Body = MessageBodyStore.ReadMessageBody( theadDataAccess, Queue_Id, MessegeSend_Log );
+            if ( XML_Body != null ) {
+                messageDetails.XML_MsgResponse.append( XML_Body );
+                messageDetails.MessageRowNum = 1; // тело целиком - одна запись
+                MessegeSend_Log.info("[{}] ReadMessage: тело XML считано из MESSAGE_QueueBody", Queue_Id);
+            }
+        }
+        else
             try {
                 XML_Current_Tags( messageDetails, 0);
             } catch ( NullPointerException e ) {
                 // NPE случилось, печатаем диагностику
-                MessegeSend_Log.warn("[{}] ReadMessage: проверяем вторичный индекс MessageIndex_by_Tag_Par_Num, потому как получили NullPointerException на подготовке XML", Queue_Id);
-                Set<Integer> MessageIndexSet = messageDetails.MessageIndex_by_Tag_Par_Num.keySet();
-                Iterator MessageIndexIterator = MessageIndexSet.iterator();
-                while (MessageIndexIterator.hasNext()) {
-                    Integer i = (Integer) MessageIndexIterator.next();
-                    MessegeSend_Log.warn("[{}] MessageIndex_by_Tag_Par_Num[{}]{}", Queue_Id, i, messageDetails.MessageIndex_by_Tag_Par_Num.get(i).toString());
-                }
-                MessageIndexSet = messageDetails.Message.keySet();
-                Iterator messageDetailsIterator = MessageIndexSet.iterator();
-                while (messageDetailsIterator.hasNext()) {
-                    Integer i = (Integer) messageDetailsIterator.next();
+                MessegeSend_Log.warn("[{}] ReadMessage: получили NullPointerException на подготовке XML, записи сообщения:", Queue_Id);
+                for (int i = 0; i < messageDetails.Message.size(); i++) {
                     MessegeSend_Log.warn("[{}] messageDetails.Message[{}] <{}>{}; Tag_Num={}; Tag_Par_Num={}", Queue_Id,
-                                        i, messageDetails.Message.get(i).Tag_Id, messageDetails.Message.get(i).Tag_Value, messageDetails.Message.get(i).Tag_Num,
-                                        messageDetails.Message.get(i).Tag_Par_Num);
+                                        i, messageDetails.Message.getTag_Id(i), messageDetails.Message.getTag_Value(i), messageDetails.Message.getTag_Num(i),
+                                        messageDetails.Message.getTag_Par_Num(i));
                 }
                 MessegeSend_Log.info("[{}] ReadMessage: тело XML тело XML не получено из БД , остановлено на {} символов", Queue_Id, messageDetails.XML_MsgResponse.length());
             }
@@ -1102,87 +1091,45 @@ public class MessageUtils {
 
     // @messageDetails.XML_MsgResponse формируется из messageDetails.Message
     public static int XML_Current_Tags(@NotNull MessageDetails messageDetails, int Current_Elm_Key) throws UnsupportedOperationException, NullPointerException  {
-        MessageDetailVO messageDetailVO = messageDetails.Message.get(Current_Elm_Key);
+        MessageTree Message = messageDetails.Message;
+        int Current_Tag_Num = Message.getTag_Num(Current_Elm_Key);
 
+        if ( Current_Tag_Num != 0 ) { // Tag_Num Всегда начинается с 1 для сообщения! ( проверка на всякий случай )
 
-        if ( messageDetailVO.Tag_Num != 0 ) { // Tag_Num Всегда начинается с 1 для сообщения! ( проверка на всякий случай )
-
-            messageDetails.XML_MsgResponse.append(XMLchars.OpenTag ); messageDetails.XML_MsgResponse.append( messageDetailVO.Tag_Id);
+            messageDetails.XML_MsgResponse.append(XMLchars.OpenTag ); messageDetails.XML_MsgResponse.append( Message.getTag_Id(Current_Elm_Key) );
 
-            MessageDetailVO messageChildVO;
-            ArrayList<Integer> ChildVO_ArrayList =  messageDetails.MessageIndex_by_Tag_Par_Num.get( messageDetailVO.Tag_Num );
-            if (ChildVO_ArrayList != null ) { // у элемента <messageDetailVO.Tag_Id ...> есть либо атрибуты, либо вложенные элементы
-                Iterator<Integer> ChildVO_AttributeIterator = ChildVO_ArrayList.iterator();
-                // 1й проход, достаём атрибуты элемента
-                while (ChildVO_AttributeIterator.hasNext()) {
-                    Integer i = ChildVO_AttributeIterator.next();
-                    messageChildVO = messageDetails.Message.get(i);
-                    if ( messageChildVO != null) {
-                        if ((messageChildVO.Tag_Par_Num == messageDetailVO.Tag_Num) && // нашли Дочерний элемент
-                                (messageChildVO.Tag_Num == 0))  // это атрибут элемента, у которого нет потомков
-                        {
-                            if (messageChildVO.Tag_Value != null) { // фармирукм Attribute="Value"
-                                messageDetails.XML_MsgResponse.append(XMLchars.Space);
-                                messageDetails.XML_MsgResponse.append(messageChildVO.Tag_Id);
-                                messageDetails.XML_MsgResponse.append(XMLchars.Equal);
-                                messageDetails.XML_MsgResponse.append(XMLchars.Quote);
-                                messageDetails.XML_MsgResponse.append(messageChildVO.Tag_Value);
-                                messageDetails.XML_MsgResponse.append(XMLchars.Quote);
-                            } else {  // фармирукм Attribute=""
-                                messageDetails.XML_MsgResponse.append(XMLchars.Space);
-                                messageDetails.XML_MsgResponse.append(messageChildVO.Tag_Id);
-                                messageDetails.XML_MsgResponse.append(XMLchars.Equal);
-                                messageDetails.XML_MsgResponse.append(XMLchars.Quote);
-                                messageDetails.XML_MsgResponse.append(XMLchars.Quote);
-                            }
-                        }
-                    }
-                    else {
-                        String messageException = "1й проход, достаём атрибуты элемента: XML_Current_Tags [" + Current_Elm_Key + "] messageDetails.Message.get[" + i + "] вернуло NULL! Tag_Id: <" +
-                                messageDetails.Message.get(Current_Elm_Key).Tag_Id + "> Tag_Value=" +
-                                messageDetails.Message.get(Current_Elm_Key).Tag_Value +
-                                "; Tag_Num=" + messageDetails.Message.get(Current_Elm_Key).Tag_Num +
-                                "; Tag_Par_Num=" + messageDetails.Message.get(Current_Elm_Key).Tag_Par_Num;
-                        MessegeReceive_Log.error(messageException);
-                        throw new NullPointerException( messageException);
-                    }
+            // у элемента есть либо атрибуты, либо вложенные элементы - строки, у которых Tag_Par_Num == Tag_Num элемента
+            int ChildCount = Message.getChildCount( Current_Tag_Num );
+            // 1й проход, достаём атрибуты элемента
+            for (int j = 0; j < ChildCount; j++) {
+                int i = Message.getChildRow( Current_Tag_Num, j );
+                if ( Message.getTag_Num(i) == 0 )  // это атрибут элемента, у которого нет потомков
+                {
+                    messageDetails.XML_MsgResponse.append(XMLchars.Space);
+                    messageDetails.XML_MsgResponse.append(Message.getTag_Id(i));
+                    messageDetails.XML_MsgResponse.append(XMLchars.Equal);
+                    messageDetails.XML_MsgResponse.append(XMLchars.Quote);
+                    if ( Message.getTag_Value(i) != null ) // фармирукм Attribute="Value", иначе Attribute=""
+                        messageDetails.XML_MsgResponse.append(Message.getTag_Value(i));
+                    messageDetails.XML_MsgResponse.append(XMLchars.Quote);
                 }
-                messageDetails.XML_MsgResponse.append(XMLchars.CloseTag); // + ">" );
-                if ( messageDetailVO.Tag_Value != null )
-                    messageDetails.XML_MsgResponse.append(messageDetailVO.getTag_Value());
-
-                Iterator<Integer> ChildVO_ElementIterator = ChildVO_ArrayList.iterator();
-                // 2й проход, достаём дочерние элементы
-                while (ChildVO_ElementIterator.hasNext()) {
-                    Integer i = ChildVO_ElementIterator.next();
-                    messageChildVO = messageDetails.Message.get(i);
-                    if (messageChildVO != null) {
-                        if ((messageChildVO.Tag_Par_Num == messageDetailVO.Tag_Num) && // нашли Дочерний элемент - проверка!!!
-                                (messageChildVO.Tag_Num != 0))  // И это элемент, который может быть потомком!
-                        {  // вызываем рекурсию
-                            XML_Current_Tags(messageDetails, i);
-                        }
-                    }
-                    else {
-                        String messageException = "2й проход, достаём дочерние элементы: XML_Current_Tags [" + Current_Elm_Key + "] messageDetails.Message.get[" + i + "] вернуло NULL! Tag_Id: <" +
-                                messageDetails.Message.get(Current_Elm_Key).Tag_Id + "> Tag_Value=" +
-                                messageDetails.Message.get(Current_Elm_Key).Tag_Value +
-                                "; Tag_Num=" + messageDetails.Message.get(Current_Elm_Key).Tag_Num +
-                                "; Tag_Par_Num=" + messageDetails.Message.get(Current_Elm_Key).Tag_Par_Num;
-                        MessegeReceive_Log.error(messageException);
-                        throw new NullPointerException( messageException);
-                    }
+            }
+            messageDetails.XML_MsgResponse.append(XMLchars.CloseTag); // + ">" );
+            if ( Message.getTag_Value(Current_Elm_Key) != null )
+                messageDetails.XML_MsgResponse.append(Message.getTag_Value(Current_Elm_Key));
+
+            // 2й проход, достаём дочерние элементы
+            for (int j = 0; j < ChildCount; j++) {
+                int i = Message.getChildRow( Current_Tag_Num, j );
+                if ( Message.getTag_Num(i) != 0 )  // И это элемент, который может быть потомком!
+                {  // вызываем рекурсию
+                    XML_Current_Tags(messageDetails, i);
                 }
-
-            } else { // вложенных элементов нет, чисто значение
-                messageDetails.XML_MsgResponse.append(XMLchars.CloseTag); // + ">" );
-                if ( messageDetailVO.Tag_Value != null )
-                    messageDetails.XML_MsgResponse.append(messageDetailVO.getTag_Value());
             }
 
             messageDetails.XML_MsgResponse.append(XMLchars.OpenTag ); // <\Tag_Id>
             messageDetails.XML_MsgResponse.append( XMLchars.EndTag );
-            messageDetails.XML_MsgResponse.append( messageDetailVO.Tag_Id );
+            messageDetails.XML_MsgResponse.append( Message.getTag_Id(Current_Elm_Key) );
             messageDetails.XML_MsgResponse.append( XMLchars.CloseTag);
             return 1; //XML_Tag;
         } else {
@@ -1195,8 +1142,8 @@ public class MessageUtils {
     public static boolean isMessageQueue_Direction_EXEIN(TheadDataAccess theadDataAccess, long Queue_Id, MessageQueueVO messageQueueVO, boolean isDebugged, Logger MessegeReceive_Log) {
           String Queue_Direction=null;
             try {
-                theadDataAccess.stmtMsgQueue.setLong(1,  Queue_Id );
-                ResultSet rs = theadDataAccess.stmtMsgQueue.executeQuery();
+                theadDataAccess.getStmtMsgQueue().setLong(1,  Queue_Id );
+                ResultSet rs = theadDataAccess.getStmtMsgQueue().executeQuery();
                 while (rs.next()) {
                     Queue_Direction = rs.getString("Queue_Direction");
                     messageQueueVO.setMsg_Reason( rs.getString("Msg_Reason") );
@@ -1226,8 +1173,8 @@ public class MessageUtils {
     public static boolean isLink_Queue_Finish(TheadDataAccess theadDataAccess, long Queue_Id, boolean isDebugged, Logger MessegeReceive_Log) {
         String Queue_Direction=null;
         try {
-            theadDataAccess.stmtMsgQueue.setLong(1,  Queue_Id );
-            ResultSet rs = theadDataAccess.stmtMsgQueue.executeQuery();
+            theadDataAccess.getStmtMsgQueue().setLong(1,  Queue_Id );
+            ResultSet rs = theadDataAccess.getStmtMsgQueue().executeQuery();
             while (rs.next()) {
                 Queue_Direction = rs.getString("Queue_Direction");
                 if ( isDebugged )
@@ -1255,8 +1202,8 @@ public class MessageUtils {
         String Queue_Direction =null;
         pXML_MsgConfirmation.setLength(0); pXML_MsgConfirmation.trimToSize();
         try {
-            theadDataAccess.stmtMsgQueue.setLong(1,  Queue_Id );
-            ResultSet rs = theadDataAccess.stmtMsgQueue.executeQuery();
+            theadDataAccess.getStmtMsgQueue().setLong(1,  Queue_Id );
+            ResultSet rs = theadDataAccess.getStmtMsgQueue().executeQuery();
             while (rs.next()) {
                 Queue_Direction = rs.getString("Queue_Direction");
                 pXML_MsgConfirmation.setLength(0); pXML_MsgConfirmation.trimToSize();
@@ -1286,8 +1233,8 @@ public class MessageUtils {
     {
         int msg_infostreamid = -1;
         try {
-            theadDataAccess.stmtMsgQueue.setLong(1,  Queue_Id );
-            ResultSet rs = theadDataAccess.stmtMsgQueue.executeQuery();
+            theadDataAccess.getStmtMsgQueue().setLong(1,  Queue_Id );
+            ResultSet rs = theadDataAccess.getStmtMsgQueue().executeQuery();
             while (rs.next()) {
                 msg_infostreamid = rs.getInt("msg_infostreamid");
                 if ( isDebugged )
@@ -1310,8 +1257,8 @@ public class MessageUtils {
     {
         Long Link_Queue_Id=null;
         try {
-            theadDataAccess.stmt_SELECT_Link_Queue_Id.setLong(1,  Queue_Id );
-            ResultSet rs = theadDataAccess.stmt_SELECT_Link_Queue_Id.executeQuery();
+            theadDataAccess.getStmt_SELECT_Link_Queue_Id().setLong(1,  Queue_Id );
+            ResultSet rs = theadDataAccess.getStmt_SELECT_Link_Queue_Id().executeQuery();
             while (rs.next()) {
                 Link_Queue_Id = rs.getLong("Link_Queue_Id");
                 messageQueueVO.setMsg_Reason( rs.getString("Msg_Reason") );
@@ -1493,8 +1440,8 @@ public class MessageUtils {
             int Tag_Num=-1;
 
             try { // получаем Confirmation Tag_Num из select Tag_Num from  Message_QueueDet  WHERE QUEUE_ID = ?Queue_Id and Tag_Par_Num = 0 and tag_Id ='Confirmation'
-                theadDataAccess.stmtMsgQueueConfirmationTag.setLong(1, Queue_Id);
-                ResultSet rs = theadDataAccess.stmtMsgQueueConfirmationTag.executeQuery();
+                theadDataAccess.getStmtMsgQueueConfirmationTag().setLong(1, Queue_Id);
+                ResultSet rs = theadDataAccess.getStmtMsgQueueConfirmationTag().executeQuery();
                 while (rs.next()) {
                     Tag_Num= rs.getInt("Tag_Num");
                 }
@@ -1516,14 +1463,13 @@ public class MessageUtils {
                 return 0;
             }
             try {
-                theadDataAccess.stmtMsgQueueConfirmationDet.setLong(1, Queue_Id);
-                theadDataAccess.stmtMsgQueueConfirmationDet.setInt(2, Tag_Num);
-                theadDataAccess.stmtMsgQueueConfirmationDet.setLong(3, Queue_Id);
-                theadDataAccess.stmtMsgQueueConfirmationDet.setInt(4, Tag_Num);
-                ResultSet rs = theadDataAccess.stmtMsgQueueConfirmationDet.executeQuery();
+                theadDataAccess.getStmtMsgQueueConfirmationDet().setLong(1, Queue_Id);
+                theadDataAccess.getStmtMsgQueueConfirmationDet().setInt(2, Tag_Num);
+                theadDataAccess.getStmtMsgQueueConfirmationDet().setLong(3, Queue_Id);
+                theadDataAccess.getStmtMsgQueueConfirmationDet().setInt(4, Tag_Num);
+                ResultSet rs = theadDataAccess.getStmtMsgQueueConfirmationDet().executeQuery();
                 String rTag_Value=null;
                 while (rs.next()) {
-                    MessageDetailVO messageDetailVO = new MessageDetailVO();
                     rTag_Value = StringEscapeUtils.escapeXml10(rs.getString("Tag_Value") );
 //                    MessegeReceive_Log.warn("_ReadConfirmation messageChildVO.Tag_Par_Num=" + rs.getInt("Tag_Par_Num") +
 //                            ", messageChildVO.Tag_Num=" + rs.getInt("Tag_Num") +
@@ -1532,14 +1478,14 @@ public class MessageUtils {
 //                    );
 
                     if ( rTag_Value == null )
-                    messageDetailVO.setMessageQueue(
+                    messageDetails.Confirmation.add(
                             rs.getString("Tag_Id"),
                             null,
                             rs.getInt("Tag_Num"),
                             rs.getInt("Tag_Par_Num")
                     );
                     else
-                        messageDetailVO.setMessageQueue(
+                        messageDetails.Confirmation.add(
                                 rs.getString("Tag_Id"),
                                 StringEscapeUtils.escapeXml10(stripNonValidXMLCharacters(rTag_Value)),
                                 //StringEscapeUtils.escapeXml10(rTag_Value.replaceAll(XMLchars.XML10pattern,"")),
@@ -1547,7 +1493,6 @@ public class MessageUtils {
                                 rs.getInt("Tag_Num"),
                                 rs.getInt("Tag_Par_Num")
                         );
-                    messageDetails.Confirmation.put(messageDetails.ConfirmationRowNum, messageDetailVO);
                     messageDetails.ConfirmationRowNum += 1;
                     // MessegeReceive_Log.info( "Tag_Id:" + rs.getString("Tag_Id") + " [" + rs.getString("Tag_Value") + "]");
                 }
@@ -1598,73 +1543,49 @@ public class MessageUtils {
     // @messageDetails.XML_Confirmation формируется из messageDetails.Confirmation
 
     public static int XML_CurrentConfirmation_Tags(MessageDetails messageDetails, int Current_Elm_Key, Logger MessegeReceive_Log) {
-        MessageDetailVO messageDetailVO = messageDetails.Confirmation.get(Current_Elm_Key);
-//        boolean is_Local_Debug= true;
-        if ( messageDetailVO.Tag_Num != 0 ) {
-
-            // !было:  StringBuilder XML_Tag = new StringBuilder( XMLchars.OpenTag + messageDetailVO.Tag_Id );
-            // стало:
-            messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag).append(messageDetailVO.Tag_Id);
-            // XML_Tag.append ( "<" + messageDetailVO.Tag_Id + ">" );
+        MessageTree Confirmation = messageDetails.Confirmation;
+        int Current_Tag_Num = Confirmation.getTag_Num(Current_Elm_Key);
+        if ( Current_Tag_Num != 0 ) {
+
+            messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag).append(Confirmation.getTag_Id(Current_Elm_Key));
+            // !было: 2 прохода по всем записям Confirmation на каждый элемент, стало: только по дочерним
+            int ChildCount = Confirmation.getChildCount( Current_Tag_Num );
             // цикл по формированию параметров-аьтрибутов элемента
-            for (int i = 0; i < messageDetails.Confirmation.size(); i++) {
-                MessageDetailVO messageChildVO = messageDetails.Confirmation.get(i);
-//                MessegeReceive_Log.warn("_CurrentConfirmation_Tags messageChildVO.Tag_Par_Num=" +  messageChildVO.Tag_Par_Num +
-//                                ", messageChildVO.Tag_Num=" + messageChildVO.Tag_Num +
-//                                ", messageChildVO.Tag_Id=" + messageChildVO.Tag_Id +
-//                                ", messageChildVO.Tag_Value=" + messageChildVO.Tag_Value
-//                );
-                if ( (messageChildVO.Tag_Par_Num == messageDetailVO.Tag_Num) && // нашли Дочерний элемент
-                        (messageChildVO.Tag_Num == 0) )  // это атрибут элемента, у которого нет потомков
+            for (int j = 0; j < ChildCount; j++) {
+                int i = Confirmation.getChildRow( Current_Tag_Num, j );
+                if ( Confirmation.getTag_Num(i) == 0 )  // это атрибут элемента, у которого нет потомков
                 {
-                    if ( messageChildVO.Tag_Value != null )
-                        // !было:XML_Tag.append ( XMLchars.Space + messageChildVO.Tag_Id + XMLchars.Equal + XMLchars.Quote + messageChildVO.Tag_Value + XMLchars.Quote );
-                        // стало:
-                        messageDetails.XML_MsgConfirmation.append(XMLchars.Space).append(messageChildVO.Tag_Id).
-                                append(XMLchars.Equal).append(XMLchars.Quote).append(messageChildVO.Tag_Value).append(XMLchars.Quote);
-        // по
-        //                messageDetails.XML_MsgConfirmation.append(XMLchars.Space + messageChildVO.Tag_Id + XMLchars.Equal + XMLchars.Quote + messageChildVO.Tag_Value + XMLchars.Quote);
+                    if ( Confirmation.getTag_Value(i) != null )
+                        messageDetails.XML_MsgConfirmation.append(XMLchars.Space).append(Confirmation.getTag_Id(i)).
+                                append(XMLchars.Equal).append(XMLchars.Quote).append(Confirmation.getTag_Value(i)).append(XMLchars.Quote);
                     else
-                        // !было: XML_Tag.append ( XMLchars.Space + messageChildVO.Tag_Id + XMLchars.Equal + XMLchars.Quote + XMLchars.Quote );
-                        // стало:
                         messageDetails.XML_MsgConfirmation.append(XMLchars.Space)
-                                                          .append( messageChildVO.Tag_Id)
+                                                          .append( Confirmation.getTag_Id(i))
                                                           .append( XMLchars.Equal)
                                                           .append( XMLchars.Quote).append( "noName").append(XMLchars.Quote);
                 }
             }
-            // !было: XML_Tag.append( XMLchars.CloseTag);
-            // стало:
             messageDetails.XML_MsgConfirmation.append(XMLchars.CloseTag);
 
-            if ( messageDetailVO.Tag_Value != null )
-                // !было: XML_Tag.append( messageDetailVO.getTag_Value() );
-                // стало:
-                messageDetails.XML_MsgConfirmation.append(messageDetailVO.getTag_Value());
+            if ( Confirmation.getTag_Value(Current_Elm_Key) != null )
+                messageDetails.XML_MsgConfirmation.append(Confirmation.getTag_Value(Current_Elm_Key));
 
-            for (int i = 0; i < messageDetails.Confirmation.size(); i++) {
-                MessageDetailVO messageChildVO = messageDetails.Confirmation.get(i);
-
-                if ( (messageChildVO.Tag_Par_Num == messageDetailVO.Tag_Num) && // нашли Дочерний элемент
-                        (messageChildVO.Tag_Num != 0) )  // И это элемент, который может быть потомком!
+            for (int j = 0; j < ChildCount; j++) {
+                int i = Confirmation.getChildRow( Current_Tag_Num, j );
+                if ( Confirmation.getTag_Num(i) != 0 )  // И это элемент, который может быть потомком!
                 {
-                    // !было: XML_Tag.append ( XML_Current_Tags( messageDetails, i) );
-                    // стало:
                     XML_CurrentConfirmation_Tags(messageDetails, i, MessegeReceive_Log );
                 }
             }
 
-            // !было: XML_Tag.append( XMLchars.OpenTag + XMLchars.EndTag + messageDetailVO.Tag_Id + XMLchars.CloseTag);
-            // стало:
-            messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag).append(XMLchars.EndTag).append( messageDetailVO.Tag_Id ).append(XMLchars.CloseTag);
+            messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag).append(XMLchars.EndTag).append( Confirmation.getTag_Id(Current_Elm_Key) ).append(XMLchars.CloseTag);
             return 1; //XML_Tag;
         } else {
             // !было: return 0;
             // Теряются отрибуты по считывании Confirmation
-            if ( messageDetailVO.Tag_Value != null ) {   // !было:XML_Tag.append ( XMLchars.Space + messageChildVO.Tag_Id + XMLchars.Equal + XMLchars.Quote + messageChildVO.Tag_Value + XMLchars.Quote );
-                // стало:
-                messageDetails.XML_MsgConfirmation.append(XMLchars.Space).append( messageDetailVO.Tag_Id).append( XMLchars.Equal)
-                                                  .append( XMLchars.Quote).append( messageDetailVO.Tag_Value).append( XMLchars.Quote);
+            if ( Confirmation.getTag_Value(Current_Elm_Key) != null ) {
+                messageDetails.XML_MsgConfirmation.append(XMLchars.Space).append( Confirmation.getTag_Id(Current_Elm_Key)).append( XMLchars.Equal)
+                                                  .append( XMLchars.Quote).append( Confirmation.getTag_Value(Current_Elm_Key)).append( XMLchars.Quote);
                 return 1; //XML_Tag;
             }
             else
@@ -1740,13 +1661,11 @@ public class MessageUtils {
 
 
             //MessegeReceive_Log.info("SplitMessageж Tag_Par_Num[0][1]: <" + ElementEntry + ">");
-            MessageDetailVO messageDetailVO = new MessageDetailVO();
-            messageDetailVO.setMessageQueue(ElementEntry, // "Tag_Id"
+            messageDetails.Message.add(ElementEntry, // "Tag_Id"
                     "", // Tag_Value
                     1,
                     0
             );
-            messageDetails.Message.put(messageDetails.MessageRowNum, messageDetailVO);
             messageDetails.MessageRowNum += 1;
 
             List<Namespace> ElementNamespaces = EntryElement.getNamespacesIntroduced();
@@ -1756,13 +1675,11 @@ public class MessageUtils {
                 Namespace Namespace = ElementNamespaces.get(j);
 
                 MessegeReceive_Log.info("Tag_Par_Num[1][0]: " + XMLchars.XMLns + "{}={}", Namespace.getPrefix(), Namespace.getURI());
-                MessageDetailVO NSmessageDetailVO = new MessageDetailVO();
-                NSmessageDetailVO.setMessageQueue(XMLchars.XMLns + Namespace.getPrefix(), // "Tag_Id"
+                messageDetails.Message.add(XMLchars.XMLns + Namespace.getPrefix(), // "Tag_Id"
                         Namespace.getURI(), // Tag_Value
                         0,
                         1
                 );
-                messageDetails.Message.put(messageDetails.MessageRowNum, NSmessageDetailVO);
                 messageDetails.MessageRowNum += 1;
 
             }
@@ -1785,13 +1702,12 @@ public class MessageUtils {
                 ElementEntry = XMLelement.getName();
 
             String ElementContent = XMLelement.getText();
-            MessageDetailVO messageDetailVO = new MessageDetailVO();
 
             messageDetails.Message_Tag_Num += 1;
 
             if ( ElementContent.length() > 0 ) {
                 //MessegeReceive_Log.info("Tag_Par_Num[" + tag_Par_Num + "][" + messageDetails.Message_Tag_Num + "]: <" + ElementEntry + ">=" + ElementContent);
-                messageDetailVO.setMessageQueue(ElementEntry, // "Tag_Id"
+                messageDetails.Message.add(ElementEntry, // "Tag_Id"
                         ElementContent, // Tag_Value
                         messageDetails.Message_Tag_Num,
                         tag_Par_Num
@@ -1799,13 +1715,12 @@ public class MessageUtils {
             } else {
                 //MessegeReceive_Log.info("Tag_Par_Num[" + tag_Par_Num + "][" + messageDetails.Message_Tag_Num + "]: <" + ElementEntry + ">");
 
-                messageDetailVO.setMessageQueue(ElementEntry, // "Tag_Id"
+                messageDetails.Message.add(ElementEntry, // "Tag_Id"
                         "", // Tag_Value
                         messageDetails.Message_Tag_Num,
                         tag_Par_Num // Tag_Num += 1; будет сделано в Tag_Par_Num
                 );
             }
-            messageDetails.Message.put(messageDetails.MessageRowNum, messageDetailVO);
             messageDetails.MessageRowNum += 1;
             String AttributePrefix;
             String AttributeEntry;
@@ -1813,7 +1728,6 @@ public class MessageUtils {
             List<Attribute> ElementAttributes = XMLelement.getAttributes();
             for (int j = 0; j < ElementAttributes.size(); j++) {
                 Attribute XMLattribute = ElementAttributes.get(j);
-                MessageDetailVO ATTRmessageDetailVO = new MessageDetailVO();
                 AttributePrefix = XMLattribute.getNamespacePrefix();
                 if ( AttributePrefix.length() > 0 ) {
                     AttributeEntry = AttributePrefix + ":" + XMLattribute.getName();
@@ -1823,12 +1737,11 @@ public class MessageUtils {
                 // Attribute не увеличивает Tag_Num ( сквозной нумератор записей )
                 // в БД имеет Tag_Num= 0, ссылается на элемент.
                // MessegeReceive_Log.info("Tag_Par_Num[" + messageDetails.Message_Tag_Num + "][" + 0 + "]: \"" + AttributeEntry + "\"=" + AttributeValue);
-                ATTRmessageDetailVO.setMessageQueue(AttributeEntry, // "Tag_Id"
+                messageDetails.Message.add(AttributeEntry, // "Tag_Id"
                         AttributeValue, // Tag_Value
                         0,
                         messageDetails.Message_Tag_Num
                 );
-                messageDetails.Message.put(messageDetails.MessageRowNum, ATTRmessageDetailVO);
                 messageDetails.MessageRowNum += 1;
             }
             // Tag_Par_Num += 1;  /// ??????????????????????????????????? Явно не то.
@@ -1846,8 +1759,8 @@ public class MessageUtils {
         int nn = 0;
 /*
         try {
-            theadDataAccess.stmt_DELETE_Message_Details.setLong(1, Queue_Id);
-            theadDataAccess.stmt_DELETE_Message_Details.executeUpdate();
+            theadDataAccess.getStmt_DELETE_Message_Details().setLong(1, Queue_Id);
+            theadDataAccess.getStmt_DELETE_Message_Details().executeUpdate();
         } catch (SQLException e) {
             MessegeReceive_Log.error("DELETE(" + theadDataAccess.DELETE_Message_Details + "[" + Queue_Id + "]" + ") fault: " + e.getMessage());
             e.printStackTrace();
@@ -1859,19 +1772,15 @@ public class MessageUtils {
             return -1;
         }
 */
-        MessageDetailVO messageDetailVO=null;
+        MessageTree Message = messageDetails.Message;
+        int Row = 0;
+        MessageDetailsWriter detailsWriter = null;
         try {
-
-            for (int i = 0; i < messageDetails.Message.size(); i++) {
-                messageDetailVO = messageDetails.Message.get(i);
-                theadDataAccess.stmt_INSERT_Message_Details.setLong(1, Queue_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(2, messageDetailVO.Tag_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(3, StringEscapeUtils.unescapeXml(messageDetailVO.Tag_Value));
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(4, messageDetailVO.Tag_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(5, messageDetailVO.Tag_Par_Num);
-                // Insert data in Oracle with Java … Batched mode
-                // theadDataAccess.stmt_INSERT_Message_Details.executeUpdate();
-                theadDataAccess.stmt_INSERT_Message_Details.addBatch();
+            detailsWriter = theadDataAccess.getMessageDetailsWriter();
+            for (int i = 0; i < Message.size(); i++) {
+                Row = i;
+                detailsWriter.addRow( Queue_Id, Message.getTag_Id(i), StringEscapeUtils.unescapeXml(Message.getTag_Value(i)),
+                                      Message.getTag_Num(i), Message.getTag_Par_Num(i) );
         /*MessegeReceive_Log.info( i + ">" + theadDataAccess.INSERT_Message_Details + ":Queue_Id=[" + Queue_Id + "]" +
                 "\n Tag_Id=" + MessageDetailVO.Tag_Id +
                 "\n Tag_Value=" + MessageDetailVO.Tag_Value +
@@ -1881,13 +1790,15 @@ public class MessageUtils {
                 */
                 nn = i;
             }
-            // Insert data in Oracle with Java … Batched mode
-            theadDataAccess.stmt_INSERT_Message_Details.executeBatch();
+            // Insert data in Oracle with Java … Batched mode / COPY для PostgreSQL
+            detailsWriter.flush();
 
         } catch (SQLException e) {
+            if ( detailsWriter != null ) detailsWriter.discard();
             MessegeReceive_Log.error("[{}] {}: :{}", Queue_Id, theadDataAccess.INSERT_Message_Details, sStackTrace.strInterruptedException(e));
             System.err.println(":Queue_Id=[" + Queue_Id + "] :" + theadDataAccess.INSERT_Message_Details );
-            System.err.println(StringEscapeUtils.unescapeXml(messageDetailVO.Tag_Value));
+            if ( Row < Message.size() )
+                System.err.println(StringEscapeUtils.unescapeXml(Message.getTag_Value(Row)));
             e.printStackTrace();
             try {
                 theadDataAccess.Hermes_Connection.rollback();
@@ -1913,8 +1824,8 @@ public class MessageUtils {
         int nn = 0;
 
         try {
-            theadDataAccess.stmt_DELETE_Message_Details.setLong(1, Queue_Id);
-            theadDataAccess.stmt_DELETE_Message_Details.executeUpdate();
+            theadDataAccess.getStmt_DELETE_Message_Details().setLong(1, Queue_Id);
+            theadDataAccess.getStmt_DELETE_Message_Details().executeUpdate();
         } catch (SQLException e) {
             MessegeReceive_Log.error("[{}] Hermes_Connection.rollback() fault: {}", Queue_Id , e.getMessage());
             MessegeReceive_Log.error("[{}] DELETE({}) fault: {}", Queue_Id ,theadDataAccess.DELETE_Message_Details, e.getMessage());
@@ -1927,22 +1838,19 @@ public class MessageUtils {
             return -1;
         }
 
+        MessageTree Message = messageDetails.Message;
+        MessageDetailsWriter detailsWriter = null;
         try {
-            for (int i = 0; i < messageDetails.Message.size(); i++) {
-                MessageDetailVO MessageDetailVO = messageDetails.Message.get(i);
-                theadDataAccess.stmt_INSERT_Message_Details.setLong(1, Queue_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(2, MessageDetailVO.Tag_Id);
-                if ( MessageDetailVO.Tag_Value.length() > (XMLchars.MAX_TAG_VALUE_BYTE_SIZE /2) ) {
-                    String ElementContentS = new String( XMLchars.cutUTF8ToMAX_TAG_VALUE_BYTE_SIZE(MessageDetailVO.Tag_Value, MessegeReceive_Log), StandardCharsets.UTF_8 );
-                    theadDataAccess.stmt_INSERT_Message_Details.setString(3, ElementContentS );
+            detailsWriter = theadDataAccess.getMessageDetailsWriter();
+            for (int i = 0; i < Message.size(); i++) {
+                String Tag_Value = Message.getTag_Value(i);
+                if ( Tag_Value.length() > (XMLchars.MAX_TAG_VALUE_BYTE_SIZE /2) ) {
+                    String ElementContentS = new String( XMLchars.cutUTF8ToMAX_TAG_VALUE_BYTE_SIZE(Tag_Value, MessegeReceive_Log), StandardCharsets.UTF_8 );
+                    detailsWriter.addRow( Queue_Id, Message.getTag_Id(i), ElementContentS, Message.getTag_Num(i), Message.getTag_Par_Num(i) );
                 }
                 else {
-                    theadDataAccess.stmt_INSERT_Message_Details.setString(3, MessageDetailVO.Tag_Value);
+                    detailsWriter.addRow( Queue_Id, Message.getTag_Id(i), Tag_Value, Message.getTag_Num(i), Message.getTag_Par_Num(i) );
                 }
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(4, MessageDetailVO.Tag_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(5, MessageDetailVO.Tag_Par_Num);
-                //theadDataAccess.stmt_INSERT_Message_Details.executeUpdate();
-                theadDataAccess.stmt_INSERT_Message_Details.addBatch();
         /*MessegeSend_Log.info( i + ">" + theadDataAccess.INSERT_Message_Details + ":Queue_Id=[" + Queue_Id + "]" +
                 "\n Tag_Id=" + MessageDetailVO.Tag_Id +
                 "\n Tag_Value=" + MessageDetailVO.Tag_Value +
@@ -1952,10 +1860,11 @@ public class MessageUtils {
                 */
                 nn = i;
             }
-            // Insert data in Oracle with Java … Batched mode
-            theadDataAccess.stmt_INSERT_Message_Details.executeBatch();
+            // Insert data in Oracle with Java … Batched mode / COPY для PostgreSQL
+            detailsWriter.flush();
 
         } catch (SQLException e) {
+            if ( detailsWriter != null ) detailsWriter.discard();
             MessegeReceive_Log.error("{}:Queue_Id=[{}] ReplaceMessage :{}", theadDataAccess.INSERT_Message_Details, Queue_Id, sStackTrace.strInterruptedException(e));
             e.printStackTrace();
             try {
@@ -1983,13 +1892,11 @@ public class MessageUtils {
             messageDetails.ConfirmationRowNum = 0;
             String  ElementEntry = EntryElement.getName();
             //MessegeReceive_Log.info("Tag_Par_Num[0]["+ messageDetails.Message_Tag_Num +"]: <" + ElementEntry + ">");
-            MessageDetailVO messageDetailVO = new MessageDetailVO();
-            messageDetailVO.setMessageQueue(ElementEntry, // "Tag_Id"
+            messageDetails.Confirmation.add(ElementEntry, // "Tag_Id"
                     "", // Tag_Value
                     messageDetails.Message_Tag_Num,
                     0
             );
-            messageDetails.Confirmation.put(messageDetails.ConfirmationRowNum, messageDetailVO);
             messageDetails.ConfirmationRowNum += 1;
             // после заполнения данных для корневого элемента, для всех его детей нужен  Tag_Par_Num== messageDetails.Message_Tag_Num,
             // который был установлен ПЕРЕД кукурсивным SplitConfirmation!
@@ -2011,13 +1918,12 @@ public class MessageUtils {
             }
             else {
                 String ElementContent = XMLelement.getText();
-                MessageDetailVO messageDetailVO = new MessageDetailVO();
 
                 messageDetails.Message_Tag_Num += 1;
 
                 if ( ElementContent.length() > 0 ) {
                     //MessegeReceive_Log.info("Tag_Par_Num[" + tag_Par_Num + "][" + messageDetails.Message_Tag_Num + "]: <" + ElementEntry + ">=" + ElementContent);
-                    messageDetailVO.setMessageQueue(ElementEntry, // "Tag_Id"
+                    messageDetails.Confirmation.add(ElementEntry, // "Tag_Id"
                             ElementContent, // Tag_Value
                             messageDetails.Message_Tag_Num,
                             tag_Par_Num
@@ -2025,30 +1931,27 @@ public class MessageUtils {
                 } else {
                     //MessegeReceive_Log.info("Tag_Par_Num[" + tag_Par_Num + "][" + messageDetails.Message_Tag_Num + "]: <" + ElementEntry + ">");
 
-                    messageDetailVO.setMessageQueue(ElementEntry, // "Tag_Id"
+                    messageDetails.Confirmation.add(ElementEntry, // "Tag_Id"
                             "", // Tag_Value
                             messageDetails.Message_Tag_Num,
                             tag_Par_Num // Tag_Num += 1; будет сделано в Tag_Par_Num
                     );
                 }
-                messageDetails.Confirmation.put(messageDetails.ConfirmationRowNum, messageDetailVO);
                 messageDetails.ConfirmationRowNum += 1;
 
                 List<Attribute> ElementAttributes = XMLelement.getAttributes();
                 for (int j = 0; j < ElementAttributes.size(); j++) {
                     Attribute XMLattribute = ElementAttributes.get(j);
-                    MessageDetailVO ATTRmessageDetailVO = new MessageDetailVO();
                     String AttributeEntry = XMLattribute.getName();
                     String AttributeValue = XMLattribute.getValue();
                     // Attribute не увеличивает Tag_Num ( сквозной нумератор записей )
                     // в БД имеет Tag_Num= 0, ссылается на элемент.
                     //MessegeReceive_Log.info("Tag_Par_Num[" + messageDetails.Message_Tag_Num + "][" + 0 + "]: \"" + AttributeEntry + "\"=" + AttributeValue);
-                    ATTRmessageDetailVO.setMessageQueue(AttributeEntry, // "Tag_Id"
+                    messageDetails.Confirmation.add(AttributeEntry, // "Tag_Id"
                             AttributeValue, // Tag_Value
                             0,
                             messageDetails.Message_Tag_Num
                     );
-                    messageDetails.Confirmation.put(messageDetails.ConfirmationRowNum, ATTRmessageDetailVO);
                     messageDetails.ConfirmationRowNum += 1;
                 }
 
@@ -2071,15 +1974,15 @@ public class MessageUtils {
         try {
             for ( iNumberRecordInConfirmation = 0; iNumberRecordInConfirmation < messageDetails.Confirmation.size(); iNumberRecordInConfirmation++) {
                 MessageDetailVO MessageDetailVO = messageDetails.Confirmation.get( iNumberRecordInConfirmation );
-                theadDataAccess.stmt_INSERT_Message_Details.setLong(1, Queue_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(2, MessageDetailVO.Tag_Id);
+                theadDataAccess.getStmt_INSERT_Message_Details().setLong(1, Queue_Id);
+                theadDataAccess.getStmt_INSERT_Message_Details().setString(2, MessageDetailVO.Tag_Id);
                 // StringEscapeUtils.unescapeXml(MessageDetailVO.Tag_Value);
-                //theadDataAccess.stmt_INSERT_Message_Details.setString(3, MessageDetailVO.Tag_Value);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(3, StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value));
+                //theadDataAccess.getStmt_INSERT_Message_Details().setString(3, MessageDetailVO.Tag_Value);
+                theadDataAccess.getStmt_INSERT_Message_Details().setString(3, StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value));
                 // MessegeReceive_Log.error(theadDataAccess.INSERT_Message_Details + ":Queue_Id=[" + Queue_Id + "]["+  MessageDetailVO.Tag_Id +"] :" + StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value));
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(4, MessageDetailVO.Tag_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(5, MessageDetailVO.Tag_Par_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.executeUpdate();
+                theadDataAccess.getStmt_INSERT_Message_Details().setInt(4, MessageDetailVO.Tag_Num);
+                theadDataAccess.getStmt_INSERT_Message_Details().setInt(5, MessageDetailVO.Tag_Par_Num);
+                theadDataAccess.getStmt_INSERT_Message_Details().executeUpdate();
 
                 nn = iNumberRecordInConfirmation;
             }
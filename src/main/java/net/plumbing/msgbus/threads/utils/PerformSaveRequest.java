@@ -1,7 +1,6 @@
 package net.plumbing.msgbus.threads.utils;
 import net.plumbing.msgbus.common.XMLchars;
 import net.plumbing.msgbus.common.sStackTrace;
-import net.plumbing.msgbus.model.MessageDetailVO;
 import net.plumbing.msgbus.model.MessageDetails;
 import net.plumbing.msgbus.model.MessageQueueVO;
 import net.plumbing.msgbus.threads.TheadDataAccess;
@@ -61,7 +60,7 @@ public class PerformSaveRequest {
             messageDetails.MessageRowNum = 0;
 
             // xml-документ в виде строки = messageDetails.XML_MsgSEND поступает
-            // Split, которая из него сделает набор записей messageDetails.Message -> HashMap<Integer, MessageDetailVO>
+            // Split, которая из него сделает набор записей messageDetails.Message -> MessageTree
             MessageUtils.SplitMessage(messageDetails, RootElement, 0, // Tag_Num = messageDetails.Message_Tag_Num !
                     MessegeReceive_Log);
 
@@ -116,9 +115,9 @@ public class PerformSaveRequest {
 
                 // получаем МАХ Tag_Num из messageDetails.Message
                 try { // получаем  Tag_Num из select max(Tag_Num) + 1  as  Tag_Num from " + dbSchema + ".message_queuedet  WHERE QUEUE_ID = ?Queue_Id
-                    theadDataAccess.stmtMsgLastBodyTag.setLong(1, Queue_Id);
-                    theadDataAccess.stmtMsgLastBodyTag.setLong(2, Queue_Id);
-                    ResultSet rs = theadDataAccess.stmtMsgLastBodyTag.executeQuery();
+                    theadDataAccess.getStmtMsgLastBodyTag().setLong(1, Queue_Id);
+                    theadDataAccess.getStmtMsgLastBodyTag().setLong(2, Queue_Id);
+                    ResultSet rs = theadDataAccess.getStmtMsgLastBodyTag().executeQuery();
                     while (rs.next()) {
                         messageDetails.Message_Tag_Num = rs.getInt("Tag_Num");
                     }
@@ -134,9 +133,9 @@ public class PerformSaveRequest {
                 messageDetails.Confirmation.clear();
 
                 // xml-документ в виде строки = messageDetails.XML_MsgSEND поступает
-                // Split, которая из него сделает набор записей messageDetails.Message -> HashMap<Integer, MessageDetailVO>
+                // Split, которая из него сделает набор записей messageDetails.Message -> MessageTree
 
-                // Split, которая из него сделает набор записей messageDetails.Message -> HashMap<Integer, MessageDetailVO>
+                // Split, которая из него сделает набор записей messageDetails.Message -> MessageTree
                 MessageUtils.SplitConfirmation(messageDetails, RootElement, 0, // Tag_Num = messageDetails.Message_Tag_Num !
                         MessegeReceive_Log);
 
@@ -173,22 +172,21 @@ public class PerformSaveRequest {
         int nn = 0;
         int iNumberRecordInConfirmation=0;
 
+        MessageDetailsWriter detailsWriter = null;
         try {
+            detailsWriter = theadDataAccess.getMessageDetailsWriter();
             for ( iNumberRecordInConfirmation = 0; iNumberRecordInConfirmation < messageDetails.Confirmation.size(); iNumberRecordInConfirmation++) {
-                MessageDetailVO MessageDetailVO = messageDetails.Confirmation.get( iNumberRecordInConfirmation );
-                theadDataAccess.stmt_INSERT_Message_Details.setLong(1, Queue_Id);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(2, MessageDetailVO.Tag_Id);
-                // StringEscapeUtils.unescapeXml(MessageDetailVO.Tag_Value);
-                //theadDataAccess.stmt_INSERT_Message_Details.setString(3, MessageDetailVO.Tag_Value);
-                theadDataAccess.stmt_INSERT_Message_Details.setString(3, StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value));
-                // MessegeReceive_Log.error(theadDataAccess.INSERT_Message_Details + ":Queue_Id=[" + Queue_Id + "]["+  MessageDetailVO.Tag_Id +"] :" + StringEscapeUtils.unescapeHtml4(MessageDetailVO.Tag_Value));
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(4, MessageDetailVO.Tag_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.setInt(5, MessageDetailVO.Tag_Par_Num);
-                theadDataAccess.stmt_INSERT_Message_Details.executeUpdate();
+                // StringEscapeUtils.unescapeXml(Tag_Value);
+                detailsWriter.addRow( Queue_Id, messageDetails.Confirmation.getTag_Id( iNumberRecordInConfirmation ),
+                                      StringEscapeUtils.unescapeHtml4(messageDetails.Confirmation.getTag_Value( iNumberRecordInConfirmation )),
+                                      messageDetails.Confirmation.getTag_Num( iNumberRecordInConfirmation ),
+                                      messageDetails.Confirmation.getTag_Par_Num( iNumberRecordInConfirmation ) );
 
                 nn = iNumberRecordInConfirmation;
             }
+            detailsWriter.flush();
         } catch ( Exception e) {
+            if ( detailsWriter != null ) detailsWriter.discard();
             MessegeReceive_Log.error("[{}] InsertNewConfirmation `{}`: [{}] :{}", Queue_Id, theadDataAccess.INSERT_Message_Details, iNumberRecordInConfirmation, sStackTrace.strInterruptedException(e));
             messageDetails.MsgReason.append( "InsertNewConfirmation [").append( iNumberRecordInConfirmation).append("] ").append( sStackTrace.strInterruptedException(e) );
             e.printStackTrace();
@@ -0,0 +1,73 @@
+package net.plumbing.msgbus.threads.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import net.plumbing.msgbus.model.MessageTemplate4Perform;
+import net.plumbing.msgbus.model.MessageTemplate4Perform4Send;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Время этапов обработки по интерфейсам: таймер hermes.pipeline.stage с тегами
+//   pipeline  - receive ( приём: контроллеры, PerfotmInputMessages ) или send ( PerformQueueMessages4Send ),
+//   stage     - этап ( body_read, make_clear_request, header_in_xslt, ... http_call ),
+//   interface / operation / template - Interface_Id, Operation_Id, Template_Id шаблона, 0 - ещё не известен.
+// count таймера - пропускная способность этапа, sum / max - где уходит время.
+// Таймеры регистрируются в Metrics.globalRegistry - Spring Boot actuator подключает к нему свой реестр,
+// наружу они видны через /actuator/prometheus. Гистограммы для перцентилей включаются в application.properties:
+// management.metrics.distribution.percentiles-histogram.hermes.pipeline.stage=true
+// Этап, завершившийся исключением, не записывается.
+public final class PipelineMetrics {
+    // hermes.metrics-enabled
+    public static boolean Enabled = true;
+
+    public static final String Receive = "receive";
+    public static final String Send = "send";
+    private static final String TimerName = "hermes.pipeline.stage";
+
+    static MeterRegistry Registry = Metrics.globalRegistry;
+
+    private record StageKey( String Pipeline, String Stage, int Interface_Id, int Operation_Id, int Template_Id ) { }
+    private static final ConcurrentHashMap<StageKey, Timer> Timers = new ConcurrentHashMap<>();
+
+    private PipelineMetrics() { }
+
+    // 0 - метрики выключены, record() тогда ничего не делает
+    public static long start() {
+        return Enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void record( String Pipeline, String Stage, int Interface_Id, int Operation_Id, int Template_Id, long Start_Nanos ) {
+        if ( Start_Nanos == 0L )
+            return;
+        long Elapsed_Nanos = System.nanoTime() - Start_Nanos;
+        Timers.computeIfAbsent( new StageKey( Pipeline, Stage, Interface_Id, Operation_Id, Template_Id ), PipelineMetrics::makeTimer )
+              .record( Elapsed_Nanos, TimeUnit.NANOSECONDS );
+    }
+
+    public static void receive( String Stage, MessageTemplate4Perform Template, long Start_Nanos ) {
+        if ( Template == null )
+            record( Receive, Stage, 0, 0, 0, Start_Nanos );
+        else
+            record( Receive, Stage, Template.getInterface_Id(), Template.getOperation_Id(), Template.getTemplate_Id(), Start_Nanos );
+    }
+
+    public static void send( String Stage, MessageTemplate4Perform4Send Template, long Start_Nanos ) {
+        if ( Template == null )
+            record( Send, Stage, 0, 0, 0, Start_Nanos );
+        else
+            record( Send, Stage, Template.getInterface_Id(), Template.getOperation_Id(), Template.getTemplate_Id(), Start_Nanos );
+    }
+
+    private static Timer makeTimer( StageKey Key ) {
+        return Timer.builder( TimerName )
+                    .description( "Hermes message pipeline stage duration" )
+                    .tag( "pipeline", Key.Pipeline() )
+                    .tag( "stage", Key.Stage() )
+                    .tag( "interface", Integer.toString( Key.Interface_Id() ) )
+                    .tag( "operation", Integer.toString( Key.Operation_Id() ) )
+                    .tag( "template", Integer.toString( Key.Template_Id() ) )
+                    .register( Registry );
+    }
+}
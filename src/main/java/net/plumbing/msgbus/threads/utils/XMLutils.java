@@ -12,19 +12,21 @@ import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.input.JDOMParseException;
 import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.SAXHandler;
 import org.jdom2.output.XMLOutputter;
 import org.jdom2.output.Format;
 import org.slf4j.Logger;
 
 //import javax.validation.constraints.NotNull;
 import javax.validation.constraints.NotNull;
+import javax.xml.transform.Source;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
-import javax.xml.XMLConstants;
 
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -33,8 +35,6 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.OutputKeys;
 
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
 
 import org.apache.commons.text.StringEscapeUtils;
 
@@ -180,6 +180,56 @@ public class XMLutils {
         return parseResult;
     }
 
+    // То же для заголовка, полученного от HeaderInXSLT деревом ( ConvXMLuseXSLT30toDocument ) - без строки и SAXBuilder
+    public static int Soap_HeaderDocument2messageQueueVO(Document Soap_HeaderDocument, MessageQueueVO messageQueueVO, Logger MessegeSend_Log)
+            throws JDOMException, IOException, XPathExpressionException
+    {
+        int parseResult = makeMessageQueueVO_from_ContextElement( Soap_HeaderDocument.getRootElement(), messageQueueVO, MessegeSend_Log  );
+        MessegeSend_Log.warn("[{}] Soap_HeaderDocument2messageQueueVO: {}", messageQueueVO.getQueue_Id(), messageQueueVO.toSring());
+        return parseResult;
+    }
+
+    // XML_MsgClear деревом Saxon ( TinyTree ) для XSLT, которым раньше отдавалась строка: разбирается один раз на сообщение
+    // и символами ( без getBytes() ), дальше узел подаётся любому XSLT, скомпилированному в XsltExecutableRegistry ( Processor общий ).
+    // Строится именно из строки, а не обходом Input_Clear_XMLDocument: XSLT видят те же узлы, что и раньше ( отступы pretty-формата ),
+    // а SAXOutputter на больших сообщениях даёт втрое больше мусора, чем разбор строки.
+    public static XdmNode getClearXdmNode(MessageDetails messageDetails) throws SaxonApiException
+    {
+        if ( messageDetails.Input_Clear_XdmNode == null )
+            messageDetails.Input_Clear_XdmNode = XsltExecutableRegistry.SharedProcessor.newDocumentBuilder()
+                    .build( new StreamSource(new StringReader(messageDetails.XML_MsgClear.toString())) );
+        return messageDetails.Input_Clear_XdmNode;
+    }
+
+    // Разбор того, что прислал клиент: DOCTYPE запрещён совсем, сущности не раскрываются -
+    // иначе через внешнюю сущность ( XXE ) можно прочитать файл с сервера или сходить из него по сети
+    static SAXBuilder newRequestSAXBuilder() {
+        SAXBuilder documentBuilder = new SAXBuilder();
+        documentBuilder.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        documentBuilder.setExpandEntities(false);
+        return documentBuilder;
+    }
+
+    // Разбор входящего запроса прямо из потока сервлета, в кодировке PropEncoding_In ( как InputStreamReader в контроллере ):
+    // без CharStreams.toString(), склейки конверта и повторного getBytes() в makeClearRequest.
+    // isWrapEnvelope - запрос не SOAP, конверт <Envelope><Header/><Body> добавляется событиями парсера ( EnvelopeWrappingFilter ).
+    // JDOMParseException не выбрасывается, а запоминается - что бы makeClearRequest вернул ту же ошибку клиенту, что и при разборе строки.
+    public static void parseRequestStream(MessageDetails messageDetails, InputStream inputStream, Charset PropEncoding_In,
+                                          boolean isWrapEnvelope)
+            throws JDOMException, IOException
+    {
+        SAXBuilder documentBuilder = newRequestSAXBuilder();
+        if ( isWrapEnvelope )
+            documentBuilder.setXMLFilter( new EnvelopeWrappingFilter() );
+        messageDetails.Input_XMLDocument = null;
+        messageDetails.Input_ParseException = null;
+        try ( Reader reader = new InputStreamReader(inputStream, PropEncoding_In) ) {
+            messageDetails.Input_XMLDocument = documentBuilder.build(reader);
+        } catch (JDOMParseException JDOMe) {
+            messageDetails.Input_ParseException = JDOMe;
+        }
+    }
+
     public static String makeClearRequest(MessageDetails messageDetails,
                                           int MessageTemplateVOkey,
                                           // xlstErrorListener XSLTErrorListener,
@@ -187,15 +237,28 @@ public class XMLutils {
                                           Logger MessegeSend_Log)
             throws JDOMParseException, JDOMException, IOException, XPathExpressionException,  SAXParseException, SaxonApiException {
 
-        SAXBuilder documentBuilder = new SAXBuilder();
+        SAXBuilder documentBuilder = newRequestSAXBuilder();
         //DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        InputStream parsedConfigStream = new ByteArrayInputStream(messageDetails.XML_MsgInput.getBytes(StandardCharsets.UTF_8));
         Document document = null;
-        try {
-            document = documentBuilder.build(parsedConfigStream); // .parse(parsedConfigStream);
-        } catch (JDOMParseException JDOMe) {
-            MessegeSend_Log.error("makeClearRequest: documentBuilder.build (" + messageDetails.XML_MsgInput + ")fault");
-            throw new JDOMParseException(JDOMe.getMessage() + ": makeClearRequest=(" + messageDetails.XML_MsgInput + ")", JDOMe);
+        if ( messageDetails.Input_XMLDocument != null ) {
+            // запрос уже разобран контроллером прямо из потока ( parseRequestStream ), XML_MsgInput не заполнен
+            document = messageDetails.Input_XMLDocument;
+            messageDetails.Input_XMLDocument = null;
+        }
+        else if ( messageDetails.Input_ParseException != null ) {
+            JDOMParseException JDOMe = messageDetails.Input_ParseException;
+            messageDetails.Input_ParseException = null;
+            MessegeSend_Log.error("makeClearRequest: documentBuilder.build (поток запроса) fault: {}", JDOMe.getMessage());
+            throw new JDOMParseException(JDOMe.getMessage() + ": makeClearRequest=(поток запроса)", JDOMe);
+        }
+        else {
+            InputStream parsedConfigStream = new ByteArrayInputStream(messageDetails.XML_MsgInput.getBytes(StandardCharsets.UTF_8));
+            try {
+                document = documentBuilder.build(parsedConfigStream); // .parse(parsedConfigStream);
+            } catch (JDOMParseException JDOMe) {
+                MessegeSend_Log.error("makeClearRequest: documentBuilder.build (" + messageDetails.XML_MsgInput + ")fault");
+                throw new JDOMParseException(JDOMe.getMessage() + ": makeClearRequest=(" + messageDetails.XML_MsgInput + ")", JDOMe);
+            }
         }
 
         // 1й проход - очищаем входной XML от Ns:
@@ -215,35 +278,34 @@ public class XMLutils {
         //  MessegeSend_Log.warn("Парсим, 1й проход: XML_MsgClear= [" + messageDetails.XML_MsgClear.toString() + "]"  );
 
 
+        Document ClearDocument = null;
         if (MessageTemplateVOkey >= 0) {
             String pEnvelopeInXSLT;
             pEnvelopeInXSLT = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getEnvelopeInXSLT();
 
             if ((pEnvelopeInXSLT != null) && (!pEnvelopeInXSLT.isEmpty())) {
                 //    в интерфейсном шаблоне обозначено преобразование, которое надо исполнить над XML_MsgClear
-                Processor xslt30Processor = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getEnvelopeInXSLT_processor();
-                XsltCompiler XsltCompiler = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getEnvelopeInXSLT_xsltCompiler();
                 Xslt30Transformer Xslt30Transformer = MessageTemplate.AllMessageTemplate.get(MessageTemplateVOkey).getEnvelopeInXSLT_xslt30Transformer();
 
                 ConvXMLuseXSLTerr.setLength(0);
                 ConvXMLuseXSLTerr.trimToSize();
-
-                messageDetails.XML_MsgConfirmation.append(
-                        XMLutils.ConvXMLuseXSLT30(-1L,
-                                messageDetails.XML_MsgClear.toString(),
-                                xslt30Processor, XsltCompiler, Xslt30Transformer,
+                // результат EnvelopeInXSLT получаем сразу деревом - это и есть документ 2го прохода,
+                // без строки в XML_MsgConfirmation и её повторного разбора
+                ClearDocument =
+                        XMLutils.ConvXMLuseXSLT30toDocument(-1L,
+                                new StreamSource(new StringReader(messageDetails.XML_MsgClear.toString())),
+                                Xslt30Transformer,
                                 pEnvelopeInXSLT,
                                 messageDetails.MsgReason,
                                 ConvXMLuseXSLTerr,
                                 MessegeSend_Log,
                                 isDebugged
-                        )
-                        //.substring(XMLchars.xml_xml.length()) // НЕ берем после <?xml version="1.0" encoding="UTF-8"?>, Property.OMIT_XML_DECLARATION = "yes"
-                );
+                        );
                 if (isDebugged)
-                    MessegeSend_Log.info("ProcessInputMessage(makeClearRequest): после XSLT={" + messageDetails.XML_MsgConfirmation.toString() + "}");
+                    MessegeSend_Log.info("ProcessInputMessage(makeClearRequest): после XSLT={" +
+                            ( ClearDocument == null ? XMLchars.nanXSLT_Result : new XMLOutputter().outputString(ClearDocument.getRootElement()) ) + "}");
 
-                if (messageDetails.XML_MsgConfirmation.toString().equals(XMLchars.nanXSLT_Result)) {
+                if (ClearDocument == null) {
                     if (isDebugged)
                         MessegeSend_Log.error("В результате XSLT преобразования (`" + messageDetails.XML_MsgClear.toString() + "`)получен пустой XML для заголовка сообщения");
                     messageDetails.MsgReason.append("В результате XSLT преобразования очищенного от 'ns:' (`")
@@ -251,30 +313,6 @@ public class XMLutils {
                             .append("...`)получен пустой XML для заголовка сообщения");
                     throw new SaxonApiException(messageDetails.MsgReason.toString());
                 }
-                // Всё ок, записываем в  XML_MsgClear результат из  XML_MsgConfirmation
-                messageDetails.XML_MsgClear.setLength(0);
-                messageDetails.XML_MsgClear.trimToSize();
-
-                messageDetails.XML_MsgClear.append(messageDetails.XML_MsgConfirmation.toString());
-                // removing invalid xml characters from input string
-                /* изъятие не-XML символов перенесли в получение параметров, что бы не падал парсер xml
-                messageDetails.XML_MsgClear =new  StringBuilder(messageDetails.XML_MsgConfirmation.length() );
-
-                char current; // Used to reference the current character.
-                    for (int i = 0; i < messageDetails.XML_MsgConfirmation.length(); i++) {
-                        current = messageDetails.XML_MsgConfirmation.charAt(i); // NOTE: No IndexOutOfBoundsException caught here; it should not happen.
-                        if ((current == 0x9) ||
-                                (current == 0xA) ||
-                                (current == 0xD) ||
-                                ((current >= 0x20) && (current <= 0xD7FF)) ||
-                                ((current >= 0xE000) && (current <= 0xFFFD)) ||
-                                ((current >= 0x10000) && (current <= 0x10FFFF)))
-                            messageDetails.XML_MsgClear.append(current);
-                    }
-               */
-                // очищаем использованный XML_MsgConfirmation
-                messageDetails.XML_MsgConfirmation.setLength(0);
-                messageDetails.XML_MsgConfirmation.trimToSize();
             } else {
                 if (isDebugged)
                     MessegeSend_Log.info("ProcessInputMessage(makeClearRequest): EnvelopeInXSLT is NULL");
@@ -284,15 +322,17 @@ public class XMLutils {
         // 2й проход - получаем элемент Context из заголовка ( если есть )
         //  MessegeSend_Log.warn("2й проход - получаем элемент Context из заголовка ( если есть ) InputStreamReader to messageDetails.XML_MsgClear[" +  messageDetails.XML_MsgClear + "]");
 
-        try ( InputStream parsedXML_MsgClearStream = new ByteArrayInputStream(messageDetails.XML_MsgClear.toString().getBytes(StandardCharsets.UTF_8)) )
+        if ( ClearDocument == null ) // EnvelopeInXSLT не было - разбираем очищенный от ns: XML_MsgClear
+        try ( Reader parsedXML_MsgClearReader = new StringReader(messageDetails.XML_MsgClear.toString()) )
         {
-            messageDetails.Input_Clear_XMLDocument  =  documentBuilder.build(parsedXML_MsgClearStream); // .parse(parsedConfigStream);
+            ClearDocument  =  documentBuilder.build(parsedXML_MsgClearReader); // .parse(parsedConfigStream);
         }
         catch ( JDOMParseException e)
         {
             MessegeSend_Log.error("documentBuilder.build {" + messageDetails.XML_MsgClear.toString() + "} fault :" + e.getMessage() );
             throw new JDOMParseException("client.post, 2й проход - получаем элемент Context из заголовка ( если есть ) :getClearRequest=(" + messageDetails.XML_MsgClear.toString() + ")", e);
         }
+        messageDetails.Input_Clear_XMLDocument = ClearDocument;
 
         SoapEnvelope = messageDetails.Input_Clear_XMLDocument.getRootElement();
         boolean isSoapBodyFinded = false;
@@ -346,6 +386,7 @@ public class XMLutils {
         xmlOutputter.setFormat(Format.getPrettyFormat());
         messageDetails.XML_MsgClear.setLength(0); messageDetails.XML_MsgClear.trimToSize();
         messageDetails.XML_MsgClear.append(xmlOutputter.outputString(messageDetails.Input_Clear_XMLDocument));
+        messageDetails.Input_Clear_XdmNode = null; // дерево для XSLT строится заново из нового XML_MsgClear
         return messageDetails.XML_MsgClear.toString();
     }
 
@@ -457,6 +498,7 @@ public class XMLutils {
         xmlOutputter.setFormat(Format.getPrettyFormat());
         messageDetails.XML_MsgClear.setLength(0); messageDetails.XML_MsgClear.trimToSize();
         messageDetails.XML_MsgClear.append(xmlOutputter.outputString(messageDetails.Input_Clear_XMLDocument));
+        messageDetails.Input_Clear_XdmNode = null; // дерево для XSLT строится заново из нового XML_MsgClear
         return messageDetails.XML_MsgClear.toString();
     }
 
@@ -624,6 +666,110 @@ public class XMLutils {
     }
 
 
+    // Вариант ConvXMLuseXSLT30 для шагов, результат которых дальше разбирается как XML ( EnvelopeInXSLT, HeaderInXSLT ):
+    // события XSLT идут прямо в JDOM SAXHandler, без сериализации в строку и повторного разбора SAXBuilder-ом.
+    // xmlSource - getClearXdmNode(..).asSource() уже разобранного сообщения или StreamSource над строкой.
+    // null - пустой результат, то же, что XMLchars.nanXSLT_Result у строкового варианта.
+    // Стиль с xsl:output method="text" ( "json", ... ) дерево не строит - для него результат идёт через строку, см. ConvXMLuseXSLT30viaString.
+    public static Document ConvXMLuseXSLT30toDocument(@NotNull Long QueueId, @NotNull Source xmlSource,
+                                                      Xslt30Transformer xslt30Transformer,
+                                                      @NotNull String checkXSLTtext, StringBuilder MsgResult,
+                                                      StringBuilder ConvXMLuseXSLTerr,
+                                                      Logger MessageSend_Log, boolean IsDebugged )
+            throws SaxonApiException
+    {
+        ConvXMLuseXSLTerr.setLength(0); ConvXMLuseXSLTerr.trimToSize();
+        MsgResult.setLength(0); MsgResult.trimToSize();
+
+        if ( (checkXSLTtext != null) && ( !checkXSLTtext.isEmpty() ) &&
+                (xslt30Transformer == null) // проверяем, получилось ли из проверяемого XSLT скомпилировать xslt30Transformer на этапе загрузки
+        ) {
+            ConvXMLuseXSLTerr.append(" ConvXMLuseXSLT30toDocument: length XSLTtext 4 transform is NOT NULL and XSLTtext is NOT Empty, but xslt30Transformer == null");
+            MessageSend_Log.error("[{}] {}", QueueId, ConvXMLuseXSLTerr );
+
+            MsgResult.append("ConvXMLuseXSLT30toDocument:").append(ConvXMLuseXSLTerr);
+            return null;
+        }
+        if ( !isXmlOutput(xslt30Transformer) )
+            return ConvXMLuseXSLT30viaString(QueueId, xmlSource, xslt30Transformer, checkXSLTtext, MsgResult, ConvXMLuseXSLTerr, MessageSend_Log, IsDebugged);
+
+        SAXHandler resultHandler = new SAXHandler();
+        try {
+            long transformStart = System.nanoTime();
+            xslt30Transformer.transform( xmlSource, new SAXDestination(resultHandler) );
+            XsltExecutableRegistry.recordTransform(System.nanoTime() - transformStart);
+        }
+        catch ( SaxonApiException exp ) {
+            ConvXMLuseXSLTerr.append( sStackTrace.strInterruptedException(exp));
+            MessageSend_Log.error("[{}] ConvXMLuseXSLT30toDocument.Transformer TransformerException: {}", QueueId, ConvXMLuseXSLTerr);
+            if (  !IsDebugged )
+                MessageSend_Log.error("[{}] ConvXMLuseXSLT( XSLT ): {}", QueueId, checkXSLTtext);
+            MsgResult.append( "ConvXMLuseXSLT30.Transformer TransformerException:");  MsgResult.append( ConvXMLuseXSLTerr );
+            throw exp;
+        }
+
+        Document resultDocument = resultHandler.getDocument();
+        if ( !resultDocument.hasRootElement() ) {
+            ConvXMLuseXSLTerr.append(" xTransformer.transform() has no root element");
+            if (IsDebugged)
+                MessageSend_Log.warn("[{}] ConvXMLuseXSLT30toDocument: xTransformer.transform() has no root element", QueueId);
+            return null;
+        }
+        Element resultRoot = resultDocument.getRootElement();
+        if ( resultRoot.getName().equals(XMLchars.nanXSLT_Element)
+             && ( resultRoot.getContentSize() == 0 ) && ( !resultRoot.hasAttributes() ) ) // XSLT сам вернул <nan/>
+            return null;
+        return resultDocument;
+    }
+
+    // method не указан - xml ( html по умолчанию XSLT 2.0+ выбирает только для корня <html>, для конверта это не бывает )
+    static boolean isXmlOutput(Xslt30Transformer xslt30Transformer) {
+        String OutputMethod = xslt30Transformer.getUnderlyingController().getExecutable()
+                                  .getPrimarySerializationProperties().getProperty("method");
+        return ( OutputMethod == null ) || OutputMethod.equals("xml");
+    }
+
+    // Результат сериализуется по xsl:output самого стиля ( method="text" отдаёт разметку, собранную текстом, как есть )
+    // и разбирается SAXBuilder-ом. Не XML в результате ( JSON ) - ошибка разбора, а не пустой XML.
+    private static Document ConvXMLuseXSLT30viaString(Long QueueId, Source xmlSource, Xslt30Transformer xslt30Transformer,
+                                                      String checkXSLTtext, StringBuilder MsgResult, StringBuilder ConvXMLuseXSLTerr,
+                                                      Logger MessageSend_Log, boolean IsDebugged )
+            throws SaxonApiException
+    {
+        StringWriter outputStringWriter = new StringWriter();
+        Serializer outSerializer = xslt30Transformer.newSerializer(outputStringWriter);
+        try {
+            long transformStart = System.nanoTime();
+            xslt30Transformer.transform( xmlSource, outSerializer );
+            XsltExecutableRegistry.recordTransform(System.nanoTime() - transformStart);
+        }
+        catch ( SaxonApiException exp ) {
+            ConvXMLuseXSLTerr.append( sStackTrace.strInterruptedException(exp));
+            MessageSend_Log.error("[{}] ConvXMLuseXSLT30viaString.Transformer TransformerException: {}", QueueId, ConvXMLuseXSLTerr);
+            if (  !IsDebugged )
+                MessageSend_Log.error("[{}] ConvXMLuseXSLT( XSLT ): {}", QueueId, checkXSLTtext);
+            MsgResult.append( "ConvXMLuseXSLT30.Transformer TransformerException:");  MsgResult.append( ConvXMLuseXSLTerr );
+            throw exp;
+        }
+
+        String stringResult_of_XSLT = outputStringWriter.toString().trim();
+        if ( ( stringResult_of_XSLT.length() < XMLchars.EmptyXSLT_Result.length() ) || stringResult_of_XSLT.equals(XMLchars.nanXSLT_Result) ) {
+            ConvXMLuseXSLTerr.append(" length Xtransformer.transform(`").append(stringResult_of_XSLT).append("`) < ").append(XMLchars.EmptyXSLT_Result.length());
+            if (IsDebugged)
+                MessageSend_Log.warn("[{}] ConvXMLuseXSLT30viaString: пустой результат transformer.transform(`{}`)", QueueId, stringResult_of_XSLT);
+            return null;
+        }
+        try ( Reader resultReader = new StringReader(stringResult_of_XSLT) ) {
+            return new SAXBuilder().build(resultReader);
+        }
+        catch ( JDOMException | IOException exp ) {
+            ConvXMLuseXSLTerr.append(" результат XSLT не XML: ").append(exp.getMessage());
+            MessageSend_Log.error("[{}] ConvXMLuseXSLT30viaString: результат XSLT (`{}`) не разбирается как XML: {}", QueueId, stringResult_of_XSLT, exp.getMessage());
+            MsgResult.append("ConvXMLuseXSLT30viaString:").append(ConvXMLuseXSLTerr);
+            throw new SaxonApiException(ConvXMLuseXSLTerr.toString(), exp);
+        }
+    }
+
     public static String ConvXMLuseXSLT30(@NotNull Long QueueId, @NotNull String XMLdata_4_Tranform,
                                           @NotNull Processor xslt30Processor, @NotNull XsltCompiler xslt30Compiler,
                                           @NotNull Xslt30Transformer xslt30Transformer,
@@ -651,25 +797,11 @@ public class XMLutils {
             return XMLchars.EmptyXSLT_Result ;
         }
 
-        ByteArrayInputStream xmlInputStream=null;
-        ByteArrayOutputStream outputByteArrayStream =new ByteArrayOutputStream();
+        // строка читается и пишется символами: без getBytes() на входе и декодирования ByteArrayOutputStream на выходе
+        StringWriter outputStringWriter = new StringWriter(XMLdata_4_Tranform.length() / 2 + 64);
         String stringResult_of_XSLT = XMLchars.EmptyXSLT_Result;
 
-
-        try {
-            xmlInputStream  = new ByteArrayInputStream(XMLdata_4_Tranform.getBytes(StandardCharsets.UTF_8));
-
-        }
-        catch ( Exception exp ) {
-            ConvXMLuseXSLTerr.append(  sStackTrace.strInterruptedException(exp) );
-            exp.printStackTrace();
-            System.err.println( "["+ QueueId  + "] ConvXMLuseXSLT30.ByteArrayInputStream Exception" );
-            MessageSend_Log.error("[{}] Exception: {}", QueueId, ConvXMLuseXSLTerr);
-            MsgResult.append("ConvXMLuseXSLT30:").append(ConvXMLuseXSLTerr);
-            return XMLchars.EmptyXSLT_Result ;
-        }
-
-        xmlStreamSource = new StreamSource(xmlInputStream);
+        xmlStreamSource = new StreamSource(new StringReader(XMLdata_4_Tranform));
         try
         {
             if (IsDebugged)
@@ -679,10 +811,12 @@ public class XMLutils {
             outSerializer.setOutputProperty(Serializer.Property.ENCODING, "utf-8");
             outSerializer.setOutputProperty(Serializer.Property.INDENT, "no");
             outSerializer.setOutputProperty(Serializer.Property.OMIT_XML_DECLARATION, "yes");
-            outSerializer.setOutputStream(outputByteArrayStream);
+            outSerializer.setOutputWriter(outputStringWriter);
+            long transformStart = System.nanoTime();
             xslt30Transformer.transform( xmlStreamSource, outSerializer);
+            XsltExecutableRegistry.recordTransform(System.nanoTime() - transformStart);
 
-            stringResult_of_XSLT = outputByteArrayStream.toString();
+            stringResult_of_XSLT = outputStringWriter.toString();
             if (!stringResult_of_XSLT.isEmpty()) {
                 // System.err.println("result != null, stringResult_of_XSLT:" + stringResult_of_XSLT );
                 if ((stringResult_of_XSLT.charAt(0) == '{') || (stringResult_of_XSLT.charAt(0) == '[')) {
@@ -883,17 +1017,18 @@ public class XMLutils {
 
     public static  boolean TestXMLByXSD(long Queue_Id, String XMLdata_4_Validate, String xsddata, StringBuilder MsgResult,  Logger MessegeSend_Log)// throws Exception
     {
-        Validator valid=null;
-        StreamSource reqwsdl=null, xsdss = null;
-        Schema shm= null;
+        return TestXMLByXSD(Queue_Id, XMLdata_4_Validate, null, xsddata, MsgResult, MessegeSend_Log);
+    }
 
+    // XSDschema - скомпилированный при загрузке шаблона MessageXSD ( getMessageXSD_schema ), на сообщение остаётся только проверка;
+    // null - XSD при загрузке не скомпилировался, берём из XsdSchemaRegistry ( ошибка компиляции уйдёт в MsgResult, как и раньше )
+    public static  boolean TestXMLByXSD(long Queue_Id, String XMLdata_4_Validate, Schema XSDschema, String xsddata, StringBuilder MsgResult,  Logger MessegeSend_Log)
+    {
         try
-        { reqwsdl = new StreamSource(new ByteArrayInputStream(XMLdata_4_Validate.getBytes()));
-            xsdss = new StreamSource(new ByteArrayInputStream(xsddata.getBytes()));
-            shm = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(xsdss);
-            valid =shm.newValidator();
-            valid.validate(reqwsdl);
-
+        {
+            if ( XSDschema == null )
+                XSDschema = XsdSchemaRegistry.compile(xsddata);
+            XsdSchemaRegistry.validate(XSDschema, new StreamSource(new StringReader(XMLdata_4_Validate)));
         }
         catch ( Exception exp ) {
             MessegeSend_Log.error("Exception: " + exp.getMessage());
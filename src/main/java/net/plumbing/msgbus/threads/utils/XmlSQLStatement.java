@@ -508,38 +508,7 @@ public class XmlSQLStatement {
                             if ( SQLStatement_functionORselect.equals( OperTypePipe ) ) // формируем из подготовленной структуры TAG_NUM TAG_ID, TAG_VALUE TAG_PAR_NUM
                             MakeConfirmation4PIPEfunction(rs, messageQueueVO.getQueue_Id(), messageDetails, MessegeSend_Log);
                             if ( SQLStatement_functionORselect.equals( OperTypeSel ) ) // именно SELECT из таблиц когда нет подготовленной структуры TAG_NUM TAG_ID, TAG_VALUE TAG_PAR_NUM
-                            {
-
-                                messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + XMLchars.TagConfirmation + XMLchars.CloseTag // <Confirmation>
-                                                + XMLchars.OpenTag + XMLchars.NameTagFaultResult + XMLchars.CloseTag //  <ResultCode>
-                                                + "0"
-                                                + XMLchars.OpenTag + XMLchars.EndTag + XMLchars.NameTagFaultResult + XMLchars.CloseTag // </ResultCode>
-                                                + XMLchars.OpenTag + XMLchars.TagDetailList + XMLchars.CloseTag //  <DetailList>
-                                        // + XMLchars.OpenTag + XMLchars.EndTag + XMLchars.TagDetailList + XMLchars.CloseTag // не ЗАКРЫВАЕМ  </DetailList>
-                                        //+ XMLchars.OpenTag + XMLchars.EndTag + XMLchars.TagConfirmation + XMLchars.CloseTag // не ЗАКРЫВАЕМ </Confirmation>
-                                );
-                                String ColumnLabel;
-                                while (rs.next()) {
-                                    messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + RowTag + XMLchars.CloseTag //  <ROW>
-                                    );
-                                    num_Rows4Perform += 1;
-                                    for (i = 1; i < ColumnCount + 1; i++) {
-                                        ColumnLabel = toCamelCase( ResultSetMetaData.getColumnLabel(i), "_" );
-                                        messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag);
-                                        messageDetails.XML_MsgConfirmation.append( ColumnLabel); messageDetails.XML_MsgConfirmation.append(XMLchars.CloseTag);
-                                        messageDetails.XML_MsgConfirmation.append( StringEscapeUtils.escapeXml10(rs.getString(i)) )   ;
-                                        messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag); messageDetails.XML_MsgConfirmation.append(XMLchars.EndTag);
-                                        messageDetails.XML_MsgConfirmation.append( ColumnLabel ); messageDetails.XML_MsgConfirmation.append(XMLchars.CloseTag);
-                                    }
-                                    messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + XMLchars.EndTag + RowTag + XMLchars.CloseTag //  </ROW>
-                                    );
-                                    num_Rows4Perform += 1;
-                                } // Цикл по выборке
-
-                                messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + XMLchars.EndTag + XMLchars.TagDetailList + XMLchars.CloseTag //   </DetailList>
-                                        + XMLchars.OpenTag + XMLchars.EndTag + XMLchars.TagConfirmation + XMLchars.CloseTag // </Confirmation>
-                                );
-                            }
+                                num_Rows4Perform = MakeConfirmation4Select(rs, ResultSetMetaData, messageDetails);
                             rs.close();
                             if (isDebugged)
                              MessegeSend_Log.warn( messageDetails.XML_MsgConfirmation.toString() );
@@ -615,8 +584,8 @@ public class XmlSQLStatement {
 
 /******************** ПОТОМ
         try {
-            theadDataAccess.stmtMsgQueueDet.setLong(1, messageQueueVO.getQueue_Id());
-            ResultSet rs = theadDataAccess.stmtMsgQueueDet.executeQuery();
+            theadDataAccess.getStmtMsgQueueDet().setLong(1, messageQueueVO.getQueue_Id());
+            ResultSet rs = theadDataAccess.getStmtMsgQueueDet().executeQuery();
             while (rs.next()) {
                 MessageDetailVO messageDetailVO = new MessageDetailVO();
                 messageDetailVO.setMessageQueue(
@@ -639,6 +608,41 @@ public class XmlSQLStatement {
         return nn;
     }
 
+    // <Confirmation><ResultCode>0</ResultCode><DetailList><Record>..</Record>..</DetailList></Confirmation> из выборки SELECT,
+    // колонка - элемент с именем ColumnLabel в CamelCase
+    static int MakeConfirmation4Select(ResultSet rs, ResultSetMetaData ResultSetMetaData, MessageDetails messageDetails) throws SQLException {
+        int ColumnCount = ResultSetMetaData.getColumnCount();
+        int num_Rows4Perform = 0;
+        messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + XMLchars.TagConfirmation + XMLchars.CloseTag // <Confirmation>
+                        + XMLchars.OpenTag + XMLchars.NameTagFaultResult + XMLchars.CloseTag //  <ResultCode>
+                        + "0"
+                        + XMLchars.OpenTag + XMLchars.EndTag + XMLchars.NameTagFaultResult + XMLchars.CloseTag // </ResultCode>
+                        + XMLchars.OpenTag + XMLchars.TagDetailList + XMLchars.CloseTag //  <DetailList>
+        );
+        String ColumnLabel;
+        while (rs.next()) {
+            messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + RowTag + XMLchars.CloseTag //  <ROW>
+            );
+            num_Rows4Perform += 1;
+            for (int i = 1; i < ColumnCount + 1; i++) {
+                ColumnLabel = toCamelCase( ResultSetMetaData.getColumnLabel(i), "_" );
+                messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag);
+                messageDetails.XML_MsgConfirmation.append( ColumnLabel); messageDetails.XML_MsgConfirmation.append(XMLchars.CloseTag);
+                messageDetails.XML_MsgConfirmation.append( StringEscapeUtils.escapeXml10(rs.getString(i)) )   ;
+                messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag); messageDetails.XML_MsgConfirmation.append(XMLchars.EndTag);
+                messageDetails.XML_MsgConfirmation.append( ColumnLabel ); messageDetails.XML_MsgConfirmation.append(XMLchars.CloseTag);
+            }
+            messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + XMLchars.EndTag + RowTag + XMLchars.CloseTag //  </ROW>
+            );
+            num_Rows4Perform += 1;
+        } // Цикл по выборке
+
+        messageDetails.XML_MsgConfirmation.append(XMLchars.OpenTag + XMLchars.EndTag + XMLchars.TagDetailList + XMLchars.CloseTag //   </DetailList>
+                + XMLchars.OpenTag + XMLchars.EndTag + XMLchars.TagConfirmation + XMLchars.CloseTag // </Confirmation>
+        );
+        return num_Rows4Perform;
+    }
+
     private static int MakeConfirmation4PIPEfunction(ResultSet rs, long Queue_Id, MessageDetails messageDetails,  Logger MessegeReceive_Log) {
 
         messageDetails.Confirmation.clear();
@@ -650,7 +654,6 @@ public class XmlSQLStatement {
         try {
             String rTag_Value=null;
             while (rs.next()) {
-                MessageDetailVO messageDetailVO = new MessageDetailVO();
                 rTag_Value = StringEscapeUtils.escapeXml10(rs.getString("Tag_Value") );
 //                MessegeReceive_Log.warn("_MakeConfirmation4PIPEfunction messageChildVO.Tag_Par_Num=" + rs.getInt("Tag_Par_Num") +
 //                        ", messageChildVO.Tag_Num=" + rs.getInt("Tag_Num") +
@@ -658,20 +661,19 @@ public class XmlSQLStatement {
 //                        ", messageChildVO.Tag_Value=" + rTag_Value
 //                );
                 if ( rTag_Value == null )
-                    messageDetailVO.setMessageQueue(
+                    messageDetails.Confirmation.add(
                             rs.getString("Tag_Id"),
                             null,
                             rs.getInt("Tag_Num"),
                             rs.getInt("Tag_Par_Num")
                     );
                 else
-                    messageDetailVO.setMessageQueue(
+                    messageDetails.Confirmation.add(
                             rs.getString("Tag_Id"),
                             StringEscapeUtils.escapeXml10(stripNonValidXMLCharacters(rTag_Value)),
                             rs.getInt("Tag_Num"),
                             rs.getInt("Tag_Par_Num")
                     );
-                messageDetails.Confirmation.put(messageDetails.ConfirmationRowNum, messageDetailVO);
                 messageDetails.ConfirmationRowNum += 1;
                  // MessegeReceive_Log.info( "Tag_Id:" + rs.getString("Tag_Id") + " [" + rs.getString("Tag_Value") + "]");
             }
@@ -856,8 +858,8 @@ public class XmlSQLStatement {
 
 /******************** ПОТОМ
  try {
- theadDataAccess.stmtMsgQueueDet.setLong(1, messageQueueVO.getQueue_Id());
- ResultSet rs = theadDataAccess.stmtMsgQueueDet.executeQuery();
+ theadDataAccess.getStmtMsgQueueDet().setLong(1, messageQueueVO.getQueue_Id());
+ ResultSet rs = theadDataAccess.getStmtMsgQueueDet().executeQuery();
  while (rs.next()) {
  MessageDetailVO messageDetailVO = new MessageDetailVO();
  messageDetailVO.setMessageQueue(
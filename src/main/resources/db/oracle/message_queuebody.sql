@@ -0,0 +1,10 @@
+-- MESSAGE_QueueBody: тело входящего сообщения целиком, сжатое ( MessageBodyStore ), для шаблонов с BodyStorage=compressed.
+-- Выполнить до включения BodyStorage=compressed хотя бы на одном шаблоне.
+-- Схема - как в hermes.hrms-db-schema, при необходимости заменить message_db_schema.
+
+create table message_db_schema.MESSAGE_QueueBody (
+    QUEUE_ID    number not null primary key,
+    BODY_CODEC  varchar2(16) not null,
+    BODY_LENGTH number not null,
+    BODY        blob not null
+);
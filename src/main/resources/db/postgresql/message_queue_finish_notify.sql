@@ -0,0 +1,16 @@
+-- Событие завершения исходящего для QueueFinishListener: pg_notify('hermes_queue_finish', Queue_Id)
+-- при переходе сообщения в ERROUT / ATTOUT / DELOUT.
+-- Выполнить до включения hermes.queue-finish-notify-enabled=true; без триггера QueueFinishListener LISTEN не включает.
+-- Схема - как в hermes.hrms-db-schema, при необходимости заменить message_db_schema.
+
+create or replace function message_db_schema.message_queue_finish_notify() returns trigger language plpgsql as $$
+begin
+  if NEW.Queue_Direction in ('ERROUT', 'ATTOUT', 'DELOUT') and NEW.Queue_Direction is distinct from OLD.Queue_Direction then
+    perform pg_notify('hermes_queue_finish', NEW.Queue_Id::text);
+  end if;
+  return NEW;
+end $$;
+
+drop trigger if exists message_queue_finish_notify on message_db_schema.message_queue;
+create trigger message_queue_finish_notify after update of Queue_Direction on message_db_schema.message_queue
+  for each row execute function message_db_schema.message_queue_finish_notify();
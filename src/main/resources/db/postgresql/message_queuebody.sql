@@ -0,0 +1,10 @@
+-- MESSAGE_QueueBody: тело входящего сообщения целиком, сжатое ( MessageBodyStore ), для шаблонов с BodyStorage=compressed.
+-- Выполнить до включения BodyStorage=compressed хотя бы на одном шаблоне.
+-- Схема - как в hermes.hrms-db-schema, при необходимости заменить message_db_schema.
+
+create table if not exists message_db_schema.message_queuebody (
+    queue_id    bigint not null primary key,
+    body_codec  varchar(16) not null,
+    body_length integer not null,
+    body        bytea not null
+);
@@ -0,0 +1,77 @@
+package net.plumbing.msgbus.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTemplate4PerformTest {
+
+    private static final Logger Log = LoggerFactory.getLogger(MessageTemplate4PerformTest.class);
+
+    private static MessageTemplateVO template(String ConfigExecute) {
+        MessageTemplateVO messageTemplateVO = new MessageTemplateVO();
+        messageTemplateVO.setMessageTemplateVO(500, 10, 101, 0, null, 0, null,
+                null, null, "T500", "IN", "INFO", null, null, null);
+        messageTemplateVO.setConfigExecute(ConfigExecute);
+        return messageTemplateVO;
+    }
+
+    private static MessageDirectionsVO direction(String WSDL_Name) {
+        MessageDirectionsVO messageDirectionsVO = new MessageDirectionsVO();
+        messageDirectionsVO.setMessageDirectionsVO(2, "DST", "", null, WSDL_Name, null, null, 3,
+                null, null, null, null, 200, 1, 3, 10, 5, 60);
+        return messageDirectionsVO;
+    }
+
+    @Test
+    @DisplayName("ConfigExecute is resolved once into typed settings")
+    void testSettings() {
+        MessageTemplateVO messageTemplateVO = template(
+                "encoding_out=windows-1251\nencoding_in=no-such-charset\ndebug=FULL\nshortRetryCount=3\n" +
+                "custom_Fault_Begin=<Error>\ncustom_Fault_End=</Error>\nhost=http://ext\nurl=/api\n");
+        messageTemplateVO.makeMessageTemplate4Perform(Log);
+        MessageTemplate4Perform messageTemplate4Perform = messageTemplateVO.getMessageTemplate4Perform(Log);
+
+        assertSame(messageTemplate4Perform, messageTemplateVO.getMessageTemplate4Perform(Log));
+        assertEquals(Charset.forName("windows-1251"), messageTemplate4Perform.getEncoding_Out());
+        assertEquals(StandardCharsets.UTF_8, messageTemplate4Perform.getEncoding_In());
+        assertTrue(messageTemplate4Perform.getIsDebugged());
+        assertEquals(3, messageTemplate4Perform.getShortRetryCount());
+        assertEquals("<Error>", messageTemplate4Perform.getPropCustomFault_Server_Begin());
+        assertEquals("</Error>", messageTemplate4Perform.getPropCustomFault_Server_End());
+        assertEquals("http://ext/api", messageTemplate4Perform.getEndPointUrl());
+        assertNull(messageTemplate4Perform.getConfigExecute_Fault());
+
+        MessageTemplate4Perform Defaults = template(null).getMessageTemplate4Perform(Log);
+        assertEquals(StandardCharsets.UTF_8, Defaults.getEncoding_Out());
+        assertFalse(Defaults.getIsDebugged());
+        assertEquals("http://no.endpoint.error", Defaults.getEndPointUrl());
+    }
+
+    @Test
+    @DisplayName("Send plan is built once per direction and rebuilt when URL_SOAP_Send changes")
+    void testSendPlans() {
+        MessageTemplateVO messageTemplateVO = template("timeout_read=30\n");
+        MessageDirectionsVO First = direction("http://first");
+        MessageDirectionsVO Second = direction("http://second");
+
+        MessageTemplate4Perform4Send FirstPlan = messageTemplateVO.getMessageTemplate4Perform4Send("/soap", First, Log);
+        assertSame(FirstPlan, messageTemplateVO.getMessageTemplate4Perform4Send("/soap", First, Log));
+        assertEquals("http://first/soap", FirstPlan.getEndPointUrl());
+        assertEquals(Integer.valueOf(30), FirstPlan.getPropTimeout_Read());
+        assertEquals("SOAP", FirstPlan.getType_Connection());
+        assertEquals(3, FirstPlan.getShortRetryCount());
+
+        assertEquals("http://second/soap", messageTemplateVO.getMessageTemplate4Perform4Send("/soap", Second, Log).getEndPointUrl());
+
+        MessageTemplate4Perform4Send ChangedPlan = messageTemplateVO.getMessageTemplate4Perform4Send("/soap2", First, Log);
+        assertNotSame(FirstPlan, ChangedPlan);
+        assertEquals("http://first/soap2", ChangedPlan.getEndPointUrl());
+    }
+}
@@ -0,0 +1,72 @@
+package net.plumbing.msgbus.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTreeTest {
+
+    // <Req><A x="1">a</A><B><C>c</C></B></Req>, как его раскладывает SplitMessage
+    private static MessageTree makeMessage(MessageTree Message) {
+        Message.add("Req", "", 1, 0);
+        Message.add("A", "a", 2, 1);
+        Message.add("x", "1", 0, 2);
+        Message.add("B", null, 3, 1);
+        Message.add("C", "c", 4, 3);
+        return Message;
+    }
+
+    @Test
+    @DisplayName("Rows keep tag id, value and numbers in insertion order")
+    void testRows() {
+        MessageTree Message = makeMessage(new MessageTree());
+
+        assertEquals(5, Message.size());
+        assertEquals("A", Message.getTag_Id(1));
+        assertEquals("a", Message.getTag_Value(1));
+        assertEquals(2, Message.getTag_Num(1));
+        assertEquals(1, Message.getTag_Par_Num(1));
+        assertNull(Message.getTag_Value(3));
+        assertEquals(" ", Message.getTag_ValueOrSpace(3));
+        assertEquals(4, Message.getMaxTag_Num());
+        assertThrows(IndexOutOfBoundsException.class, () -> Message.getTag_Id(5));
+    }
+
+    @Test
+    @DisplayName("Child index lists elements and attributes of a parent in insertion order")
+    void testChildIndex() {
+        MessageTree Message = makeMessage(new MessageTree());
+
+        assertEquals(1, Message.getChildCount(0));
+        assertEquals(0, Message.getChildRow(0, 0));
+        assertEquals(2, Message.getChildCount(1));
+        assertEquals(1, Message.getChildRow(1, 0));
+        assertEquals(3, Message.getChildRow(1, 1));
+        assertEquals(1, Message.getChildCount(2));
+        assertEquals(2, Message.getChildRow(2, 0));
+        assertEquals(0, Message.getChildCount(4));
+        assertEquals(0, Message.getChildCount(100));
+
+        // после add() индекс перестраивается
+        Message.add("D", "d", 5, 1);
+        assertEquals(3, Message.getChildCount(1));
+        assertEquals(5, Message.getChildRow(1, 2));
+    }
+
+    @Test
+    @DisplayName("Cleared tree is reused for the next message")
+    void testClearAndReuse() {
+        MessageTree Message = makeMessage(new MessageTree());
+        Message.clear();
+        assertEquals(0, Message.size());
+        assertEquals(0, Message.getChildCount(1));
+
+        for (int i = 0; i < 1000; i++)
+            Message.add("Tag", Integer.toString(i), i + 1, i == 0 ? 0 : 1);
+        assertEquals(1000, Message.size());
+        assertEquals(999, Message.getChildCount(1));
+        assertEquals("999", Message.getTag_Value(999));
+        assertSame(Message.getTag_Id(1), Message.getTag_Id(999));
+    }
+}
@@ -0,0 +1,44 @@
+package net.plumbing.msgbus.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XsdSchemaRegistryTest {
+
+    private static final String XSD =
+            "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" +
+            "<xs:element name=\"Request\"><xs:complexType><xs:sequence>" +
+            "<xs:element name=\"Id\" type=\"xs:int\"/>" +
+            "</xs:sequence></xs:complexType></xs:element>" +
+            "</xs:schema>";
+
+    @Test
+    @DisplayName("Identical XSD text is compiled once")
+    void testSameTextSameSchema() throws SAXException {
+        Schema First = XsdSchemaRegistry.compile(XSD);
+        assertSame(First, XsdSchemaRegistry.compile(new String(XSD)));
+        assertNotSame(First, XsdSchemaRegistry.compile(XSD.replace("Request", "Other")));
+    }
+
+    @Test
+    @DisplayName("Valid document passes, invalid one throws SAXException")
+    void testValidate() throws Exception {
+        Schema XSDschema = XsdSchemaRegistry.compile(XSD);
+        XsdSchemaRegistry.validate(XSDschema, new StreamSource(new StringReader("<Request><Id>7</Id></Request>")));
+        assertThrows(SAXException.class, () ->
+                XsdSchemaRegistry.validate(XSDschema, new StreamSource(new StringReader("<Request><Id>x</Id></Request>"))));
+    }
+
+    @Test
+    @DisplayName("Broken XSD text is reported as SAXException")
+    void testBrokenXsd() {
+        assertThrows(SAXException.class, () -> XsdSchemaRegistry.compile("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"));
+    }
+}
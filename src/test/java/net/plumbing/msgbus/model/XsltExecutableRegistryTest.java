@@ -0,0 +1,68 @@
+package net.plumbing.msgbus.model;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.Serializer;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XsltExecutableRegistryTest {
+
+    private static final String XSLT =
+            "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+            "<xsl:output omit-xml-declaration=\"yes\"/>" +
+            "<xsl:template match=\"/\"><Out><xsl:value-of select=\"/In\"/></Out></xsl:template>" +
+            "</xsl:stylesheet>";
+
+    private static String transform(XsltExecutable xsltExecutable, String XML) throws SaxonApiException {
+        StringWriter Result = new StringWriter();
+        Serializer outSerializer = XsltExecutableRegistry.SharedProcessor.newSerializer(Result);
+        XsltExecutableRegistry.load30(xsltExecutable).transform(new StreamSource(new StringReader(XML)), outSerializer);
+        return Result.toString();
+    }
+
+    @Test
+    @DisplayName("Identical stylesheet text is compiled once")
+    void testSameTextSameExecutable() throws SaxonApiException {
+        XsltExecutable First = XsltExecutableRegistry.compile(XSLT);
+        assertSame(First, XsltExecutableRegistry.compile(new String(XSLT)));
+        assertNotSame(First, XsltExecutableRegistry.compile(XSLT.replace("Out", "Other")));
+    }
+
+    @Test
+    @DisplayName("Every call gets its own transformer, null executable gives null")
+    void testLoad30() throws SaxonApiException {
+        XsltExecutable xsltExecutable = XsltExecutableRegistry.compile(XSLT);
+        assertNotSame(XsltExecutableRegistry.load30(xsltExecutable), XsltExecutableRegistry.load30(xsltExecutable));
+        assertNull(XsltExecutableRegistry.load30(null));
+    }
+
+    @Test
+    @DisplayName("Concurrent transforms of one stylesheet do not mix results")
+    void testConcurrentTransforms() throws Exception {
+        XsltExecutable xsltExecutable = XsltExecutableRegistry.compile(XSLT);
+        ExecutorService Executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> Results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                String In = "<In>" + i + "</In>";
+                Results.add( Executor.submit(() -> transform(xsltExecutable, In)) );
+            }
+            for (int i = 0; i < Results.size(); i++)
+                assertEquals("<Out>" + i + "</Out>", Results.get(i).get());
+        } finally {
+            Executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.plumbing.msgbus.telegramm;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTest {
+
+    @Test
+    @DisplayName("Similar notifications within the window are sent once plus a summary")
+    void testCoalesce() {
+        NotificationDispatcher Dispatcher = new NotificationDispatcher("test", 100, 60_000L, 0);
+        assertTrue(Dispatcher.offer("Ошибка приёма JMS-сообщения из Q: Q.IN for Interface: 12", 1_000L));
+        assertFalse(Dispatcher.offer("Ошибка приёма JMS-сообщения из Q: Q.IN for Interface: 13", 2_000L));
+        assertFalse(Dispatcher.offer("Ошибка приёма JMS-сообщения из Q: Q.IN for Interface: 14", 3_000L));
+        assertTrue(Dispatcher.offer("DB problem", 3_000L));
+
+        assertEquals("Ошибка приёма JMS-сообщения из Q: Q.IN for Interface: 12", Dispatcher.poll(4_000L));
+        assertEquals("DB problem", Dispatcher.poll(4_000L));
+        assertNull(Dispatcher.poll(4_000L));
+
+        String Summary = Dispatcher.poll(61_000L);
+        assertNotNull(Summary);
+        assertTrue(Summary.startsWith("Ещё 2 похожих за 60 сек.: "));
+        assertTrue(Summary.endsWith("Interface: 12"));
+        assertNull(Dispatcher.poll(70_000L));
+
+        // окно закрыто - следующее похожее снова уходит сразу
+        assertTrue(Dispatcher.offer("Ошибка приёма JMS-сообщения из Q: Q.IN for Interface: 15", 70_000L));
+        assertEquals(NotificationDispatcher.getCoalesceKey("Queue_Id=1 fault"), NotificationDispatcher.getCoalesceKey("Queue_Id=42 fault"));
+    }
+
+    @Test
+    @DisplayName("Rate limit holds notifications, a full queue drops the oldest")
+    void testRateLimitAndDropOldest() {
+        NotificationDispatcher Dispatcher = new NotificationDispatcher("test", 3, 0L, 2);
+        Dispatcher.offer("a", 0L);
+        Dispatcher.offer("b", 0L);
+        Dispatcher.offer("c", 0L);
+        Dispatcher.offer("d", 0L);
+        assertEquals("b", Dispatcher.poll(0L));
+        assertEquals("c", Dispatcher.poll(1_000L));
+        assertNull(Dispatcher.poll(2_000L));
+        assertFalse(Dispatcher.isEmpty());
+        assertEquals("d", Dispatcher.poll(60_000L));
+        assertTrue(Dispatcher.getStatistics().contains("dropped=1"));
+    }
+}
@@ -0,0 +1,37 @@
+package net.plumbing.msgbus.threads;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JMSConsumerSupervisorTest {
+
+    @Test
+    @DisplayName("Backlog in the broker grows consumers up to the direction maximum")
+    void testScaleUpByBacklog() {
+        long ScaleUpBacklog = JMSConsumerSupervisor.ScaleUpBacklog;
+        try {
+            JMSConsumerSupervisor.ScaleUpBacklog = 100L;
+            assertEquals(1, JMSConsumerSupervisor.getTargetConsumers(1, 1, 8, 100L, 0.9));
+            assertEquals(2, JMSConsumerSupervisor.getTargetConsumers(1, 1, 8, 101L, 0.1));
+            assertEquals(5, JMSConsumerSupervisor.getTargetConsumers(2, 1, 8, 450L, 0.5));
+            assertEquals(8, JMSConsumerSupervisor.getTargetConsumers(2, 1, 8, 100_000L, 0.5));
+            assertEquals(8, JMSConsumerSupervisor.getTargetConsumers(8, 1, 8, 100_000L, 1.0));
+        } finally {
+            JMSConsumerSupervisor.ScaleUpBacklog = ScaleUpBacklog;
+        }
+    }
+
+    @Test
+    @DisplayName("Without broker statistics consumers follow their utilization, one step at a time")
+    void testScaleByUtilization() {
+        assertEquals(4, JMSConsumerSupervisor.getTargetConsumers(3, 1, 8, -1L, 0.95));
+        assertEquals(3, JMSConsumerSupervisor.getTargetConsumers(3, 1, 8, -1L, 0.5));
+        assertEquals(2, JMSConsumerSupervisor.getTargetConsumers(3, 1, 8, -1L, 0.05));
+        assertEquals(2, JMSConsumerSupervisor.getTargetConsumers(3, 1, 8, 0L, 0.05));
+        // очередь не пуста - не уменьшаем, даже если читатели простаивают
+        assertEquals(3, JMSConsumerSupervisor.getTargetConsumers(3, 1, 8, 50L, 0.05));
+        assertEquals(2, JMSConsumerSupervisor.getTargetConsumers(2, 2, 8, 0L, 0.0));
+    }
+}
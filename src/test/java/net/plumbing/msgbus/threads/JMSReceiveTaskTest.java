@@ -0,0 +1,39 @@
+package net.plumbing.msgbus.threads;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JMSReceiveTaskTest {
+
+    @Test
+    @DisplayName("Messages stored before a batch rollback are skipped once when redelivered")
+    void testStoredMessagesSkippedOnRedelivery() {
+        JMSReceiveTask.StoredRedeliveryFilter StoredNotAcknowledged = new JMSReceiveTask.StoredRedeliveryFilter();
+        // пачка: ID:1 и ID:2 сохранены, третье не сохранилось - откат
+        StoredNotAcknowledged.addAll(List.of("ID:1", "ID:2"), 50);
+
+        assertTrue(StoredNotAcknowledged.remove("ID:1"));
+        assertTrue(StoredNotAcknowledged.remove("ID:2"));
+        // несохранённое обрабатывается при повторной доставке как обычно
+        assertFalse(StoredNotAcknowledged.remove("ID:3"));
+        // и каждое пропускается только один раз
+        assertFalse(StoredNotAcknowledged.remove("ID:1"));
+        assertFalse(StoredNotAcknowledged.remove(null));
+    }
+
+    @Test
+    @DisplayName("IDs that never come back are evicted after a few batches")
+    void testStoredMessagesBounded() {
+        JMSReceiveTask.StoredRedeliveryFilter StoredNotAcknowledged = new JMSReceiveTask.StoredRedeliveryFilter();
+        for (int i = 0; i < 10; i++)
+            StoredNotAcknowledged.addAll(List.of("ID:" + i + ":1", "ID:" + i + ":2"), 2);
+
+        assertEquals(8, StoredNotAcknowledged.size());
+        assertFalse(StoredNotAcknowledged.remove("ID:0:1"));
+        assertTrue(StoredNotAcknowledged.remove("ID:9:2"));
+    }
+}
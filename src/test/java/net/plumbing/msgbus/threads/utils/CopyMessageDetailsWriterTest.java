@@ -0,0 +1,37 @@
+package net.plumbing.msgbus.threads.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopyMessageDetailsWriterTest {
+
+    private static String escape(String Value) {
+        StringBuilder RowBuffer = new StringBuilder();
+        CopyMessageDetailsWriter.appendCopyValue(RowBuffer, Value);
+        return RowBuffer.toString();
+    }
+
+    @Test
+    @DisplayName("Plain values are written as is")
+    void testPlainValue() {
+        assertEquals("abc 123 <x/>", escape("abc 123 <x/>"));
+        assertEquals("", escape(""));
+    }
+
+    @Test
+    @DisplayName("Null is written as \\N")
+    void testNullValue() {
+        assertEquals("\\N", escape(null));
+    }
+
+    @Test
+    @DisplayName("Backslash, tab, LF and CR are escaped for COPY text format")
+    void testSpecialCharacters() {
+        assertEquals("a\\\\b", escape("a\\b"));
+        assertEquals("a\\tb", escape("a\tb"));
+        assertEquals("line1\\nline2\\r", escape("line1\nline2\r"));
+        assertEquals("\\\\N", escape("\\N"));
+    }
+}
@@ -0,0 +1,120 @@
+package net.plumbing.msgbus.threads.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DestinationCircuitBreakerTest {
+
+    private int FailureThreshold;
+    private long OpenMillis;
+    private long BulkheadWaitMillis;
+    private int MaxRequestsPerDestination;
+
+    @BeforeEach
+    void setUp() {
+        FailureThreshold = DestinationCircuitBreaker.FailureThreshold;
+        OpenMillis = DestinationCircuitBreaker.OpenMillis;
+        BulkheadWaitMillis = DestinationCircuitBreaker.BulkheadWaitMillis;
+        MaxRequestsPerDestination = HttpClientRegistry.MaxRequestsPerDestination;
+        DestinationCircuitBreaker.FailureThreshold = 3;
+        DestinationCircuitBreaker.OpenMillis = 60_000L;
+        DestinationCircuitBreaker.BulkheadWaitMillis = 10L;
+    }
+
+    @AfterEach
+    void tearDown() {
+        DestinationCircuitBreaker.FailureThreshold = FailureThreshold;
+        DestinationCircuitBreaker.OpenMillis = OpenMillis;
+        DestinationCircuitBreaker.BulkheadWaitMillis = BulkheadWaitMillis;
+        HttpClientRegistry.MaxRequestsPerDestination = MaxRequestsPerDestination;
+    }
+
+    private static void fail(DestinationCircuitBreaker Breaker) throws Exception {
+        Breaker.release(Breaker.acquire(), false);
+    }
+
+    @Test
+    @DisplayName("Consecutive failures open the breaker, a trial request closes it")
+    void testOpenAndClose() throws Exception {
+        DestinationCircuitBreaker Breaker = DestinationCircuitBreaker.forDestination("http://cb-open:80");
+        assertSame(Breaker, DestinationCircuitBreaker.forDestination("http://cb-open:80"));
+
+        fail(Breaker);
+        Breaker.release(Breaker.acquire(), true); // успех обнуляет счётчик
+        fail(Breaker);
+        fail(Breaker);
+        assertEquals(DestinationCircuitBreaker.State.CLOSED, Breaker.getState());
+        fail(Breaker);
+        assertEquals(DestinationCircuitBreaker.State.OPEN, Breaker.getState());
+        assertThrows(DestinationCircuitBreaker.DestinationUnavailableException.class, Breaker::acquire);
+
+        DestinationCircuitBreaker.OpenMillis = 0L;
+        boolean isTrial = Breaker.acquire();
+        assertTrue(isTrial);
+        assertEquals(DestinationCircuitBreaker.State.HALF_OPEN, Breaker.getState());
+        assertThrows(DestinationCircuitBreaker.DestinationUnavailableException.class, Breaker::acquire);
+        Breaker.release(isTrial, false);
+        assertEquals(DestinationCircuitBreaker.State.OPEN, Breaker.getState());
+
+        isTrial = Breaker.acquire();
+        Breaker.release(isTrial, true);
+        assertEquals(DestinationCircuitBreaker.State.CLOSED, Breaker.getState());
+        assertEquals(2, Breaker.getOpenedCount());
+        assertEquals(0, Breaker.getInFlight());
+        assertTrue(DestinationCircuitBreaker.getStatistics().contains("http://cb-open:80 state=CLOSED"));
+    }
+
+    @Test
+    @DisplayName("Bulkhead rejects requests above the per-destination limit")
+    void testBulkhead() throws Exception {
+        HttpClientRegistry.MaxRequestsPerDestination = 2;
+        DestinationCircuitBreaker Breaker = DestinationCircuitBreaker.forDestination("http://cb-bulkhead:80");
+        boolean First = Breaker.acquire();
+        boolean Second = Breaker.acquire();
+        assertThrows(DestinationCircuitBreaker.DestinationUnavailableException.class, Breaker::acquire);
+        assertEquals(1, Breaker.getRejectedCount());
+        Breaker.release(First, null);
+        Breaker.release(Breaker.acquire(), true);
+        Breaker.release(Second, true);
+        assertEquals(DestinationCircuitBreaker.State.CLOSED, Breaker.getState());
+    }
+
+    @Test
+    @DisplayName("Async waiter gets the released permit or is rejected after the bulkhead wait")
+    void testBulkheadAsync() throws Exception {
+        HttpClientRegistry.MaxRequestsPerDestination = 1;
+        DestinationCircuitBreaker.BulkheadWaitMillis = 5_000L;
+        DestinationCircuitBreaker Breaker = DestinationCircuitBreaker.forDestination("http://cb-bulkhead-async:80");
+        boolean First = Breaker.acquireAsync().get();
+        CompletableFuture<Boolean> Waiter = Breaker.acquireAsync();
+        assertFalse(Waiter.isDone());
+        Breaker.release(First, true);
+        assertFalse(Waiter.get(1, TimeUnit.SECONDS));
+        assertEquals(1, Breaker.getInFlight());
+
+        DestinationCircuitBreaker.BulkheadWaitMillis = 10L;
+        CompletableFuture<Boolean> Rejected = Breaker.acquireAsync();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> Rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(DestinationCircuitBreaker.DestinationUnavailableException.class, e.getCause());
+        Breaker.release(false, true);
+        assertEquals(0, Breaker.getInFlight());
+        assertEquals(1, Breaker.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Only overload statuses count as failures")
+    void testFailureStatus() {
+        assertTrue(DestinationCircuitBreaker.isFailureStatus(503));
+        assertTrue(DestinationCircuitBreaker.isFailureStatus(429));
+        assertFalse(DestinationCircuitBreaker.isFailureStatus(500));
+        assertFalse(DestinationCircuitBreaker.isFailureStatus(200));
+    }
+}
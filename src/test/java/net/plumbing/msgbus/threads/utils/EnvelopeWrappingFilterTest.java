@@ -0,0 +1,86 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.common.XMLchars;
+import net.plumbing.msgbus.model.MessageDetails;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.XMLOutputter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvelopeWrappingFilterTest {
+
+    private static final String Request = "<Request a=\"1\"><Tag>значение &amp; x</Tag><Empty/></Request>";
+
+    // как раньше в PostController: конверт склеивается строкой
+    private static String envelopeAsString(String XML_Body) throws JDOMException, IOException {
+        String XML_MsgInput = XMLchars.Envelope_noNS_Begin + XMLchars.Header_noNS_Begin + XMLchars.Header_noNS_End
+                + XMLchars.Body_noNS_Begin + XML_Body + XMLchars.Body_noNS_End + XMLchars.Envelope_noNS_End;
+        return new XMLOutputter().outputString( new SAXBuilder().build(new StringReader(XML_MsgInput)) );
+    }
+
+    private static MessageDetails parse(String XML_Body, Charset PropEncoding_In, boolean isWrapEnvelope)
+            throws JDOMException, IOException {
+        MessageDetails Message = new MessageDetails();
+        XMLutils.parseRequestStream(Message, new ByteArrayInputStream(XML_Body.getBytes(PropEncoding_In)), PropEncoding_In, isWrapEnvelope);
+        return Message;
+    }
+
+    @Test
+    @DisplayName("Envelope synthesized by the filter matches the concatenated one")
+    void testWrappedEnvelope() throws JDOMException, IOException {
+        MessageDetails Message = parse(Request, StandardCharsets.UTF_8, true);
+        assertNull(Message.Input_ParseException);
+        assertEquals(envelopeAsString(Request), new XMLOutputter().outputString(Message.Input_XMLDocument));
+    }
+
+    @Test
+    @DisplayName("XML declaration and PropEncoding_In are handled by the parser")
+    void testDeclarationAndEncoding() throws JDOMException, IOException {
+        Charset Windows1251 = Charset.forName("windows-1251");
+        MessageDetails Message = parse("<?xml version=\"1.0\"?>" + Request, Windows1251, true);
+        assertEquals(envelopeAsString(Request), new XMLOutputter().outputString(Message.Input_XMLDocument));
+    }
+
+    @Test
+    @DisplayName("SOAP envelope is parsed as is")
+    void testSoapEnvelope() throws JDOMException, IOException {
+        String Soap = "<env:Envelope xmlns:env=\"http://schemas.xmlsoap.org/soap/envelope/\"><env:Body>" + Request + "</env:Body></env:Envelope>";
+        MessageDetails Message = parse(Soap, StandardCharsets.UTF_8, false);
+        assertEquals(XMLchars.Envelope, Message.Input_XMLDocument.getRootElement().getName());
+        assertEquals(1, Message.Input_XMLDocument.getRootElement().getChildren().size());
+    }
+
+    @Test
+    @DisplayName("Malformed request is kept for makeClearRequest")
+    void testMalformedRequest() throws JDOMException, IOException {
+        MessageDetails Message = parse("<Request><Tag></Request>", StandardCharsets.UTF_8, true);
+        assertNull(Message.Input_XMLDocument);
+        assertNotNull(Message.Input_ParseException);
+    }
+
+    @Test
+    @DisplayName("DOCTYPE with an external entity is rejected, the file is never read")
+    void testExternalEntityRejected() throws JDOMException, IOException {
+        java.nio.file.Path Secret = java.nio.file.Files.createTempFile("xxe", ".txt");
+        try {
+            java.nio.file.Files.writeString(Secret, "secret");
+            String Xxe = "<?xml version=\"1.0\"?><!DOCTYPE Request [<!ENTITY xxe SYSTEM \"" + Secret.toUri() + "\">]>"
+                    + "<Request><Tag>&xxe;</Tag></Request>";
+            MessageDetails Message = parse(Xxe, StandardCharsets.UTF_8, true);
+            assertNull(Message.Input_XMLDocument);
+            assertNotNull(Message.Input_ParseException);
+            assertTrue(Message.Input_ParseException.getMessage().contains("DOCTYPE"), Message.Input_ParseException.getMessage());
+        } finally {
+            java.nio.file.Files.delete(Secret);
+        }
+    }
+}
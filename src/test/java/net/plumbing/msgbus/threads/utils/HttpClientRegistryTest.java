@@ -0,0 +1,91 @@
+package net.plumbing.msgbus.threads.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientRegistryTest {
+
+    private static final Logger Log = LoggerFactory.getLogger(HttpClientRegistryTest.class);
+
+    private static Authenticator authenticator(String User, String Pswd) {
+        return new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(User, Pswd.toCharArray());
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("One client per destination, credentials and connect timeout")
+    void testClientKey() {
+        HttpClient First = HttpClientRegistry.getHttpClient("http://key-host:8080/a?x=1", null, "u", "p", 5);
+        assertSame(First, HttpClientRegistry.getHttpClient("HTTP://KEY-HOST:8080/b", null, null, null, 5));
+        assertNotSame(First, HttpClientRegistry.getHttpClient("http://key-host:8081/a", null, null, null, 5));
+        assertNotSame(First, HttpClientRegistry.getHttpClient("http://key-host:8080/a", null, null, null, 10));
+
+        HttpClient WithUser = HttpClientRegistry.getHttpClient("http://key-host:8080/a", authenticator("u", "p"), "u", "p", 5);
+        assertNotSame(First, WithUser);
+        assertSame(WithUser, HttpClientRegistry.getHttpClient("http://key-host:8080/c", authenticator("u", "p"), "u", "p", 5));
+        assertNotSame(WithUser, HttpClientRegistry.getHttpClient("http://key-host:8080/a", authenticator("u2", "p"), "u2", "p", 5));
+
+        assertEquals("https://key-host:443", HttpClientRegistry.getDestination("https://Key-Host/soap"));
+    }
+
+    @Test
+    @DisplayName("close() keeps the shared client usable, idle clients are evicted")
+    void testCloseAndEvict() throws Exception {
+        AtomicInteger Requests = new AtomicInteger(0);
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/", exchange -> {
+            Requests.incrementAndGet();
+            byte[] Body = "OK".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, Body.length);
+            exchange.getResponseBody().write(Body);
+            exchange.close();
+        });
+        httpServer.start();
+        long IdleEvictMillis = HttpClientRegistry.IdleEvictMillis;
+        try {
+            String EndPointUrl = "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/ping";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(EndPointUrl)).GET().build();
+
+            HttpClient ApiRestHttpClient = HttpClientRegistry.getHttpClient(EndPointUrl, null, null, null, 5);
+            assertEquals("OK", ApiRestHttpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+            ApiRestHttpClient.close();
+
+            HttpClient Again = HttpClientRegistry.getHttpClient(EndPointUrl, null, null, null, 5);
+            assertSame(ApiRestHttpClient, Again);
+            assertEquals("OK", Again.sendAsync(request, HttpResponse.BodyHandlers.ofString()).get().body());
+            assertEquals(2, Requests.get());
+
+            HttpClientRegistry.IdleEvictMillis = 60_000L;
+            HttpClientRegistry.evictIdleClients(Log);
+            assertSame(Again, HttpClientRegistry.getHttpClient(EndPointUrl, null, null, null, 5));
+
+            HttpClientRegistry.IdleEvictMillis = -1L;
+            assertTrue(HttpClientRegistry.evictIdleClients(Log) > 0);
+            HttpClient Fresh = HttpClientRegistry.getHttpClient(EndPointUrl, null, null, null, 5);
+            assertNotSame(Again, Fresh);
+            assertEquals("OK", Fresh.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        } finally {
+            HttpClientRegistry.IdleEvictMillis = IdleEvictMillis;
+            httpServer.stop(0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageBodyStoreTest {
+
+    @Test
+    @DisplayName("Compressed body is restored byte for byte")
+    void testRoundTrip() throws DataFormatException {
+        String XML_Body = "<Request>" + "<Tag>значение \\ \t &amp; x</Tag>".repeat(2000) + "</Request>";
+        byte[] Body = XML_Body.getBytes(StandardCharsets.UTF_8);
+
+        byte[] CompressedBody = MessageBodyStore.compress(Body);
+
+        assertTrue(CompressedBody.length < Body.length / 10);
+        assertEquals(XML_Body, new String(MessageBodyStore.decompress(CompressedBody, Body.length), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Empty body round trip")
+    void testEmptyBody() throws DataFormatException {
+        byte[] CompressedBody = MessageBodyStore.compress(new byte[0]);
+        assertEquals(0, MessageBodyStore.decompress(CompressedBody, 0).length);
+    }
+
+    @Test
+    @DisplayName("Truncated or mismatched body is rejected")
+    void testDamagedBody() {
+        byte[] Body = "<Request><Tag>1</Tag></Request>".repeat(500).getBytes(StandardCharsets.UTF_8);
+        byte[] CompressedBody = MessageBodyStore.compress(Body);
+
+        assertThrows(DataFormatException.class,
+                () -> MessageBodyStore.decompress(Arrays.copyOf(CompressedBody, CompressedBody.length / 2), Body.length));
+        assertThrows(DataFormatException.class,
+                () -> MessageBodyStore.decompress(CompressedBody, Body.length + 1));
+    }
+
+    @Test
+    @DisplayName("Failed body read rolls back to the savepoint only")
+    void testReadFailureRollsBackToSavepoint() {
+        List<String> Calls = new ArrayList<>();
+        Savepoint BeforeSelect = (Savepoint) Proxy.newProxyInstance(Savepoint.class.getClassLoader(),
+                new Class<?>[] { Savepoint.class }, (proxy, method, args) -> null);
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "setLong" -> null;
+                    case "executeQuery" -> throw new SQLException("relation \"message_queuebody\" does not exist");
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        TheadDataAccess theadDataAccess = new TheadDataAccess();
+        theadDataAccess.rdbmsVendor = "postgresql";
+        theadDataAccess.Hermes_Connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    Calls.add(method.getName() + (args != null && args[0] == BeforeSelect ? "(BeforeSelect)" : ""));
+                    return switch (method.getName()) {
+                        case "prepareStatement" -> stmt;
+                        case "setSavepoint" -> BeforeSelect;
+                        case "rollback" -> null;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+
+        assertNull(MessageBodyStore.ReadMessageBody(theadDataAccess, 1L, NOPLogger.NOP_LOGGER));
+        assertTrue(Calls.contains("rollback(BeforeSelect)"), Calls.toString());
+        assertFalse(Calls.contains("rollback"), Calls.toString());
+    }
+}
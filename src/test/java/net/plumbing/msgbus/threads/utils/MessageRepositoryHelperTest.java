@@ -0,0 +1,122 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageRepositoryHelperTest {
+
+    private static final Logger Log = LoggerFactory.getLogger(MessageRepositoryHelperTest.class);
+
+    private static MessageDirectionsVO direction(int MsgDirection_Id, String MsgDirection_Cod, String Subsys_Cod, int Base_Thread_Id, int Num_Thread) {
+        MessageDirectionsVO messageDirectionsVO = new MessageDirectionsVO();
+        messageDirectionsVO.setMessageDirectionsVO(MsgDirection_Id, MsgDirection_Cod, "", null, null, null, null, 0,
+                null, null, null, Subsys_Cod, Base_Thread_Id, Num_Thread, 1, 1, 1, 1);
+        return messageDirectionsVO;
+    }
+
+    private static MessageTypeVO type(int Interface_Id, int Operation_Id, String Msg_Type, String URL_SOAP_Send, String URL_SOAP_Ack) {
+        MessageTypeVO messageTypeVO = new MessageTypeVO();
+        messageTypeVO.setMessageTypeVO(Interface_Id, Operation_Id, Msg_Type, null, Msg_Type, "IN", 0,
+                URL_SOAP_Send, URL_SOAP_Ack, 1, 1, null);
+        return messageTypeVO;
+    }
+
+    private static MessageTemplateVO template(int Template_Id, int Interface_Id, int Operation_Id, int Source_Id, String Src_SubCod) {
+        MessageTemplateVO messageTemplateVO = new MessageTemplateVO();
+        messageTemplateVO.setMessageTemplateVO(Template_Id, Interface_Id, Operation_Id, Source_Id, Src_SubCod, 0, null,
+                null, null, "T" + Template_Id, "IN", "INFO", null, null, null);
+        return messageTemplateVO;
+    }
+
+    @BeforeEach
+    void publish() {
+        HashMap<Integer, MessageDirectionsVO> AllMessageDirections = new HashMap<>();
+        AllMessageDirections.put(0, direction(1, "SRC", null, 100, 4));
+        AllMessageDirections.put(1, direction(1, "SRC_A", "A", 102, 2));
+        AllMessageDirections.put(2, direction(2, "DST", null, 200, 1));
+
+        HashMap<Integer, MessageTypeVO> AllMessageType = new HashMap<>();
+        AllMessageType.put(0, type(10, 0, "Iface10", "/soap/10", "REST-XML"));
+        AllMessageType.put(1, type(10, 101, "CreateOrder", null, "NoConfirmation"));
+        AllMessageType.put(2, type(20, 0, "Iface20", "/soap/20", null));
+        AllMessageType.put(3, type(20, 201, "createorder", null, "NoWait4Sender"));
+
+        HashMap<Integer, MessageTemplateVO> AllMessageTemplate = new HashMap<>();
+        AllMessageTemplate.put(0, template(500, 10, 0, 0, null));
+        AllMessageTemplate.put(1, template(501, 10, 101, 0, null));
+        AllMessageTemplate.put(2, template(502, 10, 101, 1, "0"));
+        AllMessageTemplate.put(3, template(503, 10, 101, 1, "A"));
+
+        MessageRepositorySnapshot.publish(AllMessageDirections, AllMessageType, AllMessageTemplate);
+    }
+
+    @Test
+    @DisplayName("Directions: thread ranges, codes and sub-systems")
+    void testDirections() {
+        assertEquals("SRC", MessageRepositoryHelper.look4MessageDirectionsCode_4_Num_Thread(101, Log));
+        assertEquals("SRC_A", MessageRepositoryHelper.look4MessageDirectionsCode_4_Num_Thread(103, Log));
+        assertNull(MessageRepositoryHelper.look4MessageDirectionsCode_4_Num_Thread(150, Log));
+
+        assertEquals(1, MessageRepositoryHelper.look4MessageDirectionsVO_2_MsgDirection_Cod("src_a", Log));
+        assertEquals(-1, MessageRepositoryHelper.look4MessageDirectionsVO_2_MsgDirection_Cod("NONE", Log));
+
+        assertEquals(0, MessageRepositoryHelper.look4MessageDirectionsVO_2_Perform(1, "B", Log));
+        assertEquals(1, MessageRepositoryHelper.look4MessageDirectionsVO_2_Perform(1, "A", Log));
+        assertEquals(-1, MessageRepositoryHelper.look4MessageDirectionsVO_2_Perform(3, null, Log));
+    }
+
+    @Test
+    @DisplayName("Types: interface by URL, operation and message type")
+    void testTypes() {
+        assertEquals(20, MessageRepositoryHelper.look4MessageTypeVO_2_Interface("/soap/20", Log));
+        assertEquals(-1, MessageRepositoryHelper.look4MessageTypeVO_2_Interface("/soap/30", Log));
+        assertEquals("/soap/10", MessageRepositoryHelper.look4MessageURL_SOAP_Send_by_Interface(10, Log));
+        assertEquals(3, MessageRepositoryHelper.look4MessageTypeVO_by_Operation_Id(20, 201, Log));
+        assertEquals(1, MessageRepositoryHelper.look4MessageTypeVO_2_Perform(101, Log));
+        assertEquals("201", MessageRepositoryHelper.look4MessageTypeVO_by_MesssageType("CREATEORDER", 20, Log));
+        assertEquals(Integer.valueOf(10), MessageRepositoryHelper.look4MessageTypeVO_by_MesssageTypeGlobally("CreateOrder", Log));
+
+        assertTrue(MessageRepositoryHelper.isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation(101, Log));
+        assertTrue(MessageRepositoryHelper.isNoWaitSender4MessageTypeURL_SOAP_Ack_2_Operation(201, Log));
+        assertTrue(MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_RestXML_2_Interface("/soap/10", Log));
+        assertFalse(MessageRepositoryHelper.isLooked4MessageTypeURL_SOAP_Ack_Rest_2_Interface("/soap/20", Log));
+    }
+
+    @Test
+    @DisplayName("Templates: the most specific template of the operation wins")
+    void testTemplates() {
+        assertEquals(0, MessageRepositoryHelper.look4MessageTemplate_2_Interface(10, Log));
+        assertEquals(2, MessageRepositoryHelper.look4MessageTemplate(502, Log));
+        assertEquals(1, MessageRepositoryHelper.look4MessageTemplateVO_2_Perform(101, 2, "A", Log));
+        assertEquals(2, MessageRepositoryHelper.look4MessageTemplateVO_2_Perform(101, 1, "B", Log));
+        assertEquals(3, MessageRepositoryHelper.look4MessageTemplateVO_2_Perform(101, 1, "A", Log));
+        assertEquals(-1, MessageRepositoryHelper.look4MessageTemplateVO_2_Perform(999, 1, "A", Log));
+    }
+
+    @Test
+    @DisplayName("Publishing swaps the whole snapshot and keeps row keys")
+    void testPublish() {
+        MessageRepositorySnapshot Snapshot = MessageRepositorySnapshot.getCurrent();
+        HashMap<Integer, MessageTypeVO> AllMessageType = new HashMap<>(Snapshot.AllMessageType);
+        AllMessageType.put(1, type(10, 101, "CreateOrder", null, null));
+        AllMessageType.put(AllMessageType.size(), type(30, 0, "Iface30", "/soap/30", null));
+        MessageRepositorySnapshot.publish(Snapshot.AllMessageDirections, AllMessageType, Snapshot.AllMessageTemplate);
+
+        assertEquals(Snapshot.Version + 1, MessageRepositorySnapshot.getCurrent().Version);
+        assertSame(MessageRepositorySnapshot.getCurrent().AllMessageType, MessageType.AllMessageType);
+        assertEquals(5, MessageType.RowNum);
+        assertEquals(30, MessageRepositoryHelper.look4MessageTypeVO_2_Interface("/soap/30", Log));
+        assertFalse(MessageRepositoryHelper.isNoConfirmation4MessageTypeURL_SOAP_Ack_2_Operation(101, Log));
+        // старый снимок не изменился
+        assertEquals("NoConfirmation", Snapshot.AllMessageType.get(1).getURL_SOAP_Ack());
+        assertThrows(UnsupportedOperationException.class, () -> MessageType.AllMessageType.put(9, null));
+    }
+}
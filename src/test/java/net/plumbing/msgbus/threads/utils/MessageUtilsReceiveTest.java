@@ -0,0 +1,116 @@
+package net.plumbing.msgbus.threads.utils;
+
+import net.plumbing.msgbus.common.ApplicationProperties;
+import net.plumbing.msgbus.common.XMLchars;
+import net.plumbing.msgbus.model.MessageDetails;
+import net.plumbing.msgbus.model.MessageQueueVO;
+import net.plumbing.msgbus.threads.TheadDataAccess;
+import org.jdom2.Element;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageUtilsReceiveTest {
+
+    private static final Logger Log = NOPLogger.NOP_LOGGER;
+
+    @Test
+    @DisplayName("Failed detail insert leaves the header committed and moved to ERRIN")
+    void testDetailInsertFailureKeepsErrorIN() {
+        QueueTable queueTable = new QueueTable();
+        TheadDataAccess theadDataAccess = new TheadDataAccess();
+        theadDataAccess.rdbmsVendor = "postgresql";
+        theadDataAccess.Hermes_Connection = queueTable.connection();
+        boolean DetailsCopyEnabled = ApplicationProperties.DetailsCopyEnabled;
+        ApplicationProperties.DetailsCopyEnabled = false;
+        try {
+            MessageQueueVO messageQueueVO = new MessageQueueVO();
+            Long Queue_Id = MessageUtils.MakeNewMessage_Queue(messageQueueVO, theadDataAccess, Log);
+            assertNotNull(Queue_Id);
+
+            MessageDetails Message = new MessageDetails();
+            Message.Request_Method = new Element("CreateOrder").addContent(new Element("OrderId").setText("ORD-1"));
+            // так же, как PerfotmInputMessages после неудачного SaveMessage4Input
+            assertTrue(MessageUtils.SaveMessage4Input(theadDataAccess, Queue_Id, Message, messageQueueVO, Log) < 0);
+            assertEquals(0, (int) MessageUtils.ProcessingIn2ErrorIN(messageQueueVO, Message, theadDataAccess,
+                    "Не удалось сохранить содержимое сообщения", null, Log));
+
+            assertEquals(XMLchars.DirectERRIN, queueTable.Committed.get(Queue_Id));
+        } finally {
+            ApplicationProperties.DetailsCopyEnabled = DetailsCopyEnabled;
+        }
+    }
+
+    // MESSAGE_Queue в памяти: Queue_Id -> Queue_Direction, commit / rollback как у транзакции, вставка MESSAGE_QueueDET падает
+    private static final class QueueTable {
+        final Map<Long, String> Committed = new HashMap<>();
+        Map<Long, String> Working = new HashMap<>();
+        long NextQueue_Id = 1000L;
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> switch (method.getName()) {
+                        case "prepareStatement", "prepareCall" -> statement((String) args[0]);
+                        case "commit" -> { Committed.clear(); Committed.putAll(Working); yield null; }
+                        case "rollback" -> { Working = new HashMap<>(Committed); yield null; }
+                        case "unwrap" -> throw new SQLException("not a PGConnection");
+                        case "setAutoCommit", "close" -> null;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private PreparedStatement statement(String SQL) {
+            Map<Integer, Object> Parameters = new HashMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(CallableStatement.class.getClassLoader(),
+                    new Class<?>[] { CallableStatement.class }, (proxy, method, args) -> switch (method.getName()) {
+                        case "setLong", "setString", "setInt" -> { Parameters.put((Integer) args[0], args[1]); yield null; }
+                        case "addBatch", "clearBatch", "close" -> null;
+                        case "executeBatch" -> throw new SQLException("value too long for type character varying(256)");
+                        case "executeQuery" -> executeQuery(SQL, Parameters);
+                        case "executeUpdate" -> executeUpdate(SQL, Parameters);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private ResultSet executeQuery(String SQL, Map<Integer, Object> Parameters) {
+            Object[] Rows;
+            if (SQL.contains("MESSAGE_QUEUE_SEQ")) {
+                Rows = new Object[(Integer) Parameters.get(1)];
+                for (int i = 0; i < Rows.length; i++)
+                    Rows[i] = NextQueue_Id++;
+            } else {
+                Working.put((Long) Parameters.get(1), XMLchars.DirectNEWIN);
+                Rows = new Object[] { new Timestamp(System.currentTimeMillis()) };
+            }
+            int[] Row = { -1 };
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, (proxy, method, args) -> switch (method.getName()) {
+                        case "next" -> ++Row[0] < Rows.length;
+                        case "getLong", "getTimestamp" -> Rows[Row[0]];
+                        case "close" -> null;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private int executeUpdate(String SQL, Map<Integer, Object> Parameters) {
+            Long Queue_Id = (Long) Parameters.get(3);
+            if (!SQL.contains("'ERRIN'") || !Working.containsKey(Queue_Id))
+                return 0;
+            Working.put(Queue_Id, XMLchars.DirectERRIN);
+            return 1;
+        }
+    }
+}
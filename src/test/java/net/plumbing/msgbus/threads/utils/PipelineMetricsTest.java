@@ -0,0 +1,69 @@
+package net.plumbing.msgbus.threads.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    private boolean Enabled;
+    private MeterRegistry Registry;
+    private SimpleMeterRegistry TestRegistry;
+
+    @BeforeEach
+    void setUp() {
+        Enabled = PipelineMetrics.Enabled;
+        Registry = PipelineMetrics.Registry;
+        TestRegistry = new SimpleMeterRegistry();
+        PipelineMetrics.Registry = TestRegistry;
+        PipelineMetrics.Enabled = true;
+    }
+
+    @AfterEach
+    void tearDown() {
+        PipelineMetrics.Enabled = Enabled;
+        PipelineMetrics.Registry = Registry;
+    }
+
+    @Test
+    @DisplayName("Stage timings are recorded per pipeline, stage, interface, operation and template")
+    void testRecord() {
+        PipelineMetrics.record(PipelineMetrics.Receive, "test_record", 101, 7, 55, PipelineMetrics.start());
+        PipelineMetrics.record(PipelineMetrics.Receive, "test_record", 101, 7, 55, PipelineMetrics.start());
+        PipelineMetrics.record(PipelineMetrics.Receive, "test_record", 101, 8, 56, PipelineMetrics.start());
+
+        Timer Stage = TestRegistry.find("hermes.pipeline.stage")
+                .tags("pipeline", "receive", "stage", "test_record", "interface", "101", "operation", "7", "template", "55")
+                .timer();
+        assertNotNull(Stage);
+        assertEquals(2, Stage.count());
+        assertEquals(2, TestRegistry.find("hermes.pipeline.stage").tag("stage", "test_record").timers().size());
+    }
+
+    @Test
+    @DisplayName("Nothing is recorded while metrics are disabled")
+    void testDisabled() {
+        PipelineMetrics.Enabled = false;
+        long Start_Nanos = PipelineMetrics.start();
+        assertEquals(0L, Start_Nanos);
+        PipelineMetrics.send("test_disabled", null, Start_Nanos);
+        assertNull(TestRegistry.find("hermes.pipeline.stage").tag("stage", "test_disabled").timer());
+    }
+
+    @Test
+    @DisplayName("Stage without a template is tagged with zero ids")
+    void testNoTemplate() {
+        PipelineMetrics.send("test_no_template", null, PipelineMetrics.start());
+        Timer Stage = TestRegistry.find("hermes.pipeline.stage")
+                .tags("pipeline", "send", "stage", "test_no_template", "interface", "0", "operation", "0", "template", "0")
+                .timer();
+        assertNotNull(Stage);
+        assertEquals(1, Stage.count());
+    }
+}
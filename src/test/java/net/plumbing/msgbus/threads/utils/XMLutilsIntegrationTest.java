@@ -1,12 +1,19 @@
 package net.plumbing.msgbus.threads.utils;
 
 import net.plumbing.msgbus.common.XMLchars;
+import net.plumbing.msgbus.model.XsltExecutableRegistry;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.jdom2.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -194,6 +201,44 @@ class XMLutilsIntegrationTest {
         assertEquals(XMLchars.EmptyXSLT_Result, result3, "Should return empty result for short XML");
     }
 
+    @Test
+    @DisplayName("Test ConvXMLuseXSLT30toDocument with a text-output stylesheet")
+    void testConvXMLuseXSLT30toDocument_TextOutput() throws Exception {
+        // EnvelopeInXSLT, собирающий конверт текстом: дерево такой стиль не строит, результат разбирается из строки
+        String xslt = "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                + "<xsl:output method=\"text\"/><xsl:template match=\"/\">"
+                + "<xsl:text>&lt;Envelope&gt;&lt;Body&gt;&lt;Order&gt;&lt;Id&gt;</xsl:text><xsl:value-of select=\"/Envelope/Body/Order/Id\"/>"
+                + "<xsl:text>&lt;/Id&gt;&lt;/Order&gt;&lt;/Body&gt;&lt;/Envelope&gt;</xsl:text></xsl:template></xsl:stylesheet>";
+        XsltExecutable xsltExecutable = XsltExecutableRegistry.compile(xslt);
+        StringBuilder msgResult = new StringBuilder();
+        StringBuilder convXMLuseXSLTerr = new StringBuilder();
+
+        Document result = XMLutils.ConvXMLuseXSLT30toDocument(123L,
+                new StreamSource(new StringReader("<Envelope><Body><Order><Id>42</Id></Order></Body></Envelope>")),
+                XsltExecutableRegistry.load30(xsltExecutable), xslt, msgResult, convXMLuseXSLTerr, logger, false);
+
+        assertNotNull(result, "Text output that is XML should give a document: " + convXMLuseXSLTerr);
+        assertEquals(XMLchars.Envelope, result.getRootElement().getName());
+        assertEquals("42", result.getRootElement().getChild(XMLchars.Body).getChild("Order").getChildText("Id"));
+    }
+
+    @Test
+    @DisplayName("Test ConvXMLuseXSLT30toDocument with a text-output stylesheet that does not produce XML")
+    void testConvXMLuseXSLT30toDocument_TextOutputNotXml() throws Exception {
+        String xslt = "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                + "<xsl:output method=\"text\"/><xsl:template match=\"/\">"
+                + "<xsl:text>{\"Id\": \"</xsl:text><xsl:value-of select=\"/Envelope/Body/Order/Id\"/><xsl:text>\"}</xsl:text>"
+                + "</xsl:template></xsl:stylesheet>";
+        XsltExecutable xsltExecutable = XsltExecutableRegistry.compile(xslt);
+        StringBuilder msgResult = new StringBuilder();
+        StringBuilder convXMLuseXSLTerr = new StringBuilder();
+
+        assertThrows(SaxonApiException.class, () -> XMLutils.ConvXMLuseXSLT30toDocument(123L,
+                new StreamSource(new StringReader("<Envelope><Body><Order><Id>42</Id></Order></Body></Envelope>")),
+                XsltExecutableRegistry.load30(xsltExecutable), xslt, msgResult, convXMLuseXSLTerr, logger, false));
+        assertTrue(convXMLuseXSLTerr.toString().contains("не XML"), convXMLuseXSLTerr.toString());
+    }
+
     @Test
     @DisplayName("Test constants from XMLchars class")
     void testXMLcharsConstants() {